@@ -1,16 +1,28 @@
 package eisenwave.torrens.stl;
 
 import eisenwave.torrens.error.FileSyntaxException;
-import eisenwave.torrens.io.Deserializer;
+import eisenwave.torrens.io.BufferDeserializer;
 import eisenwave.torrens.io.LittleDataInputStream;
-import eisenwave.torrens.object.Vertex3f;
+import eisenwave.torrens.util.NumberParser;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * <p>
@@ -19,18 +31,44 @@ import java.nio.charset.Charset;
  * Both ASCII STL and binary STL  files are supported.
  * <p>
  * If the STL-file is binary, triangle attributes are given no special interpretation.
+ * <p>
+ * Binary STL is parsed directly when reading from a {@link ByteBuffer}. ASCII STL is read in blocks of bytes and
+ * tokenized by a state machine which parses keywords and floats directly from the raw bytes.
+ * <p>
+ * Large files can be read with an {@link STLTriangleVisitor} instead, which receives every triangle as primitive
+ * floats and never materializes an {@link STLModel}, or with {@link #fromFileParallel(File)}, which parses the file
+ * using multiple threads.
  */
-public class DeserializerSTL implements Deserializer<STLModel> {
+public class DeserializerSTL implements BufferDeserializer<STLModel> {
     
     private final static Charset US_ASCII = Charset.forName("US-ASCII");
     private final static String ASCII_STL_MAGIC = "solid";
     
-    /** expect start of file */
-    private final static int
-        S_START = 0,
+    private final static byte[]
+        FACET = bytes("facet"),
+        NORMAL = bytes("normal"),
+        OUTER = bytes("outer"),
+        LOOP = bytes("loop"),
+        VERTEX = bytes("vertex"),
+        ENDLOOP = bytes("endloop"),
+        ENDFACET = bytes("endfacet"),
+        ENDSOLID = bytes("endsolid");
+    
+    /** The size of the blocks in which ASCII STL is read. */
+    private final static int BLOCK_SIZE = 1 << 16;
+    /** The minimum size of a chunk when parsing in parallel. */
+    private final static int MIN_CHUNK_SIZE = 1 << 20;
+    /** The maximum size of a chunk when parsing in parallel, which is mapped into a single buffer. */
+    private final static int MAX_CHUNK_SIZE = 1 << 30;
+    /** The size of the windows in which facets are searched when splitting ASCII STL into chunks. */
+    private final static int FACET_WINDOW_SIZE = 1 << 16;
+    /** The size of a triangle in binary STL. */
+    private final static int BINARY_TRIANGLE_SIZE = 50;
+    
     /** expect facet or endsolid */
-    S_FACET = 1,
-    /** expect out loop */
+    private final static int
+        S_FACET = 1,
+    /** expect facet normal or outer loop */
     S_OUTER_LOOP = 2,
     /** expect first vertex */
     S_VERTEX_1 = 3,
@@ -53,119 +91,367 @@ public class DeserializerSTL implements Deserializer<STLModel> {
     }
     */
     
-    private STLModel result = null;
-    private int state = 0;
-    private Vertex3f[] buffer = new Vertex3f[4];
+    /** normal and vertices of the current binary triangle */
+    private final float[] triangleBuffer = new float[12];
     
     @NotNull
     @Override
     public STLModel fromStream(InputStream stream) throws IOException {
+        ModelBuilder builder = new ModelBuilder();
+        fromStream(stream, builder);
+        return builder.model;
+    }
+    
+    @NotNull
+    @Override
+    public STLModel fromBuffer(ByteBuffer buffer) throws IOException {
+        ModelBuilder builder = new ModelBuilder();
+        fromBuffer(buffer, builder);
+        return builder.model;
+    }
+    
+    /**
+     * Reads an STL file from a stream and passes every triangle to the visitor, without materializing an
+     * {@link STLModel}.
+     *
+     * @param stream the input stream
+     * @param visitor the triangle visitor
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    public void fromStream(InputStream stream, STLTriangleVisitor visitor) throws IOException {
         String fiveStr = deserializeASCII(stream, 5);
         
         // ASCII STL
         if (fiveStr.equals(ASCII_STL_MAGIC)) {
-            if (stream.skip(1) != 1) throw new IOException(); //skip one space
-            BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-            String solidName = reader.readLine();
-            
-            result = new STLModel(solidName);
-            int lineNo = 2; //first line containing the solid name has already been read
-            this.state = S_FACET;
-            for (String line = reader.readLine(); ; line = reader.readLine(), lineNo++) {
-                if (line == null)
-                    throw new FileSyntaxException("line " + lineNo + ": unexpected end of file");
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                if (line.startsWith("endsolid")) {
-                    if (state != S_FACET)
-                        throw new FileSyntaxException("line " + lineNo + ": unexpected endsolid");
-                    else break;
-                }
-                try {
-                    interpret(line);
-                } catch (IllegalArgumentException ex) {
-                    throw new FileSyntaxException("line " + lineNo + ": " + ex.getMessage());
-                }
-            }
+            parseAscii(new Scanner(stream, null), visitor);
         }
         
         // BINARY STL
         else {
             LittleDataInputStream littleStream = new LittleDataInputStream(stream);
-            String header = fiveStr + deserializeASCII(stream, 75);
-            result = new STLModel(header);
+            visitor.visitHeader(fiveStr + deserializeASCII(stream, 75));
             
+            final float[] floats = this.triangleBuffer;
             final int size = littleStream.readLittleInt();
-            for (int i = 0; i < size; i++)
-                result.add(deserializeTriangle(littleStream));
+            for (int i = 0; i < size; i++) {
+                littleStream.readLittleFloats(floats);
+                visitor.visit(floats, littleStream.readLittleShort());
+            }
+        }
+    }
+    
+    /**
+     * Reads an STL file from a buffer and passes every triangle to the visitor, without materializing an
+     * {@link STLModel}.
+     *
+     * @param buffer the buffer
+     * @param visitor the triangle visitor
+     * @throws IOException if the file is malformed
+     */
+    public void fromBuffer(ByteBuffer buffer, STLTriangleVisitor visitor) throws IOException {
+        // ASCII STL
+        if (isAscii(buffer)) {
+            buffer.position(buffer.position() + ASCII_STL_MAGIC.length());
+            parseAscii(new Scanner(null, buffer), visitor);
+            return;
         }
         
-        return result;
+        // BINARY STL
+        try {
+            byte[] header = new byte[80];
+            buffer.get(header);
+            visitor.visitHeader(new String(header, US_ASCII));
+            
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            final float[] floats = this.triangleBuffer;
+            final int size = buffer.getInt();
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < floats.length; j++)
+                    floats[j] = buffer.getFloat();
+                visitor.visit(floats, buffer.getShort());
+            }
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException("unexpected end of binary stl data");
+        }
+    }
+    
+    /**
+     * Reads an STL file by mapping it into memory and passes every triangle to the visitor. Files exceeding the
+     * maximum size of a buffer ({@link Integer#MAX_VALUE} bytes) are read as a stream instead.
+     *
+     * @param file the file
+     * @param visitor the triangle visitor
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    public void fromFile(File file, STLTriangleVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                fromStream(new BufferedInputStream(Channels.newInputStream(channel)), visitor);
+            else
+                fromBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), visitor);
+        }
+    }
+    
+    // PARALLEL
+    
+    /**
+     * Reads an STL file using multiple threads. The file is memory-mapped and split into chunks, which are decoded
+     * concurrently. ASCII STL is split at the start of facets, binary STL at triangle boundaries.
+     *
+     * @param file the file
+     * @return the model
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    public STLModel fromFileParallel(File file) throws IOException {
+        final int chunks = (int) Math.max(1, Math.min(
+            file.length() / MIN_CHUNK_SIZE,
+            Runtime.getRuntime().availableProcessors() * 4));
+        return fromFileParallel(file, chunks);
+    }
+    
+    /**
+     * Reads an STL file using the given amount of chunks.
+     *
+     * @param file the file
+     * @param chunks the amount of chunks
+     * @return the model
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    STLModel fromFileParallel(File file, int chunks) throws IOException {
+        if (chunks < 1)
+            throw new IllegalArgumentException("chunks must be positive (is " + chunks + ")");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer magic = ByteBuffer.allocate(ASCII_STL_MAGIC.length());
+            channel.read(magic, 0);
+            magic.flip();
+            return isAscii(magic)? parseAsciiParallel(channel, chunks) : parseBinaryParallel(channel, chunks);
+        }
     }
     
-    private void interpret(String line) throws IllegalArgumentException {
-        assert !line.isEmpty();
-        String[] split = line.split("[ ]+", 5);
-        assert split.length > 0;
+    private static STLModel parseBinaryParallel(FileChannel channel, int chunks) throws IOException {
+        final ByteBuffer head = ByteBuffer.allocate(84).order(ByteOrder.LITTLE_ENDIAN);
+        while (head.hasRemaining())
+            if (channel.read(head, head.position()) < 0)
+                throw new EOFException("unexpected end of binary stl data");
         
-        switch (state) {
-            case S_FACET:
-                if (!split[0].equals("facet"))
-                    throw new IllegalArgumentException("expected 'facet ...': " + line);
-                if (split.length > 2) {
-                    if (!split[1].equals("normal") || split.length != 5)
-                        throw new IllegalArgumentException("expected 'facet normal <x> <y> <z>': " + line);
-                    buffer[3] = parseVertex(split[2], split[3], split[4]); // EITHER use the given normal ...
+        final byte[] header = new byte[80];
+        head.flip();
+        head.get(header);
+        final int size = head.getInt();
+        if (size < 0 || (channel.size() - 84) / BINARY_TRIANGLE_SIZE < size)
+            throw new EOFException("unexpected end of binary stl data");
+        if ((long) size * STLModel.FLOATS_PER_TRIANGLE > Integer.MAX_VALUE)
+            throw new IOException("binary stl with " + size + " triangles exceeds the maximum size of a model");
+        
+        final float[] data = new float[size * STLModel.FLOATS_PER_TRIANGLE];
+        final short[] attributes = new short[size];
+        final int chunkCount = (int) Math.max(chunks, (long) size * BINARY_TRIANGLE_SIZE / MAX_CHUNK_SIZE + 1);
+        
+        // every chunk maps and decodes a range of triangles into its own range of the arrays
+        try {
+            IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+                final int
+                    from = (int) ((long) size * chunk / chunkCount),
+                    to = (int) ((long) size * (chunk + 1) / chunkCount);
+                if (from == to) return;
+                
+                final ByteBuffer buffer;
+                try {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        84 + (long) from * BINARY_TRIANGLE_SIZE, (long) (to - from) * BINARY_TRIANGLE_SIZE);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
                 }
-                else buffer[3] = null; // ... OR calculate the normal from the 3 vertices
-                state = S_OUTER_LOOP;
-                break;
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                
+                for (int i = from, position = 0; i < to; i++, position += BINARY_TRIANGLE_SIZE) {
+                    for (int j = 0; j < STLModel.FLOATS_PER_TRIANGLE; j++)
+                        data[i * STLModel.FLOATS_PER_TRIANGLE + j] = buffer.getFloat(position + j * 4);
+                    attributes[i] = buffer.getShort(position + STLModel.FLOATS_PER_TRIANGLE * 4);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        
+        return new STLModel(new String(header, US_ASCII), data, attributes, size);
+    }
+    
+    private static STLModel parseAsciiParallel(FileChannel channel, int chunks) throws IOException {
+        final long size = channel.size();
+        final int chunkCount = (int) Math.max(chunks, size / MAX_CHUNK_SIZE + 1);
+        
+        final long[] bounds = new long[chunkCount + 1];
+        bounds[chunkCount] = size;
+        for (int i = 1; i < chunkCount; i++)
+            bounds[i] = nextFacet(channel, Math.max(size * i / chunkCount, bounds[i - 1]));
+        
+        final AsciiChunk[] results;
+        try {
+            results = IntStream.range(0, chunkCount).parallel()
+                .mapToObj(i -> parseAsciiChunk(channel, bounds[i], bounds[i + 1], i == 0, i == chunkCount - 1))
+                .toArray(AsciiChunk[]::new);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        
+        // merge all chunks up to the end of the solid, reporting the first error with its absolute line
+        int newlines = 0, used = 0;
+        long triangles = 0;
+        for (AsciiChunk chunk : results) {
+            if (chunk.error != null)
+                throw new FileSyntaxException("line " + (newlines + chunk.error.newlines + 1) + ": " + chunk.error.detail);
+            newlines += chunk.newlines;
+            triangles += chunk.builder.model.size();
+            used++;
+            if (chunk.ended) break;
+        }
+        if (triangles * STLModel.FLOATS_PER_TRIANGLE > Integer.MAX_VALUE)
+            throw new IOException("ascii stl with " + triangles + " triangles exceeds the maximum size of a model");
+        
+        final float[] data = new float[(int) triangles * STLModel.FLOATS_PER_TRIANGLE];
+        final short[] attributes = new short[(int) triangles];
+        int offset = 0;
+        for (int i = 0; i < used; i++) {
+            final STLModel model = results[i].builder.model;
+            System.arraycopy(model.getData(), 0, data, offset * STLModel.FLOATS_PER_TRIANGLE,
+                model.size() * STLModel.FLOATS_PER_TRIANGLE);
+            System.arraycopy(model.getAttributes(), 0, attributes, offset, model.size());
+            offset += model.size();
+        }
+        
+        return new STLModel(results[0].builder.model.getHeader(), data, attributes, (int) triangles);
+    }
+    
+    private static AsciiChunk parseAsciiChunk(FileChannel channel, long from, long to, boolean first, boolean last) {
+        final AsciiChunk chunk = new AsciiChunk();
+        
+        final ByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (first)
+            buffer.position(ASCII_STL_MAGIC.length());
+        
+        final Scanner scanner = new Scanner(null, buffer);
+        final AsciiParser parser = new AsciiParser(scanner, chunk.builder);
+        
+        try {
+            if (first)
+                chunk.builder.visitHeader(scanner.readLine().trim());
+            else
+                chunk.builder.visitHeader("");
             
-            case S_OUTER_LOOP:
-                if (!line.equals("outer loop"))
-                    throw new IllegalArgumentException("expected 'outer loop'");
-                state = S_VERTEX_1;
-                break;
+            chunk.ended = parser.parse();
+            if (!chunk.ended && last)
+                throw scanner.error("unexpected end of file");
+            // the next chunk starts with a facet, which the sequential parser would have rejected here
+            if (!chunk.ended && parser.state != S_FACET)
+                throw scanner.error("unexpected 'facet'");
+        } catch (AsciiSyntaxError error) {
+            chunk.error = error;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        
+        chunk.newlines = scanner.newlines;
+        return chunk;
+    }
+    
+    /**
+     * Returns the position of the first line starting at or after the given position whose first token is
+     * {@code facet}, or the size of the file if there is none. The file is searched in mapped windows.
+     */
+    private static long nextFacet(FileChannel channel, long position) throws IOException {
+        final long size = channel.size();
+        while (position < size) {
+            final int length = (int) Math.min(size - position, FACET_WINDOW_SIZE);
+            final ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            final int facet = nextFacet(window, 0);
+            if (facet < length || position + length == size)
+                return position + facet;
             
-            case S_VERTEX_1:
-            case S_VERTEX_2:
-            case S_VERTEX_3: {
-                if (!split[0].equals("vertex") || split.length != 4)
-                    throw new IllegalArgumentException("invalid syntax (vertex): " + line);
-                buffer[state - S_VERTEX_1] = parseVertex(split[1], split[2], split[3]);
-                if (state == S_VERTEX_3) {
-                    Vertex3f
-                        v1 = buffer[0], v2 = buffer[1], v3 = buffer[2],
-                        n = buffer[3] != null? buffer[3] : normal(v1, v2, v3);
-                    result.add(new STLTriangle(buffer[3], buffer[0], buffer[1], buffer[2]));
-                }
-                state++;
-                break;
-            }
+            // continue at the last line break, so that a facet which is cut off by the window is found in the next one
+            int last = length - 1;
+            while (last > 0 && window.get(last) != '\n') last--;
+            position += last > 0? last : length;
+        }
+        return size;
+    }
+    
+    /**
+     * Returns the position of the first line starting at or after the given position whose first token is
+     * {@code facet}, or the limit of the buffer if there is none.
+     */
+    private static int nextFacet(ByteBuffer buffer, int position) {
+        final int limit = buffer.limit();
+        for (int i = position; i < limit; i++) {
+            if (buffer.get(i) != '\n') continue;
             
-            case S_ENDLOOP:
-                if (!line.equals("endloop"))
-                    throw new IllegalArgumentException("expected 'endloop'");
-                state = S_ENDFACET;
-                break;
+            int j = i + 1;
+            while (j < limit && buffer.get(j) != '\n' && isWhitespace(buffer.get(j))) j++;
+            if (j + FACET.length >= limit) return limit;
             
-            case S_ENDFACET:
-                if (!line.equals("endfacet"))
-                    throw new IllegalArgumentException("expected 'endfacet'");
-                state = S_FACET;
-                break;
+            boolean match = isWhitespace(buffer.get(j + FACET.length));
+            for (int k = 0; match && k < FACET.length; k++)
+                match = buffer.get(j + k) == FACET[k];
+            if (match) return j;
         }
+        return limit;
     }
     
-    private static Vertex3f normal(Vertex3f v1, Vertex3f v2, Vertex3f v3) {
-        return v2.minus(v1).cross(v3.minus(v1)).normalized();
+    // ASCII
+    
+    private static void parseAscii(Scanner scanner, STLTriangleVisitor visitor) throws IOException {
+        // the magic has already been consumed, the remainder of the first line is the solid name
+        visitor.visitHeader(scanner.readLine().trim());
+        
+        try {
+            if (!new AsciiParser(scanner, visitor).parse())
+                throw scanner.error("unexpected end of file");
+        } catch (AsciiSyntaxError error) {
+            throw new FileSyntaxException("line " + (error.newlines + 1) + ": " + error.detail);
+        }
     }
     
-    private static Vertex3f parseVertex(String x, String y, String z) throws IllegalArgumentException {
-        return new Vertex3f(
-            Float.parseFloat(x),
-            Float.parseFloat(y),
-            Float.parseFloat(z));
+    /**
+     * Computes the normal of the triangle in the buffer from its vertices and stores it at the start of the buffer.
+     */
+    private static void normal(float[] t) {
+        final float
+            ux = t[6] - t[3], uy = t[7] - t[4], uz = t[8] - t[5],
+            vx = t[9] - t[3], vy = t[10] - t[4], vz = t[11] - t[5],
+            nx = uy * vz - uz * vy,
+            ny = uz * vx - ux * vz,
+            nz = ux * vy - uy * vx,
+            length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        
+        t[0] = nx / length;
+        t[1] = ny / length;
+        t[2] = nz / length;
+    }
+    
+    // UTIL
+    
+    private static boolean isAscii(ByteBuffer buffer) throws EOFException {
+        if (buffer.remaining() < 5)
+            throw new EOFException();
+        
+        final int position = buffer.position();
+        for (int i = 0; i < ASCII_STL_MAGIC.length(); i++)
+            if (buffer.get(position + i) != ASCII_STL_MAGIC.charAt(i))
+                return false;
+        return true;
+    }
+    
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f';
+    }
+    
+    private static byte[] bytes(String keyword) {
+        return keyword.getBytes(US_ASCII);
     }
     
     private static String deserializeASCII(InputStream stream, int length) throws IOException {
@@ -174,20 +460,278 @@ public class DeserializerSTL implements Deserializer<STLModel> {
         return new String(bytes, US_ASCII);
     }
     
-    private static STLTriangle deserializeTriangle(LittleDataInputStream stream) throws IOException {
-        return new STLTriangle(
-            deserializeVertex(stream),
-            deserializeVertex(stream),
-            deserializeVertex(stream),
-            deserializeVertex(stream),
-            stream.readShort());
+    // CLASSES
+    
+    /**
+     * Splits ASCII STL into whitespace-separated tokens. The input is read in blocks from either a stream or a
+     * buffer, so that tokens can be compared and parsed directly in the block.
+     */
+    private static class Scanner {
+        
+        @Nullable
+        private final InputStream stream;
+        @Nullable
+        private final ByteBuffer buffer;
+        
+        private byte[] block = new byte[BLOCK_SIZE];
+        private int pos, length;
+        private int tokenStart, tokenEnd;
+        /** The amount of line terminators which have been passed so far. */
+        private int newlines;
+        /** Reused buffer for widening numeric tokens into chars. */
+        private char[] chars = new char[32];
+        
+        private Scanner(@Nullable InputStream stream, @Nullable ByteBuffer buffer) {
+            this.stream = stream;
+            this.buffer = buffer;
+        }
+        
+        /**
+         * Advances to the next token.
+         *
+         * @return whether there is another token
+         * @throws IOException if an I/O error occurs
+         */
+        public boolean nextToken() throws IOException {
+            for (; ; pos++) {
+                if (pos == length && !fill(pos))
+                    return false;
+                final byte b = block[pos];
+                if (b == '\n') newlines++;
+                else if (!isWhitespace(b)) break;
+            }
+            
+            tokenStart = pos;
+            for (; ; pos++) {
+                if (pos == length && !fill(tokenStart))
+                    break;
+                if (isWhitespace(block[pos]))
+                    break;
+            }
+            tokenEnd = pos;
+            return true;
+        }
+        
+        /**
+         * Reads the remainder of the current line, consuming the line terminator.
+         *
+         * @return the remainder of the line
+         * @throws IOException if an I/O error occurs
+         */
+        public String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            while (pos < length || fill(pos)) {
+                final byte b = block[pos++];
+                if (b == '\n') {
+                    newlines++;
+                    break;
+                }
+                line.write(b);
+            }
+            return new String(line.toByteArray(), US_ASCII);
+        }
+        
+        public boolean tokenIs(byte[] keyword) {
+            if (tokenEnd - tokenStart != keyword.length)
+                return false;
+            for (int i = 0; i < keyword.length; i++)
+                if (block[tokenStart + i] != keyword[i])
+                    return false;
+            return true;
+        }
+        
+        public float tokenFloat() throws AsciiSyntaxError {
+            final int length = tokenEnd - tokenStart;
+            if (chars.length < length)
+                chars = new char[length];
+            for (int i = 0; i < length; i++)
+                chars[i] = (char) (block[tokenStart + i] & 0xFF);
+            
+            try {
+                return NumberParser.parseFloat(chars, 0, length);
+            } catch (NumberFormatException ex) {
+                throw error("invalid number: " + new String(chars, 0, length));
+            }
+        }
+        
+        public String tokenString() {
+            return new String(block, tokenStart, tokenEnd - tokenStart, US_ASCII);
+        }
+        
+        public AsciiSyntaxError error(String detail) {
+            return new AsciiSyntaxError(newlines, detail);
+        }
+        
+        /**
+         * Reads more input into the block, discarding all bytes before the given index.
+         *
+         * @return whether any bytes could be read
+         */
+        private boolean fill(int keep) throws IOException {
+            length -= keep;
+            System.arraycopy(block, keep, block, 0, length);
+            pos -= keep;
+            tokenStart -= keep;
+            if (length == block.length)
+                block = Arrays.copyOf(block, block.length * 2);
+            
+            final int read;
+            if (stream != null)
+                read = stream.read(block, length, block.length - length);
+            else {
+                assert buffer != null;
+                read = Math.min(buffer.remaining(), block.length - length);
+                buffer.get(block, length, read);
+            }
+            
+            if (read <= 0)
+                return false;
+            length += read;
+            return true;
+        }
+        
     }
     
-    private static Vertex3f deserializeVertex(LittleDataInputStream stream) throws IOException {
-        return new Vertex3f(
-            stream.readLittleFloat(),
-            stream.readLittleFloat(),
-            stream.readLittleFloat());
+    /**
+     * A state machine which parses the facets of ASCII STL from the tokens of a {@link Scanner}.
+     */
+    private static class AsciiParser {
+        
+        private final Scanner scanner;
+        private final STLTriangleVisitor visitor;
+        
+        /** normal and vertices of the current triangle */
+        private final float[] triangle = new float[12];
+        /** whether the current triangle was given a normal */
+        private boolean hasNormal;
+        private int state = S_FACET;
+        
+        private AsciiParser(Scanner scanner, STLTriangleVisitor visitor) {
+            this.scanner = scanner;
+            this.visitor = visitor;
+        }
+        
+        /**
+         * Parses facets until {@code endsolid} or the end of the input.
+         *
+         * @return whether {@code endsolid} was reached
+         */
+        public boolean parse() throws IOException, AsciiSyntaxError {
+            final Scanner scanner = this.scanner;
+            final float[] floats = this.triangle;
+            
+            while (scanner.nextToken()) {
+                switch (state) {
+                    case S_FACET:
+                        if (scanner.tokenIs(ENDSOLID))
+                            return true;
+                        expect(FACET, "expected 'facet ...'");
+                        hasNormal = false;
+                        state = S_OUTER_LOOP;
+                        break;
+                    
+                    case S_OUTER_LOOP:
+                        if (!hasNormal && scanner.tokenIs(NORMAL)) {
+                            parseVertex(floats, 0); // EITHER use the given normal ...
+                            hasNormal = true;
+                            break;
+                        }
+                        expect(OUTER, "expected 'outer loop'");
+                        if (!scanner.nextToken()) throw scanner.error("unexpected end of file");
+                        expect(LOOP, "expected 'outer loop'");
+                        state = S_VERTEX_1;
+                        break;
+                    
+                    case S_VERTEX_1:
+                    case S_VERTEX_2:
+                    case S_VERTEX_3:
+                        expect(VERTEX, "invalid syntax (vertex)");
+                        parseVertex(floats, 3 + (state - S_VERTEX_1) * 3);
+                        if (state == S_VERTEX_3) {
+                            if (!hasNormal)
+                                normal(floats); // ... OR calculate the normal from the 3 vertices
+                            visitor.visit(floats, (short) 0);
+                        }
+                        state++;
+                        break;
+                    
+                    case S_ENDLOOP:
+                        expect(ENDLOOP, "expected 'endloop'");
+                        state = S_ENDFACET;
+                        break;
+                    
+                    case S_ENDFACET:
+                        expect(ENDFACET, "expected 'endfacet'");
+                        state = S_FACET;
+                        break;
+                }
+            }
+            
+            return false;
+        }
+        
+        private void expect(byte[] keyword, String detail) throws AsciiSyntaxError {
+            if (!scanner.tokenIs(keyword))
+                throw scanner.error(detail + ": " + scanner.tokenString());
+        }
+        
+        private void parseVertex(float[] target, int offset) throws IOException, AsciiSyntaxError {
+            for (int i = 0; i < 3; i++) {
+                if (!scanner.nextToken())
+                    throw scanner.error("unexpected end of file");
+                target[offset + i] = scanner.tokenFloat();
+            }
+        }
+        
+    }
+    
+    /**
+     * A syntax error in ASCII STL, along with the amount of line terminators which preceded it.
+     */
+    private static class AsciiSyntaxError extends Exception {
+        
+        private final int newlines;
+        private final String detail;
+        
+        private AsciiSyntaxError(int newlines, String detail) {
+            super(detail, null, false, false);
+            this.newlines = newlines;
+            this.detail = detail;
+        }
+        
+    }
+    
+    /**
+     * The result of parsing one chunk of an ASCII STL file in parallel.
+     */
+    private static class AsciiChunk {
+        
+        private final ModelBuilder builder = new ModelBuilder();
+        private int newlines;
+        /** whether the chunk contains the end of the solid */
+        private boolean ended;
+        @Nullable
+        private AsciiSyntaxError error;
+        
+    }
+    
+    /**
+     * Collects visited triangles into a model.
+     */
+    private static class ModelBuilder implements STLTriangleVisitor {
+        
+        private STLModel model;
+        
+        @Override
+        public void visitHeader(String header) {
+            model = new STLModel(header);
+        }
+        
+        @Override
+        public void visit(float[] t, short attribute) {
+            model.add(t, attribute);
+        }
+        
     }
     
 }
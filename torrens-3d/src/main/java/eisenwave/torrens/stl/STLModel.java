@@ -2,22 +2,65 @@ package eisenwave.torrens.stl;
 
 import eisenwave.torrens.object.BoundingBox6f;
 import eisenwave.torrens.object.Vertex3f;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
+ * <p>
  * Object representation of a <i><b>ST</b>ereo<b>L</b>ithography</i> /
  * <i><b>S</b>tandard <b>T</b>essellation <b>L</b>anguage</i>.
+ * </p>
+ * <p>
+ * Triangles are stored in a packed primitive buffer of {@value #FLOATS_PER_TRIANGLE} floats per triangle in the order
+ * {@code nx, ny, nz, ax, ay, az, bx, by, bz, cx, cy, cz}, along with a parallel array of attributes. This mirrors the
+ * layout of binary STL files, so no objects are allocated per triangle. {@link STLTriangle} objects are only created
+ * on demand by the {@link #getTriangles()} view.
+ * </p>
  */
 public class STLModel {
     
-    private final List<STLTriangle> triangles = new ArrayList<>();
+    /**
+     * The amount of floats stored per triangle: one normal and three vertices.
+     */
+    public final static int FLOATS_PER_TRIANGLE = 12;
+    
+    private final static int DEFAULT_CAPACITY = 16;
+    
+    private float[] data;
+    private short[] attributes;
+    private int size = 0;
     
     private String header;
     
+    public STLModel(String header, int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must be positive");
+        setHeader(header);
+        this.data = new float[capacity * FLOATS_PER_TRIANGLE];
+        this.attributes = new short[capacity];
+    }
+    
     public STLModel(String header) {
+        this(header, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructs a model which adopts already packed triangle data.
+     *
+     * @param header the header
+     * @param data the packed triangle data
+     * @param attributes the attributes
+     * @param size the amount of triangles
+     */
+    STLModel(String header, float[] data, short[] attributes, int size) {
         setHeader(header);
+        if (data.length < size * FLOATS_PER_TRIANGLE || attributes.length < size)
+            throw new IllegalArgumentException("buffers are too small for " + size + " triangles");
+        this.data = data;
+        this.attributes = attributes;
+        this.size = size;
     }
     
     public STLModel() {
@@ -26,8 +69,42 @@ public class STLModel {
     
     // GETTERS
     
+    /**
+     * Returns a list view of the triangles in this model. Every call of {@link List#get(int)} creates a new
+     * {@link STLTriangle} from the packed data, so {@link #forEach(STLTriangleVisitor)} or
+     * {@link #getTriangle(int, float[], int)} should be preferred for iterating over large models.
+     * <p>
+     * Triangles can be appended to the view but not removed or replaced.
+     *
+     * @return a view of the triangles
+     */
     public List<STLTriangle> getTriangles() {
-        return triangles;
+        return new TriangleView();
+    }
+    
+    /**
+     * Copies the normal and vertices of the triangle at the given index into an array.
+     *
+     * @param index the triangle index
+     * @param dest the destination array
+     * @param offset the offset in the destination array
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public void getTriangle(int index, float[] dest, int offset) {
+        checkIndex(index);
+        System.arraycopy(data, index * FLOATS_PER_TRIANGLE, dest, offset, FLOATS_PER_TRIANGLE);
+    }
+    
+    /**
+     * Returns the attribute of the triangle at the given index.
+     *
+     * @param index the triangle index
+     * @return the triangle attribute
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public short getAttribute(int index) {
+        checkIndex(index);
+        return attributes[index];
     }
     
     /**
@@ -36,7 +113,7 @@ public class STLModel {
      * @return the amount of triangles
      */
     public int size() {
-        return triangles.size();
+        return size;
     }
     
     /**
@@ -51,23 +128,23 @@ public class STLModel {
     
     public BoundingBox6f getBoundaries() {
         if (isEmpty()) throw new IllegalStateException("empty models have no boundaries");
+        final float[] data = this.data;
+        final int limit = size * FLOATS_PER_TRIANGLE;
         float
             minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE,
             maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
         
-        for (STLTriangle triangle : triangles) {
-            Vertex3f a = triangle.getA(), b = triangle.getB(), c = triangle.getC();
-            final float
-                ax = a.getX(), ay = a.getY(), az = a.getZ(),
-                bx = b.getX(), by = b.getY(), bz = b.getZ(),
-                cx = c.getX(), cy = c.getX(), cz = c.getZ();
-            
-            minX = Math.min(minX, Math.min(ax, Math.min(bx, cx)));
-            minY = Math.min(minY, Math.min(ay, Math.min(by, cy)));
-            minZ = Math.min(minZ, Math.min(az, Math.min(bz, cz)));
-            maxX = Math.max(maxX, Math.max(ax, Math.max(bx, cx)));
-            maxY = Math.max(maxY, Math.max(ay, Math.max(by, cy)));
-            maxZ = Math.max(maxZ, Math.max(az, Math.max(bz, cz)));
+        // skip the normal at the start of every triangle, then visit the three vertices
+        for (int i = 0; i < limit; i += FLOATS_PER_TRIANGLE) {
+            for (int j = i + 3; j < i + FLOATS_PER_TRIANGLE; j += 3) {
+                final float x = data[j], y = data[j + 1], z = data[j + 2];
+                if (x < minX) minX = x;
+                if (y < minY) minY = y;
+                if (z < minZ) minZ = z;
+                if (x > maxX) maxX = x;
+                if (y > maxY) maxY = y;
+                if (z > maxZ) maxZ = z;
+            }
         }
         
         return new BoundingBox6f(minX, minY, minZ, maxX, maxY, maxZ);
@@ -81,13 +158,85 @@ public class STLModel {
      * @return whether this model is empty
      */
     public boolean isEmpty() {
-        return triangles.isEmpty();
+        return size == 0;
+    }
+    
+    // ITERATION
+    
+    /**
+     * Passes every triangle of this model to a visitor in order. The array passed to the visitor is reused and must
+     * not be retained.
+     *
+     * @param visitor the triangle visitor
+     */
+    public void forEach(STLTriangleVisitor visitor) {
+        visitor.visitHeader(header);
+        final float[] buffer = new float[FLOATS_PER_TRIANGLE];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(data, i * FLOATS_PER_TRIANGLE, buffer, 0, FLOATS_PER_TRIANGLE);
+            visitor.visit(buffer, attributes[i]);
+        }
     }
     
     // MUTATORS
     
     public boolean add(STLTriangle triangle) {
-        return triangles.add(triangle);
+        ensureCapacity(size + 1);
+        final int offset = size * FLOATS_PER_TRIANGLE;
+        putVertex(triangle.getNormal(), offset);
+        putVertex(triangle.getA(), offset + 3);
+        putVertex(triangle.getB(), offset + 6);
+        putVertex(triangle.getC(), offset + 9);
+        attributes[size++] = triangle.getAttribute();
+        return true;
+    }
+    
+    /**
+     * Adds a triangle given as {@value #FLOATS_PER_TRIANGLE} floats in the order
+     * {@code nx, ny, nz, ax, ay, az, bx, by, bz, cx, cy, cz}. The floats are copied, so the array may be reused.
+     *
+     * @param triangle the array containing the triangle
+     * @param offset the offset of the triangle in the array
+     * @param attribute the triangle attribute
+     */
+    public void add(float[] triangle, int offset, short attribute) {
+        ensureCapacity(size + 1);
+        System.arraycopy(triangle, offset, data, size * FLOATS_PER_TRIANGLE, FLOATS_PER_TRIANGLE);
+        attributes[size++] = attribute;
+    }
+    
+    /**
+     * Adds a triangle given as {@value #FLOATS_PER_TRIANGLE} floats in the order
+     * {@code nx, ny, nz, ax, ay, az, bx, by, bz, cx, cy, cz}. The floats are copied, so the array may be reused.
+     *
+     * @param triangle the array containing the triangle
+     * @param attribute the triangle attribute
+     */
+    public void add(float[] triangle, short attribute) {
+        add(triangle, 0, attribute);
+    }
+    
+    /**
+     * Ensures that this model can hold at least the given amount of triangles without growing its buffers.
+     *
+     * @param capacity the minimum capacity in triangles
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= attributes.length)
+            return;
+        int newCapacity = Math.max(capacity, attributes.length + (attributes.length >> 1) + 1);
+        data = Arrays.copyOf(data, newCapacity * FLOATS_PER_TRIANGLE);
+        attributes = Arrays.copyOf(attributes, newCapacity);
+    }
+    
+    /**
+     * Shrinks the buffers of this model to its current size.
+     */
+    public void trimToSize() {
+        if (size == attributes.length)
+            return;
+        data = Arrays.copyOf(data, size * FLOATS_PER_TRIANGLE);
+        attributes = Arrays.copyOf(attributes, size);
     }
     
     public void setHeader(String header) {
@@ -95,6 +244,43 @@ public class STLModel {
         this.header = header;
     }
     
+    // PACKAGE-PRIVATE
+    
+    /**
+     * Returns the packed triangle data of this model. Only the first {@code size() * 12} floats are valid.
+     *
+     * @return the packed triangle data
+     */
+    float[] getData() {
+        return data;
+    }
+    
+    /**
+     * Returns the attributes of this model. Only the first {@code size()} attributes are valid.
+     *
+     * @return the attributes
+     */
+    short[] getAttributes() {
+        return attributes;
+    }
+    
+    // UTIL
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " out of range [0, " + size + ")");
+    }
+    
+    private void putVertex(Vertex3f vertex, int offset) {
+        data[offset] = vertex.getX();
+        data[offset + 1] = vertex.getY();
+        data[offset + 2] = vertex.getZ();
+    }
+    
+    private Vertex3f getVertex(int offset) {
+        return new Vertex3f(data[offset], data[offset + 1], data[offset + 2]);
+    }
+    
     // MISC
     
     @Override
@@ -102,4 +288,34 @@ public class STLModel {
         return STLModel.class.getSimpleName() + "{triangles=" + size() + "}";
     }
     
+    // CLASSES
+    
+    private class TriangleView extends AbstractList<STLTriangle> {
+        
+        @Override
+        public STLTriangle get(int index) {
+            checkIndex(index);
+            final int offset = index * FLOATS_PER_TRIANGLE;
+            return new STLTriangle(
+                getVertex(offset),
+                getVertex(offset + 3),
+                getVertex(offset + 6),
+                getVertex(offset + 9),
+                attributes[index]);
+        }
+        
+        @Override
+        public void add(int index, @NotNull STLTriangle triangle) {
+            if (index != size) throw new UnsupportedOperationException("triangles can only be appended");
+            STLModel.this.add(triangle);
+            modCount++;
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+        
+    }
+    
 }
@@ -0,0 +1,33 @@
+package eisenwave.torrens.stl;
+
+/**
+ * Visits the triangles of an STL file as they are being read, without creating any {@link STLTriangle} objects.
+ *
+ * @see DeserializerSTL#fromStream(java.io.InputStream, STLTriangleVisitor)
+ */
+@FunctionalInterface
+public interface STLTriangleVisitor {
+    
+    /**
+     * Visits the header of a binary STL file or the solid name of an ASCII STL file. This is called once before any
+     * triangles are visited.
+     *
+     * @param header the header
+     */
+    default void visitHeader(String header) {}
+    
+    /**
+     * <p>
+     * Visits a triangle. The array contains the normal followed by the three vertices, in the order
+     * {@code nx, ny, nz, ax, ay, az, bx, by, bz, cx, cy, cz}.
+     * </p>
+     * <p>
+     * The array is reused for every triangle and must not be retained.
+     * </p>
+     *
+     * @param triangle the normal and vertices of the triangle
+     * @param attribute the attribute of the triangle, always {@code 0} for ASCII STL
+     */
+    abstract void visit(float[] triangle, short attribute);
+    
+}
@@ -2,7 +2,6 @@ package eisenwave.torrens.stl;
 
 import eisenwave.torrens.io.LittleDataOutputStream;
 import eisenwave.torrens.io.Serializer;
-import eisenwave.torrens.object.Vertex3f;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
@@ -44,12 +43,14 @@ public class SerializerSTL implements Serializer<STLModel> {
         debug("serializing " + model + " ...");
         serializeHeader(model, stream);
         
-        for (STLTriangle triangle : model.getTriangles()) {
-            serializeVertex(triangle.getNormal(), stream);
-            serializeVertex(triangle.getA(), stream);
-            serializeVertex(triangle.getB(), stream);
-            serializeVertex(triangle.getC(), stream);
-            stream.writeLittleShort(triangle.getAttribute());
+        // triangles are written straight from the packed model data
+        final float[] data = model.getData();
+        final short[] attributes = model.getAttributes();
+        final int size = model.size();
+        
+        for (int i = 0; i < size; i++) {
+            stream.writeLittleFloats(data, i * STLModel.FLOATS_PER_TRIANGLE, STLModel.FLOATS_PER_TRIANGLE);
+            stream.writeLittleShort(attributes[i]);
         }
     }
     
@@ -62,10 +63,4 @@ public class SerializerSTL implements Serializer<STLModel> {
         stream.writeLittleInt(model.size());
     }
     
-    private void serializeVertex(Vertex3f vertex, LittleDataOutputStream stream) throws IOException {
-        stream.writeLittleFloat(vertex.getX());
-        stream.writeLittleFloat(vertex.getY());
-        stream.writeLittleFloat(vertex.getZ());
-    }
-    
 }
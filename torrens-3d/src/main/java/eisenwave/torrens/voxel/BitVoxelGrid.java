@@ -0,0 +1,373 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.util.ColorMath;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * A three-dimensional grid of bits which stores whether each position is occupied, using one bit per voxel.
+ * </p>
+ * <p>
+ * Bits are stored in a {@code long[]} in the same index order as a {@link VoxelArray}, with {@code x} changing
+ * fastest. Set operations such as {@link #union(BitVoxelGrid)} combine 64 voxels at once and {@link #size()} is a
+ * population count, so occupancy of a {@code 1024³} grid fits into 128 MiB.
+ * </p>
+ * <p>
+ * Bits beyond the volume in the last word are always {@code 0}.
+ * </p>
+ */
+public class BitVoxelGrid implements BitArray3, Cloneable, Serializable {
+    
+    /**
+     * The amount of words from which on bulk operations are split into blocks and run in parallel.
+     */
+    private final static int PARALLEL_THRESHOLD = 1 << 12;
+    /**
+     * The amount of words processed by each parallel task.
+     */
+    private final static int BLOCK_SIZE = 1 << 10;
+    
+    private final int sizeX, sizeY, sizeZ, volume;
+    private final long[] words;
+    
+    public BitVoxelGrid(int x, int y, int z) {
+        if (x <= 0 || y <= 0 || z <= 0)
+            throw new IllegalArgumentException("size 0 voxel grid");
+        if ((long) x * y * z > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("voxel grid is too large: " + x + "x" + y + "x" + z);
+        this.sizeX = x;
+        this.sizeY = y;
+        this.sizeZ = z;
+        this.volume = x * y * z;
+        this.words = new long[(volume + 63) >>> 6];
+    }
+    
+    public BitVoxelGrid(BitVoxelGrid copyOf) {
+        this.sizeX = copyOf.sizeX;
+        this.sizeY = copyOf.sizeY;
+        this.sizeZ = copyOf.sizeZ;
+        this.volume = copyOf.volume;
+        this.words = copyOf.words.clone();
+    }
+    
+    /**
+     * Constructs a new grid with the dimensions of another array, in which every position is set where the array
+     * {@link BitArray3#contains(int, int, int) contains} an element.
+     *
+     * @param array the array
+     */
+    public BitVoxelGrid(BitArray3 array) {
+        this(array.getSizeX(), array.getSizeY(), array.getSizeZ());
+        for (int z = 0, i = 0; z < sizeZ; z++)
+            for (int y = 0; y < sizeY; y++)
+                for (int x = 0; x < sizeX; x++, i++)
+                    if (array.contains(x, y, z))
+                        words[i >>> 6] |= 1L << i;
+    }
+    
+    // GETTERS
+    
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+    
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+    
+    @Override
+    public int getSizeZ() {
+        return sizeZ;
+    }
+    
+    @Override
+    public int getVolume() {
+        return volume;
+    }
+    
+    /**
+     * Returns the amount of set bits in this grid, which is computed by counting the bits of every word.
+     *
+     * @return the amount of occupied positions
+     */
+    @Override
+    public int size() {
+        if (words.length < PARALLEL_THRESHOLD)
+            return countBits(0, words.length);
+        
+        return IntStream.range(0, blockCount()).parallel()
+            .map(block -> countBits(block * BLOCK_SIZE, Math.min(words.length, (block + 1) * BLOCK_SIZE)))
+            .sum();
+    }
+    
+    /**
+     * Returns whether no bit of this grid is set.
+     *
+     * @return whether this grid is empty
+     */
+    public boolean isEmpty() {
+        for (long word : words)
+            if (word != 0)
+                return false;
+        return true;
+    }
+    
+    /**
+     * Returns the underlying words of this grid. Bit {@code i % 64} of word {@code i / 64} represents the position
+     * with the index {@code i}.
+     *
+     * @return the words of this grid
+     */
+    long[] getWords() {
+        return words;
+    }
+    
+    /**
+     * Returns the index of a position in the underlying bits.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return the index of the bit
+     */
+    int indexOf(int x, int y, int z) {
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ)
+            throw new IndexOutOfBoundsException(x + ", " + y + ", " + z + " is outside " + sizeX + "x" + sizeY + "x" + sizeZ);
+        return (z * sizeY + y) * sizeX + x;
+    }
+    
+    // CHECKERS
+    
+    @Override
+    public boolean contains(int x, int y, int z) {
+        final int i = indexOf(x, y, z);
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof BitVoxelGrid && equals((BitVoxelGrid) obj);
+    }
+    
+    /**
+     * Returns whether this grid is equal to another grid. This condition is met if the grids are equal in size and
+     * equal in content.
+     *
+     * @param grid the grid
+     * @return whether the grids are equal
+     */
+    public boolean equals(BitVoxelGrid grid) {
+        return
+            sizeX == grid.sizeX &&
+            sizeY == grid.sizeY &&
+            sizeZ == grid.sizeZ &&
+            Arrays.equals(words, grid.words);
+    }
+    
+    @Override
+    public int hashCode() {
+        return ((sizeX * 31 + sizeY) * 31 + sizeZ) * 31 + Arrays.hashCode(words);
+    }
+    
+    // SETTERS
+    
+    /**
+     * Sets the bit at the given position.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     */
+    public void set(int x, int y, int z) {
+        final int i = indexOf(x, y, z);
+        words[i >>> 6] |= 1L << i;
+    }
+    
+    /**
+     * Sets or clears the bit at the given position.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @param value whether the position is occupied
+     */
+    public void set(int x, int y, int z, boolean value) {
+        if (value) set(x, y, z);
+        else remove(x, y, z);
+    }
+    
+    /**
+     * Clears the bit at the given position.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     */
+    public void remove(int x, int y, int z) {
+        final int i = indexOf(x, y, z);
+        words[i >>> 6] &= ~(1L << i);
+    }
+    
+    /**
+     * Sets all bits of this grid.
+     */
+    public void fill() {
+        Arrays.fill(words, -1L);
+        clearTail();
+    }
+    
+    /**
+     * Clears all bits of this grid.
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+    
+    // SET OPERATIONS
+    
+    /**
+     * Sets every bit which is set in the other grid, making this grid the union of both grids.
+     *
+     * @param grid the other grid
+     * @throws IllegalArgumentException if the grids differ in size
+     */
+    public void union(BitVoxelGrid grid) {
+        final long[] other = checkSize(grid).words;
+        forEachBlock((from, to) -> {
+            for (int i = from; i < to; i++)
+                words[i] |= other[i];
+        });
+    }
+    
+    /**
+     * Clears every bit which is not set in the other grid, making this grid the intersection of both grids.
+     *
+     * @param grid the other grid
+     * @throws IllegalArgumentException if the grids differ in size
+     */
+    public void intersect(BitVoxelGrid grid) {
+        final long[] other = checkSize(grid).words;
+        forEachBlock((from, to) -> {
+            for (int i = from; i < to; i++)
+                words[i] &= other[i];
+        });
+    }
+    
+    /**
+     * Clears every bit which is set in the other grid, making this grid the difference of both grids.
+     *
+     * @param grid the other grid
+     * @throws IllegalArgumentException if the grids differ in size
+     */
+    public void subtract(BitVoxelGrid grid) {
+        final long[] other = checkSize(grid).words;
+        forEachBlock((from, to) -> {
+            for (int i = from; i < to; i++)
+                words[i] &= ~other[i];
+        });
+    }
+    
+    /**
+     * Inverts every bit of this grid.
+     */
+    public void invert() {
+        forEachBlock((from, to) -> {
+            for (int i = from; i < to; i++)
+                words[i] = ~words[i];
+        });
+        clearTail();
+    }
+    
+    // CONVERSION
+    
+    /**
+     * Converts this grid into a voxel array, in which every occupied position is set to the given color.
+     *
+     * @param rgb the color of occupied positions
+     * @return a new voxel array
+     */
+    @NotNull
+    public VoxelArray toVoxelArray(int rgb) {
+        final int[] voxels = new int[volume];
+        if (rgb != ColorMath.INVISIBLE_BLACK) {
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1)
+                    voxels[(w << 6) + Long.numberOfTrailingZeros(word)] = rgb;
+            }
+        }
+        return new VoxelArray(voxels, sizeX, sizeY, sizeZ);
+    }
+    
+    // MISC
+    
+    @Override
+    public String toString() {
+        return BitVoxelGrid.class.getSimpleName() +
+            "{dims=" + sizeX + "x" + sizeY + "x" + sizeZ +
+            ", volume=" + volume +
+            ", size=" + size() + "}";
+    }
+    
+    @Override
+    public BitVoxelGrid clone() {
+        return new BitVoxelGrid(this);
+    }
+    
+    // UTIL
+    
+    private BitVoxelGrid checkSize(BitVoxelGrid grid) {
+        if (sizeX != grid.sizeX || sizeY != grid.sizeY || sizeZ != grid.sizeZ)
+            throw new IllegalArgumentException("grid size mismatch: " + sizeX + "x" + sizeY + "x" + sizeZ +
+                " != " + grid.sizeX + "x" + grid.sizeY + "x" + grid.sizeZ);
+        return grid;
+    }
+    
+    private int blockCount() {
+        return (words.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+    
+    /**
+     * Runs an action on ranges of words, in parallel for large grids.
+     */
+    private void forEachBlock(WordRangeAction action) {
+        if (words.length < PARALLEL_THRESHOLD) {
+            action.run(0, words.length);
+            return;
+        }
+        
+        IntStream.range(0, blockCount()).parallel()
+            .forEach(block -> action.run(block * BLOCK_SIZE, Math.min(words.length, (block + 1) * BLOCK_SIZE)));
+    }
+    
+    private int countBits(int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++)
+            count += Long.bitCount(words[i]);
+        return count;
+    }
+    
+    /**
+     * Clears the bits beyond the volume in the last word.
+     */
+    private void clearTail() {
+        final int tail = volume & 63;
+        if (tail != 0)
+            words[words.length - 1] &= (1L << tail) - 1;
+    }
+    
+    // CLASSES
+    
+    @FunctionalInterface
+    private interface WordRangeAction {
+        
+        abstract void run(int from, int to);
+        
+    }
+    
+}
@@ -1,19 +1,24 @@
 package eisenwave.torrens.voxel;
 
+import eisenwave.spatium.function.Int3Consumer;
 import eisenwave.torrens.error.FileFormatException;
 import eisenwave.torrens.error.FileSyntaxException;
 import eisenwave.torrens.error.FileVersionException;
-import eisenwave.torrens.io.Deserializer;
+import eisenwave.torrens.io.BufferDeserializer;
+import eisenwave.torrens.io.ByteBufferInputStream;
 import eisenwave.torrens.util.ColorMath;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Logger;
 
-public class DeserializerBINVOX implements Deserializer<VoxelArray> {
+public class DeserializerBINVOX implements BufferDeserializer<VoxelArray> {
     
     private final static int LINE_BUFFER_SIZE = 40;
     
@@ -72,6 +77,29 @@ public class DeserializerBINVOX implements Deserializer<VoxelArray> {
     @NotNull
     @Override
     public VoxelArray fromStream(InputStream stream) throws IOException {
+        readHeader(stream);
+        return parseData(new DataInputStream(stream));
+    }
+    
+    @NotNull
+    @Override
+    public VoxelArray fromBuffer(ByteBuffer buffer) throws IOException {
+        // the header is read as a stream, which advances the buffer up to the voxel data
+        readHeader(new ByteBufferInputStream(buffer));
+        try {
+            return parseData(buffer);
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException("unexpected end of binvox data");
+        }
+    }
+    
+    /**
+     * Reads the header of the file up to and including the line starting with {@code data}.
+     *
+     * @param stream the stream
+     * @throws IOException if an I/O error occurs or the header is invalid
+     */
+    private void readHeader(InputStream stream) throws IOException {
         // header
         String line = readASCIILine(stream, LINE_BUFFER_SIZE);
         if (!line.startsWith("#binvox"))
@@ -88,7 +116,7 @@ public class DeserializerBINVOX implements Deserializer<VoxelArray> {
             line = readASCIILine(stream, LINE_BUFFER_SIZE);
             
             if (line.startsWith("data")) {
-                return parseData(dataStream);
+                return;
                 
             } else if (line.startsWith("dim")) {
                 parseDimensions(dataStream, line);
@@ -145,7 +173,7 @@ public class DeserializerBINVOX implements Deserializer<VoxelArray> {
             ty = stream.readDouble();
             tz = stream.readDouble();
         }
-    
+        
         if (!Double.isFinite(tx) || !Double.isFinite(ty) || !Double.isFinite(tz))
             throw new FileSyntaxException("translation must be finite");
     }
@@ -163,54 +191,153 @@ public class DeserializerBINVOX implements Deserializer<VoxelArray> {
             // the value is in the next line
             scale = stream.readDouble();
         }
-    
+        
         if (!Double.isFinite(scale))
             throw new FileSyntaxException("scale must be finite");
     }
     
+    /**
+     * Reads a binvox file into a {@link BitVoxelGrid}, decoding the runs directly into its bits.
+     *
+     * @param stream the stream
+     * @return the grid of occupied voxels
+     * @throws IOException if an I/O error occurs or the file is invalid
+     */
+    @NotNull
+    public BitVoxelGrid gridFromStream(InputStream stream) throws IOException {
+        readHeader(stream);
+        BitVoxelGrid result = createGrid();
+        parseData(new DataInputStream(stream), result.getVolume(), runFiller(result));
+        return result;
+    }
+    
+    /**
+     * Reads a binvox file into a {@link BitVoxelGrid}, decoding the runs directly into its bits.
+     *
+     * @param buffer the buffer
+     * @return the grid of occupied voxels
+     * @throws IOException if the file is invalid
+     */
+    @NotNull
+    public BitVoxelGrid gridFromBuffer(ByteBuffer buffer) throws IOException {
+        readHeader(new ByteBufferInputStream(buffer));
+        BitVoxelGrid result = createGrid();
+        try {
+            parseData(buffer, result.getVolume(), runFiller(result));
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException("unexpected end of binvox data");
+        }
+        return result;
+    }
+    
+    /**
+     * Reads a binvox file into a {@link BitVoxelGrid} by mapping it into memory.
+     *
+     * @param file the file
+     * @return the grid of occupied voxels
+     * @throws IOException if an I/O error occurs or the file is invalid
+     */
+    @NotNull
+    public BitVoxelGrid gridFromFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return gridFromBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    private void parseData(DataInputStream stream, int length, RunVisitor visitor) throws IOException {
+        for (int i = 0, next = 0; i < length; i = next) {
+            int value = stream.readUnsignedByte();
+            next += stream.readUnsignedByte();
+            visitRun(value, i, next, length, visitor);
+        }
+    }
+    
+    private void parseData(ByteBuffer buffer, int length, RunVisitor visitor) throws IOException {
+        for (int i = 0, next = 0; i < length; i = next) {
+            int value = buffer.get() & 0xFF;
+            next += buffer.get() & 0xFF;
+            visitRun(value, i, next, length, visitor);
+        }
+    }
+    
+    private static void visitRun(int value, int from, int to, int length, RunVisitor visitor) throws IOException {
+        if (to > length)
+            throw new FileSyntaxException("run exceeds voxel data");
+        
+        // voxels present for the the next <count> voxels
+        if (value == 1)
+            visitor.visit(from, to);
+        
+        // corrupted data
+        else if (value != 0)
+            throw new FileSyntaxException("value must be 0 or 1");
+    }
+    
     @NotNull
     private VoxelArray parseData(DataInputStream stream) throws IOException {
+        VoxelArray result = createArray();
+        parseData(stream, result.getVolume(), runFiller(result));
+        return result;
+    }
+    
+    @NotNull
+    private VoxelArray parseData(ByteBuffer buffer) throws IOException {
+        VoxelArray result = createArray();
+        parseData(buffer, result.getVolume(), runFiller(result));
+        return result;
+    }
+    
+    @NotNull
+    private VoxelArray createArray() throws IOException {
+        checkDimensions();
+        VoxelArray result = new VoxelArray(sx, sy, sz);
+        if (logger != null) logger.fine("saving binvox data in: "+result);
+        return result;
+    }
+    
+    @NotNull
+    private BitVoxelGrid createGrid() throws IOException {
+        checkDimensions();
+        if ((long) sx * sy * sz > Integer.MAX_VALUE)
+            throw new FileSyntaxException("dimensions are too large: "+sx+"x"+sy+"x"+sz);
+        return new BitVoxelGrid(sx, sy, sz);
+    }
+    
+    private void checkDimensions() throws IOException {
         if (sx == 0 || sy == 0 || sz == 0)
             throw new FileSyntaxException("binvox header is missing dimensions");
-        
-        VoxelArray result = new VoxelArray(sx, sy, sz);
-        final int length = result.getLength();
+    }
     
-        if (logger != null) logger.fine("saving binvox data in: "+result);
-        
-        // read voxel data
-        int value, count;
+    private RunVisitor runFiller(VoxelArray result) {
+        return (from, to) -> fillRun(from, to, (x, y, z) -> result.setRGB(x, y, z, voxelRGB));
+    }
     
-        for (int i = 0, next = 0; i < length; i = next) {
-            //System.out.println(i);
-            value = stream.readUnsignedByte();
-            count = stream.readUnsignedByte();
-            
-            //debug(i+", "+value+", "+count);
-            
-            next += count;
-            
-            // no voxels present for the next <count> voxels
-            if (value == 0)
-                continue;
-            
-            // voxels present for the the next <count> voxels
-            if (value == 1) {
-                for (int j = i; j < next; j++) {
-                    int x = j % sx;
-                    int y = (j / sx) % sz;
-                    int z = (j / (sx * sy));
-    
-                    result.setRGB(x, y, z, voxelRGB);
+    private RunVisitor runFiller(BitVoxelGrid result) {
+        return (from, to) -> fillRun(from, to, result::set);
+    }
+    
+    /**
+     * Performs an action for every position of a run. Voxels are stored with the y-coordinate running fastest, then
+     * the z-coordinate, then the x-coordinate.
+     *
+     * @param from the index of the first voxel of the run (inclusive)
+     * @param to the index of the last voxel of the run (exclusive)
+     * @param action the action
+     */
+    private void fillRun(int from, int to, Int3Consumer action) {
+        final int syz = sy * sz;
+        int x = from / syz, z = (from % syz) / sy, y = from % sy;
+        
+        for (int j = from; j < to; j++) {
+            action.accept(x, y, z);
+            if (++y == sy) {
+                y = 0;
+                if (++z == sz) {
+                    z = 0;
+                    x++;
                 }
-                continue;
             }
-            
-            // corrupted data
-            throw new FileSyntaxException("value must be 0 or 1");
         }
-    
-        return result;
     }
     
     // UTIL
@@ -221,7 +348,6 @@ public class DeserializerBINVOX implements Deserializer<VoxelArray> {
         
         for (;;) {
             int point = stream.read();
-            //System.out.print((char) point);
             
             if (point < 0)
                 throw new EOFException();
@@ -234,7 +360,7 @@ public class DeserializerBINVOX implements Deserializer<VoxelArray> {
             // carriage return character can be safely ignored
             if (point == '\r')
                 continue;
-    
+            
             buffer.put((byte) point);
             limit++;
         }
@@ -245,4 +371,13 @@ public class DeserializerBINVOX implements Deserializer<VoxelArray> {
         return new String(bytes, StandardCharsets.US_ASCII);
     }
     
+    // CLASSES
+    
+    @FunctionalInterface
+    private interface RunVisitor {
+        
+        abstract void visit(int from, int to);
+        
+    }
+    
 }
@@ -2,15 +2,24 @@ package eisenwave.torrens.voxel;
 
 import eisenwave.torrens.error.FileSyntaxException;
 import eisenwave.torrens.error.FileVersionException;
-import eisenwave.torrens.io.Deserializer;
+import eisenwave.torrens.io.BufferDeserializer;
 import eisenwave.torrens.io.LittleDataInputStream;
 import eisenwave.torrens.util.ColorMath;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
@@ -25,7 +34,7 @@ import java.util.logging.Logger;
  *     <li>z-axis 90 degrees to the right of x-axis</li>
  * </ul>
  */
-public class DeserializerQB implements Deserializer<QBModel> {
+public class DeserializerQB implements BufferDeserializer<QBModel> {
 
     private boolean compressed, visibilityMaskEncoded, zLeft;
     private int colorFormat, numMatrices;
@@ -65,31 +74,143 @@ public class DeserializerQB implements Deserializer<QBModel> {
         return mesh;
     }
 
+    @NotNull
+    @Override
+    public QBModel fromBuffer(ByteBuffer buffer) throws IOException {
+        debug("deserializing qb...");
+        try {
+            deserializeHeader(buffer);
+            
+            mesh = new QBModel();
+            for (int i = 0; i < numMatrices; i++)
+                deserializeMatrix(buffer);
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException("unexpected end of qb data");
+        }
+        
+        debug("deserialized matrices");
+        return mesh;
+    }
+    
+    /**
+     * Deserializes a model from a file using multiple threads.
+     *
+     * @param file the file
+     * @return the deserialized model
+     * @throws IOException if the deserialization fails
+     * @see #fromBufferParallel(ByteBuffer)
+     */
+    @NotNull
+    public QBModel fromFileParallel(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return fromBufferParallel(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * <p>
+     *     Deserializes a model from a buffer using multiple threads.
+     * </p>
+     * <p>
+     *     The matrix headers are scanned first to find the range of bytes occupied by every matrix, which requires
+     *     only the run-length flags of compressed matrices to be read. All matrices are then decoded concurrently from
+     *     independent views of the buffer.
+     * </p>
+     *
+     * @param buffer the buffer
+     * @return the deserialized model
+     * @throws IOException if the deserialization fails
+     */
+    @NotNull
+    public QBModel fromBufferParallel(ByteBuffer buffer) throws IOException {
+        debug("deserializing qb in parallel...");
+        final MatrixHeader[] headers;
+        try {
+            deserializeHeader(buffer);
+            if (numMatrices < 0)
+                throw new FileSyntaxException("illegal matrix count: "+numMatrices);
+            
+            headers = new MatrixHeader[numMatrices];
+            for (int i = 0; i < numMatrices; i++) {
+                headers[i] = deserializeMatrixHeader(buffer);
+                skipMatrixData(headers[i], buffer);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new EOFException("unexpected end of qb data");
+        }
+        
+        final VoxelArray[] voxels;
+        try {
+            voxels = Arrays.stream(headers).parallel()
+                .map(header -> {
+                    ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                    view.position(header.offset);
+                    try {
+                        return compressed?
+                            readCompressed(header.sizeX, header.sizeY, header.sizeZ, view) :
+                            readUncompressed(header.sizeX, header.sizeY, header.sizeZ, view);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    } catch (BufferUnderflowException ex) {
+                        throw new UncheckedIOException(new EOFException("unexpected end of qb data"));
+                    }
+                })
+                .toArray(VoxelArray[]::new);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        
+        mesh = new QBModel();
+        for (int i = 0; i < headers.length; i++)
+            mesh.add(headers[i].toMatrix(voxels[i]));
+        
+        debug("deserialized matrices");
+        return mesh;
+    }
+    
     private void deserializeHeader(LittleDataInputStream stream) throws IOException {
-        int version = stream.readInt(); //big endian
+        deserializeHeader(
+            stream.readInt(), //big endian
+            stream.readInt(),
+            stream.readInt(),
+            stream.readLittleInt(),
+            stream.readLittleInt(),
+            stream.readLittleInt());
+    }
+    
+    private void deserializeHeader(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        final int
+            version = buffer.getInt(),
+            colorFormat = buffer.getInt(),
+            zAxisOrientation = buffer.getInt();
+        
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        deserializeHeader(version, colorFormat, zAxisOrientation, buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+    
+    private void deserializeHeader(int version, int colorFormat, int zAxisOrientation,
+                                   int compressedInt, int visEncodedInt, int numMatrices) throws IOException {
         if (version != SerializerQB.CURRENT_VERSION)
             throw new FileVersionException(version+" != current ("+ SerializerQB.CURRENT_VERSION+")");
 
-        this.colorFormat = stream.readInt();
+        this.colorFormat = colorFormat;
         if (colorFormat != SerializerQB.COLOR_FORMAT_RGBA && colorFormat != SerializerQB.COLOR_FORMAT_BGRA)
             throw new FileSyntaxException("unknown color format: "+colorFormat);
 
-        int zAxisOrientation = stream.readInt();
         if (zAxisOrientation != SerializerQB.Z_ORIENT_LEFT && zAxisOrientation != SerializerQB.Z_ORIENT_RIGHT)
             throw new FileSyntaxException("unknown z axis orientation: "+zAxisOrientation);
         this.zLeft = zAxisOrientation== SerializerQB.Z_ORIENT_LEFT;
 
-        int compressedInt = stream.readLittleInt();
         if (compressedInt != SerializerQB.UNCOMPRESSED && compressedInt != SerializerQB.COMPRESSED)
             throw new FileSyntaxException("unknown compression: "+compressedInt);
         this.compressed = compressedInt == SerializerQB.COMPRESSED;
 
-        int visEncodedInt = stream.readLittleInt();
         if (visEncodedInt != SerializerQB.VIS_MASK_UNENCODED && visEncodedInt != SerializerQB.VIS_MASK_ENCODED)
             throw new FileSyntaxException("unknown vis mask encoding: "+visEncodedInt);
         this.visibilityMaskEncoded = visEncodedInt == SerializerQB.VIS_MASK_ENCODED;
 
-        this.numMatrices = stream.readLittleInt();
+        this.numMatrices = numMatrices;
     
         debug("deserializing "+numMatrices+" matrices with"+
             ": compression="+compressed+
@@ -114,6 +235,9 @@ public class DeserializerQB implements Deserializer<QBModel> {
             posZ  = stream.readLittleInt();
     
         debug("reading matrix: "+sizeX+"x"+sizeY+"x"+sizeZ+" at "+posX+", "+posY+", "+posZ);
+        
+        if (sizeX < 1 || sizeY < 1 || sizeZ < 1 || (long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE)
+            throw new FileSyntaxException("illegal matrix size: "+sizeX+"x"+sizeY+"x"+sizeZ);
 
         VoxelArray voxels = compressed?
                 readCompressed(sizeX, sizeY, sizeZ, stream) :
@@ -122,54 +246,161 @@ public class DeserializerQB implements Deserializer<QBModel> {
         mesh.add(new QBMatrix(name, posX, posY, posZ, voxels));
     }
 
-    private VoxelArray readUncompressed(int sizeX, int sizeY, int sizeZ, DataInputStream stream) throws IOException {
-        VoxelArray matrix = new VoxelArray(sizeX, sizeY, sizeZ);
-        final int maxZ = sizeZ-1;
-
-        for(int slice = 0; slice < sizeZ; slice++) {
+    private void deserializeMatrix(ByteBuffer buffer) throws IOException {
+        MatrixHeader header = deserializeMatrixHeader(buffer);
+        VoxelArray voxels = compressed?
+            readCompressed(header.sizeX, header.sizeY, header.sizeZ, buffer) :
+            readUncompressed(header.sizeX, header.sizeY, header.sizeZ, buffer);
+        
+        mesh.add(header.toMatrix(voxels));
+    }
+    
+    private MatrixHeader deserializeMatrixHeader(ByteBuffer buffer) throws IOException {
+        // read matrix name
+        byte nameLength = buffer.get();
+        byte[] nameBytes = new byte[nameLength];
+        buffer.get(nameBytes);
+        String name = new String(nameBytes);
+        
+        final int
+            sizeX = buffer.getInt(),
+            sizeY = buffer.getInt(),
+            sizeZ = buffer.getInt(),
+            posX  = buffer.getInt(),
+            posY  = buffer.getInt(),
+            posZ  = buffer.getInt();
+        
+        debug("reading matrix: "+sizeX+"x"+sizeY+"x"+sizeZ+" at "+posX+", "+posY+", "+posZ);
+        
+        if (sizeX < 1 || sizeY < 1 || sizeZ < 1 || (long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE)
+            throw new FileSyntaxException("illegal matrix size: "+sizeX+"x"+sizeY+"x"+sizeZ);
+        
+        return new MatrixHeader(name, sizeX, sizeY, sizeZ, posX, posY, posZ, buffer.position());
+    }
+    
+    /**
+     * Skips the voxels of a matrix without decoding them. Compressed slices are skipped by only looking at the flags.
+     */
+    private void skipMatrixData(MatrixHeader header, ByteBuffer buffer) throws IOException {
+        if (!compressed) {
+            final long length = (long) header.sizeX * header.sizeY * header.sizeZ * 4;
+            if (length > buffer.remaining())
+                throw new EOFException("unexpected end of qb data");
+            buffer.position(buffer.position() + (int) length);
+            return;
+        }
+        
+        for (int slice = 0; slice < header.sizeZ; slice++) {
+            while (true) {
+                final int data = buffer.getInt();
+                if (data == SerializerQB.NEXTSLICEFLAG) break;
+                if (data == SerializerQB.CODEFLAG)
+                    buffer.position(buffer.position() + 8);
+            }
+        }
+    }
+    
+    private VoxelArray readUncompressed(int sizeX, int sizeY, int sizeZ, LittleDataInputStream stream)
+        throws IOException {
+        final int area = sizeX * sizeY, maxZ = sizeZ-1;
+        final int[] voxels = new int[area * sizeZ];
+        
+        // slices are stored in the same order as in a voxel array and can be read in bulk
+        for (int slice = 0; slice < sizeZ; slice++) {
             final int z = zLeft? slice : maxZ - slice;
-            
-            for (int y = 0; y < sizeY; y++)
-                for (int x = 0; x < sizeX; x++)
-                    matrix.setRGB(x, y, z, asARGB(stream.readInt()));
+            stream.readInts(voxels, z * area, area);
         }
-
-        return matrix;
+        
+        for (int i = 0; i < voxels.length; i++)
+            voxels[i] = asARGB(voxels[i]);
+        
+        return new VoxelArray(voxels, sizeX, sizeY, sizeZ);
     }
 
     private VoxelArray readCompressed(int sizeX, int sizeY, int sizeZ, LittleDataInputStream stream) throws IOException {
-        VoxelArray voxels = new VoxelArray(sizeX, sizeY, sizeZ);
-        final int maxZ = sizeZ-1;
-
+        final int area = sizeX * sizeY, maxZ = sizeZ-1;
+        final int[] voxels = new int[area * sizeZ];
+        
         for (int slice = 0; slice < sizeZ; slice++) {
             final int z = zLeft? slice : maxZ-slice;
+            final int offset = z * area;
             int index = 0;
-
+            
             while (true) {
                 int data = stream.readLittleInt();
                 if (data == SerializerQB.NEXTSLICEFLAG) break;
                 
-                else if (data == SerializerQB.CODEFLAG) {
-                    int count = stream.readLittleInt();
-                    data = stream.readInt();
-
-                    for(int i = 0; i < count; i++) {
-                        int x = index%sizeX, y = index/sizeX;
-                        voxels.setRGB(x, y, z, asARGB(data));
-                        index++;
-                    }
-                }
-                else {
-                    int x = index%sizeX, y = index/sizeX;
-                    voxels.setRGB(x, y, z, asARGB(Integer.reverseBytes(data)));
-                    index++;
+                int count = 1;
+                if (data == SerializerQB.CODEFLAG) {
+                    count = stream.readLittleInt();
+                    data = stream.readLittleInt();
                 }
+                
+                if (count < 0 || count > area - index)
+                    throw new FileSyntaxException("voxel run exceeds slice "+slice+" of matrix");
+                Arrays.fill(voxels, offset + index, offset + index + count, asARGB(Integer.reverseBytes(data)));
+                index += count;
             }
         }
-
-        return voxels;
+        
+        return new VoxelArray(voxels, sizeX, sizeY, sizeZ);
     }
 
+    /**
+     * Reads uncompressed voxels from a buffer. Since every slice is stored in the same order as in a
+     * {@link VoxelArray}, slices are copied into the voxel array in bulk.
+     */
+    private VoxelArray readUncompressed(int sizeX, int sizeY, int sizeZ, ByteBuffer buffer) {
+        final int area = sizeX * sizeY, maxZ = sizeZ-1;
+        final int[] voxels = new int[area * sizeZ];
+        
+        // colors are big endian
+        IntBuffer ints = buffer.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        for (int slice = 0; slice < sizeZ; slice++) {
+            final int z = zLeft? slice : maxZ - slice;
+            ints.get(voxels, z * area, area);
+        }
+        buffer.position(buffer.position() + voxels.length * 4);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        
+        for (int i = 0; i < voxels.length; i++)
+            voxels[i] = asARGB(voxels[i]);
+        
+        return new VoxelArray(voxels, sizeX, sizeY, sizeZ);
+    }
+    
+    /**
+     * Reads run-length compressed voxels from a buffer in little endian byte order.
+     */
+    private VoxelArray readCompressed(int sizeX, int sizeY, int sizeZ, ByteBuffer buffer) throws IOException {
+        final int area = sizeX * sizeY, maxZ = sizeZ-1;
+        final int[] voxels = new int[area * sizeZ];
+        
+        for (int slice = 0; slice < sizeZ; slice++) {
+            final int z = zLeft? slice : maxZ-slice;
+            final int offset = z * area;
+            int index = 0;
+            
+            while (true) {
+                int data = buffer.getInt();
+                if (data == SerializerQB.NEXTSLICEFLAG) break;
+                
+                int count = 1;
+                if (data == SerializerQB.CODEFLAG) {
+                    count = buffer.getInt();
+                    data = buffer.getInt();
+                }
+                
+                if (count < 0 || count > area - index)
+                    throw new FileSyntaxException("voxel run exceeds slice "+slice+" of matrix");
+                Arrays.fill(voxels, offset + index, offset + index + count, asARGB(Integer.reverseBytes(data)));
+                index += count;
+            }
+        }
+        
+        return new VoxelArray(voxels, sizeX, sizeY, sizeZ);
+    }
+    
     /**
      * Converts a color integer using the qb's color format.
      *
@@ -204,4 +435,32 @@ public class DeserializerQB implements Deserializer<QBModel> {
         return argb;
     }
 
+    // CLASSES
+    
+    /**
+     * The header of a matrix along with the position of its voxel data.
+     */
+    private static class MatrixHeader {
+        
+        private final String name;
+        private final int sizeX, sizeY, sizeZ, posX, posY, posZ;
+        private final int offset;
+        
+        private MatrixHeader(String name, int sizeX, int sizeY, int sizeZ, int posX, int posY, int posZ, int offset) {
+            this.name = name;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            this.posX = posX;
+            this.posY = posY;
+            this.posZ = posZ;
+            this.offset = offset;
+        }
+        
+        public QBMatrix toMatrix(VoxelArray voxels) {
+            return new QBMatrix(name, posX, posY, posZ, voxels);
+        }
+        
+    }
+
 }
@@ -0,0 +1,98 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.error.FileFormatException;
+import eisenwave.torrens.error.FileSyntaxException;
+import eisenwave.torrens.error.FileVersionException;
+import eisenwave.torrens.io.Deserializer;
+import eisenwave.torrens.io.LittleDataInputStream;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A deserializer for the compact binary form of a {@link VoxelOctree}.
+ *
+ * @see SerializerSVO
+ */
+public class DeserializerSVO implements Deserializer<VoxelOctree> {
+    
+    @NotNull
+    @Override
+    public VoxelOctree fromStream(InputStream stream) throws IOException {
+        LittleDataInputStream dataStream = new LittleDataInputStream(stream);
+        
+        byte[] magic = new byte[SerializerSVO.MAGIC.length];
+        dataStream.readFully(magic);
+        if (!Arrays.equals(magic, SerializerSVO.MAGIC))
+            throw new FileFormatException("file is not an svo file");
+        
+        int version = dataStream.readUnsignedByte();
+        if (version != SerializerSVO.CURRENT_VERSION)
+            throw new FileVersionException("unsupported version: "+version);
+        
+        final int
+            sizeX = dataStream.readLittleInt(),
+            sizeY = dataStream.readLittleInt(),
+            sizeZ = dataStream.readLittleInt(),
+            voxels = dataStream.readLittleInt();
+        if (sizeX < 1 || sizeY < 1 || sizeZ < 1)
+            throw new FileSyntaxException("dimensions must be at least 1");
+        if (voxels < 0)
+            throw new FileSyntaxException("negative voxel count: "+voxels);
+        if (voxels > (long) sizeX * sizeY * sizeZ)
+            throw new FileSyntaxException(voxels+" voxels exceed the volume of the dimensions");
+        
+        final int depth = 32 - Integer.numberOfLeadingZeros(Math.max(sizeX, Math.max(sizeY, sizeZ)) - 1);
+        byte[][] masks = new byte[depth][];
+        
+        int nodes = voxels == 0? 0 : 1;
+        // the coordinates of the nodes of the current level in the grid of that level
+        int[] xs = new int[nodes], ys = new int[nodes], zs = new int[nodes];
+        for (int level = 0; level < depth; level++) {
+            final byte[] levelMasks = masks[level] = new byte[nodes];
+            dataStream.readFully(levelMasks);
+            
+            long count = 0;
+            for (byte mask : levelMasks) {
+                if (mask == 0)
+                    throw new FileSyntaxException("empty child mask at level "+level);
+                count += Integer.bitCount(mask & 0xFF);
+            }
+            // node counts never decrease, so no level may have more nodes than there are voxels
+            if (count > voxels)
+                throw new FileSyntaxException("child masks at level "+level+" describe more than "+voxels+" nodes");
+            
+            final int children = (int) count;
+            final int shift = depth - level - 1;
+            final int[] nextX = new int[children], nextY = new int[children], nextZ = new int[children];
+            for (int i = 0, child = 0; i < nodes; i++) {
+                final int mask = levelMasks[i] & 0xFF;
+                for (int o = 0; o < 8; o++) {
+                    if ((mask >> o & 1) == 0) continue;
+                    final int x = xs[i] << 1 | o & 1, y = ys[i] << 1 | o >> 1 & 1, z = zs[i] << 1 | o >> 2;
+                    if (x << shift >= sizeX || y << shift >= sizeY || z << shift >= sizeZ)
+                        throw new FileSyntaxException("child mask at level "+level+" describes a node outside of "
+                            +sizeX+"x"+sizeY+"x"+sizeZ);
+                    nextX[child] = x;
+                    nextY[child] = y;
+                    nextZ[child++] = z;
+                }
+            }
+            
+            xs = nextX;
+            ys = nextY;
+            zs = nextZ;
+            nodes = children;
+        }
+        if (nodes != voxels)
+            throw new FileSyntaxException("child masks describe "+nodes+" voxels, expected "+voxels);
+        
+        int[] leaves = new int[voxels];
+        dataStream.readLittleInts(leaves);
+        
+        return new VoxelOctree(sizeX, sizeY, sizeZ, masks, leaves);
+    }
+    
+}
@@ -0,0 +1,15 @@
+package eisenwave.torrens.voxel;
+
+/**
+ * Visits voxels of a {@link VoxelArray} by their index in the underlying array and color.
+ * <p>
+ * The index of a voxel at {@code (x, y, z)} is {@code (z * sizeY + y) * sizeX + x}.
+ *
+ * @see VoxelArray#forEachVoxel(IndexedVoxelVisitor)
+ */
+@FunctionalInterface
+public interface IndexedVoxelVisitor {
+    
+    abstract void visit(int index, int argb);
+    
+}
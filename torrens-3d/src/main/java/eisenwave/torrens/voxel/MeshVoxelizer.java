@@ -0,0 +1,403 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.img.Texture;
+import eisenwave.torrens.stl.STLModel;
+import eisenwave.torrens.util.ColorMath;
+import eisenwave.torrens.wavefront.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * Rasterizes the surface of polygon models into voxels.
+ * </p>
+ * <p>
+ * The model is scaled so that its longest side spans the given resolution. Each triangle sets every voxel whose cube
+ * it intersects, with the color of the point on the triangle closest to the voxel center. Colors are sampled from the
+ * diffuse map of OBJ materials where texture vertices are present, otherwise the diffuse color of the material or the
+ * color attribute of STL triangles is used.
+ * </p>
+ * <p>
+ * The volume is split into tiles of {@code 16} voxels on the z-axis. Triangles are assigned to all tiles they overlap
+ * and tiles are rasterized in parallel. Since each tile only writes voxels within its own z-range, the tiles never
+ * write to the same voxel or to the same chunk of a {@link SparseVoxelArray}.
+ * </p>
+ */
+public class MeshVoxelizer {
+    
+    private final static int TILE_SIZE = 16;
+    
+    private final int resolution;
+    private int defaultColor = ColorMath.SOLID_WHITE;
+    
+    /**
+     * Constructs a new voxelizer.
+     *
+     * @param resolution the amount of voxels on the longest side of the model
+     */
+    public MeshVoxelizer(int resolution) {
+        if (resolution < 1) throw new IllegalArgumentException("resolution must be at least 1");
+        this.resolution = resolution;
+    }
+    
+    // GETTERS
+    
+    public int getResolution() {
+        return resolution;
+    }
+    
+    /**
+     * Returns the color of triangles without any color information.
+     *
+     * @return the default color
+     */
+    public int getDefaultColor() {
+        return defaultColor;
+    }
+    
+    // SETTERS
+    
+    public void setDefaultColor(int rgb) {
+        this.defaultColor = rgb;
+    }
+    
+    // VOXELIZATION
+    
+    @NotNull
+    public VoxelArray toVoxelArray(STLModel model) {
+        Triangle[] triangles = triangulate(model);
+        VoxelArray result = allocate(triangles);
+        rasterize(triangles, sizeOf(result), result::setRGB);
+        return result;
+    }
+    
+    @NotNull
+    public VoxelArray toVoxelArray(OBJModel model) {
+        Triangle[] triangles = triangulate(model);
+        VoxelArray result = allocate(triangles);
+        rasterize(triangles, sizeOf(result), result::setRGB);
+        return result;
+    }
+    
+    @NotNull
+    public SparseVoxelArray toSparseArray(STLModel model) {
+        Triangle[] triangles = triangulate(model);
+        SparseVoxelArray result = allocateSparse(triangles);
+        rasterize(triangles, sizeOf(result), result::setRGB);
+        result.compact();
+        return result;
+    }
+    
+    @NotNull
+    public SparseVoxelArray toSparseArray(OBJModel model) {
+        Triangle[] triangles = triangulate(model);
+        SparseVoxelArray result = allocateSparse(triangles);
+        rasterize(triangles, sizeOf(result), result::setRGB);
+        result.compact();
+        return result;
+    }
+    
+    // TRIANGULATION
+    
+    private Triangle[] triangulate(STLModel model) {
+        final float[] buffer = new float[STLModel.FLOATS_PER_TRIANGLE];
+        Triangle[] result = new Triangle[model.size()];
+        
+        for (int i = 0; i < result.length; i++) {
+            model.getTriangle(i, buffer, 0);
+            Triangle triangle = result[i] = new Triangle();
+            // skip the normal, the vertices are already laid out as x, y, z
+            System.arraycopy(buffer, 3, triangle.pos, 0, 9);
+            triangle.color = colorOf(model.getAttribute(i));
+        }
+        
+        return fit(result);
+    }
+    
+    private Triangle[] triangulate(OBJModel model) {
+        final MTLLibrary library = model.getMaterials();
+        List<Triangle> result = new ArrayList<>();
+        
+        for (OBJGroup group : model.getGroups()) {
+            final String materialName = group.getMaterial();
+            final MTLMaterial material = library == null || materialName == null?
+                null : library.getMaterial(materialName);
+            final String mapName = material == null? null : material.getDiffuseMap();
+            final Texture map = mapName == null? null : library.getMap(mapName);
+            final int color = material == null? defaultColor : material.getDiffuseColor();
+            
+            group.forEachFace((g, indices, offset, size) -> {
+                // polygons are triangulated as fans around their first vertex
+                for (int i = 2; i < size; i++) {
+                    Triangle triangle = new Triangle();
+                    triangle.color = color;
+                    triangle.setVertex(0, model, indices, offset, map);
+                    triangle.setVertex(1, model, indices, offset + (i - 1) * 3, map);
+                    triangle.setVertex(2, model, indices, offset + i * 3, map);
+                    result.add(triangle);
+                }
+            });
+        }
+        
+        return fit(result.toArray(new Triangle[result.size()]));
+    }
+    
+    /**
+     * Returns the color stored in an STL attribute, where bit 15 marks a valid 15-bit RGB color.
+     */
+    private int colorOf(short attribute) {
+        if ((attribute & 0x8000) == 0)
+            return defaultColor;
+        
+        final int r = attribute >> 10 & 0x1F, g = attribute >> 5 & 0x1F, b = attribute & 0x1F;
+        return ColorMath.fromRGB(r << 3 | r >> 2, g << 3 | g >> 2, b << 3 | b >> 2);
+    }
+    
+    /**
+     * Translates and scales all triangles into voxel space, so that the minimum point lies at the origin and the
+     * longest side of the model is {@link #resolution} units long.
+     */
+    private Triangle[] fit(Triangle[] triangles) {
+        if (triangles.length == 0)
+            throw new IllegalArgumentException("model contains no triangles");
+        
+        float
+            minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY,
+            maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        
+        for (Triangle t : triangles)
+            for (int i = 0; i < 9; i += 3) {
+                minX = Math.min(minX, t.pos[i]);
+                minY = Math.min(minY, t.pos[i + 1]);
+                minZ = Math.min(minZ, t.pos[i + 2]);
+                maxX = Math.max(maxX, t.pos[i]);
+                maxY = Math.max(maxY, t.pos[i + 1]);
+                maxZ = Math.max(maxZ, t.pos[i + 2]);
+            }
+        
+        final float extent = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+        final float scale = extent == 0? 1 : resolution / extent;
+        
+        for (Triangle t : triangles)
+            for (int i = 0; i < 9; i += 3) {
+                t.pos[i] = (t.pos[i] - minX) * scale;
+                t.pos[i + 1] = (t.pos[i + 1] - minY) * scale;
+                t.pos[i + 2] = (t.pos[i + 2] - minZ) * scale;
+            }
+        
+        return triangles;
+    }
+    
+    // RASTERIZATION
+    
+    private VoxelArray allocate(Triangle[] triangles) {
+        final int[] size = sizeOf(triangles);
+        return new VoxelArray(size[0], size[1], size[2]);
+    }
+    
+    private SparseVoxelArray allocateSparse(Triangle[] triangles) {
+        final int[] size = sizeOf(triangles);
+        return new SparseVoxelArray(size[0], size[1], size[2]);
+    }
+    
+    private int[] sizeOf(Triangle[] triangles) {
+        final int[] result = {1, 1, 1};
+        for (Triangle t : triangles)
+            for (int i = 0; i < 9; i++)
+                result[i % 3] = Math.max(result[i % 3], Math.min(resolution, (int) Math.ceil(t.pos[i])));
+        return result;
+    }
+    
+    private static int[] sizeOf(BitArray3 array) {
+        return new int[] {array.getSizeX(), array.getSizeY(), array.getSizeZ()};
+    }
+    
+    private void rasterize(Triangle[] triangles, int[] size, VoxelVisitor target) {
+        final int sizeZ = size[2];
+        final int tiles = (sizeZ + TILE_SIZE - 1) / TILE_SIZE;
+        
+        // assign each triangle to all tiles it overlaps, keeping the original order within each tile
+        @SuppressWarnings("unchecked")
+        final List<Triangle>[] binned = new List[tiles];
+        for (int i = 0; i < tiles; i++)
+            binned[i] = new ArrayList<>();
+        
+        for (Triangle t : triangles) {
+            final int
+                minTile = clamp((int) Math.floor(t.min(2)) / TILE_SIZE, tiles),
+                maxTile = clamp((int) Math.floor(t.max(2)) / TILE_SIZE, tiles);
+            for (int tile = minTile; tile <= maxTile; tile++)
+                binned[tile].add(t);
+        }
+        
+        IntStream.range(0, tiles).parallel().forEach(tile -> {
+            final int minZ = tile * TILE_SIZE, maxZ = Math.min(sizeZ, minZ + TILE_SIZE) - 1;
+            for (Triangle t : binned[tile])
+                rasterize(t, size, minZ, maxZ, target);
+        });
+    }
+    
+    private static void rasterize(Triangle t, int[] size, int tileMinZ, int tileMaxZ, VoxelVisitor target) {
+        // triangles on the far side of the model only touch the voxels below them
+        final int
+            minX = Math.max(0, Math.min(size[0] - 1, (int) Math.floor(t.min(0)))),
+            minY = Math.max(0, Math.min(size[1] - 1, (int) Math.floor(t.min(1)))),
+            minZ = Math.max(tileMinZ, Math.min(size[2] - 1, (int) Math.floor(t.min(2)))),
+            maxX = Math.min(size[0] - 1, (int) Math.floor(t.max(0))),
+            maxY = Math.min(size[1] - 1, (int) Math.floor(t.max(1))),
+            maxZ = Math.min(tileMaxZ, (int) Math.floor(t.max(2)));
+        
+        for (int z = minZ; z <= maxZ; z++)
+            for (int y = minY; y <= maxY; y++)
+                for (int x = minX; x <= maxX; x++)
+                    if (t.intersectsVoxel(x, y, z))
+                        target.visit(x, y, z, t.colorAt(x + 0.5F, y + 0.5F, z + 0.5F));
+    }
+    
+    private static int clamp(int tile, int tiles) {
+        return Math.max(0, Math.min(tiles - 1, tile));
+    }
+    
+    // CLASSES
+    
+    private static class Triangle {
+        
+        /** The positions of the three vertices as {@code x, y, z}. */
+        private final float[] pos = new float[9];
+        /** The texture coordinates of the three vertices as {@code u, v}, only used if there is a texture. */
+        private final float[] uv = new float[6];
+        
+        @Nullable
+        private Texture texture;
+        private int color;
+        
+        private void setVertex(int index, OBJModel model, int[] triplet, int offset, @Nullable Texture map) {
+            model.getVertex(triplet[offset], pos, index * 3);
+            
+            if (map != null && triplet[offset + 1] > 0) {
+                model.getTexture(triplet[offset + 1], uv, index * 2);
+                // the triangle is only textured if all of its vertices have texture coordinates
+                texture = index == 0 || texture != null? map : null;
+            }
+            else texture = null;
+        }
+        
+        private float min(int axis) {
+            return Math.min(pos[axis], Math.min(pos[3 + axis], pos[6 + axis]));
+        }
+        
+        private float max(int axis) {
+            return Math.max(pos[axis], Math.max(pos[3 + axis], pos[6 + axis]));
+        }
+        
+        /**
+         * Returns the color at the point of the triangle closest to the given point.
+         */
+        private int colorAt(float px, float py, float pz) {
+            if (texture == null)
+                return color;
+            
+            final float[] w = barycentric(px, py, pz);
+            float u = w[0] * uv[0] + w[1] * uv[2] + w[2] * uv[4];
+            float v = w[0] * uv[1] + w[1] * uv[3] + w[2] * uv[5];
+            
+            // repeat the texture and flip v, since texture vertices start at the bottom of the image
+            u -= (float) Math.floor(u);
+            v -= (float) Math.floor(v);
+            return texture.get(u, 1 - v);
+        }
+        
+        /**
+         * Returns the barycentric coordinates of the projection of the point onto the plane of the triangle, clamped
+         * to the triangle.
+         */
+        private float[] barycentric(float px, float py, float pz) {
+            final float
+                e0x = pos[3] - pos[0], e0y = pos[4] - pos[1], e0z = pos[5] - pos[2],
+                e1x = pos[6] - pos[0], e1y = pos[7] - pos[1], e1z = pos[8] - pos[2],
+                dx = px - pos[0], dy = py - pos[1], dz = pz - pos[2];
+            
+            final float
+                d00 = e0x * e0x + e0y * e0y + e0z * e0z,
+                d01 = e0x * e1x + e0y * e1y + e0z * e1z,
+                d11 = e1x * e1x + e1y * e1y + e1z * e1z,
+                d20 = dx * e0x + dy * e0y + dz * e0z,
+                d21 = dx * e1x + dy * e1y + dz * e1z,
+                denom = d00 * d11 - d01 * d01;
+            
+            if (denom == 0)
+                return new float[] {1, 0, 0};
+            
+            float
+                v = Math.max(0, (d11 * d20 - d01 * d21) / denom),
+                w = Math.max(0, (d00 * d21 - d01 * d20) / denom);
+            if (v + w > 1) {
+                final float sum = v + w;
+                v /= sum;
+                w /= sum;
+            }
+            
+            return new float[] {1 - v - w, v, w};
+        }
+        
+        /**
+         * Tests whether the triangle intersects the unit cube of a voxel using the separating axis theorem, as
+         * described by Tomas Akenine-M&ouml;ller in "Fast 3D Triangle-Box Overlap Testing".
+         */
+        private boolean intersectsVoxel(int x, int y, int z) {
+            final float h = 0.5F;
+            final float
+                v0x = pos[0] - x - h, v0y = pos[1] - y - h, v0z = pos[2] - z - h,
+                v1x = pos[3] - x - h, v1y = pos[4] - y - h, v1z = pos[5] - z - h,
+                v2x = pos[6] - x - h, v2y = pos[7] - y - h, v2z = pos[8] - z - h;
+            
+            final float
+                e0x = v1x - v0x, e0y = v1y - v0y, e0z = v1z - v0z,
+                e1x = v2x - v1x, e1y = v2y - v1y, e1z = v2z - v1z,
+                e2x = v0x - v2x, e2y = v0y - v2y, e2z = v0z - v2z;
+            
+            // the nine cross products of the triangle edges and the box axes
+            if (!axisTest(e0z, -e0y, v0y, v0z, v2y, v2z, h)) return false;
+            if (!axisTest(e1z, -e1y, v0y, v0z, v2y, v2z, h)) return false;
+            if (!axisTest(e2z, -e2y, v0y, v0z, v1y, v1z, h)) return false;
+            if (!axisTest(-e0z, e0x, v0x, v0z, v2x, v2z, h)) return false;
+            if (!axisTest(-e1z, e1x, v0x, v0z, v2x, v2z, h)) return false;
+            if (!axisTest(-e2z, e2x, v0x, v0z, v1x, v1z, h)) return false;
+            if (!axisTest(e0y, -e0x, v1x, v1y, v2x, v2y, h)) return false;
+            if (!axisTest(e1y, -e1x, v0x, v0y, v1x, v1y, h)) return false;
+            if (!axisTest(e2y, -e2x, v1x, v1y, v2x, v2y, h)) return false;
+            
+            // the box axes, which are already covered by the bounding box of the triangle except for edge cases
+            if (Math.min(v0x, Math.min(v1x, v2x)) > h || Math.max(v0x, Math.max(v1x, v2x)) < -h) return false;
+            if (Math.min(v0y, Math.min(v1y, v2y)) > h || Math.max(v0y, Math.max(v1y, v2y)) < -h) return false;
+            if (Math.min(v0z, Math.min(v1z, v2z)) > h || Math.max(v0z, Math.max(v1z, v2z)) < -h) return false;
+            
+            // the normal of the triangle
+            final float
+                nx = e0y * e1z - e0z * e1y,
+                ny = e0z * e1x - e0x * e1z,
+                nz = e0x * e1y - e0y * e1x;
+            final float
+                d = nx * v0x + ny * v0y + nz * v0z,
+                r = h * (Math.abs(nx) + Math.abs(ny) + Math.abs(nz));
+            return Math.abs(d) <= r;
+        }
+        
+        /**
+         * Projects two vertices onto an axis perpendicular to an edge and tests the projection against the box.
+         */
+        private static boolean axisTest(float a, float b, float pa, float pb, float qa, float qb, float h) {
+            final float
+                p = a * pa + b * pb,
+                q = a * qa + b * qb,
+                r = h * (Math.abs(a) + Math.abs(b));
+            return Math.min(p, q) <= r && Math.max(p, q) >= -r;
+        }
+        
+    }
+    
+}
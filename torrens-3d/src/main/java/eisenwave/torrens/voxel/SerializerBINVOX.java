@@ -1,9 +1,6 @@
 package eisenwave.torrens.voxel;
 
 import eisenwave.torrens.io.Serializer;
-import eisenwave.torrens.object.Vertex3i;
-import org.jetbrains.annotations.Contract;
-import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
 
@@ -13,7 +10,7 @@ public class SerializerBINVOX implements Serializer<BitArray3> {
     
     private final static int MAX_RUN_LENGTH = 255;
     
-    private int dx, dy, dz, dyz;
+    private int dx, dy, dz;
     
     /**
      * Constructs a binvox serializer.
@@ -33,13 +30,10 @@ public class SerializerBINVOX implements Serializer<BitArray3> {
     
     @Override
     public void toStream(BitArray3 array, OutputStream stream) throws IOException {
-        System.out.println(array);
-        
         this.dx = array.getSizeX();
         this.dy = array.getSizeY();
         this.dz = array.getSizeZ();
-        this.dyz = dy * dz;
-    
+        
         Writer writer = new OutputStreamWriter(stream);
         writer.write("#binvox 1\n");
         writer.write("dim "+dx+" "+dy+" "+dz+"\n");
@@ -49,44 +43,76 @@ public class SerializerBINVOX implements Serializer<BitArray3> {
         writer.flush();
         
         DataOutputStream dataStream = new DataOutputStream(stream);
+        
+        if (array instanceof BitVoxelGrid)
+            serializeGrid((BitVoxelGrid) array, dataStream);
+        else
+            serializeArray(array, dataStream);
+        dataStream.flush();
+    }
+    
+    /**
+     * Encodes an arbitrary array by testing every position.
+     */
+    private void serializeArray(BitArray3 array, DataOutputStream stream) throws IOException {
+        final RunWriter runs = new RunWriter(stream);
+        // The y-coordinate runs fastest, then the z-coordinate, then the x-coordinate.
+        for (int x = 0; x < dx; x++)
+            for (int z = 0; z < dz; z++)
+                for (int y = 0; y < dy; y++)
+                    runs.append(array.contains(x, y, z));
+        runs.finish();
+    }
     
-        int length = array.getVolume();
+    /**
+     * Encodes a bit grid by reading its words directly. Within a grid, consecutive y-coordinates are {@code dx} bits
+     * apart.
+     */
+    private void serializeGrid(BitVoxelGrid grid, DataOutputStream stream) throws IOException {
+        final RunWriter runs = new RunWriter(stream);
+        final long[] words = grid.getWords();
+        final int dxy = dx * dy;
         
-        if (compression) for (int i = 0; i < length;) {
-            //System.out.println(posOf(i)+": "+array.contains(posOf(i)));
-            boolean value = array.contains(posOf(i++));
-            dataStream.writeBoolean(value);
-            
-            for (int count = 1; count <= MAX_RUN_LENGTH; i++, count++) {
-                if (i == length || array.contains(posOf(i)) != value) {
-                    dataStream.writeByte(count);
-                    //System.out.println("count="+count);
-                    break;
-                }
+        for (int x = 0; x < dx; x++)
+            for (int z = 0; z < dz; z++)
+                for (int y = 0, i = z * dxy + x; y < dy; y++, i += dx)
+                    runs.append((words[i >>> 6] & (1L << i)) != 0);
+        runs.finish();
+    }
+    
+    // CLASSES
     
-                //System.out.println("..."+posOf(i));
+    /**
+     * Collects voxels into runs of equal values, which are written as pairs of value and length.
+     */
+    private class RunWriter {
+        
+        private final DataOutputStream stream;
+        private boolean value;
+        private int count = 0;
+        
+        private RunWriter(DataOutputStream stream) {
+            this.stream = stream;
+        }
+        
+        public void append(boolean value) throws IOException {
+            if (count != 0 && (value != this.value || count == MAX_RUN_LENGTH || !compression)) {
+                stream.writeBoolean(this.value);
+                stream.writeByte(count);
+                count = 0;
             }
+            this.value = value;
+            count++;
         }
         
-        else for (int x = 0; x < dx; x++) for (int z = 0; z < dz; z++) for (int y = 0; y < dy; y++) {
-            dataStream.writeBoolean(array.contains(x, y, z));
-            dataStream.write(1);
+        public void finish() throws IOException {
+            if (count != 0) {
+                stream.writeBoolean(value);
+                stream.writeByte(count);
+                count = 0;
+            }
         }
-    }
-    
-    @Contract(pure = true)
-    private int indexOf(int x, int y, int z) {
-        // The y-coordinate runs fastest, then the z-coordinate, then the x-coordinate.
-        return (x * dyz) + (z * dy) + y;
-    }
-    
-    @NotNull
-    private Vertex3i posOf(int index) {
-        return new Vertex3i(
-            index / dyz,
-            index % dy,
-            (index / dy) % dz
-        );
+        
     }
     
 }
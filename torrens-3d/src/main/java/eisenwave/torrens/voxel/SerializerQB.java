@@ -4,9 +4,9 @@ import eisenwave.torrens.io.LittleDataOutputStream;
 import eisenwave.torrens.io.Serializer;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
@@ -16,13 +16,18 @@ import java.util.logging.Logger;
  * <p>
  *     No version restrictions exist.
  * </p>
+ * <p>
+ *     Matrices can optionally be run-length compressed, in which case every z-slice is encoded into runs of equal
+ *     colors. Each matrix is encoded into an array of words which is then written in bulk, which also allows multiple
+ *     matrices to be compressed in parallel.
+ * </p>
  * Qubicle Geometry note:<ul>
  *     <li>y-axis points upwards</li>
  *     <li>z-axis 90 degrees to the right of x-axis</li>
  * </ul>
  */
 public class SerializerQB implements Serializer<QBModel> {
-
+    
     public final static int
         CURRENT_VERSION = 0x01_01_00_00,
         COLOR_FORMAT_RGBA = 0,
@@ -35,16 +40,42 @@ public class SerializerQB implements Serializer<QBModel> {
         VIS_MASK_UNENCODED = 0,
         CODEFLAG = 2,
         NEXTSLICEFLAG = 6;
-
+    
+    /** the minimum length of a run of equal colors which is written using a {@link #CODEFLAG} */
+    private final static int MIN_RUN_LENGTH = 3;
+    
     @Nullable
     private final Logger logger;
+    private final boolean compression, parallel;
     
     private QBModel model;
-
+    
     private int colorFormat;
     
-    public SerializerQB(@Nullable Logger logger) {
+    /**
+     * Constructs a new qb serializer.
+     *
+     * @param logger the logger or {@code null}
+     * @param compression whether run-length compression should be used
+     * @param parallel whether multiple matrices should be compressed in parallel
+     */
+    public SerializerQB(@Nullable Logger logger, boolean compression, boolean parallel) {
         this.logger = logger;
+        this.compression = compression;
+        this.parallel = parallel;
+    }
+    
+    /**
+     * Constructs a new qb serializer which compresses matrices sequentially.
+     *
+     * @param compression whether run-length compression should be used
+     */
+    public SerializerQB(boolean compression) {
+        this(null, compression, false);
+    }
+    
+    public SerializerQB(@Nullable Logger logger) {
+        this(logger, false, false);
     }
     
     public SerializerQB() {
@@ -60,35 +91,56 @@ public class SerializerQB implements Serializer<QBModel> {
         if (logger != null)
             logger.fine("serializing "+matrix+" ...");
     }
-
+    
     @Override
     public void toStream(QBModel model, OutputStream stream) throws IOException {
         LittleDataOutputStream dataStream = new LittleDataOutputStream(stream);
         toStream(model, dataStream);
     }
-
+    
     public void toStream(QBModel mesh, LittleDataOutputStream stream) throws IOException {
         this.model = mesh;
         serializeHeader(stream);
-        for (QBMatrix matrix : mesh)
+        
+        if (compression && parallel) {
+            final QBMatrix[] matrices = mesh.getMatrices();
+            final int[][] compressed = Arrays.stream(matrices).parallel()
+                .map(matrix -> compress(matrix.getVoxels()))
+                .toArray(int[][]::new);
+            
+            for (int i = 0; i < matrices.length; i++) {
+                serializeMatrixHeader(matrices[i], stream);
+                stream.writeLittleInts(compressed[i]);
+            }
+        }
+        else for (QBMatrix matrix : mesh)
             serializeMatrix(matrix, stream);
     }
-
+    
     private void serializeHeader(LittleDataOutputStream stream) throws IOException {
         stream.writeInt(CURRENT_VERSION);
         stream.writeInt(colorFormat = COLOR_FORMAT_RGBA);
         stream.writeInt(Z_ORIENT_LEFT);
-        stream.writeInt(UNCOMPRESSED);
+        stream.writeLittleInt(compression? COMPRESSED : UNCOMPRESSED);
         stream.writeLittleInt(VIS_MASK_UNENCODED);
         stream.writeLittleInt(model.size());
     }
-
+    
     private void serializeMatrix(QBMatrix matrix, LittleDataOutputStream stream) throws IOException {
+        serializeMatrixHeader(matrix, stream);
+        
+        if (compression)
+            stream.writeLittleInts(compress(matrix.getVoxels()));
+        else
+            serializeUncompressed(matrix.getVoxels(), stream);
+    }
+    
+    private void serializeMatrixHeader(QBMatrix matrix, LittleDataOutputStream stream) throws IOException {
         debug(matrix);
         byte[] name = matrix.getName().getBytes();
         stream.write(name.length);
         stream.write(name);
-
+        
         VoxelArray array = matrix.getVoxels();
         stream.writeLittleInt(array.getSizeX()); //matrix dims
         stream.writeLittleInt(array.getSizeY());
@@ -96,31 +148,82 @@ public class SerializerQB implements Serializer<QBModel> {
         stream.writeLittleInt(matrix.getMinX()); //matrix pos
         stream.writeLittleInt(matrix.getMinY());
         stream.writeLittleInt(matrix.getMinZ());
-        
-        serializeUncompressed(array, stream);
     }
-
-    private void serializeUncompressed(VoxelArray array, DataOutputStream stream) throws IOException {
+    
+    private void serializeUncompressed(VoxelArray array, LittleDataOutputStream stream) throws IOException {
         final int
             limX = array.getSizeX(),
             limY = array.getSizeY(),
             limZ = array.getSizeZ();
-
-        for (int z = 0; z<limZ; z++)
-            for (int y = 0; y<limY; y++)
-                for (int x = 0; x<limX; x++)
-                    stream.writeInt(asColor(array.getRGB(x, y, z)));
+        
+        // slices are stored in the same order as in a voxel array and can be written in bulk
+        int[] slice = new int[limX * limY];
+        for (int z = 0; z<limZ; z++) {
+            array.copyRGB(0, 0, z, limX, limY, z + 1, slice);
+            for (int i = 0; i < slice.length; i++)
+                slice[i] = asColor(slice[i]);
+            stream.writeInts(slice);
+        }
     }
-
+    
+    /**
+     * Run-length encodes a voxel array slice by slice. The returned words are meant to be written in little endian
+     * byte order, so colors are stored byte-reversed.
+     *
+     * @param array the voxel array
+     * @return the compressed words
+     */
+    private int[] compress(VoxelArray array) {
+        final int
+            limX = array.getSizeX(),
+            limY = array.getSizeY(),
+            limZ = array.getSizeZ(),
+            area = limX * limY;
+        
+        final int[] slice = new int[area];
+        int[] words = new int[Math.max(16, area / 4)];
+        int length = 0;
+        
+        for (int z = 0; z < limZ; z++) {
+            array.copyRGB(0, 0, z, limX, limY, z + 1, slice);
+            
+            for (int i = 0; i < area; ) {
+                final int argb = slice[i];
+                int end = i + 1;
+                while (end < area && slice[end] == argb)
+                    end++;
+                final int count = end - i;
+                final int word = Integer.reverseBytes(asColor(argb));
+                
+                if (words.length < length + Math.max(count, MIN_RUN_LENGTH) + 1)
+                    words = Arrays.copyOf(words, Math.max(words.length * 2, length + count + MIN_RUN_LENGTH + 1));
+                
+                // colors which look like flags must always be written as runs
+                if (count >= MIN_RUN_LENGTH || word == CODEFLAG || word == NEXTSLICEFLAG) {
+                    words[length++] = CODEFLAG;
+                    words[length++] = count;
+                    words[length++] = word;
+                }
+                else for (int j = 0; j < count; j++)
+                    words[length++] = word;
+                i = end;
+            }
+            
+            if (words.length == length)
+                words = Arrays.copyOf(words, words.length * 2);
+            words[length++] = NEXTSLICEFLAG;
+        }
+        
+        return Arrays.copyOf(words, length);
+    }
+    
     private int asColor(int argb) {
-        byte[] bytes = toBytes(argb);
-
         if (colorFormat == COLOR_FORMAT_RGBA)
-            return ((bytes[1]&0xFF)<<24) | ((bytes[2]&0xFF)<<16) | ((bytes[3]&0xFF)<<8) | (bytes[0]&0xFF);
-
+            return Integer.rotateLeft(argb, 8);
+        
         else if (colorFormat == COLOR_FORMAT_BGRA)
-            return ((bytes[3]&0xFF)<<24) | ((bytes[2]&0xFF)<<16) | ((bytes[1]&0xFF)<<8) | (bytes[0]&0xFF);
-
+            return Integer.reverseBytes(argb);
+        
         else
             throw new IllegalStateException("unknown color format");
     }
@@ -132,5 +235,5 @@ public class SerializerQB implements Serializer<QBModel> {
             (byte) ((Int >> 8) & 0xFF),
             (byte) (Int & 0xFF)};
     }
-
+    
 }
@@ -0,0 +1,47 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.io.LittleDataOutputStream;
+import eisenwave.torrens.io.Serializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>
+ *     A serializer for the compact binary form of a {@link VoxelOctree}.
+ * </p>
+ * The format consists of (all integers little-endian):<ul>
+ *     <li>the magic bytes {@code SVO} followed by the version byte</li>
+ *     <li>the size on the x, y and z-axis as three ints</li>
+ *     <li>the amount of voxels as an int</li>
+ *     <li>the child masks of every inner level, one byte per node, starting at the root</li>
+ *     <li>the ARGB colors of the voxels in Morton order, one int per voxel</li>
+ * </ul>
+ * The colors of inner nodes are not stored but recomputed when deserializing.
+ */
+public class SerializerSVO implements Serializer<VoxelOctree> {
+    
+    public final static byte[] MAGIC = {'S', 'V', 'O'};
+    public final static int CURRENT_VERSION = 1;
+    
+    @Override
+    public void toStream(VoxelOctree octree, OutputStream stream) throws IOException {
+        LittleDataOutputStream dataStream = new LittleDataOutputStream(stream);
+        
+        dataStream.write(MAGIC);
+        dataStream.writeByte(CURRENT_VERSION);
+        dataStream.writeLittleInt(octree.getSizeX());
+        dataStream.writeLittleInt(octree.getSizeY());
+        dataStream.writeLittleInt(octree.getSizeZ());
+        dataStream.writeLittleInt(octree.size());
+        
+        if (octree.size() != 0) {
+            for (int level = 0; level < octree.getDepth(); level++)
+                dataStream.write(octree.getMasks(level));
+            dataStream.writeLittleInts(octree.getLeaves());
+        }
+        
+        dataStream.flush();
+    }
+    
+}
@@ -0,0 +1,694 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.object.BoundingBox6i;
+import eisenwave.torrens.object.Vertex3i;
+import eisenwave.torrens.util.ColorMath;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * A sparse array of voxels which is split into chunks of {@code 16x16x16} voxels.
+ * </p>
+ * <p>
+ * Chunks are only allocated once a voxel is set inside them. Chunks consisting of a single color are stored as one
+ * value and chunks with at most 256 colors are palette-compressed, so large, mostly empty or mostly uniform volumes
+ * require only a fraction of the memory of a {@link VoxelArray}.
+ * </p>
+ * <p>
+ * Setting voxels may inflate chunks. Use {@link #compact()} to collapse them again after large modifications.
+ * </p>
+ */
+public class SparseVoxelArray implements BitArray3, Cloneable, Serializable {
+    
+    private final static int
+        CHUNK_BITS = 4,
+        CHUNK_SIZE = 1 << CHUNK_BITS,
+        CHUNK_MASK = CHUNK_SIZE - 1,
+        CHUNK_VOLUME = CHUNK_SIZE * CHUNK_SIZE * CHUNK_SIZE,
+        MAX_PALETTE_SIZE = 256;
+    
+    /**
+     * The amount of chunks from which on bulk operations such as {@link #size()} are run in parallel.
+     */
+    private final static int PARALLEL_THRESHOLD = 16;
+    
+    private final int sizeX, sizeY, sizeZ;
+    private final int chunksX, chunksY, chunksZ;
+    
+    /** The chunks of this array, where {@code null} represents a chunk of {@link ColorMath#INVISIBLE_BLACK}. */
+    private final Chunk[] chunks;
+    
+    public SparseVoxelArray(int x, int y, int z) {
+        if (x <= 0 || y <= 0 || z <= 0)
+            throw new IllegalArgumentException("size 0 voxel array");
+        this.sizeX = x;
+        this.sizeY = y;
+        this.sizeZ = z;
+        this.chunksX = (x + CHUNK_MASK) >> CHUNK_BITS;
+        this.chunksY = (y + CHUNK_MASK) >> CHUNK_BITS;
+        this.chunksZ = (z + CHUNK_MASK) >> CHUNK_BITS;
+        this.chunks = new Chunk[chunksX * chunksY * chunksZ];
+    }
+    
+    public SparseVoxelArray(SparseVoxelArray copyOf) {
+        this(copyOf.sizeX, copyOf.sizeY, copyOf.sizeZ);
+        for (int i = 0; i < chunks.length; i++)
+            if (copyOf.chunks[i] != null)
+                chunks[i] = copyOf.chunks[i].clone();
+    }
+    
+    /**
+     * Constructs a new sparse array with the dimensions and contents of a dense voxel array.
+     *
+     * @param array the dense array
+     */
+    public SparseVoxelArray(VoxelArray array) {
+        this(array.getSizeX(), array.getSizeY(), array.getSizeZ());
+        final int[] buffer = new int[CHUNK_VOLUME];
+        
+        for (int cz = 0, c = 0; cz < chunksZ; cz++)
+            for (int cy = 0; cy < chunksY; cy++)
+                for (int cx = 0; cx < chunksX; cx++, c++) {
+                    final int
+                        minX = cx << CHUNK_BITS, minY = cy << CHUNK_BITS, minZ = cz << CHUNK_BITS,
+                        limX = Math.min(minX + CHUNK_SIZE, sizeX),
+                        limY = Math.min(minY + CHUNK_SIZE, sizeY),
+                        limZ = Math.min(minZ + CHUNK_SIZE, sizeZ);
+                    
+                    Arrays.fill(buffer, ColorMath.INVISIBLE_BLACK);
+                    for (int z = minZ; z < limZ; z++)
+                        for (int y = minY; y < limY; y++)
+                            for (int x = minX; x < limX; x++)
+                                buffer[localIndex(x, y, z)] = array.getRGB(x, y, z);
+                    
+                    chunks[c] = compress(buffer, limX - minX, limY - minY, limZ - minZ);
+                }
+    }
+    
+    /**
+     * <p>
+     * Constructs a new sparse array containing all elements of a voxel mesh.
+     * </p>
+     * <p>
+     * The array spans the boundaries of the mesh, with the minimum point of the mesh at {@code (0, 0, 0)}. Where
+     * elements overlap, visible voxels of later elements replace those of earlier ones.
+     * </p>
+     *
+     * @param mesh the voxel mesh
+     * @throws IllegalStateException if the mesh is empty
+     */
+    public SparseVoxelArray(VoxelMesh mesh) {
+        this(mesh.getBoundaries());
+        final Vertex3i min = mesh.getMin();
+        
+        for (VoxelMesh.Element element : mesh)
+            paste(element.getArray(),
+                element.getMinX() - min.getX(),
+                element.getMinY() - min.getY(),
+                element.getMinZ() - min.getZ());
+        
+        compact();
+    }
+    
+    private SparseVoxelArray(BoundingBox6i bounds) {
+        this(bounds.getSizeX(), bounds.getSizeY(), bounds.getSizeZ());
+    }
+    
+    /**
+     * Returns a copy of a part of this array.
+     *
+     * @param xmin the min x (inclusive)
+     * @param ymin the min y (inclusive)
+     * @param zmin the min z (inclusive)
+     * @param xmax the max x (inclusive)
+     * @param ymax the max y (inclusive)
+     * @param zmax the max z (inclusive)
+     * @return a new sub array, copied out of this array
+     */
+    @NotNull
+    public SparseVoxelArray copy(int xmin, int ymin, int zmin, int xmax, int ymax, int zmax) {
+        if (xmin < 0 || ymin < 0 || zmin < 0)
+            throw new IllegalArgumentException("min (" + xmin + "," + ymin + "," + zmin + ") out of boundaries");
+        if (xmax >= sizeX || ymax >= sizeY || zmax >= sizeZ)
+            throw new IllegalArgumentException("max (" + xmax + "," + ymax + "," + zmax + ") out of boundaries");
+        
+        SparseVoxelArray result = new SparseVoxelArray(xmax - xmin + 1, ymax - ymin + 1, zmax - zmin + 1);
+        
+        for (int cz = zmin >> CHUNK_BITS; cz <= zmax >> CHUNK_BITS; cz++)
+            for (int cy = ymin >> CHUNK_BITS; cy <= ymax >> CHUNK_BITS; cy++)
+                for (int cx = xmin >> CHUNK_BITS; cx <= xmax >> CHUNK_BITS; cx++) {
+                    final Chunk chunk = chunks[chunkIndex(cx, cy, cz)];
+                    if (chunk == null) continue;
+                    
+                    final int
+                        minX = Math.max(xmin, cx << CHUNK_BITS),
+                        minY = Math.max(ymin, cy << CHUNK_BITS),
+                        minZ = Math.max(zmin, cz << CHUNK_BITS),
+                        limX = Math.min(xmax, (cx << CHUNK_BITS) + CHUNK_MASK),
+                        limY = Math.min(ymax, (cy << CHUNK_BITS) + CHUNK_MASK),
+                        limZ = Math.min(zmax, (cz << CHUNK_BITS) + CHUNK_MASK);
+                    
+                    for (int z = minZ; z <= limZ; z++)
+                        for (int y = minY; y <= limY; y++)
+                            for (int x = minX; x <= limX; x++)
+                                result.setRGB(x - xmin, y - ymin, z - zmin, chunk.get(localIndex(x, y, z)));
+                }
+        
+        result.compact();
+        return result;
+    }
+    
+    // GETTERS
+    
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+    
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+    
+    @Override
+    public int getSizeZ() {
+        return sizeZ;
+    }
+    
+    /**
+     * Returns the boundaries of this voxel array.
+     *
+     * @return the array boundaries
+     */
+    public BoundingBox6i getBoundaries() {
+        return new BoundingBox6i(0, 0, 0, sizeX - 1, sizeY - 1, sizeZ - 1);
+    }
+    
+    /**
+     * Returns the RGB value of the voxel at the specified coordinates. If the alpha ({@code rgb >> 24}) is 0, there is
+     * no voxel at the position.
+     *
+     * @param x the x position
+     * @param y the y position
+     * @param z the z position
+     * @return the color of the voxel at the position
+     */
+    public int getRGB(int x, int y, int z) {
+        checkBounds(x, y, z);
+        Chunk chunk = chunks[chunkIndex(x >> CHUNK_BITS, y >> CHUNK_BITS, z >> CHUNK_BITS)];
+        return chunk == null? ColorMath.INVISIBLE_BLACK : chunk.get(localIndex(x, y, z));
+    }
+    
+    /**
+     * Returns the RGB value of the voxel at the specified position.
+     *
+     * @param v the voxel position
+     * @return the color of the voxel at the position
+     */
+    public int getRGB(Vertex3i v) {
+        return getRGB(v.getX(), v.getY(), v.getZ());
+    }
+    
+    /**
+     * Returns the amount of visible voxels in this array. Arrays with many chunks are counted in parallel.
+     *
+     * @return the amount of visible voxels
+     */
+    @Override
+    public int size() {
+        if (chunks.length < PARALLEL_THRESHOLD) {
+            int count = 0;
+            for (int i = 0; i < chunks.length; i++)
+                count += countVisible(i);
+            return count;
+        }
+        
+        return IntStream.range(0, chunks.length).parallel()
+            .map(this::countVisible)
+            .sum();
+    }
+    
+    // CHECKERS
+    
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return ColorMath.isVisible(getRGB(x, y, z));
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SparseVoxelArray && equals((SparseVoxelArray) obj);
+    }
+    
+    /**
+     * Returns whether this array is equal to another array. This condition is met of the arrays are equal in size and
+     * equal in content, regardless of how their chunks are stored.
+     *
+     * @param array the array
+     * @return whether the arrays are equal
+     */
+    public boolean equals(SparseVoxelArray array) {
+        if (sizeX != array.sizeX || sizeY != array.sizeY || sizeZ != array.sizeZ)
+            return false;
+        
+        for (int z = 0; z < sizeZ; z++)
+            for (int y = 0; y < sizeY; y++)
+                for (int x = 0; x < sizeX; x++)
+                    if (getRGB(x, y, z) != array.getRGB(x, y, z))
+                        return false;
+        
+        return true;
+    }
+    
+    // SETTERS
+    
+    /**
+     * Sets the voxel color at a given position.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @param rgb the voxel color
+     */
+    public void setRGB(int x, int y, int z, int rgb) {
+        checkBounds(x, y, z);
+        final int c = chunkIndex(x >> CHUNK_BITS, y >> CHUNK_BITS, z >> CHUNK_BITS);
+        final Chunk chunk = chunks[c];
+        
+        if (chunk == null) {
+            if (rgb != ColorMath.INVISIBLE_BLACK)
+                chunks[c] = new UniformChunk(ColorMath.INVISIBLE_BLACK).set(localIndex(x, y, z), rgb);
+        }
+        else chunks[c] = chunk.set(localIndex(x, y, z), rgb);
+    }
+    
+    /**
+     * Sets the voxel color at a given position.
+     *
+     * @param pos the position
+     * @param rgb the voxel color
+     */
+    public void setRGB(Vertex3i pos, int rgb) {
+        setRGB(pos.getX(), pos.getY(), pos.getZ(), rgb);
+    }
+    
+    public void remove(int x, int y, int z) {
+        setRGB(x, y, z, ColorMath.INVISIBLE_WHITE);
+    }
+    
+    /**
+     * Fills this voxel array with the visible voxels of another array at a given offset.
+     *
+     * @param array the array to paste this one with
+     */
+    public void paste(SparseVoxelArray array, int x, int y, int z) {
+        array.forEachVisibleVoxel((vx, vy, vz, argb) -> this.setRGB(vx + x, vy + y, vz + z, argb));
+    }
+    
+    /**
+     * Fills this voxel array with the visible voxels of another array at a given offset.
+     *
+     * @param array the array to paste this one with
+     */
+    public void paste(VoxelArray array, int x, int y, int z) {
+        array.forEachVisibleVoxel((vx, vy, vz, argb) -> this.setRGB(vx + x, vy + y, vz + z, argb));
+    }
+    
+    /**
+     * Fills the entire voxel array with a single rgb value. This collapses every chunk into a single value.
+     *
+     * @param rgb the rgb value
+     */
+    public void fill(int rgb) {
+        if (rgb == ColorMath.INVISIBLE_BLACK)
+            clear();
+        else for (int i = 0; i < chunks.length; i++)
+            chunks[i] = new UniformChunk(rgb);
+    }
+    
+    /**
+     * Clears the voxel array, releasing all chunks.
+     */
+    public void clear() {
+        Arrays.fill(chunks, null);
+    }
+    
+    /**
+     * Compresses every chunk to its smallest representation. Uniform chunks are collapsed into a single value,
+     * chunks with few colors are palette-compressed and chunks of {@link ColorMath#INVISIBLE_BLACK} are released.
+     */
+    public void compact() {
+        IntStream.range(0, chunks.length).parallel().forEach(c -> {
+            final Chunk chunk = chunks[c];
+            if (chunk == null) return;
+            
+            final int[] buffer = new int[CHUNK_VOLUME];
+            for (int i = 0; i < CHUNK_VOLUME; i++)
+                buffer[i] = chunk.get(i);
+            
+            final int
+                cx = c % chunksX, cy = c / chunksX % chunksY, cz = c / (chunksX * chunksY);
+            
+            chunks[c] = compress(buffer, chunkLimit(cx, sizeX), chunkLimit(cy, sizeY), chunkLimit(cz, sizeZ));
+        });
+    }
+    
+    // CONVERSION
+    
+    /**
+     * Returns a dense copy of this array.
+     *
+     * @return a new voxel array
+     */
+    @NotNull
+    public VoxelArray toVoxelArray() {
+        final int[] rgb = new int[sizeX * sizeY * sizeZ];
+        
+        forEachChunk((cx, cy, cz, chunk) -> {
+            final int
+                minX = cx << CHUNK_BITS, minY = cy << CHUNK_BITS, minZ = cz << CHUNK_BITS,
+                limX = Math.min(minX + CHUNK_SIZE, sizeX),
+                limY = Math.min(minY + CHUNK_SIZE, sizeY),
+                limZ = Math.min(minZ + CHUNK_SIZE, sizeZ);
+            
+            for (int z = minZ; z < limZ; z++)
+                for (int y = minY; y < limY; y++)
+                    for (int x = minX; x < limX; x++)
+                        rgb[(z * sizeY + y) * sizeX + x] = chunk.get(localIndex(x, y, z));
+        });
+        
+        return new VoxelArray(rgb, sizeX, sizeY, sizeZ);
+    }
+    
+    /**
+     * Returns a voxel mesh with one element for each chunk of this array which contains visible voxels.
+     *
+     * @return a new voxel mesh
+     */
+    @NotNull
+    public VoxelMesh toVoxelMesh() {
+        final VoxelMesh mesh = new VoxelMesh();
+        
+        forEachChunk((cx, cy, cz, chunk) -> {
+            if (countVisible(chunkIndex(cx, cy, cz)) == 0)
+                return;
+            
+            final int
+                minX = cx << CHUNK_BITS, minY = cy << CHUNK_BITS, minZ = cz << CHUNK_BITS,
+                limX = chunkLimit(cx, sizeX), limY = chunkLimit(cy, sizeY), limZ = chunkLimit(cz, sizeZ);
+            
+            final int[] rgb = new int[limX * limY * limZ];
+            for (int z = 0, i = 0; z < limZ; z++)
+                for (int y = 0; y < limY; y++)
+                    for (int x = 0; x < limX; x++, i++)
+                        rgb[i] = chunk.get(localIndex(x, y, z));
+            
+            mesh.add(minX, minY, minZ, new VoxelArray(rgb, limX, limY, limZ));
+        });
+        
+        return mesh;
+    }
+    
+    // ITERATION
+    
+    /**
+     * Visits every visible voxel of this array. Unallocated and invisible uniform chunks are skipped entirely.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachVisibleVoxel(VoxelVisitor visitor) {
+        forEachChunk((cx, cy, cz, chunk) -> {
+            if (chunk instanceof UniformChunk && !ColorMath.isVisible(((UniformChunk) chunk).rgb))
+                return;
+            
+            final int
+                minX = cx << CHUNK_BITS, minY = cy << CHUNK_BITS, minZ = cz << CHUNK_BITS,
+                limX = Math.min(minX + CHUNK_SIZE, sizeX),
+                limY = Math.min(minY + CHUNK_SIZE, sizeY),
+                limZ = Math.min(minZ + CHUNK_SIZE, sizeZ);
+            
+            for (int z = minZ; z < limZ; z++)
+                for (int y = minY; y < limY; y++)
+                    for (int x = minX; x < limX; x++) {
+                        final int argb = chunk.get(localIndex(x, y, z));
+                        if (ColorMath.isVisible(argb))
+                            visitor.visit(x, y, z, argb);
+                    }
+        });
+    }
+    
+    private void forEachChunk(ChunkVisitor visitor) {
+        for (int cz = 0, c = 0; cz < chunksZ; cz++)
+            for (int cy = 0; cy < chunksY; cy++)
+                for (int cx = 0; cx < chunksX; cx++, c++)
+                    if (chunks[c] != null)
+                        visitor.visit(cx, cy, cz, chunks[c]);
+    }
+    
+    // MISC
+    
+    @Override
+    public String toString() {
+        return SparseVoxelArray.class.getSimpleName() +
+            "{dims=" + getSizeX() + "x" + getSizeY() + "x" + getSizeZ() +
+            ", volume=" + getVolume() +
+            ", size=" + size() + "}";
+    }
+    
+    @Override
+    public SparseVoxelArray clone() {
+        return new SparseVoxelArray(this);
+    }
+    
+    // UTIL
+    
+    private void checkBounds(int x, int y, int z) {
+        if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ)
+            throw new IndexOutOfBoundsException("(" + x + "," + y + "," + z + ") out of boundaries");
+    }
+    
+    private int chunkIndex(int cx, int cy, int cz) {
+        return (cz * chunksY + cy) * chunksX + cx;
+    }
+    
+    /**
+     * Returns the size of a chunk on one axis, which is less than {@link #CHUNK_SIZE} for chunks at the border.
+     */
+    private static int chunkLimit(int chunk, int size) {
+        return Math.min(CHUNK_SIZE, size - (chunk << CHUNK_BITS));
+    }
+    
+    private static int localIndex(int x, int y, int z) {
+        return (z & CHUNK_MASK) << (CHUNK_BITS * 2) | (y & CHUNK_MASK) << CHUNK_BITS | (x & CHUNK_MASK);
+    }
+    
+    private int countVisible(int c) {
+        final Chunk chunk = chunks[c];
+        if (chunk == null)
+            return 0;
+        
+        final int
+            cx = c % chunksX, cy = c / chunksX % chunksY, cz = c / (chunksX * chunksY),
+            limX = chunkLimit(cx, sizeX), limY = chunkLimit(cy, sizeY), limZ = chunkLimit(cz, sizeZ);
+        
+        if (chunk instanceof UniformChunk)
+            return ColorMath.isVisible(((UniformChunk) chunk).rgb)? limX * limY * limZ : 0;
+        
+        int count = 0;
+        for (int z = 0; z < limZ; z++)
+            for (int y = 0; y < limY; y++)
+                for (int x = 0; x < limX; x++)
+                    if (ColorMath.isVisible(chunk.get(localIndex(x, y, z)))) count++;
+        return count;
+    }
+    
+    /**
+     * Creates the smallest chunk representation of the given voxels. Only the part of the chunk within the limits is
+     * considered, voxels outside of it are ignored.
+     *
+     * @param rgb the voxels in chunk order
+     * @param limX the size of the chunk on the x-axis
+     * @param limY the size of the chunk on the y-axis
+     * @param limZ the size of the chunk on the z-axis
+     * @return the compressed chunk or {@code null} if it only contains {@link ColorMath#INVISIBLE_BLACK}
+     */
+    private static Chunk compress(int[] rgb, int limX, int limY, int limZ) {
+        final int[] palette = new int[MAX_PALETTE_SIZE];
+        int paletteSize = 0;
+        
+        for (int z = 0; z < limZ; z++)
+            for (int y = 0; y < limY; y++)
+                for (int x = 0; x < limX; x++) {
+                    final int argb = rgb[localIndex(x, y, z)];
+                    if (indexOf(palette, paletteSize, argb) >= 0)
+                        continue;
+                    if (paletteSize == MAX_PALETTE_SIZE)
+                        return new DenseChunk(Arrays.copyOf(rgb, CHUNK_VOLUME));
+                    palette[paletteSize++] = argb;
+                }
+        
+        if (paletteSize == 1)
+            return palette[0] == ColorMath.INVISIBLE_BLACK? null : new UniformChunk(palette[0]);
+        
+        final PaletteChunk result = new PaletteChunk(palette[0]);
+        for (int z = 0; z < limZ; z++)
+            for (int y = 0; y < limY; y++)
+                for (int x = 0; x < limX; x++) {
+                    final int i = localIndex(x, y, z);
+                    result.set(i, rgb[i]);
+                }
+        return result;
+    }
+    
+    private static int indexOf(int[] palette, int paletteSize, int rgb) {
+        for (int p = 0; p < paletteSize; p++)
+            if (palette[p] == rgb) return p;
+        return -1;
+    }
+    
+    // CLASSES
+    
+    @FunctionalInterface
+    private interface ChunkVisitor {
+        
+        abstract void visit(int cx, int cy, int cz, Chunk chunk);
+        
+    }
+    
+    /**
+     * A chunk of {@code 16x16x16} voxels.
+     */
+    private static abstract class Chunk implements Cloneable, Serializable {
+        
+        /**
+         * Returns the color at the given index.
+         *
+         * @param index the index within the chunk
+         * @return the color
+         */
+        abstract int get(int index);
+        
+        /**
+         * Sets the color at the given index.
+         *
+         * @param index the index within the chunk
+         * @param rgb the color
+         * @return this chunk or a new chunk which replaces it, if the chunk had to be inflated
+         */
+        abstract Chunk set(int index, int rgb);
+        
+        @Override
+        public abstract Chunk clone();
+        
+    }
+    
+    private static class UniformChunk extends Chunk {
+        
+        private final int rgb;
+        
+        private UniformChunk(int rgb) {
+            this.rgb = rgb;
+        }
+        
+        @Override
+        int get(int index) {
+            return rgb;
+        }
+        
+        @Override
+        Chunk set(int index, int rgb) {
+            if (rgb == this.rgb) return this;
+            PaletteChunk result = new PaletteChunk(this.rgb);
+            return result.set(index, rgb);
+        }
+        
+        @Override
+        public Chunk clone() {
+            return this;
+        }
+        
+    }
+    
+    private static class PaletteChunk extends Chunk {
+        
+        private final int[] palette;
+        private final byte[] indices;
+        private int paletteSize;
+        
+        private PaletteChunk(int rgb) {
+            this.palette = new int[MAX_PALETTE_SIZE];
+            this.indices = new byte[CHUNK_VOLUME];
+            this.palette[0] = rgb;
+            this.paletteSize = 1;
+        }
+        
+        private PaletteChunk(PaletteChunk copyOf) {
+            this.palette = copyOf.palette.clone();
+            this.indices = copyOf.indices.clone();
+            this.paletteSize = copyOf.paletteSize;
+        }
+        
+        @Override
+        int get(int index) {
+            return palette[indices[index] & 0xFF];
+        }
+        
+        @Override
+        Chunk set(int index, int rgb) {
+            final int p = indexOf(palette, paletteSize, rgb);
+            if (p >= 0) {
+                indices[index] = (byte) p;
+                return this;
+            }
+            
+            if (paletteSize == MAX_PALETTE_SIZE) {
+                final int[] dense = new int[CHUNK_VOLUME];
+                for (int i = 0; i < CHUNK_VOLUME; i++)
+                    dense[i] = get(i);
+                dense[index] = rgb;
+                return new DenseChunk(dense);
+            }
+            
+            palette[paletteSize] = rgb;
+            indices[index] = (byte) paletteSize++;
+            return this;
+        }
+        
+        @Override
+        public Chunk clone() {
+            return new PaletteChunk(this);
+        }
+        
+    }
+    
+    private static class DenseChunk extends Chunk {
+        
+        private final int[] rgb;
+        
+        private DenseChunk(int[] rgb) {
+            this.rgb = rgb;
+        }
+        
+        @Override
+        int get(int index) {
+            return rgb[index];
+        }
+        
+        @Override
+        Chunk set(int index, int rgb) {
+            this.rgb[index] = rgb;
+            return this;
+        }
+        
+        @Override
+        public Chunk clone() {
+            return new DenseChunk(rgb.clone());
+        }
+        
+    }
+    
+}
@@ -15,7 +15,11 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p>
@@ -28,6 +32,11 @@ import java.util.function.Consumer;
 public class VoxelArray extends AbstractArray3 implements BitArray3, Cloneable, Serializable,
     Iterable<VoxelArray.Voxel> {
     
+    /**
+     * The volume from which on bulk operations such as {@link #size()} are split into z-slabs and run in parallel.
+     */
+    private final static int PARALLEL_THRESHOLD = 1 << 16;
+    
     private int[] voxels;
     
     public VoxelArray(int x, int y, int z) {
@@ -153,6 +162,22 @@ public class VoxelArray extends AbstractArray3 implements BitArray3, Cloneable,
         return new BoundingBox6i(0, 0, 0, sizeX - 1, sizeY - 1, sizeZ - 1);
     }
     
+    /**
+     * Returns the amount of visible voxels in this array. Large arrays are counted in parallel, one z-slab per task.
+     *
+     * @return the amount of visible voxels
+     */
+    @Override
+    public int size() {
+        if (length < PARALLEL_THRESHOLD)
+            return countVisible(0, length);
+        
+        final int slab = sizeX * sizeY;
+        return IntStream.range(0, sizeZ).parallel()
+            .map(z -> countVisible(z * slab, (z + 1) * slab))
+            .sum();
+    }
+    
     /**
      * Returns the voxel at the specified coordinates.
      *
@@ -337,8 +362,7 @@ public class VoxelArray extends AbstractArray3 implements BitArray3, Cloneable,
      * @param array the array to paste this one with
      */
     public void paste(VoxelArray array, int x, int y, int z) {
-        for (Voxel v : array)
-            this.setRGB(v.getX() + x, v.getY() + y, v.getZ() + z, v.getRGB());
+        array.forEachVisibleVoxel((vx, vy, vz, argb) -> this.setRGB(vx + x, vy + y, vz + z, argb));
     }
     
     /**
@@ -374,31 +398,123 @@ public class VoxelArray extends AbstractArray3 implements BitArray3, Cloneable,
     
     // ITERATION
     
+    /**
+     * Performs the given action for each visible voxel in index order.
+     *
+     * @param action the action
+     */
     @Override
     public void forEach(Consumer<? super Voxel> action) {
-        for (int x = 0; x < sizeX; x++)
+        for (int z = 0, i = 0; z < sizeZ; z++)
             for (int y = 0; y < sizeY; y++)
-                for (int z = 0; z < sizeZ; z++) {
-                    Voxel v = getVoxel(x, y, z);
-                    if (v.isVisible())
-                        action.accept(v);
-                }
+                for (int x = 0; x < sizeX; x++, i++)
+                    if (ColorMath.isVisible(voxels[i]))
+                        action.accept(new Voxel(x, y, z, i));
     }
     
     public void forEachPosition(Consumer<? super Vertex3i> action) {
-        for (int x = 0; x < sizeX; x++)
+        for (int z = 0; z < sizeZ; z++)
             for (int y = 0; y < sizeY; y++)
-                for (int z = 0; z < sizeZ; z++)
+                for (int x = 0; x < sizeX; x++)
                     action.accept(new Vertex3i(x, y, z));
     }
     
     public void forEachPosition(Int3Consumer action) {
-        for (int x = 0; x < sizeX; x++)
+        for (int z = 0; z < sizeZ; z++)
             for (int y = 0; y < sizeY; y++)
-                for (int z = 0; z < sizeZ; z++)
+                for (int x = 0; x < sizeX; x++)
                     action.accept(x, y, z);
     }
     
+    /**
+     * <p>
+     * Visits every voxel of this array, including invisible ones, in index order.
+     * </p>
+     * <p>
+     * Unlike {@link #forEach(Consumer)}, this method does not allocate any objects and traverses the underlying
+     * array sequentially, with {@code x} changing fastest.
+     * </p>
+     *
+     * @param visitor the visitor
+     */
+    public void forEachVoxel(VoxelVisitor visitor) {
+        final int[] voxels = this.voxels;
+        for (int z = 0, i = 0; z < sizeZ; z++)
+            for (int y = 0; y < sizeY; y++)
+                for (int x = 0; x < sizeX; x++, i++)
+                    visitor.visit(x, y, z, voxels[i]);
+    }
+    
+    /**
+     * Visits every voxel of this array, including invisible ones, in index order.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachVoxel(IndexedVoxelVisitor visitor) {
+        final int[] voxels = this.voxels;
+        for (int i = 0; i < voxels.length; i++)
+            visitor.visit(i, voxels[i]);
+    }
+    
+    /**
+     * Visits every visible voxel of this array in index order. Voxels with an alpha of 0 are skipped.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachVisibleVoxel(VoxelVisitor visitor) {
+        final int[] voxels = this.voxels;
+        for (int z = 0, i = 0; z < sizeZ; z++)
+            for (int y = 0; y < sizeY; y++)
+                for (int x = 0; x < sizeX; x++, i++) {
+                    final int argb = voxels[i];
+                    if (ColorMath.isVisible(argb))
+                        visitor.visit(x, y, z, argb);
+                }
+    }
+    
+    /**
+     * Visits every visible voxel of this array in index order. Voxels with an alpha of 0 are skipped.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachVisibleVoxel(IndexedVoxelVisitor visitor) {
+        final int[] voxels = this.voxels;
+        for (int i = 0; i < voxels.length; i++) {
+            final int argb = voxels[i];
+            if (ColorMath.isVisible(argb))
+                visitor.visit(i, argb);
+        }
+    }
+    
+    /**
+     * Returns a spliterator over the visible voxels of this array in index order. The spliterator splits at z-slab
+     * boundaries, so every split part covers entire xy-planes of the array.
+     *
+     * @return a new voxel spliterator
+     */
+    @Override
+    public Spliterator<Voxel> spliterator() {
+        return new VoxelSpliterator(0, length);
+    }
+    
+    /**
+     * Returns a sequential stream of the visible voxels of this array in index order.
+     *
+     * @return a new voxel stream
+     */
+    public Stream<Voxel> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    
+    /**
+     * Returns a parallel stream of the visible voxels of this array, split by z-slabs.
+     *
+     * @return a new parallel voxel stream
+     */
+    public Stream<Voxel> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+    
     /**
      * Equivalent to {@link #validatingIterator()}.
      *
@@ -428,6 +544,92 @@ public class VoxelArray extends AbstractArray3 implements BitArray3, Cloneable,
         return new VoxelIterator();
     }
     
+    private int countVisible(int from, int to) {
+        final int[] voxels = this.voxels;
+        int count = 0;
+        for (int i = from; i < to; i++)
+            if (ColorMath.isVisible(voxels[i])) count++;
+        return count;
+    }
+    
+    /**
+     * A spliterator over a range of indices of the voxel array which skips invisible voxels.
+     */
+    private class VoxelSpliterator implements Spliterator<Voxel> {
+        
+        private int index;
+        private final int fence;
+        
+        private VoxelSpliterator(int index, int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super Voxel> action) {
+            final int[] voxels = VoxelArray.this.voxels;
+            while (index < fence) {
+                final int i = index++;
+                if (ColorMath.isVisible(voxels[i])) {
+                    action.accept(voxelAt(i));
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public void forEachRemaining(Consumer<? super Voxel> action) {
+            final int[] voxels = VoxelArray.this.voxels;
+            final int fence = this.fence;
+            int i = index;
+            index = fence;
+            
+            if (i >= fence) return;
+            int x = i % sizeX, y = i / sizeX % sizeY, z = i / (sizeX * sizeY);
+            
+            for (; i < fence; i++) {
+                if (ColorMath.isVisible(voxels[i]))
+                    action.accept(new Voxel(x, y, z, i));
+                if (++x == sizeX) {
+                    x = 0;
+                    if (++y == sizeY) {
+                        y = 0;
+                        z++;
+                    }
+                }
+            }
+        }
+        
+        @Override
+        public Spliterator<Voxel> trySplit() {
+            final int slab = sizeX * sizeY;
+            final int lo = (index + slab - 1) / slab, hi = fence / slab;
+            if (hi - lo < 2)
+                return null;
+            
+            final int mid = ((lo + hi) >>> 1) * slab;
+            VoxelSpliterator prefix = new VoxelSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+        
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+        
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+        
+        private Voxel voxelAt(int i) {
+            return new Voxel(i % sizeX, i / sizeX % sizeY, i / (sizeX * sizeY), i);
+        }
+        
+    }
+    
     public class VoxelIterator implements Iterator<Voxel> {
         
         private final Incrementer3 i = new Incrementer3(getSizeX(), getSizeY(), getSizeZ());
@@ -528,6 +730,13 @@ public class VoxelArray extends AbstractArray3 implements BitArray3, Cloneable,
             this.index = indexOf(x, y, z);
         }
         
+        private Voxel(int x, int y, int z, int index) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.index = index;
+        }
+        
         private Voxel(Voxel copyOf) {
             this.x = copyOf.x;
             this.y = copyOf.y;
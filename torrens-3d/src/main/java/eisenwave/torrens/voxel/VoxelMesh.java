@@ -9,9 +9,18 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class VoxelMesh implements Serializable, Iterable<VoxelMesh.Element> {
 
+    /**
+     * The combined volume from which on the voxels of the elements are counted in parallel.
+     */
+    private final static int PARALLEL_THRESHOLD = 1 << 16;
+
     private final List<Element> list = new ArrayList<>();
 
     public VoxelMesh() {}
@@ -49,15 +58,21 @@ public class VoxelMesh implements Serializable, Iterable<VoxelMesh.Element> {
     }
 
     /**
-     * Returns the total amount of voxels in this mesh.
+     * Returns the total amount of voxels in this mesh. Large meshes are counted in parallel, one element per task.
      *
      * @return the voxel count
      */
     public int voxelCount() {
-        int count = 0;
-        for (Element e : list)
-            count += e.getArray().size();
-        return count;
+        if (getCombinedVolume() < PARALLEL_THRESHOLD) {
+            int count = 0;
+            for (Element e : list)
+                count += e.getArray().size();
+            return count;
+        }
+
+        return list.parallelStream()
+            .mapToInt(e -> e.getArray().size())
+            .sum();
     }
 
     public VoxelMesh.Element[] toArray() {
@@ -146,6 +161,30 @@ public class VoxelMesh implements Serializable, Iterable<VoxelMesh.Element> {
         return list.iterator();
     }
     
+    /**
+     * Returns a parallel stream of the elements of this mesh.
+     *
+     * @return a new parallel element stream
+     */
+    public Stream<Element> parallelElements() {
+        return list.parallelStream();
+    }
+    
+    /**
+     * <p>
+     * Returns a parallel stream of the visible voxels of all elements in this mesh. The stream is split by elements
+     * first and then by the z-slabs of each element's array.
+     * </p>
+     * <p>
+     * The coordinates of each voxel are relative to the array of its element, not to the mesh.
+     * </p>
+     *
+     * @return a new parallel voxel stream
+     */
+    public Stream<VoxelArray.Voxel> parallelVoxels() {
+        return StreamSupport.stream(new MeshSpliterator(toArray(), 0, list.size()), true);
+    }
+    
     // MISC
 
     @Override
@@ -160,6 +199,71 @@ public class VoxelMesh implements Serializable, Iterable<VoxelMesh.Element> {
 
     // CLASSES
     
+    /**
+     * A spliterator which splits a range of elements in halves and delegates to the spliterator of the voxel array
+     * once only a single element remains.
+     */
+    private static class MeshSpliterator implements Spliterator<VoxelArray.Voxel> {
+        
+        private final Element[] elements;
+        private int index;
+        private final int fence;
+        private Spliterator<VoxelArray.Voxel> current;
+        
+        private MeshSpliterator(Element[] elements, int index, int fence) {
+            this.elements = elements;
+            this.index = index;
+            this.fence = fence;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super VoxelArray.Voxel> action) {
+            while (true) {
+                if (current != null && current.tryAdvance(action))
+                    return true;
+                if (index >= fence)
+                    return false;
+                current = elements[index++].getArray().spliterator();
+            }
+        }
+        
+        @Override
+        public void forEachRemaining(Consumer<? super VoxelArray.Voxel> action) {
+            if (current != null)
+                current.forEachRemaining(action);
+            for (; index < fence; index++)
+                elements[index].getArray().spliterator().forEachRemaining(action);
+            current = null;
+        }
+        
+        @Override
+        public Spliterator<VoxelArray.Voxel> trySplit() {
+            if (current == null && fence - index == 1)
+                current = elements[index++].getArray().spliterator();
+            if (current != null)
+                return index == fence? current.trySplit() : null;
+            
+            final int mid = (index + fence) >>> 1;
+            MeshSpliterator prefix = new MeshSpliterator(elements, index, mid);
+            index = mid;
+            return prefix;
+        }
+        
+        @Override
+        public long estimateSize() {
+            long size = current == null? 0 : current.estimateSize();
+            for (int i = index; i < fence; i++)
+                size += elements[i].getArray().getVolume();
+            return size;
+        }
+        
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+        
+    }
+    
     public static class Element {
 
         private final int minX, minY, minZ, maxX, maxY, maxZ;
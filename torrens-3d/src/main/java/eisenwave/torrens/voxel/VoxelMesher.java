@@ -0,0 +1,396 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.spatium.enums.Direction;
+import eisenwave.torrens.img.Texture;
+import eisenwave.torrens.object.Vertex2f;
+import eisenwave.torrens.object.Vertex3f;
+import eisenwave.torrens.stl.STLModel;
+import eisenwave.torrens.stl.STLTriangle;
+import eisenwave.torrens.util.ColorMath;
+import eisenwave.torrens.wavefront.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * Converts voxels into polygon models by merging visible voxel faces of equal color into as few quads as possible.
+ * </p>
+ * <p>
+ * For each of the six face directions, every slice of the array is turned into a two-dimensional grid of visible
+ * faces, using {@link VoxelArray#getVisibilityMask(int, int, int)}. Faces are then merged greedily, first into lines
+ * along the first axis of the slice and then into rectangles along the second axis, the same way
+ * {@code DividerFast} divides textures. Slices are meshed in parallel.
+ * </p>
+ */
+public class VoxelMesher {
+    
+    /**
+     * The faces in the order in which they are meshed. The axis of a face is {@code index / 2}, it points into the
+     * positive direction if {@code index % 2 == 1}.
+     */
+    private final static Direction[] FACES = {
+        Direction.NEGATIVE_X, Direction.POSITIVE_X,
+        Direction.NEGATIVE_Y, Direction.POSITIVE_Y,
+        Direction.NEGATIVE_Z, Direction.POSITIVE_Z
+    };
+    
+    private final static String PALETTE_MATERIAL = "palette";
+    
+    /** The ints stored per quad: face, x, y, z, width, height, argb. */
+    private final static int QUAD_INTS = 7;
+    
+    // MESHING
+    
+    /**
+     * <p>
+     * Visits the merged quads of all visible voxel faces in the array.
+     * </p>
+     * <p>
+     * Quads are visited face by face and slice by slice, so the order is deterministic despite slices being meshed in
+     * parallel.
+     * </p>
+     *
+     * @param array the voxel array
+     * @param visitor the quad visitor
+     */
+    public void mesh(VoxelArray array, QuadVisitor visitor) {
+        mesh(array, 0, 0, 0, visitor);
+    }
+    
+    /**
+     * Visits the merged quads of all elements of a mesh. Each element is meshed separately, so faces between
+     * touching elements are not culled.
+     *
+     * @param mesh the voxel mesh
+     * @param visitor the quad visitor
+     */
+    public void mesh(VoxelMesh mesh, QuadVisitor visitor) {
+        for (VoxelMesh.Element element : mesh)
+            mesh(element.getArray(), element.getMinX(), element.getMinY(), element.getMinZ(), visitor);
+    }
+    
+    private void mesh(VoxelArray array, int offX, int offY, int offZ, QuadVisitor visitor) {
+        final byte[] masks = visibilityMasks(array);
+        final int[] size = {array.getSizeX(), array.getSizeY(), array.getSizeZ()};
+        final int[] offset = {offX, offY, offZ};
+        
+        for (int f = 0; f < FACES.length; f++) {
+            final int face = f;
+            final int axis = face >> 1, u = (axis + 1) % 3, v = (axis + 2) % 3;
+            
+            List<int[]> slices = IntStream.range(0, size[axis]).parallel()
+                .mapToObj(slice -> mergeSlice(array, masks, face, slice))
+                .collect(Collectors.toList());
+            
+            final int[] pos = new int[3];
+            for (int slice = 0; slice < slices.size(); slice++) {
+                final int[] quads = slices.get(slice);
+                pos[axis] = slice + (face & 1) + offset[axis];
+                
+                for (int i = 1; i < quads[0]; i += 5) {
+                    pos[u] = quads[i] + offset[u];
+                    pos[v] = quads[i + 1] + offset[v];
+                    visitor.visit(FACES[face], pos[0], pos[1], pos[2], quads[i + 2], quads[i + 3], quads[i + 4]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Computes the visibility mask of every visible voxel, z-slab by z-slab in parallel.
+     */
+    private static byte[] visibilityMasks(VoxelArray array) {
+        final int sizeX = array.getSizeX(), sizeY = array.getSizeY();
+        final byte[] result = new byte[array.getVolume()];
+        
+        IntStream.range(0, array.getSizeZ()).parallel().forEach(z -> {
+            for (int y = 0, i = z * sizeY * sizeX; y < sizeY; y++)
+                for (int x = 0; x < sizeX; x++, i++)
+                    if (array.contains(x, y, z))
+                        result[i] = array.getVisibilityMask(x, y, z);
+        });
+        
+        return result;
+    }
+    
+    /**
+     * Merges the visible faces of a single slice.
+     *
+     * @return the quads as {@code u, v, width, height, argb} with the used length of the array at index 0
+     */
+    private static int[] mergeSlice(VoxelArray array, byte[] masks, int face, int slice) {
+        final int axis = face >> 1, u = (axis + 1) % 3, v = (axis + 2) % 3;
+        final int bit = 1 << FACES[face].ordinal();
+        final int[] size = {array.getSizeX(), array.getSizeY(), array.getSizeZ()};
+        final int sizeU = size[u], sizeV = size[v];
+        
+        // fill the slice with the colors of all visible faces, 0 marking the absence of a face
+        final int[] labels = new int[sizeU * sizeV];
+        final int[] pos = new int[3];
+        pos[axis] = slice;
+        for (int j = 0, i = 0; j < sizeV; j++)
+            for (int k = 0; k < sizeU; k++, i++) {
+                pos[u] = k;
+                pos[v] = j;
+                if ((masks[(pos[2] * size[1] + pos[1]) * size[0] + pos[0]] & bit) != 0)
+                    labels[i] = array.getRGB(pos[0], pos[1], pos[2]);
+            }
+        
+        int[] result = new int[1 + 5 * 16];
+        int length = 1;
+        
+        for (int j = 0; j < sizeV; j++)
+            for (int k = 0; k < sizeU; k++) {
+                final int rgb = labels[j * sizeU + k];
+                if (rgb == 0) continue;
+                
+                // stretch the face into a line along u
+                int width = 1;
+                while (k + width < sizeU && labels[j * sizeU + k + width] == rgb)
+                    width++;
+                
+                // stretch the line into a rectangle along v for as long as the next line is covered entirely
+                int height = 1;
+                mergeLoop:
+                for (; j + height < sizeV; height++)
+                    for (int w = 0; w < width; w++)
+                        if (labels[(j + height) * sizeU + k + w] != rgb)
+                            break mergeLoop;
+                
+                for (int h = 0; h < height; h++)
+                    Arrays.fill(labels, (j + h) * sizeU + k, (j + h) * sizeU + k + width, 0);
+                
+                if (length + 5 > result.length)
+                    result = Arrays.copyOf(result, result.length * 2);
+                result[length++] = k;
+                result[length++] = j;
+                result[length++] = width;
+                result[length++] = height;
+                result[length++] = rgb;
+                
+                k += width - 1;
+            }
+        
+        result[0] = length;
+        return result;
+    }
+    
+    // CONVERSION
+    
+    /**
+     * Converts a voxel array into an STL model with two triangles per merged quad. The color of each triangle is
+     * stored in its attribute using the common 15-bit RGB convention, where bit 15 marks the color as valid.
+     *
+     * @param array the voxel array
+     * @return a new STL model
+     */
+    @NotNull
+    public STLModel toSTL(VoxelArray array) {
+        STLModel model = new STLModel();
+        mesh(array, (face, x, y, z, w, h, argb) -> addTriangles(model, face, x, y, z, w, h, argb));
+        return model;
+    }
+    
+    /**
+     * Converts a voxel mesh into an STL model with two triangles per merged quad.
+     *
+     * @param mesh the voxel mesh
+     * @return a new STL model
+     * @see #toSTL(VoxelArray)
+     */
+    @NotNull
+    public STLModel toSTL(VoxelMesh mesh) {
+        STLModel model = new STLModel();
+        mesh(mesh, (face, x, y, z, w, h, argb) -> addTriangles(model, face, x, y, z, w, h, argb));
+        return model;
+    }
+    
+    /**
+     * <p>
+     * Converts a voxel array into an OBJ model with one face per merged quad.
+     * </p>
+     * <p>
+     * The model refers to a material library {@code <name>.mtl} with a single material, whose diffuse map
+     * {@code <name>.png} is a palette texture containing one pixel for each color. Each face is mapped to the center
+     * of its color's pixel.
+     * </p>
+     *
+     * @param array the voxel array
+     * @param name the name of the material library and palette texture, without file extension
+     * @return a new OBJ model
+     */
+    @NotNull
+    public OBJModel toOBJ(VoxelArray array, String name) {
+        QuadBuffer buffer = new QuadBuffer();
+        mesh(array, buffer);
+        return buffer.toOBJ(name);
+    }
+    
+    /**
+     * Converts a voxel mesh into an OBJ model with one face per merged quad.
+     *
+     * @param mesh the voxel mesh
+     * @param name the name of the material library and palette texture, without file extension
+     * @return a new OBJ model
+     * @see #toOBJ(VoxelArray, String)
+     */
+    @NotNull
+    public OBJModel toOBJ(VoxelMesh mesh, String name) {
+        QuadBuffer buffer = new QuadBuffer();
+        mesh(mesh, buffer);
+        return buffer.toOBJ(name);
+    }
+    
+    // UTIL
+    
+    private static int faceIndex(Direction face) {
+        for (int i = 0; i < FACES.length; i++)
+            if (FACES[i] == face) return i;
+        throw new IllegalArgumentException("unknown direction: " + face);
+    }
+    
+    /**
+     * Returns the four corners of a quad in counter-clockwise order when viewed from the direction of its face.
+     */
+    private static Vertex3f[] corners(int face, int x, int y, int z, int width, int height) {
+        final int axis = face >> 1, u = (axis + 1) % 3, v = (axis + 2) % 3;
+        final int[] du = new int[3], dv = new int[3];
+        du[u] = width;
+        dv[v] = height;
+        
+        Vertex3f[] result = {
+            new Vertex3f(x, y, z),
+            new Vertex3f(x + du[0], y + du[1], z + du[2]),
+            new Vertex3f(x + du[0] + dv[0], y + du[1] + dv[1], z + du[2] + dv[2]),
+            new Vertex3f(x + dv[0], y + dv[1], z + dv[2])
+        };
+        
+        // u x v points into the positive direction of the axis, so negative faces are wound the other way
+        if ((face & 1) == 0) {
+            Vertex3f swap = result[1];
+            result[1] = result[3];
+            result[3] = swap;
+        }
+        
+        return result;
+    }
+    
+    private static Vertex3f normal(int face) {
+        final float[] n = new float[3];
+        n[face >> 1] = (face & 1) == 0? -1 : 1;
+        return new Vertex3f(n[0], n[1], n[2]);
+    }
+    
+    private static void addTriangles(STLModel model, Direction direction, int x, int y, int z, int w, int h, int argb) {
+        final int face = faceIndex(direction);
+        final Vertex3f[] c = corners(face, x, y, z, w, h);
+        final Vertex3f normal = normal(face);
+        final short attribute = (short) (0x8000
+            | (ColorMath.red(argb) >> 3) << 10
+            | (ColorMath.green(argb) >> 3) << 5
+            | (ColorMath.blue(argb) >> 3));
+        
+        model.add(new STLTriangle(normal, c[0], c[1], c[2], attribute));
+        model.add(new STLTriangle(normal, c[0], c[2], c[3], attribute));
+    }
+    
+    // CLASSES
+    
+    /**
+     * Visits a quad consisting of merged voxel faces.
+     */
+    @FunctionalInterface
+    public interface QuadVisitor {
+        
+        /**
+         * Visits a quad. The quad lies in the plane of the face with its minimum corner at {@code (x, y, z)}. It spans
+         * {@code width} units along the axis following the axis of the face (x &rarr; y &rarr; z &rarr; x) and
+         * {@code height} units along the remaining axis.
+         *
+         * @param face the direction in which the quad faces
+         * @param x the min x-coordinate of the quad
+         * @param y the min y-coordinate of the quad
+         * @param z the min z-coordinate of the quad
+         * @param width the size of the quad on its first axis
+         * @param height the size of the quad on its second axis
+         * @param argb the color of the quad
+         */
+        abstract void visit(Direction face, int x, int y, int z, int width, int height, int argb);
+        
+    }
+    
+    /**
+     * Buffers quads until all colors are known, so that texture vertices can be added before the faces using them.
+     */
+    private static class QuadBuffer implements QuadVisitor {
+        
+        private final Map<Integer, Integer> palette = new LinkedHashMap<>();
+        private int[] quads = new int[QUAD_INTS * 64];
+        private int length = 0;
+        
+        @Override
+        public void visit(Direction face, int x, int y, int z, int width, int height, int argb) {
+            if (length + QUAD_INTS > quads.length)
+                quads = Arrays.copyOf(quads, quads.length * 2);
+            quads[length++] = faceIndex(face);
+            quads[length++] = x;
+            quads[length++] = y;
+            quads[length++] = z;
+            quads[length++] = width;
+            quads[length++] = height;
+            quads[length++] = argb;
+            palette.putIfAbsent(argb, palette.size());
+        }
+        
+        private OBJModel toOBJ(String name) {
+            OBJModel model = new OBJModel();
+            
+            final int colors = Math.max(1, palette.size());
+            final int[] pixels = new int[colors];
+            for (Map.Entry<Integer, Integer> entry : palette.entrySet()) {
+                pixels[entry.getValue()] = entry.getKey();
+                model.addTexture(new Vertex2f((entry.getValue() + 0.5F) / colors, 0.5F));
+            }
+            
+            MTLLibrary library = new MTLLibrary(name + ".mtl");
+            MTLMaterial material = new MTLMaterial(library, PALETTE_MATERIAL);
+            material.setDiffuseMap(name + ".png");
+            library.addMap(name + ".png", Texture.wrap(pixels, colors, 1));
+            library.addMaterial(material);
+            model.setMaterials(library);
+            
+            for (int face = 0; face < FACES.length; face++)
+                model.addNormal(normal(face));
+            
+            OBJGroup group = model.getDefaultGroup();
+            group.setMaterial(PALETTE_MATERIAL);
+            
+            final int[] shape = new int[4 * 3];
+            for (int i = 0; i < length; i += QUAD_INTS) {
+                final int face = quads[i];
+                final int vt = palette.get(quads[i + 6]) + 1, vn = face + 1;
+                
+                final Vertex3f[] corners =
+                    corners(face, quads[i + 1], quads[i + 2], quads[i + 3], quads[i + 4], quads[i + 5]);
+                
+                for (int c = 0; c < 4; c++) {
+                    model.addVertex(corners[c]);
+                    shape[c * 3] = model.getVertexCount();
+                    shape[c * 3 + 1] = vt;
+                    shape[c * 3 + 2] = vn;
+                }
+                group.addFace(shape, 0, 4);
+            }
+            
+            return model;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,329 @@
+package eisenwave.torrens.voxel;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * Utility class for morphological operations and distance transforms on voxel arrays.
+ * </p>
+ * <p>
+ * All operations are separable and run as one pass per axis. Passes along the x- and y-axis process one z-slab per
+ * task, passes along the z-axis process one y-row of columns per task, so all passes run in parallel. Input arrays are
+ * only read through {@link BitArray3#contains(int, int, int)}, which must be safe to call concurrently.
+ * </p>
+ * <p>
+ * Positions outside of an array are treated as empty. Dilation and erosion use a cube with an edge length of
+ * {@code 2 * radius + 1} as structuring element, distances are Euclidean.
+ * </p>
+ */
+public final class VoxelMorphology {
+    
+    private VoxelMorphology() {}
+    
+    /**
+     * Dilates an array, so that every position within the given Chebyshev distance of an occupied position becomes
+     * occupied.
+     *
+     * @param array the array
+     * @param radius the radius of the structuring element
+     * @return the dilated array
+     */
+    @NotNull
+    public static BitVoxelGrid dilate(BitArray3 array, int radius) {
+        return boxFilter(array, radius, true);
+    }
+    
+    /**
+     * Erodes an array, so that only positions whose entire neighborhood within the given Chebyshev distance is
+     * occupied remain occupied.
+     *
+     * @param array the array
+     * @param radius the radius of the structuring element
+     * @return the eroded array
+     */
+    @NotNull
+    public static BitVoxelGrid erode(BitArray3 array, int radius) {
+        return boxFilter(array, radius, false);
+    }
+    
+    /**
+     * <p>
+     * Computes the squared Euclidean distance of every position to the nearest empty position, which may lie outside
+     * of the array.
+     * </p>
+     * <p>
+     * Empty positions have a distance of {@code 0}, occupied positions next to an empty position a distance of
+     * {@code 1}. The local thickness of a model is at most twice the square root of the distance. The returned array
+     * is in the index order of a {@link VoxelArray}, with {@code x} changing fastest.
+     * </p>
+     *
+     * @param array the array
+     * @return the squared distances
+     */
+    @NotNull
+    public static int[] squaredDistanceTransform(BitArray3 array) {
+        final int
+            sizeX = array.getSizeX(),
+            sizeY = array.getSizeY(),
+            sizeZ = array.getSizeZ(),
+            area = sizeX * sizeY;
+        final int[] result = new int[area * sizeZ];
+        
+        // distances along the x-axis can be very large but never exceed the distance to the boundaries on y or z
+        final long bound = Math.min(sizeY, sizeZ) / 2 + 1;
+        
+        // x-axis: linear distances to the nearest empty position within each row
+        IntStream.range(0, sizeZ).parallel().forEach(z -> {
+            for (int y = 0, offset = z * area; y < sizeY; y++, offset += sizeX) {
+                int last = -1;
+                for (int x = 0; x < sizeX; x++) {
+                    if (!array.contains(x, y, z)) last = x;
+                    result[offset + x] = x - last;
+                }
+                last = sizeX;
+                for (int x = sizeX - 1; x >= 0; x--) {
+                    final int i = offset + x;
+                    if (result[i] == 0) last = x;
+                    final long distance = Math.min(Math.min(result[i], last - x), bound);
+                    result[i] = (int) (distance * distance);
+                }
+            }
+        });
+        
+        // y-axis: lower envelope of parabolas along every column of each slab
+        IntStream.range(0, sizeZ).parallel().forEach(z -> {
+            final Envelope envelope = new Envelope(sizeY);
+            for (int x = 0; x < sizeX; x++)
+                envelope.transform(result, z * area + x, sizeX, sizeY);
+        });
+        
+        // z-axis: lower envelope of parabolas along every column of each row
+        IntStream.range(0, sizeY).parallel().forEach(y -> {
+            final Envelope envelope = new Envelope(sizeZ);
+            for (int x = 0; x < sizeX; x++)
+                envelope.transform(result, y * sizeX + x, area, sizeZ);
+        });
+        
+        return result;
+    }
+    
+    /**
+     * Returns the shell of an array, which consists of all occupied positions within the given Euclidean distance of
+     * an empty position.
+     *
+     * @param array the array
+     * @param thickness the thickness of the shell
+     * @return the shell
+     */
+    @NotNull
+    public static BitVoxelGrid shell(BitArray3 array, int thickness) {
+        final long maxDistance = checkThickness(thickness);
+        final int[] distances = squaredDistanceTransform(array);
+        return pack(array.getSizeX(), array.getSizeY(), array.getSizeZ(),
+            i -> distances[i] != 0 && distances[i] <= maxDistance);
+    }
+    
+    /**
+     * Hollows out an array, keeping only a shell of the given thickness. Removed voxels are replaced with
+     * {@link VoxelArray#remove(int, int, int) invisible voxels}, while the shell keeps its colors.
+     *
+     * @param array the array
+     * @param thickness the thickness of the shell
+     * @return a hollowed copy of the array
+     */
+    @NotNull
+    public static VoxelArray hollow(VoxelArray array, int thickness) {
+        final long maxDistance = checkThickness(thickness);
+        final int[] distances = squaredDistanceTransform(array);
+        final int sizeX = array.getSizeX(), sizeY = array.getSizeY(), area = sizeX * sizeY;
+        final VoxelArray result = array.clone();
+        
+        IntStream.range(0, array.getSizeZ()).parallel().forEach(z -> {
+            for (int y = 0, i = z * area; y < sizeY; y++)
+                for (int x = 0; x < sizeX; x++, i++)
+                    if (distances[i] > maxDistance)
+                        result.remove(x, y, z);
+        });
+        
+        return result;
+    }
+    
+    // UTIL
+    
+    private static long checkThickness(int thickness) {
+        if (thickness < 1)
+            throw new IllegalArgumentException("thickness must be at least 1 (is " + thickness + ")");
+        return (long) thickness * thickness;
+    }
+    
+    /**
+     * Applies a separable dilation or erosion with a cube of the given radius.
+     */
+    private static BitVoxelGrid boxFilter(BitArray3 array, int radius, boolean dilate) {
+        if (radius < 0)
+            throw new IllegalArgumentException("radius must not be negative (is " + radius + ")");
+        
+        final int
+            sizeX = array.getSizeX(),
+            sizeY = array.getSizeY(),
+            sizeZ = array.getSizeZ(),
+            area = sizeX * sizeY;
+        final boolean[] cells = new boolean[area * sizeZ];
+        
+        // x-axis, reading the input array
+        IntStream.range(0, sizeZ).parallel().forEach(z -> {
+            final boolean[] row = new boolean[sizeX];
+            for (int y = 0; y < sizeY; y++) {
+                for (int x = 0; x < sizeX; x++)
+                    row[x] = array.contains(x, y, z);
+                filter1D(row, sizeX, radius, dilate, cells, z * area + y * sizeX, 1);
+            }
+        });
+        
+        // y-axis
+        IntStream.range(0, sizeZ).parallel().forEach(z -> {
+            final boolean[] column = new boolean[sizeY];
+            for (int x = 0; x < sizeX; x++) {
+                final int offset = z * area + x;
+                for (int y = 0; y < sizeY; y++)
+                    column[y] = cells[offset + y * sizeX];
+                filter1D(column, sizeY, radius, dilate, cells, offset, sizeX);
+            }
+        });
+        
+        // z-axis
+        IntStream.range(0, sizeY).parallel().forEach(y -> {
+            final boolean[] column = new boolean[sizeZ];
+            for (int x = 0; x < sizeX; x++) {
+                final int offset = y * sizeX + x;
+                for (int z = 0; z < sizeZ; z++)
+                    column[z] = cells[offset + z * area];
+                filter1D(column, sizeZ, radius, dilate, cells, offset, area);
+            }
+        });
+        
+        return pack(sizeX, sizeY, sizeZ, i -> cells[i]);
+    }
+    
+    /**
+     * Dilates or erodes a line of cells in linear time, regardless of the radius. A cell is set to the
+     * <i>dominant</i> value ({@code true} when dilating, {@code false} when eroding) if a cell with that value lies
+     * within the radius. When eroding, the positions outside of the line count as {@code false}.
+     *
+     * @param line the input cells
+     * @param length the amount of input cells
+     * @param radius the radius
+     * @param dilate whether to dilate or erode
+     * @param target the output array
+     * @param offset the index of the first output cell
+     * @param stride the distance between two output cells
+     */
+    private static void filter1D(boolean[] line, int length, int radius, boolean dilate,
+                                 boolean[] target, int offset, int stride) {
+        final boolean dominant = dilate;
+        // positions of the previous and next dominant cell, which lie outside the line when eroding
+        final long none = dilate? Long.MIN_VALUE / 2 : -1;
+        
+        long previous = none;
+        int next = 0;
+        for (int i = 0; i < length; i++) {
+            if (line[i] == dominant) previous = i;
+            
+            // find the next dominant cell at or after i
+            if (next < i) next = i;
+            while (next < length && line[next] != dominant) next++;
+            final long after = next < length? next : (dilate? Long.MAX_VALUE / 2 : length);
+            
+            final boolean near = i - previous <= radius || after - i <= radius;
+            target[offset + i * stride] = near == dominant;
+        }
+    }
+    
+    /**
+     * Packs the results of a predicate over all indices into a grid, 64 positions per task.
+     */
+    private static BitVoxelGrid pack(int sizeX, int sizeY, int sizeZ, IntPredicate predicate) {
+        final BitVoxelGrid grid = new BitVoxelGrid(sizeX, sizeY, sizeZ);
+        final long[] words = grid.getWords();
+        final int volume = grid.getVolume();
+        
+        IntStream.range(0, words.length).parallel().forEach(w -> {
+            long word = 0;
+            for (int bit = 0, i = w << 6; bit < 64 && i < volume; bit++, i++)
+                if (predicate.test(i))
+                    word |= 1L << bit;
+            words[w] = word;
+        });
+        
+        return grid;
+    }
+    
+    // CLASSES
+    
+    /**
+     * Computes one-dimensional squared Euclidean distance transforms as the lower envelope of parabolas, in linear
+     * time. Lines are padded with an empty position on both ends, so that the outside of the array counts as empty.
+     */
+    private static class Envelope {
+        
+        /** the input values, with the padding at index 0 and {@code n + 1} */
+        private final long[] f;
+        /** the positions of the parabolas in the envelope */
+        private final int[] v;
+        /** the boundaries between the parabolas in the envelope */
+        private final double[] z;
+        
+        private Envelope(int length) {
+            this.f = new long[length + 2];
+            this.v = new int[length + 2];
+            this.z = new double[length + 3];
+        }
+        
+        /**
+         * Transforms a line of values in place.
+         *
+         * @param values the array containing the line
+         * @param offset the index of the first value
+         * @param stride the distance between two values
+         * @param length the amount of values
+         */
+        public void transform(int[] values, int offset, int stride, int length) {
+            final int m = length + 2;
+            f[0] = f[m - 1] = 0;
+            for (int i = 0; i < length; i++)
+                f[i + 1] = values[offset + i * stride];
+            
+            int k = 0;
+            v[0] = 0;
+            z[0] = Double.NEGATIVE_INFINITY;
+            z[1] = Double.POSITIVE_INFINITY;
+            for (int q = 1; q < m; q++) {
+                double s = intersection(q, v[k]);
+                while (s <= z[k]) {
+                    k--;
+                    s = intersection(q, v[k]);
+                }
+                k++;
+                v[k] = q;
+                z[k] = s;
+                z[k + 1] = Double.POSITIVE_INFINITY;
+            }
+            
+            k = 0;
+            for (int q = 1; q <= length; q++) {
+                while (z[k + 1] < q) k++;
+                final long d = q - v[k];
+                values[offset + (q - 1) * stride] = (int) (d * d + f[v[k]]);
+            }
+        }
+        
+        private double intersection(int q, int p) {
+            return ((f[q] + (long) q * q) - (f[p] + (long) p * p)) / (2.0 * (q - p));
+        }
+        
+    }
+    
+}
@@ -0,0 +1,466 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.object.BoundingBox6i;
+import eisenwave.torrens.util.ColorMath;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A sparse voxel octree which stores only the visible voxels of a {@link VoxelArray}.
+ * </p>
+ * <p>
+ * The octree is a cube with an edge length of {@code 2^depth}, covering the dimensions of the array it was built
+ * from. Nodes are stored level by level in Morton order, so that the children of a node are contiguous in the next
+ * level. Each inner node stores a bit mask of its present children and the average color of its children, which
+ * allows extracting a downsampled array of any level without touching the levels below it.
+ * </p>
+ * <p>
+ * Level {@code 0} is the root, level {@link #getDepth()} contains the voxels at full resolution. Invisible voxels are
+ * not stored and are reported as {@link ColorMath#INVISIBLE_BLACK}.
+ * </p>
+ */
+public class VoxelOctree implements BitArray3, Serializable {
+    
+    private final int sizeX, sizeY, sizeZ, depth;
+    
+    /** The child masks of each level, except for the leaf level. */
+    private final byte[][] masks;
+    /** The index of the first child of each node in the next level, except for the leaf level. */
+    private final int[][] children;
+    /** The colors of each level. */
+    private final int[][] colors;
+    
+    /**
+     * Builds an octree out of all visible voxels in the given array.
+     *
+     * @param array the voxel array
+     */
+    public VoxelOctree(VoxelArray array) {
+        this.sizeX = array.getSizeX();
+        this.sizeY = array.getSizeY();
+        this.sizeZ = array.getSizeZ();
+        this.depth = depthOf(sizeX, sizeY, sizeZ);
+        
+        Builder builder = new Builder(array, depth);
+        builder.build(0, 0, 0, 0);
+        
+        this.masks = new byte[depth][];
+        this.children = new int[depth][];
+        this.colors = new int[depth + 1][];
+        for (int level = 0; level <= depth; level++) {
+            final int size = builder.sizes[level];
+            if (level < depth) {
+                masks[level] = Arrays.copyOf(builder.masks[level], size);
+                children[level] = Arrays.copyOf(builder.children[level], size);
+            }
+            colors[level] = Arrays.copyOf(builder.colors[level], size);
+        }
+    }
+    
+    /**
+     * Constructs an octree out of its child masks and leaf colors, as stored by {@link SerializerSVO}. The child
+     * indices and colors of inner nodes are derived from them.
+     *
+     * @param x the size on the x-axis
+     * @param y the size on the y-axis
+     * @param z the size on the z-axis
+     * @param masks the child masks of each inner level
+     * @param leaves the colors of the leaf level
+     */
+    VoxelOctree(int x, int y, int z, byte[][] masks, int[] leaves) {
+        this.sizeX = x;
+        this.sizeY = y;
+        this.sizeZ = z;
+        this.depth = depthOf(x, y, z);
+        if (masks.length != depth)
+            throw new IllegalArgumentException("expected " + depth + " levels of masks, got " + masks.length);
+        
+        this.masks = masks;
+        this.children = new int[depth][];
+        this.colors = new int[depth + 1][];
+        
+        for (int level = 0; level < depth; level++) {
+            final byte[] levelMasks = masks[level];
+            final int[] first = children[level] = new int[levelMasks.length];
+            for (int i = 0, next = 0; i < levelMasks.length; i++) {
+                first[i] = next;
+                next += Integer.bitCount(levelMasks[i] & 0xFF);
+            }
+        }
+        
+        colors[depth] = leaves;
+        for (int level = depth - 1; level >= 0; level--) {
+            final byte[] levelMasks = masks[level];
+            final int[] first = children[level], result = colors[level] = new int[levelMasks.length];
+            for (int i = 0; i < levelMasks.length; i++)
+                result[i] = average(colors[level + 1], first[i], first[i] + Integer.bitCount(levelMasks[i] & 0xFF));
+        }
+    }
+    
+    // GETTERS
+    
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+    
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+    
+    @Override
+    public int getSizeZ() {
+        return sizeZ;
+    }
+    
+    /**
+     * Returns the depth of this octree. The octree has {@code depth + 1} levels and its root covers a cube with an
+     * edge length of {@code 2^depth}.
+     *
+     * @return the depth of the octree
+     */
+    public int getDepth() {
+        return depth;
+    }
+    
+    /**
+     * Returns the amount of nodes on a given level.
+     *
+     * @param level the level
+     * @return the amount of nodes
+     */
+    public int getNodeCount(int level) {
+        checkLevel(level);
+        return colors[level].length;
+    }
+    
+    /**
+     * Returns the amount of voxels in this octree.
+     *
+     * @return the amount of voxels
+     */
+    @Override
+    public int size() {
+        return colors[depth].length;
+    }
+    
+    /**
+     * Returns the color of the voxel at the given position or {@link ColorMath#INVISIBLE_BLACK} if there is none.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return the color of the voxel
+     */
+    public int getRGB(int x, int y, int z) {
+        return getRGB(depth, x, y, z);
+    }
+    
+    /**
+     * <p>
+     * Returns the color of a node on a given level, which is the average of its children's colors.
+     * </p>
+     * <p>
+     * The coordinates are given in the grid of the level, where each cell covers {@code 2^(depth - level)} voxels on
+     * each axis.
+     * </p>
+     *
+     * @param level the level
+     * @param x the x-coordinate on the level
+     * @param y the y-coordinate on the level
+     * @param z the z-coordinate on the level
+     * @return the color of the node or {@link ColorMath#INVISIBLE_BLACK} if there is none
+     */
+    public int getRGB(int level, int x, int y, int z) {
+        final int node = nodeAt(level, x, y, z);
+        return node < 0? ColorMath.INVISIBLE_BLACK : colors[level][node];
+    }
+    
+    // CHECKERS
+    
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return nodeAt(depth, x, y, z) >= 0;
+    }
+    
+    /**
+     * Returns whether any voxel lies within the given box.
+     *
+     * @param box the box
+     * @return whether the box contains a voxel
+     */
+    public boolean containsAny(BoundingBox6i box) {
+        return size() != 0 && containsAny(box, 0, 0, 0, 0, 0);
+    }
+    
+    private boolean containsAny(BoundingBox6i box, int level, int node, int x, int y, int z) {
+        final int edge = 1 << (depth - level);
+        if (!intersects(box, x, y, z, edge))
+            return false;
+        if (level == depth || contains(box, x, y, z, edge))
+            return true;
+        
+        final int mask = masks[level][node] & 0xFF, half = edge >> 1;
+        for (int o = 0, child = children[level][node]; o < 8; o++) {
+            if ((mask >> o & 1) == 0) continue;
+            if (containsAny(box, level + 1, child++, x + (o & 1) * half, y + (o >> 1 & 1) * half, z + (o >> 2) * half))
+                return true;
+        }
+        return false;
+    }
+    
+    // CONVERSION
+    
+    /**
+     * Returns a dense array containing all voxels of this octree.
+     *
+     * @return a new voxel array
+     */
+    @NotNull
+    public VoxelArray toVoxelArray() {
+        return toVoxelArray(depth);
+    }
+    
+    /**
+     * <p>
+     * Returns a dense, downsampled array of the nodes on a given level. Each voxel of the result is the color of the
+     * node covering {@code 2^(depth - level)} voxels on each axis, which is the average of its children's colors.
+     * </p>
+     * <p>
+     * Only the levels up to the given one are visited, so coarse levels are extracted in time proportional to their
+     * node count rather than the volume of the octree.
+     * </p>
+     *
+     * @param level the level
+     * @return a new voxel array
+     */
+    @NotNull
+    public VoxelArray toVoxelArray(int level) {
+        checkLevel(level);
+        final int shift = depth - level;
+        final VoxelArray result = new VoxelArray(
+            ceilShift(sizeX, shift),
+            ceilShift(sizeY, shift),
+            ceilShift(sizeZ, shift));
+        
+        forEachVoxel(level, result::setRGB);
+        return result;
+    }
+    
+    // ITERATION
+    
+    /**
+     * Visits all nodes on a given level in Morton order. The coordinates are given in the grid of the level.
+     *
+     * @param level the level
+     * @param visitor the visitor
+     */
+    public void forEachVoxel(int level, VoxelVisitor visitor) {
+        checkLevel(level);
+        if (size() != 0)
+            visit(level, visitor, 0, 0, 0, 0, 0);
+    }
+    
+    private void visit(int target, VoxelVisitor visitor, int level, int node, int x, int y, int z) {
+        if (level == target) {
+            visitor.visit(x, y, z, colors[level][node]);
+            return;
+        }
+        
+        final int mask = masks[level][node] & 0xFF;
+        for (int o = 0, child = children[level][node]; o < 8; o++) {
+            if ((mask >> o & 1) == 0) continue;
+            visit(target, visitor, level + 1, child++, x << 1 | (o & 1), y << 1 | (o >> 1 & 1), z << 1 | (o >> 2));
+        }
+    }
+    
+    /**
+     * Visits all voxels within the given box in Morton order. Subtrees outside of the box are skipped.
+     *
+     * @param box the box
+     * @param visitor the visitor
+     */
+    public void forEachVoxel(BoundingBox6i box, VoxelVisitor visitor) {
+        if (size() != 0)
+            visit(box, visitor, 0, 0, 0, 0, 0);
+    }
+    
+    private void visit(BoundingBox6i box, VoxelVisitor visitor, int level, int node, int x, int y, int z) {
+        final int edge = 1 << (depth - level);
+        if (!intersects(box, x, y, z, edge))
+            return;
+        if (level == depth) {
+            visitor.visit(x, y, z, colors[level][node]);
+            return;
+        }
+        
+        final int mask = masks[level][node] & 0xFF, half = edge >> 1;
+        for (int o = 0, child = children[level][node]; o < 8; o++) {
+            if ((mask >> o & 1) == 0) continue;
+            visit(box, visitor, level + 1, child++, x + (o & 1) * half, y + (o >> 1 & 1) * half, z + (o >> 2) * half);
+        }
+    }
+    
+    // SERIALIZATION
+    
+    byte[] getMasks(int level) {
+        return masks[level];
+    }
+    
+    int[] getLeaves() {
+        return colors[depth];
+    }
+    
+    // MISC
+    
+    @Override
+    public String toString() {
+        return VoxelOctree.class.getSimpleName() +
+            "{dims=" + getSizeX() + "x" + getSizeY() + "x" + getSizeZ() +
+            ", depth=" + depth +
+            ", size=" + size() + "}";
+    }
+    
+    // UTIL
+    
+    /**
+     * Returns the index of the node on the given level containing the given position, or {@code -1} if there is none.
+     */
+    private int nodeAt(int level, int x, int y, int z) {
+        checkLevel(level);
+        final int shift = depth - level;
+        if (x < 0 || y < 0 || z < 0
+            || x >= ceilShift(sizeX, shift) || y >= ceilShift(sizeY, shift) || z >= ceilShift(sizeZ, shift))
+            throw new IndexOutOfBoundsException("(" + x + "," + y + "," + z + ") out of boundaries");
+        if (size() == 0)
+            return -1;
+        
+        int node = 0;
+        for (int l = 0; l < level; l++) {
+            final int bit = level - l - 1;
+            final int octant = (x >> bit & 1) | (y >> bit & 1) << 1 | (z >> bit & 1) << 2;
+            final int mask = masks[l][node] & 0xFF;
+            if ((mask >> octant & 1) == 0)
+                return -1;
+            node = children[l][node] + Integer.bitCount(mask & ((1 << octant) - 1));
+        }
+        return node;
+    }
+    
+    private void checkLevel(int level) {
+        if (level < 0 || level > depth)
+            throw new IllegalArgumentException("level " + level + " out of range (0-" + depth + ")");
+    }
+    
+    private static boolean intersects(BoundingBox6i box, int x, int y, int z, int edge) {
+        return x <= box.getMaxX() && x + edge > box.getMinX()
+            && y <= box.getMaxY() && y + edge > box.getMinY()
+            && z <= box.getMaxZ() && z + edge > box.getMinZ();
+    }
+    
+    private static boolean contains(BoundingBox6i box, int x, int y, int z, int edge) {
+        return x >= box.getMinX() && x + edge - 1 <= box.getMaxX()
+            && y >= box.getMinY() && y + edge - 1 <= box.getMaxY()
+            && z >= box.getMinZ() && z + edge - 1 <= box.getMaxZ();
+    }
+    
+    private static int ceilShift(int size, int shift) {
+        return (size + (1 << shift) - 1) >> shift;
+    }
+    
+    private static int depthOf(int x, int y, int z) {
+        final int max = Math.max(x, Math.max(y, z));
+        return max <= 1? 0 : 32 - Integer.numberOfLeadingZeros(max - 1);
+    }
+    
+    /**
+     * Returns the average of a range of colors. The channels are summed up and rounded once, since blending the
+     * colors one by one with {@link ColorMath#blend(int, int, float)} truncates on every step and lets the average
+     * drift towards black over multiple levels.
+     */
+    private static int average(int[] colors, int from, int to) {
+        if (to - from == 1)
+            return colors[from];
+        
+        int r = 0, g = 0, b = 0, a = 0;
+        for (int i = from; i < to; i++) {
+            final int rgb = colors[i];
+            r += ColorMath.red(rgb);
+            g += ColorMath.green(rgb);
+            b += ColorMath.blue(rgb);
+            a += ColorMath.alpha(rgb);
+        }
+        
+        final int n = to - from, half = n / 2;
+        return ColorMath.fromRGB((r + half) / n, (g + half) / n, (b + half) / n, (a + half) / n);
+    }
+    
+    /**
+     * Builds the levels of an octree in a single depth-first pass over a voxel array. Visiting the octants in Morton
+     * order guarantees that the children of each node are appended to their level contiguously.
+     */
+    private static class Builder {
+        
+        private final VoxelArray array;
+        private final int depth;
+        private final byte[][] masks;
+        private final int[][] children, colors;
+        private final int[] sizes;
+        
+        private Builder(VoxelArray array, int depth) {
+            this.array = array;
+            this.depth = depth;
+            this.masks = new byte[depth][16];
+            this.children = new int[depth][16];
+            this.colors = new int[depth + 1][16];
+            this.sizes = new int[depth + 1];
+        }
+        
+        private boolean build(int level, int x, int y, int z) {
+            if (level == depth) {
+                final int rgb = array.getRGB(x, y, z);
+                if (!ColorMath.isVisible(rgb))
+                    return false;
+                add(level, 0, 0, rgb);
+                return true;
+            }
+            
+            final int half = 1 << (depth - level - 1), first = sizes[level + 1];
+            int mask = 0;
+            for (int o = 0; o < 8; o++) {
+                final int cx = x + (o & 1) * half, cy = y + (o >> 1 & 1) * half, cz = z + (o >> 2) * half;
+                if (cx >= array.getSizeX() || cy >= array.getSizeY() || cz >= array.getSizeZ())
+                    continue;
+                if (build(level + 1, cx, cy, cz))
+                    mask |= 1 << o;
+            }
+            if (mask == 0)
+                return false;
+            
+            add(level, mask, first, average(colors[level + 1], first, sizes[level + 1]));
+            return true;
+        }
+        
+        private void add(int level, int mask, int first, int rgb) {
+            final int i = sizes[level]++;
+            if (i == colors[level].length) {
+                colors[level] = Arrays.copyOf(colors[level], i * 2);
+                if (level < depth) {
+                    masks[level] = Arrays.copyOf(masks[level], i * 2);
+                    children[level] = Arrays.copyOf(children[level], i * 2);
+                }
+            }
+            colors[level][i] = rgb;
+            if (level < depth) {
+                masks[level][i] = (byte) mask;
+                children[level][i] = first;
+            }
+        }
+        
+    }
+    
+}
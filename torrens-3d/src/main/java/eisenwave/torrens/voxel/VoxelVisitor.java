@@ -0,0 +1,13 @@
+package eisenwave.torrens.voxel;
+
+/**
+ * Visits voxels of a {@link VoxelArray} by their coordinates and color.
+ *
+ * @see VoxelArray#forEachVoxel(VoxelVisitor)
+ */
+@FunctionalInterface
+public interface VoxelVisitor {
+    
+    abstract void visit(int x, int y, int z, int argb);
+    
+}
@@ -3,19 +3,45 @@ package eisenwave.torrens.wavefront;
 import eisenwave.spatium.util.Spatium;
 import eisenwave.torrens.error.FileSyntaxException;
 import eisenwave.torrens.io.TextDeserializer;
-import eisenwave.torrens.object.Vertex2f;
-import eisenwave.torrens.object.Vertex3f;
+import eisenwave.torrens.util.NumberParser;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.IOException;
-import java.io.Reader;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
+/**
+ * <p>
+ * A deserializer for <b>Wavefront (.obj)</b> files.
+ * </p>
+ * <p>
+ * The text is read in blocks into a char buffer and every line is tokenized in place. Keywords, floats and index
+ * triplets are parsed directly from the buffer, so that no strings are created except for group, material and
+ * library names.
+ * </p>
+ * <p>
+ * Large files can be read with {@link #fromFileParallel(File)} instead, which memory-maps the file, splits it into
+ * chunks at line boundaries and parses the chunks concurrently.
+ * </p>
+ */
 public class DeserializerOBJ implements TextDeserializer<OBJModel> {
     
+    private final static int BUFFER_SIZE = 1 << 16;
+    
+    /** The minimum size of a chunk when parsing in parallel. */
+    private final static int MIN_CHUNK_SIZE = 1 << 20;
+    /** The maximum size of a chunk, so that every chunk can be mapped into a single buffer. */
+    private final static int MAX_CHUNK_SIZE = 1 << 30;
+    
     @Nullable
     private final Logger logger;
     @NotNull
@@ -48,114 +74,293 @@ public class DeserializerOBJ implements TextDeserializer<OBJModel> {
     @NotNull
     @Override
     public OBJModel fromReader(Reader reader) throws IOException {
-        try (BufferedReader buffReader = new BufferedReader(reader)) {
-            return fromReader(buffReader);
+        try (Reader r = reader) {
+            return read(r);
         }
     }
     
     public OBJModel fromReader(BufferedReader reader) throws IOException {
+        return read(reader);
+    }
+    
+    private OBJModel read(Reader reader) throws IOException {
         this.group = model.getDefaultGroup();
+        final ModelParser parser = new ModelParser();
+        
+        char[] buffer = new char[BUFFER_SIZE];
+        int length = 0, number = 0;
+        boolean cr = false;
         
-        int number = 0;
-        String content;
-        while ((content = reader.readLine()) != null)
-            readLine(++number, content);
+        for (int read; (read = reader.read(buffer, length, buffer.length - length)) >= 0; ) {
+            int start = 0;
+            for (int i = length, limit = length + read; i < limit; i++) {
+                final char c = buffer[i];
+                if (c == '\n' && cr) {
+                    // second half of a "\r\n" line terminator
+                    start = i + 1;
+                }
+                else if (c == '\n' || c == '\r') {
+                    parser.readLine(++number, buffer, start, i);
+                    start = i + 1;
+                }
+                cr = c == '\r';
+            }
+            
+            // keep the incomplete last line at the start of the buffer, growing it for very long lines
+            length += read - start;
+            System.arraycopy(buffer, start, buffer, 0, length);
+            if (length == buffer.length)
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        if (length != 0)
+            parser.readLine(++number, buffer, 0, length);
+        
+        return model;
+    }
     
+    // PARALLEL
+    
+    /**
+     * Reads an OBJ file using multiple threads. The file is memory-mapped and split into chunks at line boundaries,
+     * which are parsed concurrently into separate buffers and then merged into the model in order.
+     *
+     * @param file the file
+     * @return the model
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    public OBJModel fromFileParallel(File file) throws IOException {
+        final long size = file.length();
+        final long chunks = Math.max(size / MIN_CHUNK_SIZE, size / MAX_CHUNK_SIZE + 1);
+        return fromFileParallel(file, (int) Math.min(chunks, Runtime.getRuntime().availableProcessors() * 4));
+    }
+    
+    /**
+     * Reads an OBJ file using multiple threads, splitting it into approximately the given amount of chunks.
+     *
+     * @param file the file
+     * @param chunks the amount of chunks
+     * @return the model
+     * @throws IOException if an I/O error occurs or the file is malformed
+     * @see #fromFileParallel(File)
+     */
+    public OBJModel fromFileParallel(File file, int chunks) throws IOException {
+        if (chunks < 1) throw new IllegalArgumentException("at least one chunk required");
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            chunks = (int) Math.max(chunks, size / MAX_CHUNK_SIZE + 1);
+            
+            final long[] bounds = new long[chunks + 1];
+            bounds[chunks] = size;
+            for (int i = 1; i < chunks; i++)
+                bounds[i] = nextLine(channel, Math.max(size * i / chunks, bounds[i - 1]));
+            
+            Chunk[] results;
+            try {
+                results = IntStream.range(0, chunks).parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1]))
+                    .toArray(Chunk[]::new);
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            
+            merge(results);
+        }
+        
         return model;
     }
     
-    private void readLine(int number, String line) throws FileSyntaxException {
-        line = line.trim();
-        if (line.isEmpty()) return; //empty line
-        if (line.charAt(0) == '#') return; //comment line
+    /**
+     * Returns the position of the line following the given position.
+     */
+    private static long nextLine(FileChannel channel, long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(256);
+        final long size = channel.size();
+        
+        while (position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer.get(i);
+                if (b == '\n')
+                    return position + i + 1;
+                if (b == '\r' && i + 1 < read)
+                    return position + i + (buffer.get(i + 1) == '\n'? 2 : 1);
+            }
+            // a '\r' at the end of the buffer is read again, along with the byte which follows it
+            position += read > 1 && buffer.get(read - 1) == '\r'? read - 1 : Math.max(read, 0);
+        }
+        return size;
+    }
+    
+    private static Chunk parseChunk(FileChannel channel, long from, long to) {
+        final Chunk chunk = new Chunk();
+        if (from == to)
+            return chunk;
+        
+        final MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
         
-        String[] args = line.split("[ ]+"); //in case some idiot double spaced between arguments
-        if (args.length < 2) error(number, "less than 2 arguments");
+        // bytes are widened into chars one line at a time, names are decoded as UTF-8 by the chunk
+        char[] line = new char[256];
+        int length = 0, number = 0;
+        boolean cr = false;
         
         try {
-            switch (args[0]) {
-                case "mtllib": readMtlLib(args); break;
-                case "usemtl": readUseMtl(args); break;
-                case "v": readV(args); break;
-                case "vt": readVT(args); break;
-                case "vn": readVN(args); break;
-                case "f": readF(args); break;
-                case "g": readG(args); break;
-                default: debug(number+": unknown arg '"+args[0]+"'");
+            for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+                final byte b = buffer.get(i);
+                if (b == '\r' || b == '\n' && !cr) {
+                    chunk.readLine(++number, line, 0, length);
+                    length = 0;
+                }
+                // the '\n' of a "\r\n" line terminator is skipped
+                else if (b != '\n') {
+                    if (length == line.length)
+                        line = Arrays.copyOf(line, length * 2);
+                    line[length++] = (char) (b & 0xFF);
+                }
+                cr = b == '\r';
             }
-        } catch (Exception ex) {
-            error(number, ex);
+            if (length != 0)
+                chunk.readLine(++number, line, 0, length);
+        } catch (FileSyntaxException ex) {
+            chunk.error = ex;
+            chunk.errorLine = number;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
         }
+        
+        chunk.lines = number;
+        return chunk;
     }
     
-    private void readMtlLib(String[] args) throws IOException {
-        String path = args[1];
-        MTLLibrary library = new MTLLibrary(path);
-        model.setMaterials(library);
+    /**
+     * Merges the parsed chunks into the model. All vertices are added first, followed by the faces, groups and
+     * materials in the order in which they appear in the file.
+     */
+    private void merge(Chunk[] chunks) throws IOException {
+        this.group = model.getDefaultGroup();
         
-        File file = new File(mtlDir, path);
-        if (mtlDir == null || !file.exists() || !file.isFile()) {
-            warning("invalid mtllib reference: "+file);
-            return;
+        int lines = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.error != null) {
+                // the message is prefixed with the line number in the chunk, which has to be made absolute
+                final String message = chunk.error.getMessage();
+                final String detail = message.substring(("line " + chunk.errorLine).length());
+                throw new FileSyntaxException("line " + (lines + chunk.errorLine) + detail, chunk.error.getCause());
+            }
+            lines += chunk.lines;
         }
         
-        debug("loading mtllib from: "+file);
-        new DeserializerMTL(library, mtlDir, logger).fromFile(file);
+        int vertices = model.getVertexCount(), textures = model.getTextureVertexCount(), normals = model.getNormalCount();
+        final int[][] bases = new int[chunks.length][];
+        for (int i = 0; i < chunks.length; i++) {
+            final Chunk chunk = chunks[i];
+            bases[i] = new int[] {vertices, textures, normals};
+            vertices += chunk.vertexCount;
+            textures += chunk.textureCount;
+            normals += chunk.normalCount;
+        }
+        model.ensureCapacity(vertices, normals, textures);
+        
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.vertexCount * 3; i += 3)
+                model.addVertex(chunk.vertices[i], chunk.vertices[i + 1], chunk.vertices[i + 2]);
+            for (int i = 0; i < chunk.textureCount * 2; i += 2)
+                model.addTexture(chunk.textures[i], chunk.textures[i + 1]);
+            for (int i = 0; i < chunk.normalCount * 3; i += 3)
+                model.addNormal(chunk.normals[i], chunk.normals[i + 1], chunk.normals[i + 2]);
+        }
+        
+        lines = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            final Chunk chunk = chunks[i];
+            final int[] base = bases[i];
+            
+            // relative indices were resolved against the chunk, so they are offset by the preceding chunks
+            for (int j = 0; j < chunk.fixupCount; j++) {
+                final int position = chunk.fixups[j];
+                chunk.indices[position] += base[position % 3];
+            }
+            
+            int event = 0, corner = 0;
+            for (int face = 0; face < chunk.faceCount; face++) {
+                for (; event < chunk.events.size() && chunk.events.get(event).face == face; event++)
+                    apply(chunk.events.get(event));
+                
+                final int size = chunk.faceSizes[face];
+                try {
+                    checkIndices(chunk, face, corner, size, base);
+                    group.addFace(chunk.indices, corner * 3, size);
+                } catch (RuntimeException ex) {
+                    throw new FileSyntaxException("line " + (lines + chunk.faceLines[face]), ex);
+                }
+                corner += size;
+            }
+            for (; event < chunk.events.size(); event++)
+                apply(chunk.events.get(event));
+            lines += chunk.lines;
+        }
     }
     
-    private void readV(String[] args) {
-        if (args.length < 4) throw new IllegalArgumentException("insufficient argument count");
-        Vertex3f vertex = new Vertex3f(
-            Float.parseFloat(args[1]),
-            Float.parseFloat(args[2]),
-            Float.parseFloat(args[3]));
-        model.addVertex(vertex);
+    /**
+     * Checks that a face only refers to vertices which precede it in the file, since all vertices of the file are
+     * already added to the model when the faces are merged.
+     */
+    private static void checkIndices(Chunk chunk, int face, int corner, int size, int[] base) {
+        for (int i = 0; i < size * 3; i++) {
+            final int index = chunk.indices[corner * 3 + i], type = i % 3;
+            if (index > base[type] + chunk.faceCounts[face * 3 + type])
+                throw new IndexOutOfBoundsException((type == 0? "v" : type == 1? "vt" : "vn") + (i / 3) + ": " + index);
+        }
     }
     
-    private void readVN(String[] args) {
-        if (args.length < 4) throw new IllegalArgumentException("insufficient argument count");
-        Vertex3f vertex = new Vertex3f(
-            Float.parseFloat(args[1]),
-            Float.parseFloat(args[2]),
-            Float.parseFloat(args[3]));
-        float lenSqr = vertex.getLengthSquared();
-        model.addNormal(Spatium.equals(lenSqr, 1)? vertex : vertex.divided((float) Math.sqrt(lenSqr)));
+    private void apply(Event event) throws IOException {
+        switch (event.type) {
+            case Event.GROUP: readG(event.name); break;
+            case Event.USE_MTL: readUseMtl(event.name); break;
+            case Event.MTL_LIB: readMtlLib(event.name); break;
+        }
     }
     
-    private void readVT(String[] args) {
-        if (args.length < 3) throw new IllegalArgumentException("insufficient argument count");
-        Vertex2f vertex = new Vertex2f(
-            Float.parseFloat(args[1]),
-            Float.parseFloat(args[2]));
-        model.addTexture(vertex);
-    }
+    // MODEL
     
-    private void readF(String[] args) {
-        OBJTriplet[] triplets = new OBJTriplet[args.length - 1];
-        for (int i = 1; i<args.length; i++) {
-            triplets[i-1] = OBJTriplet.parse(args[i]);
+    private void readMtlLib(String path) throws IOException {
+        MTLLibrary library = new MTLLibrary(path);
+        model.setMaterials(library);
+        
+        File file = new File(mtlDir, path);
+        if (mtlDir == null || !file.exists() || !file.isFile()) {
+            warning("invalid mtllib reference: "+file);
+            return;
         }
-        this.group.addFace(new OBJFace(triplets));
+        
+        debug("loading mtllib from: "+file);
+        new DeserializerMTL(library, mtlDir, logger).fromFile(file);
     }
     
-    private void readG(String[] args) {
-        this.group = new OBJGroup(model, args[1]);
+    private void readG(String name) {
+        this.group = new OBJGroup(model, name);
         model.addGroup(group);
     }
     
-    private void readUseMtl(String[] args) {
+    private void readUseMtl(String name) {
         MTLLibrary mtllib = model.getMaterials();
         if (mtllib == null) {
-            warning("usmtl call \""+args[1]+"\" but obj has no mtllib");
+            warning("usmtl call \""+name+"\" but obj has no mtllib");
             return;
         }
-        MTLMaterial material = mtllib.getMaterial(args[1]);
+        MTLMaterial material = mtllib.getMaterial(name);
         if (material == null) {
-            warning("invalid usemtl reference in g \""+this.group.getName()+"\": "+args[1]);
+            warning("invalid usemtl reference in g \""+this.group.getName()+"\": "+name);
             return;
         }
         
-        this.group.setMaterial(args[1]);
+        this.group.setMaterial(name);
     }
     
     private static void error(int line, String error) throws FileSyntaxException {
@@ -166,4 +371,389 @@ public class DeserializerOBJ implements TextDeserializer<OBJModel> {
         throw new FileSyntaxException("line "+line, error);
     }
     
+    // CLASSES
+    
+    /**
+     * Tokenizes lines in place and passes the parsed statements on to its implementation.
+     */
+    private abstract static class LineParser {
+        
+        /** Reused buffer for the index triplets of a face. */
+        protected int[] triplets = new int[12];
+        
+        /** The line which is currently being tokenized. */
+        private char[] line;
+        /** The position of the tokenizer in the current line and the end of the line. */
+        private int pos, end;
+        /** The bounds of the last token returned by {@link #nextToken()}. */
+        private int tokenStart, tokenEnd;
+        
+        public void readLine(int number, char[] chars, int from, int to) throws IOException {
+            this.line = chars;
+            this.pos = from;
+            this.end = to;
+            
+            if (!nextToken()) return; //empty line
+            if (chars[tokenStart] == '#') return; //comment line
+            final int keyStart = tokenStart, keyLength = tokenEnd - tokenStart;
+            
+            if (!nextToken()) error(number, "less than 2 arguments");
+            
+            try {
+                if (keyLength == 1) {
+                    switch (chars[keyStart]) {
+                        case 'v': readV(); return;
+                        case 'f': readF(); return;
+                        case 'g': group(tokenString()); return;
+                    }
+                }
+                else if (keyLength == 2 && chars[keyStart] == 'v') {
+                    switch (chars[keyStart + 1]) {
+                        case 't': readVT(); return;
+                        case 'n': readVN(); return;
+                    }
+                }
+                else if (isKeyword(chars, keyStart, keyLength, "mtllib")) {
+                    mtlLib(tokenString());
+                    return;
+                }
+                else if (isKeyword(chars, keyStart, keyLength, "usemtl")) {
+                    useMtl(tokenString());
+                    return;
+                }
+            } catch (Exception ex) {
+                error(number, ex);
+            }
+            
+            unknown(number, chars, keyStart, keyLength);
+        }
+        
+        private void readV() {
+            final float x = tokenFloat(), y = nextFloat(), z = nextFloat();
+            vertex(x, y, z);
+        }
+        
+        private void readVN() {
+            float x = tokenFloat(), y = nextFloat(), z = nextFloat();
+            float lenSqr = x * x + y * y + z * z;
+            if (!Spatium.equals(lenSqr, 1)) {
+                float len = (float) Math.sqrt(lenSqr);
+                x /= len;
+                y /= len;
+                z /= len;
+            }
+            normal(x, y, z);
+        }
+        
+        private void readVT() {
+            final float u = tokenFloat(), v = nextFloat();
+            texture(u, v);
+        }
+        
+        private void readF() {
+            int size = 0;
+            do {
+                if (triplets.length < (size + 1) * 3)
+                    triplets = Arrays.copyOf(triplets, triplets.length * 2);
+                readTriplet(size++ * 3);
+            } while (nextToken());
+            
+            face(size);
+        }
+        
+        /**
+         * Parses the current token as a triplet of the form {@code v}, {@code v/vt}, {@code v//vn} or
+         * {@code v/vt/vn}. Absent indices are stored as {@code 0}, relative indices are left negative.
+         */
+        private void readTriplet(int offset) {
+            final char[] chars = line;
+            final int start = tokenStart, end = tokenEnd;
+            int slash1 = start;
+            while (slash1 < end && chars[slash1] != '/') slash1++;
+            int slash2 = slash1 + 1;
+            while (slash2 < end && chars[slash2] != '/') slash2++;
+            
+            triplets[offset] = NumberParser.parseInt(chars, start, slash1);
+            triplets[offset + 1] = slash1 + 1 >= Math.min(slash2, end)?
+                0 : NumberParser.parseInt(chars, slash1 + 1, slash2);
+            triplets[offset + 2] = slash2 + 1 >= end? 0 : NumberParser.parseInt(chars, slash2 + 1, end);
+        }
+        
+        // STATEMENTS
+        
+        protected abstract void vertex(float x, float y, float z);
+        
+        protected abstract void texture(float u, float v);
+        
+        protected abstract void normal(float x, float y, float z);
+        
+        /**
+         * Adds a face whose index triplets have been parsed into {@link #triplets}, where negative indices are
+         * relative to the end of the respective vertex list.
+         *
+         * @param size the amount of corners of the face
+         */
+        protected abstract void face(int size);
+        
+        protected abstract void group(String name);
+        
+        protected abstract void useMtl(String name);
+        
+        protected abstract void mtlLib(String path) throws IOException;
+        
+        protected void unknown(int number, char[] chars, int keyStart, int keyLength) {}
+        
+        // TOKENIZER
+        
+        /**
+         * Advances to the next whitespace-separated token of the current line.
+         *
+         * @return whether there is another token
+         */
+        private boolean nextToken() {
+            final char[] chars = line;
+            int i = pos;
+            while (i < end && isWhitespace(chars[i])) i++;
+            if (i == end) {
+                pos = i;
+                return false;
+            }
+            
+            tokenStart = i;
+            while (i < end && !isWhitespace(chars[i])) i++;
+            tokenEnd = pos = i;
+            return true;
+        }
+        
+        private float tokenFloat() {
+            return NumberParser.parseFloat(line, tokenStart, tokenEnd);
+        }
+        
+        private float nextFloat() {
+            if (!nextToken()) throw new IllegalArgumentException("insufficient argument count");
+            return tokenFloat();
+        }
+        
+        protected String tokenString() {
+            return new String(line, tokenStart, tokenEnd - tokenStart);
+        }
+        
+        protected int tokenStart() {
+            return tokenStart;
+        }
+        
+        protected int tokenEnd() {
+            return tokenEnd;
+        }
+        
+        protected char[] line() {
+            return line;
+        }
+        
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+        }
+        
+        private static boolean isKeyword(char[] chars, int start, int length, String keyword) {
+            if (length != keyword.length()) return false;
+            for (int i = 0; i < length; i++)
+                if (chars[start + i] != keyword.charAt(i)) return false;
+            return true;
+        }
+        
+    }
+    
+    /**
+     * Parses lines directly into the model of this deserializer.
+     */
+    private class ModelParser extends LineParser {
+        
+        @Override
+        protected void vertex(float x, float y, float z) {
+            model.addVertex(x, y, z);
+        }
+        
+        @Override
+        protected void texture(float u, float v) {
+            model.addTexture(u, v);
+        }
+        
+        @Override
+        protected void normal(float x, float y, float z) {
+            model.addNormal(x, y, z);
+        }
+        
+        @Override
+        protected void face(int size) {
+            for (int i = 0; i < size * 3; i += 3) {
+                if (triplets[i] < 0) triplets[i] += model.getVertexCount() + 1;
+                if (triplets[i + 1] < 0) triplets[i + 1] += model.getTextureVertexCount() + 1;
+                if (triplets[i + 2] < 0) triplets[i + 2] += model.getNormalCount() + 1;
+            }
+            group.addFace(triplets, 0, size);
+        }
+        
+        @Override
+        protected void group(String name) {
+            readG(name);
+        }
+        
+        @Override
+        protected void useMtl(String name) {
+            readUseMtl(name);
+        }
+        
+        @Override
+        protected void mtlLib(String path) throws IOException {
+            readMtlLib(path);
+        }
+        
+        @Override
+        protected void unknown(int number, char[] chars, int keyStart, int keyLength) {
+            if (logger != null)
+                debug(number+": unknown arg '"+new String(chars, keyStart, keyLength)+"'");
+        }
+        
+    }
+    
+    /**
+     * Parses the lines of a single chunk of a file into primitive buffers, independently of all other chunks.
+     */
+    private static class Chunk extends LineParser {
+        
+        private float[] vertices = new float[3 * 256], textures = new float[2 * 256], normals = new float[3 * 256];
+        private int vertexCount, textureCount, normalCount;
+        
+        /** The index triplets of all faces, along with the amount of corners and the line number of each face. */
+        private int[] indices = new int[3 * 256], faceSizes = new int[64], faceLines = new int[64];
+        /** The amount of vertices, texture vertices and normals in this chunk before each face. */
+        private int[] faceCounts = new int[3 * 64];
+        private int cornerCount, faceCount;
+        
+        /** The positions of relative indices which must be offset by the amount of vertices in previous chunks. */
+        private int[] fixups = new int[16];
+        private int fixupCount;
+        
+        private final List<Event> events = new ArrayList<>();
+        
+        private int lines, errorLine, number;
+        @Nullable
+        private FileSyntaxException error;
+        
+        @Override
+        public void readLine(int number, char[] chars, int from, int to) throws IOException {
+            this.number = number;
+            super.readLine(number, chars, from, to);
+        }
+        
+        @Override
+        protected void vertex(float x, float y, float z) {
+            if (vertexCount * 3 + 3 > vertices.length)
+                vertices = Arrays.copyOf(vertices, vertices.length * 2);
+            final int i = vertexCount++ * 3;
+            vertices[i] = x;
+            vertices[i + 1] = y;
+            vertices[i + 2] = z;
+        }
+        
+        @Override
+        protected void texture(float u, float v) {
+            if (textureCount * 2 + 2 > textures.length)
+                textures = Arrays.copyOf(textures, textures.length * 2);
+            final int i = textureCount++ * 2;
+            textures[i] = u;
+            textures[i + 1] = v;
+        }
+        
+        @Override
+        protected void normal(float x, float y, float z) {
+            // validated like OBJModel#addNormal, so the error is reported with its line as when reading sequentially
+            float lenSqr = x * x + y * y + z * z;
+            if (!Spatium.equals(1, lenSqr))
+                throw new IllegalArgumentException("normal is not a unit vector (len = " + Math.sqrt(lenSqr) + ")");
+            if (normalCount * 3 + 3 > normals.length)
+                normals = Arrays.copyOf(normals, normals.length * 2);
+            final int i = normalCount++ * 3;
+            normals[i] = x;
+            normals[i + 1] = y;
+            normals[i + 2] = z;
+        }
+        
+        @Override
+        protected void face(int size) {
+            final int offset = cornerCount * 3;
+            if (offset + size * 3 > indices.length)
+                indices = Arrays.copyOf(indices, Math.max(indices.length * 2, offset + size * 3));
+            if (faceCount == faceSizes.length) {
+                faceSizes = Arrays.copyOf(faceSizes, faceCount * 2);
+                faceLines = Arrays.copyOf(faceLines, faceCount * 2);
+                faceCounts = Arrays.copyOf(faceCounts, faceCount * 6);
+            }
+            
+            for (int i = 0; i < size * 3; i++) {
+                int index = triplets[i];
+                if (index < 0) {
+                    // resolve against this chunk, the result may point into previous chunks
+                    index += (i % 3 == 0? vertexCount : i % 3 == 1? textureCount : normalCount) + 1;
+                    if (fixupCount == fixups.length)
+                        fixups = Arrays.copyOf(fixups, fixupCount * 2);
+                    fixups[fixupCount++] = offset + i;
+                }
+                indices[offset + i] = index;
+            }
+            
+            cornerCount += size;
+            faceLines[faceCount] = number;
+            faceCounts[faceCount * 3] = vertexCount;
+            faceCounts[faceCount * 3 + 1] = textureCount;
+            faceCounts[faceCount * 3 + 2] = normalCount;
+            faceSizes[faceCount++] = size;
+        }
+        
+        @Override
+        protected void group(String name) {
+            events.add(new Event(faceCount, Event.GROUP, name));
+        }
+        
+        @Override
+        protected void useMtl(String name) {
+            events.add(new Event(faceCount, Event.USE_MTL, name));
+        }
+        
+        @Override
+        protected void mtlLib(String path) {
+            events.add(new Event(faceCount, Event.MTL_LIB, path));
+        }
+        
+        @Override
+        protected String tokenString() {
+            // chars were widened from bytes, so they are narrowed again and decoded properly
+            final char[] line = line();
+            final byte[] bytes = new byte[tokenEnd() - tokenStart()];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = (byte) line[tokenStart() + i];
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        
+    }
+    
+    /**
+     * A change of parser state in a chunk, which has to be applied before the face with the given index.
+     */
+    private static class Event {
+        
+        private final static byte GROUP = 0, USE_MTL = 1, MTL_LIB = 2;
+        
+        private final int face;
+        private final byte type;
+        private final String name;
+        
+        private Event(int face, byte type, String name) {
+            this.face = face;
+            this.type = type;
+            this.name = name;
+        }
+        
+    }
+    
 }
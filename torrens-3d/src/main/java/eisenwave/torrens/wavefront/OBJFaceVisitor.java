@@ -0,0 +1,29 @@
+package eisenwave.torrens.wavefront;
+
+/**
+ * Visits the faces of an {@link OBJModel} as primitive index triplets, without creating any {@link OBJFace} or
+ * {@link OBJTriplet} objects.
+ *
+ * @see OBJModel#forEachFace(OBJFaceVisitor)
+ * @see OBJGroup#forEachFace(OBJFaceVisitor)
+ */
+@FunctionalInterface
+public interface OBJFaceVisitor {
+    
+    /**
+     * <p>
+     * Visits a face. The corners of the face are stored in the array as consecutive triplets of
+     * {@code v, vt, vn}, starting at the offset. Texture and normal indices are {@code 0} if absent.
+     * </p>
+     * <p>
+     * The array is the internal index buffer of the group and must neither be modified nor retained.
+     * </p>
+     *
+     * @param group the group containing the face
+     * @param indices the index buffer
+     * @param offset the offset of the first corner
+     * @param size the amount of corners of the face
+     */
+    abstract void visit(OBJGroup group, int[] indices, int offset, int size);
+    
+}
@@ -3,14 +3,26 @@ package eisenwave.torrens.wavefront;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 
+/**
+ * <p>
+ * A named group of faces in an {@link OBJModel}.
+ * </p>
+ * <p>
+ * Faces are stored in a packed index buffer of {@code v, vt, vn} triplets, one per corner, along with a table of the
+ * offsets at which each face begins. {@link OBJFace} objects are only created on demand.
+ * </p>
+ */
 public class OBJGroup implements Iterable<OBJFace> {
     
-    private final List<OBJFace> faces = new ArrayList<>();
+    private final static int DEFAULT_CAPACITY = 16;
+    
+    /** The index triplets of all face corners as {@code v, vt, vn}. */
+    private int[] indices = new int[DEFAULT_CAPACITY * 3];
+    /** The corner at which each face begins, followed by the total amount of corners. */
+    private int[] offsets = new int[DEFAULT_CAPACITY + 1];
+    private int faceCount = 0;
     
     private final OBJModel model;
     private final String name;
@@ -47,7 +59,7 @@ public class OBJGroup implements Iterable<OBJFace> {
      * @return the amount of faces
      */
     public int getFaceCount() {
-        return faces.size();
+        return faceCount;
     }
     
     @Nullable
@@ -63,7 +75,27 @@ public class OBJGroup implements Iterable<OBJFace> {
      * @throws IndexOutOfBoundsException if the index is out of range (<code>index &lt; 0 || index &gt;= size()</code>)
      */
     public OBJFace getFace(int index) {
-        return faces.get(index);
+        if (index < 0 || index >= faceCount)
+            throw new IndexOutOfBoundsException("index " + index + " out of range [0, " + faceCount + ")");
+        final int from = offsets[index], to = offsets[index + 1];
+        
+        OBJTriplet[] shape = new OBJTriplet[to - from];
+        for (int i = 0, j = from * 3; i < shape.length; i++, j += 3)
+            shape[i] = new OBJTriplet(indices[j], indices[j + 1], indices[j + 2]);
+        return new OBJFace(shape);
+    }
+    
+    /**
+     * Returns the amount of corners of the face with the given index.
+     *
+     * @param index the index
+     * @return the amount of corners of the face
+     * @throws IndexOutOfBoundsException if the index is out of range (<code>index &lt; 0 || index &gt;= size()</code>)
+     */
+    public int getFaceSize(int index) {
+        if (index < 0 || index >= faceCount)
+            throw new IndexOutOfBoundsException("index " + index + " out of range [0, " + faceCount + ")");
+        return offsets[index + 1] - offsets[index];
     }
     
     // CHECKERS
@@ -91,9 +123,64 @@ public class OBJGroup implements Iterable<OBJFace> {
     public void addFace(OBJFace face) {
         OBJTriplet[] triplets = face.getShape();
         for (int i = 0; i<triplets.length; i++)
-            validate(triplets[i], i);
+            validate(triplets[i].getVertexIndex(), triplets[i].getTextureIndex(), triplets[i].getNormalIndex(), i);
+        
+        final int corners = offsets[faceCount];
+        ensureCapacity(faceCount + 1, corners + triplets.length);
+        for (int i = 0, j = corners * 3; i < triplets.length; i++, j += 3) {
+            indices[j] = triplets[i].getVertexIndex();
+            indices[j + 1] = triplets[i].getTextureIndex();
+            indices[j + 2] = triplets[i].getNormalIndex();
+        }
+        offsets[++faceCount] = corners + triplets.length;
+    }
+    
+    /**
+     * Adds a face to this model. The corners of the face are given as consecutive triplets of {@code v, vt, vn}, where
+     * {@code 0} marks an absent texture or normal index. The indices are copied, so the array may be reused.
+     *
+     * @param triplets the array containing the index triplets
+     * @param offset the offset of the first triplet in the array
+     * @param size the amount of corners of the face
+     */
+    public void addFace(int[] triplets, int offset, int size) {
+        if (size < 1) throw new IllegalArgumentException("face must have at least one point");
+        for (int i = 0, j = offset; i < size; i++, j += 3) {
+            if (triplets[j] < 1) throw new IllegalArgumentException("v must be at least 1 (is "+triplets[j]+")");
+            validate(triplets[j], triplets[j + 1], triplets[j + 2], i);
+        }
         
-        faces.add(face);
+        final int corners = offsets[faceCount];
+        ensureCapacity(faceCount + 1, corners + size);
+        System.arraycopy(triplets, offset, indices, corners * 3, size * 3);
+        offsets[++faceCount] = corners + size;
+    }
+    
+    /**
+     * Ensures that this group can hold at least the given amount of faces and corners without growing its buffers.
+     *
+     * @param faces the minimum amount of faces
+     * @param corners the minimum amount of face corners
+     */
+    public void ensureCapacity(int faces, int corners) {
+        if (faces + 1 > offsets.length)
+            offsets = Arrays.copyOf(offsets, Math.max(faces + 1, offsets.length + (offsets.length >> 1)));
+        if (corners * 3 > indices.length)
+            indices = Arrays.copyOf(indices, Math.max(corners * 3, indices.length + (indices.length >> 1)));
+    }
+    
+    // ITERATION
+    
+    /**
+     * Passes the index triplets of every face in this group to a visitor.
+     *
+     * @param visitor the face visitor
+     */
+    public void forEachFace(OBJFaceVisitor visitor) {
+        for (int i = 0; i < faceCount; i++) {
+            final int from = offsets[i];
+            visitor.visit(this, indices, from * 3, offsets[i + 1] - from);
+        }
     }
     
     //MISC
@@ -114,18 +201,31 @@ public class OBJGroup implements Iterable<OBJFace> {
     @NotNull
     @Override
     public Iterator<OBJFace> iterator() {
-        return faces.iterator();
+        return new Iterator<OBJFace>() {
+            private int index = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return index < faceCount;
+            }
+            
+            @Override
+            public OBJFace next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return getFace(index++);
+            }
+        };
     }
     
     // UTIL
     
-    private void validate(OBJTriplet triplet, int index) {
-        if (triplet.getVertexIndex() > model.getVertexCount())
-            throw new IndexOutOfBoundsException("v"+index+": "+triplet.getVertexIndex());
-        if (triplet.getNormalIndex() > model.getNormalCount())
-            throw new IndexOutOfBoundsException("vn"+index+": "+triplet.getNormalIndex());
-        if (triplet.getTextureIndex() > model.getTextureVertexCount())
-            throw new IndexOutOfBoundsException("vt"+index+": "+triplet.getTextureIndex());
+    private void validate(int v, int vt, int vn, int index) {
+        if (v > model.getVertexCount())
+            throw new IndexOutOfBoundsException("v"+index+": "+v);
+        if (vn > model.getNormalCount())
+            throw new IndexOutOfBoundsException("vn"+index+": "+vn);
+        if (vt > model.getTextureVertexCount())
+            throw new IndexOutOfBoundsException("vt"+index+": "+vt);
     }
     
 }
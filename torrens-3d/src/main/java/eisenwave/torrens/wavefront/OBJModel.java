@@ -12,13 +12,26 @@ import java.util.*;
 import java.util.function.Consumer;
 
 /**
+ * <p>
  * Data representation of a Wavefront Object Model.
+ * </p>
+ * <p>
+ * Vertices, normals and texture vertices are stored as packed primitive coordinates and faces are stored as index
+ * buffers in their groups, so that large models don't require an object per vertex or face corner.
+ * </p>
  */
 public class OBJModel implements Serializable {
     
-    private final List<Vertex3f> vertices = new ArrayList<>();
-    private final List<Vertex3f> normals = new ArrayList<>();
-    private final List<Vertex2f> textures = new ArrayList<>();
+    private final static int DEFAULT_CAPACITY = 64;
+    
+    /** The vertex positions as {@code x, y, z}. */
+    private float[] vertices = new float[DEFAULT_CAPACITY * 3];
+    /** The normal vertices as {@code x, y, z}. */
+    private float[] normals = new float[DEFAULT_CAPACITY * 3];
+    /** The texture vertices as {@code u, v}. */
+    private float[] textures = new float[DEFAULT_CAPACITY * 2];
+    
+    private int vertexCount, normalCount, textureCount;
     
     @NotNull
     private final OBJGroup defGroup;
@@ -51,8 +64,20 @@ public class OBJModel implements Serializable {
      * @throws IndexOutOfBoundsException if the index is out of range (<code>index &lt; 1 || index &gt;= size()</code>)
      */
     public Vertex3f getVertex(int index) {
-        if (index < 1) throw new IndexOutOfBoundsException("index < 1");
-        return vertices.get(index - 1);
+        final int i = checkIndex(index, vertexCount) * 3;
+        return new Vertex3f(vertices[i], vertices[i + 1], vertices[i + 2]);
+    }
+    
+    /**
+     * Copies the coordinates of the vertex with the given index into an array.
+     *
+     * @param index the index
+     * @param dest the destination array
+     * @param offset the offset in the destination array
+     * @throws IndexOutOfBoundsException if the index is out of range (<code>index &lt; 1 || index &gt;= size()</code>)
+     */
+    public void getVertex(int index, float[] dest, int offset) {
+        System.arraycopy(vertices, checkIndex(index, vertexCount) * 3, dest, offset, 3);
     }
     
     /**
@@ -63,8 +88,20 @@ public class OBJModel implements Serializable {
      * @throws IndexOutOfBoundsException if the index is out of range (<code>index &lt; 1 || index &gt;= size()</code>)
      */
     public Vertex3f getNormal(int index) {
-        if (index < 1) throw new IndexOutOfBoundsException("index < 1");
-        return normals.get(index - 1);
+        final int i = checkIndex(index, normalCount) * 3;
+        return new Vertex3f(normals[i], normals[i + 1], normals[i + 2]);
+    }
+    
+    /**
+     * Copies the coordinates of the normal vertex with the given index into an array.
+     *
+     * @param index the index
+     * @param dest the destination array
+     * @param offset the offset in the destination array
+     * @throws IndexOutOfBoundsException if the index is out of range (<code>index &lt; 1 || index &gt;= size()</code>)
+     */
+    public void getNormal(int index, float[] dest, int offset) {
+        System.arraycopy(normals, checkIndex(index, normalCount) * 3, dest, offset, 3);
     }
     
     /**
@@ -75,8 +112,20 @@ public class OBJModel implements Serializable {
      * @throws IndexOutOfBoundsException if the index is out of range (<code>index &lt; 1 || index &gt;= size()</code>)
      */
     public Vertex2f getTexture(int index) {
-        if (index < 1) throw new IndexOutOfBoundsException("index < 1");
-        return textures.get(index - 1);
+        final int i = checkIndex(index, textureCount) * 2;
+        return new Vertex2f(textures[i], textures[i + 1]);
+    }
+    
+    /**
+     * Copies the coordinates of the texture vertex with the given index into an array.
+     *
+     * @param index the index
+     * @param dest the destination array
+     * @param offset the offset in the destination array
+     * @throws IndexOutOfBoundsException if the index is out of range (<code>index &lt; 1 || index &gt;= size()</code>)
+     */
+    public void getTexture(int index, float[] dest, int offset) {
+        System.arraycopy(textures, checkIndex(index, textureCount) * 2, dest, offset, 2);
     }
     
     @NotNull
@@ -90,7 +139,7 @@ public class OBJModel implements Serializable {
      * @return the amount of vertices
      */
     public int getVertexCount() {
-        return vertices.size();
+        return vertexCount;
     }
     
     /**
@@ -99,7 +148,7 @@ public class OBJModel implements Serializable {
      * @return the amount of normal vertices
      */
     public int getNormalCount() {
-        return normals.size();
+        return normalCount;
     }
     
     /**
@@ -108,7 +157,7 @@ public class OBJModel implements Serializable {
      * @return the amount of texture vertices
      */
     public int getTextureVertexCount() {
-        return textures.size();
+        return textureCount;
     }
     
     /**
@@ -138,8 +187,11 @@ public class OBJModel implements Serializable {
             minX = 0, minY = 0, minZ = 0,
             maxX = 0, maxY = 0, maxZ = 0;
         
-        for (Vertex3f vertex : vertices) {
-            float x = vertex.getX(), y = vertex.getY(), z = vertex.getZ();
+        final float[] vertices = this.vertices;
+        final int limit = vertexCount * 3;
+        
+        for (int i = 0; i < limit; i += 3) {
+            float x = vertices[i], y = vertices[i + 1], z = vertices[i + 2];
             //else if statements based on the assumption a coordinate can not be < min AND > max
             if (x < minX) minX = x;
             else if (x > maxX) maxX = x;
@@ -180,7 +232,24 @@ public class OBJModel implements Serializable {
      * @param vertex the vertex
      */
     public void addVertex(Vertex3f vertex) {
-        vertices.add(Objects.requireNonNull(vertex));
+        addVertex(vertex.getX(), vertex.getY(), vertex.getZ());
+    }
+    
+    /**
+     * Adds a vertex to this model.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     */
+    public void addVertex(float x, float y, float z) {
+        final int i = vertexCount * 3;
+        if (i + 3 > vertices.length)
+            vertices = grow(vertices);
+        vertexCount++;
+        vertices[i] = x;
+        vertices[i + 1] = y;
+        vertices[i + 2] = z;
     }
     
     /**
@@ -189,10 +258,27 @@ public class OBJModel implements Serializable {
      * @param vertex the vertex
      */
     public void addNormal(Vertex3f vertex) {
-        float lenSqr = vertex.getLengthSquared();
+        addNormal(vertex.getX(), vertex.getY(), vertex.getZ());
+    }
+    
+    /**
+     * Adds a normal vertex to this model. This must be a unit vector.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     */
+    public void addNormal(float x, float y, float z) {
+        float lenSqr = x * x + y * y + z * z;
         if (!Spatium.equals(1, lenSqr))
             throw new IllegalArgumentException("normal is not a unit vector (len = " + Math.sqrt(lenSqr) + ")");
-        normals.add(vertex);
+        final int i = normalCount * 3;
+        if (i + 3 > normals.length)
+            normals = grow(normals);
+        normalCount++;
+        normals[i] = x;
+        normals[i + 1] = y;
+        normals[i + 2] = z;
     }
     
     /**
@@ -201,7 +287,38 @@ public class OBJModel implements Serializable {
      * @param vertex the vertex
      */
     public void addTexture(Vertex2f vertex) {
-        textures.add(Objects.requireNonNull(vertex));
+        addTexture(vertex.getX(), vertex.getY());
+    }
+    
+    /**
+     * Adds a texture vertex to this model.
+     *
+     * @param u the horizontal texture coordinate
+     * @param v the vertical texture coordinate
+     */
+    public void addTexture(float u, float v) {
+        final int i = textureCount * 2;
+        if (i + 2 > textures.length)
+            textures = grow(textures);
+        textureCount++;
+        textures[i] = u;
+        textures[i + 1] = v;
+    }
+    
+    /**
+     * Ensures that this model can hold at least the given amounts of vertices without growing its buffers.
+     *
+     * @param vertices the minimum amount of vertices
+     * @param normals the minimum amount of normal vertices
+     * @param textures the minimum amount of texture vertices
+     */
+    public void ensureCapacity(int vertices, int normals, int textures) {
+        if (vertices * 3 > this.vertices.length)
+            this.vertices = Arrays.copyOf(this.vertices, vertices * 3);
+        if (normals * 3 > this.normals.length)
+            this.normals = Arrays.copyOf(this.normals, normals * 3);
+        if (textures * 2 > this.textures.length)
+            this.textures = Arrays.copyOf(this.textures, textures * 2);
     }
     
     /**
@@ -221,8 +338,19 @@ public class OBJModel implements Serializable {
      * @param action the action
      */
     public void forEachVertex(Consumer<Vertex3f> action) {
-        for (Vertex3f v : vertices)
-            action.accept(v);
+        for (int i = 1; i <= vertexCount; i++)
+            action.accept(getVertex(i));
+    }
+    
+    /**
+     * Passes the coordinates of every vertex in the model to a visitor.
+     *
+     * @param visitor the vertex visitor
+     */
+    public void forEachVertex(OBJVertexVisitor visitor) {
+        final float[] vertices = this.vertices;
+        for (int i = 0, j = 0; i < vertexCount; i++, j += 3)
+            visitor.visit(i + 1, vertices[j], vertices[j + 1], vertices[j + 2]);
     }
     
     /**
@@ -235,6 +363,31 @@ public class OBJModel implements Serializable {
             group.forEach(action);
     }
     
+    /**
+     * Passes the index triplets of every face in the model to a visitor.
+     *
+     * @param visitor the face visitor
+     */
+    public void forEachFace(OBJFaceVisitor visitor) {
+        for (OBJGroup group : groups)
+            group.forEachFace(visitor);
+    }
+    
+    // UTIL
+    
+    /**
+     * Converts a one-based index into a zero-based index.
+     */
+    private static int checkIndex(int index, int count) {
+        if (index < 1) throw new IndexOutOfBoundsException("index < 1");
+        if (index > count) throw new IndexOutOfBoundsException("index " + index + " > " + count);
+        return index - 1;
+    }
+    
+    private static float[] grow(float[] array) {
+        return Arrays.copyOf(array, array.length + (array.length >> 1) + 6);
+    }
+    
     //MISC
     
     @Override
@@ -0,0 +1,21 @@
+package eisenwave.torrens.wavefront;
+
+/**
+ * Visits the vertices of an {@link OBJModel} as primitive coordinates, without creating any vertex objects.
+ *
+ * @see OBJModel#forEachVertex(OBJVertexVisitor)
+ */
+@FunctionalInterface
+public interface OBJVertexVisitor {
+    
+    /**
+     * Visits a vertex.
+     *
+     * @param index the one-based index of the vertex
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     */
+    abstract void visit(int index, float x, float y, float z);
+    
+}
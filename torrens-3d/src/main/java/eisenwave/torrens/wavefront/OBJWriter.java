@@ -0,0 +1,196 @@
+package eisenwave.torrens.wavefront;
+
+import eisenwave.torrens.util.NumberFormatter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Writes the statements of a <b>Wavefront (.obj)</b> file to a {@link Writer} one line at a time, without requiring
+ * an {@link OBJModel}. This allows large models to be streamed straight to their destination.
+ * </p>
+ * <p>
+ * Every line is composed in a reused char buffer, with numbers formatted by {@link NumberFormatter}.
+ * </p>
+ *
+ * @see SerializerOBJ
+ */
+public class OBJWriter implements Closeable, Flushable {
+
+    private final Writer writer;
+    private final int precision;
+
+    private char[] line = new char[256];
+    private int length = 0;
+
+    /**
+     * Constructs a new OBJ writer.
+     *
+     * @param writer the underlying writer
+     * @param precision the maximum amount of fractional digits of coordinates, or {@link NumberFormatter#SHORTEST}
+     * to write them with the fewest digits which parse back to the same float
+     */
+    public OBJWriter(@NotNull Writer writer, int precision) {
+        if (precision != NumberFormatter.SHORTEST && (precision < 0 || precision > 9))
+            throw new IllegalArgumentException("precision must be in range [0, 9] (is " + precision + ")");
+        this.writer = writer;
+        this.precision = precision;
+    }
+
+    /**
+     * Constructs a new OBJ writer which writes coordinates with the fewest digits which parse back to the same float.
+     *
+     * @param writer the underlying writer
+     */
+    public OBJWriter(@NotNull Writer writer) {
+        this(writer, NumberFormatter.SHORTEST);
+    }
+
+    // GETTERS
+
+    /**
+     * Returns the maximum amount of fractional digits of coordinates, or {@link NumberFormatter#SHORTEST}.
+     *
+     * @return the precision of coordinates
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    // STATEMENTS
+
+    public void writeComment(String comment) throws IOException {
+        append('#');
+        append(' ');
+        append(comment);
+        endLine();
+    }
+
+    public void writeMtlLib(String name) throws IOException {
+        writeStatement("mtllib", name);
+    }
+
+    public void writeUseMtl(String material) throws IOException {
+        writeStatement("usemtl", material);
+    }
+
+    public void writeGroup(String name) throws IOException {
+        writeStatement("g", name);
+    }
+
+    /**
+     * Writes an arbitrary statement consisting of a keyword and a single argument, such as {@code s off}.
+     *
+     * @param keyword the keyword
+     * @param argument the argument
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeStatement(String keyword, String argument) throws IOException {
+        append(keyword);
+        append(' ');
+        append(argument);
+        endLine();
+    }
+
+    public void writeVertex(float x, float y, float z) throws IOException {
+        append('v');
+        appendFloat(x);
+        appendFloat(y);
+        appendFloat(z);
+        endLine();
+    }
+
+    public void writeNormal(float x, float y, float z) throws IOException {
+        append('v');
+        append('n');
+        appendFloat(x);
+        appendFloat(y);
+        appendFloat(z);
+        endLine();
+    }
+
+    public void writeTexture(float u, float v) throws IOException {
+        append('v');
+        append('t');
+        appendFloat(u);
+        appendFloat(v);
+        endLine();
+    }
+
+    /**
+     * Writes a face. The corners of the face are given as consecutive triplets of {@code v, vt, vn}, where {@code 0}
+     * marks an absent texture or normal index.
+     *
+     * @param triplets the array containing the index triplets
+     * @param offset the offset of the first triplet in the array
+     * @param size the amount of corners of the face
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeFace(int[] triplets, int offset, int size) throws IOException {
+        append('f');
+        for (int i = offset, limit = offset + size * 3; i < limit; i += 3) {
+            final int v = triplets[i], vt = triplets[i + 1], vn = triplets[i + 2];
+            ensureCapacity(3 * NumberFormatter.MAX_LENGTH);
+            line[length++] = ' ';
+            length = NumberFormatter.formatInt(v, line, length);
+            if (vt != 0 || vn != 0)
+                line[length++] = '/';
+            if (vt != 0)
+                length = NumberFormatter.formatInt(vt, line, length);
+            if (vn != 0) {
+                line[length++] = '/';
+                length = NumberFormatter.formatInt(vn, line, length);
+            }
+        }
+        endLine();
+    }
+
+    // MISC
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    // UTIL
+
+    private void append(char c) {
+        ensureCapacity(1);
+        line[length++] = c;
+    }
+
+    private void append(String str) {
+        ensureCapacity(str.length());
+        str.getChars(0, str.length(), line, length);
+        length += str.length();
+    }
+
+    private void appendFloat(float value) {
+        ensureCapacity(NumberFormatter.MAX_LENGTH + 1);
+        line[length++] = ' ';
+        length = NumberFormatter.formatFloat(value, precision, line, length);
+    }
+
+    private void ensureCapacity(int chars) {
+        // one char is always reserved for the line terminator
+        if (length + chars + 1 > line.length)
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + chars + 1));
+    }
+
+    private void endLine() throws IOException {
+        line[length++] = '\n';
+        writer.write(line, 0, length);
+        length = 0;
+    }
+
+}
@@ -1,23 +1,47 @@
 package eisenwave.torrens.wavefront;
 
 import eisenwave.torrens.io.TextSerializer;
-import eisenwave.torrens.object.Vertex2f;
-import eisenwave.torrens.object.Vertex3f;
+import eisenwave.torrens.util.NumberFormatter;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 
 /**
  * <p>
  *     A serializer for <b>Wavefront (.obj)</b> files.
  * </p>
+ * <p>
+ *     Vertices and faces are written straight from the primitive buffers of the model using an {@link OBJWriter}.
+ * </p>
  */
 @SuppressWarnings("SpellCheckingInspection")
 public class SerializerOBJ implements TextSerializer<OBJModel> {
 
+    private final int precision;
+
     private OBJModel model;
 
+    /**
+     * Constructs a new serializer.
+     *
+     * @param precision the maximum amount of fractional digits of coordinates, or {@link NumberFormatter#SHORTEST}
+     * to write them with the fewest digits which parse back to the same float
+     */
+    public SerializerOBJ(int precision) {
+        if (precision != NumberFormatter.SHORTEST && (precision < 0 || precision > 9))
+            throw new IllegalArgumentException("precision must be in range [0, 9] (is " + precision + ")");
+        this.precision = precision;
+    }
+
+    /**
+     * Constructs a new serializer which writes coordinates with the fewest digits which parse back to the same float.
+     */
+    public SerializerOBJ() {
+        this(NumberFormatter.SHORTEST);
+    }
+
     @Override
     public void toWriter(OBJModel object, Writer writer) throws IOException {
         try (BufferedWriter buffWriter = new BufferedWriter(writer)) {
@@ -28,97 +52,80 @@ public class SerializerOBJ implements TextSerializer<OBJModel> {
     public void toWriter(OBJModel object, BufferedWriter writer) throws IOException {
         this.model = object;
         final MTLLibrary materials = object.getMaterials();
+        final OBJWriter out = new OBJWriter(writer, precision);
 
-        writeHeader(writer);
-        if (materials != null) {
-            writer.newLine(); writer.write("mtllib "+materials.getName());
-        }
+        writeHeader(out);
+        if (materials != null)
+            out.writeMtlLib(materials.getName());
 
-        writeVertices(writer);
+        writeVertices(out);
 
-        writer.newLine(); writer.write("s off");
+        out.writeStatement("s", "off");
         if (materials != null)
-            writeUseMaterial(materials, writer);
-        
-        writeGroups(writer);
+            writeUseMaterial(materials, out);
+
+        writeGroups(out);
+        out.flush();
     }
 
-    private void writeUseMaterial(MTLLibrary materials, BufferedWriter writer) throws IOException {
+    private void writeUseMaterial(MTLLibrary materials, OBJWriter out) throws IOException {
         if (!materials.isEmpty()) {
             MTLMaterial material = materials.iterator().next();
-            writer.newLine();
-            writer.write("usemtl "+material.getName());
+            out.writeUseMtl(material.getName());
         }
     }
 
-    private void writeVertices(BufferedWriter writer) throws IOException {
+    private void writeVertices(OBJWriter out) throws IOException {
+        final float[] xyz = new float[3];
+
         final int limV = model.getVertexCount();
-        for (int i = 1; i <= limV; i++)
-            writeVertex("v", model.getVertex(i), writer);
+        for (int i = 1; i <= limV; i++) {
+            model.getVertex(i, xyz, 0);
+            out.writeVertex(xyz[0], xyz[1], xyz[2]);
+        }
 
         final int limVN = model.getNormalCount();
-        for (int i = 1; i <= limVN; i++)
-            writeVertex("vn", model.getNormal(i), writer);
+        for (int i = 1; i <= limVN; i++) {
+            model.getNormal(i, xyz, 0);
+            out.writeNormal(xyz[0], xyz[1], xyz[2]);
+        }
 
         final int limVT = model.getTextureVertexCount();
-        for (int i = 1; i <= limVT; i++)
-            writeVertex("vt", model.getTexture(i), writer);
+        for (int i = 1; i <= limVT; i++) {
+            model.getTexture(i, xyz, 0);
+            out.writeTexture(xyz[0], xyz[1]);
+        }
     }
 
-    private void writeGroups(BufferedWriter writer) throws IOException {
+    private void writeGroups(OBJWriter out) throws IOException {
         for (OBJGroup group : model.getGroups()) {
-            writeGroup(group, writer);
-        }
-    }
-    
-    private void writeGroup(OBJGroup group, BufferedWriter writer) throws IOException {
-        final int limit = group.getFaceCount();
-        if (limit == 0) return;
-        
-        String material = group.getMaterial();
-        if (material != null) {
-            writer.newLine();
-            writer.write("usemtl ");
-            writer.write(material);
+            writeGroup(group, out);
         }
-        
-        for (int i = 0; i<limit; i++)
-            writeFace(group.getFace(i), writer);
     }
 
-    private void writeHeader(BufferedWriter writer) throws IOException {
-        writer.write("# Generated using Grian Network software");
-        writer.newLine();
-        writer.write("# www.grian.net");
-    }
+    private void writeGroup(OBJGroup group, OBJWriter out) throws IOException {
+        if (group.getFaceCount() == 0) return;
 
-    private void writeVertex(String prefix, Vertex3f vertex, BufferedWriter writer) throws IOException {
-        writer.newLine();
-        writer.write(prefix);
-        writer.write(" ");
-        writer.write(Float.toString(vertex.getX()));
-        writer.write(" ");
-        writer.write(Float.toString(vertex.getY()));
-        writer.write(" ");
-        writer.write(Float.toString(vertex.getZ()));
-    }
-
-    private void writeVertex(String prefix, Vertex2f vertex, BufferedWriter writer) throws IOException {
-        writer.newLine();
-        writer.write(prefix);
-        writer.write(" ");
-        writer.write(Float.toString(vertex.getX()));
-        writer.write(" ");
-        writer.write(Float.toString(vertex.getY()));
+        String material = group.getMaterial();
+        if (material != null)
+            out.writeUseMtl(material);
+
+        try {
+            group.forEachFace((g, indices, offset, size) -> {
+                try {
+                    out.writeFace(indices, offset, size);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
     }
 
-    private void writeFace(OBJFace face, BufferedWriter writer) throws IOException {
-        writer.newLine();
-        writer.write("f");
-        for (OBJTriplet triplet : face.getShape()) {
-            writer.write(" ");
-            writer.write(triplet.toString());
-        }
+    private void writeHeader(OBJWriter out) throws IOException {
+        out.writeComment("Generated using Grian Network software");
+        out.writeComment("www.grian.net");
     }
 
 }
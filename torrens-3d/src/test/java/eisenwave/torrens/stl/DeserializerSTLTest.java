@@ -2,6 +2,15 @@ package eisenwave.torrens.stl;
 
 import org.junit.Test;
 
+import eisenwave.torrens.error.FileSyntaxException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 public class DeserializerSTLTest {
@@ -18,4 +27,150 @@ public class DeserializerSTLTest {
         assertEquals(4, model.size());
     }
     
+    @Test
+    public void deserializeBuffer() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(getClass().getClassLoader().getResource("debug.stl").toURI()));
+        STLModel streamed = new DeserializerSTL().fromStream(new ByteArrayInputStream(bytes));
+        STLModel buffered = new DeserializerSTL().fromBytes(bytes);
+        
+        assertEquals(streamed.size(), buffered.size());
+        assertEquals(streamed.getTriangles().toString(), buffered.getTriangles().toString());
+    }
+    
+    @Test
+    public void visitTriangles() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(getClass().getClassLoader().getResource("debug.stl").toURI()));
+        STLModel model = new DeserializerSTL().fromBytes(bytes);
+        
+        int[] count = {0};
+        new DeserializerSTL().fromStream(new ByteArrayInputStream(bytes), (triangle, attribute) -> {
+            STLTriangle expected = model.getTriangles().get(count[0]++);
+            assertEquals(expected.getNormal().getX(), triangle[0], 0);
+            assertEquals(expected.getA().getY(), triangle[4], 0);
+            assertEquals(expected.getC().getZ(), triangle[11], 0);
+            assertEquals(expected.getAttribute(), attribute);
+        });
+        
+        assertEquals(model.size(), count[0]);
+    }
+    
+    @Test
+    public void visitAsciiTriangles() throws Exception {
+        int[] count = {0};
+        new DeserializerSTL().fromStream(getClass().getClassLoader().getResourceAsStream("ascii.stl"),
+            (triangle, attribute) -> {
+                float length = triangle[0] * triangle[0] + triangle[1] * triangle[1] + triangle[2] * triangle[2];
+                assertEquals(1, length, 1e-2);
+                count[0]++;
+            });
+        
+        assertEquals(4, count[0]);
+    }
+    
+    @Test
+    public void tokenizesAnyWhitespace() throws Exception {
+        String ascii = "solid  tabs \r\n" +
+            "\tfacet\r\n\t\touter   loop\n" +
+            "vertex 0 0 0\tvertex 1 0 0\n   vertex 0 1 0 endloop\n" +
+            "endfacet\n" +
+            "facet normal 0 0 -1e0 outer loop vertex 0 0 0 vertex 0 1 0 vertex 1 0 0 endloop endfacet\n" +
+            "endsolid tabs\n";
+        STLModel model = new DeserializerSTL().fromBytes(ascii.getBytes(StandardCharsets.US_ASCII));
+        
+        assertEquals("tabs", model.getHeader());
+        assertEquals(2, model.size());
+        
+        float[] t = new float[STLModel.FLOATS_PER_TRIANGLE];
+        model.getTriangle(0, t, 0);
+        assertEquals(1, t[2], 0);
+        assertEquals(1, t[6], 0);
+        model.getTriangle(1, t, 0);
+        assertEquals(-1, t[2], 0);
+        assertEquals(1, t[7], 0);
+    }
+    
+    @Test
+    public void reportsLineOfSyntaxError() throws Exception {
+        String ascii = "solid broken\nfacet\nouter loop\nvertex 0 0 0\nvertex 1 x 0\n";
+        try {
+            new DeserializerSTL().fromBytes(ascii.getBytes(StandardCharsets.US_ASCII));
+            fail();
+        } catch (FileSyntaxException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("line 5:"));
+        }
+    }
+    
+    @Test
+    public void parallelMatchesSequentialAscii() throws Exception {
+        StringBuilder ascii = new StringBuilder("solid generated\n");
+        for (int i = 0; i < 500; i++) {
+            ascii.append("  facet normal 0 0 1\n    outer loop\n");
+            for (int j = 0; j < 3; j++)
+                ascii.append("      vertex ").append(i).append(' ').append(j * 0.25F).append(" -").append(i % 7).append('\n');
+            ascii.append("    endloop\n  endfacet\n");
+        }
+        ascii.append("endsolid generated\n");
+        
+        File file = File.createTempFile("parallel", ".stl");
+        file.deleteOnExit();
+        Files.write(file.toPath(), ascii.toString().getBytes(StandardCharsets.US_ASCII));
+        
+        STLModel sequential = new DeserializerSTL().fromFile(file);
+        for (int chunks : new int[] {1, 3, 16, 1000}) {
+            STLModel parallel = new DeserializerSTL().fromFileParallel(file, chunks);
+            assertEquals(sequential.getHeader(), parallel.getHeader());
+            assertEquals(sequential.getTriangles().toString(), parallel.getTriangles().toString());
+        }
+    }
+    
+    @Test
+    public void parallelSplitsAcrossLongLines() throws Exception {
+        // chunk boundaries fall into lines which are longer than the windows in which facets are searched
+        char[] padding = new char[200_000];
+        Arrays.fill(padding, ' ');
+        StringBuilder ascii = new StringBuilder("solid padded\n");
+        for (int i = 0; i < 4; i++)
+            ascii.append("facet normal 0 0 1\nouter loop\nvertex ").append(i).append(padding).append(" 0 0\n")
+                .append("vertex 1 0 0\nvertex 0 1 0\nendloop\nendfacet\n");
+        ascii.append("endsolid padded\n");
+        
+        File file = File.createTempFile("padded", ".stl");
+        file.deleteOnExit();
+        Files.write(file.toPath(), ascii.toString().getBytes(StandardCharsets.US_ASCII));
+        
+        STLModel sequential = new DeserializerSTL().fromFile(file);
+        STLModel parallel = new DeserializerSTL().fromFileParallel(file, 6);
+        assertEquals(4, parallel.size());
+        assertEquals(sequential.getTriangles().toString(), parallel.getTriangles().toString());
+    }
+    
+    @Test
+    public void parallelReportsAbsoluteLine() throws Exception {
+        StringBuilder ascii = new StringBuilder("solid broken\n");
+        for (int i = 0; i < 100; i++)
+            ascii.append("facet\nouter loop\nvertex 0 0 0\nvertex 1 0 0\nvertex 0 1 0\nendloop\nendfacet\n");
+        ascii.append("facet\nouter loop\nvertex 0 0 0\nendloop\nendfacet\nendsolid\n");
+        
+        File file = File.createTempFile("broken", ".stl");
+        file.deleteOnExit();
+        Files.write(file.toPath(), ascii.toString().getBytes(StandardCharsets.US_ASCII));
+        
+        try {
+            new DeserializerSTL().fromFileParallel(file, 8);
+            fail();
+        } catch (FileSyntaxException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("line " + (1 + 100 * 7 + 4) + ":"));
+        }
+    }
+    
+    @Test
+    public void parallelMatchesSequentialBinary() throws Exception {
+        File file = new File(getClass().getClassLoader().getResource("debug.stl").toURI());
+        STLModel sequential = new DeserializerSTL().fromFile(file);
+        STLModel parallel = new DeserializerSTL().fromFileParallel(file, 7);
+        
+        assertEquals(sequential.getHeader(), parallel.getHeader());
+        assertEquals(sequential.getTriangles().toString(), parallel.getTriangles().toString());
+    }
+    
 }
@@ -0,0 +1,56 @@
+package eisenwave.torrens.stl;
+
+import eisenwave.torrens.object.BoundingBox6f;
+import eisenwave.torrens.object.Vertex3f;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class STLModelTest {
+    
+    @Test
+    public void packedStorage() {
+        STLModel model = new STLModel("test", 1);
+        model.add(new float[] {0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1, 0}, (short) 7);
+        model.add(new STLTriangle(new Vertex3f(0, 0, 1),
+            new Vertex3f(-1, 2, 3), new Vertex3f(4, -5, 6), new Vertex3f(7, 8, -9), (short) 3));
+        
+        assertEquals(2, model.size());
+        assertEquals(7, model.getAttribute(0));
+        assertEquals(3, model.getTriangles().get(1).getAttribute());
+        assertEquals(-5, model.getTriangles().get(1).getB().getY(), 0);
+        
+        float[] triangle = new float[STLModel.FLOATS_PER_TRIANGLE];
+        model.getTriangle(1, triangle, 0);
+        assertEquals(-9, triangle[11], 0);
+        
+        BoundingBox6f bounds = model.getBoundaries();
+        assertEquals(-1, bounds.getMinX(), 0);
+        assertEquals(-5, bounds.getMinY(), 0);
+        assertEquals(-9, bounds.getMinZ(), 0);
+        assertEquals(7, bounds.getMaxX(), 0);
+        assertEquals(8, bounds.getMaxY(), 0);
+        assertEquals(6, bounds.getMaxZ(), 0);
+    }
+    
+    @Test
+    public void serializeRoundTrip() throws Exception {
+        STLModel model = new STLModel("round trip");
+        float[] triangle = new float[STLModel.FLOATS_PER_TRIANGLE];
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < triangle.length; j++)
+                triangle[j] = i * j;
+            model.add(triangle, (short) i);
+        }
+        
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new SerializerSTL().toStream(model, stream);
+        STLModel result = new DeserializerSTL().fromBytes(stream.toByteArray());
+        
+        assertEquals(model.size(), result.size());
+        assertEquals(model.getTriangles().toString(), result.getTriangles().toString());
+    }
+    
+}
@@ -0,0 +1,115 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.util.ColorMath;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BitVoxelGridTest {
+    
+    private static BitVoxelGrid randomGrid(int x, int y, int z, long seed) {
+        Random random = new Random(seed);
+        BitVoxelGrid grid = new BitVoxelGrid(x, y, z);
+        for (int k = 0; k < z; k++)
+            for (int j = 0; j < y; j++)
+                for (int i = 0; i < x; i++)
+                    grid.set(i, j, k, random.nextInt(3) == 0);
+        return grid;
+    }
+    
+    @Test
+    public void setAndContains() {
+        BitVoxelGrid grid = new BitVoxelGrid(5, 7, 3);
+        grid.set(4, 6, 2);
+        grid.set(0, 0, 0);
+        grid.set(1, 2, 1);
+        grid.remove(1, 2, 1);
+        
+        assertTrue(grid.contains(4, 6, 2));
+        assertTrue(grid.contains(0, 0, 0));
+        assertFalse(grid.contains(1, 2, 1));
+        assertEquals(2, grid.size());
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsOutOfBounds() {
+        new BitVoxelGrid(4, 4, 4).contains(4, 0, 0);
+    }
+    
+    @Test
+    public void fillAndInvertKeepTailClear() {
+        BitVoxelGrid grid = new BitVoxelGrid(3, 5, 7);
+        grid.fill();
+        assertEquals(grid.getVolume(), grid.size());
+        
+        grid.invert();
+        assertTrue(grid.isEmpty());
+        grid.invert();
+        assertEquals(grid.getVolume(), grid.size());
+    }
+    
+    @Test
+    public void setOperations() {
+        // large enough to be processed in parallel blocks
+        BitVoxelGrid a = randomGrid(100, 60, 50, 1), b = randomGrid(100, 60, 50, 2);
+        BitVoxelGrid union = a.clone(), intersection = a.clone(), difference = a.clone();
+        union.union(b);
+        intersection.intersect(b);
+        difference.subtract(b);
+        
+        for (int z = 0; z < 50; z++)
+            for (int y = 0; y < 60; y++)
+                for (int x = 0; x < 100; x++) {
+                    boolean p = a.contains(x, y, z), q = b.contains(x, y, z);
+                    assertEquals(p || q, union.contains(x, y, z));
+                    assertEquals(p && q, intersection.contains(x, y, z));
+                    assertEquals(p && !q, difference.contains(x, y, z));
+                }
+        
+        assertEquals(union.size(), a.size() + b.size() - intersection.size());
+        assertEquals(a.size() - intersection.size(), difference.size());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSizeMismatch() {
+        new BitVoxelGrid(2, 2, 2).union(new BitVoxelGrid(2, 2, 3));
+    }
+    
+    @Test
+    public void convertsVoxelArrays() {
+        VoxelArray voxels = new VoxelArray(6, 5, 4);
+        voxels.setRGB(1, 2, 3, ColorMath.SOLID_WHITE);
+        voxels.setRGB(5, 4, 0, ColorMath.SOLID_WHITE);
+        
+        BitVoxelGrid grid = new BitVoxelGrid(voxels);
+        assertEquals(2, grid.size());
+        assertTrue(grid.contains(1, 2, 3));
+        assertEquals(voxels, grid.toVoxelArray(ColorMath.SOLID_WHITE));
+    }
+    
+    @Test
+    public void binvoxRoundTrip() throws Exception {
+        BitVoxelGrid grid = randomGrid(9, 4, 6, 3);
+        for (boolean compression : new boolean[] {true, false}) {
+            byte[] bytes = new SerializerBINVOX(compression).toBytes(grid);
+            
+            assertEquals(grid, new DeserializerBINVOX().gridFromBuffer(ByteBuffer.wrap(bytes)));
+            assertEquals(grid, new DeserializerBINVOX().gridFromStream(new ByteArrayInputStream(bytes)));
+            assertEquals(grid.toVoxelArray(ColorMath.SOLID_WHITE), new DeserializerBINVOX().fromBytes(bytes));
+        }
+    }
+    
+    @Test
+    public void binvoxGridMatchesGenericEncoding() throws Exception {
+        BitVoxelGrid grid = randomGrid(7, 8, 3, 4);
+        byte[] direct = new SerializerBINVOX().toBytes(grid);
+        byte[] generic = new SerializerBINVOX().toBytes(grid.toVoxelArray(ColorMath.SOLID_WHITE));
+        
+        assertArrayEquals(generic, direct);
+    }
+    
+}
@@ -0,0 +1,105 @@
+package eisenwave.torrens.voxel;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DeserializerQBTest {
+    
+    @Test
+    public void bufferEqualsStream() throws Exception {
+        Random random = new Random(1);
+        VoxelArray voxels = new VoxelArray(5, 6, 7);
+        voxels.forEachPosition((x, y, z) -> {
+            if (random.nextBoolean())
+                voxels.setRGB(x, y, z, random.nextInt() | 0xFF_000000);
+        });
+        
+        byte[] bytes = new SerializerQB().toBytes(new QBModel("matrix", voxels));
+        QBModel streamed = new DeserializerQB().fromStream(new ByteArrayInputStream(bytes));
+        QBModel buffered = new DeserializerQB().fromBytes(bytes);
+        
+        assertEquals(voxels, streamed.getMatrices()[0].getVoxels());
+        assertEquals(voxels, buffered.getMatrices()[0].getVoxels());
+    }
+    
+    @Test
+    public void parallelEqualsSequential() throws Exception {
+        Random random = new Random(2);
+        QBModel model = new QBModel();
+        for (int i = 0; i < 6; i++) {
+            VoxelArray voxels = new VoxelArray(1 + random.nextInt(8), 1 + random.nextInt(8), 1 + random.nextInt(8));
+            voxels.forEachPosition((x, y, z) -> {
+                if (random.nextBoolean())
+                    voxels.setRGB(x, y, z, random.nextInt() | 0xFF_000000);
+            });
+            model.add(new QBMatrix("matrix" + i, i, -i, 2 * i, voxels));
+        }
+        
+        File file = File.createTempFile("parallel", ".qb");
+        file.deleteOnExit();
+        new SerializerQB().toFile(model, file);
+        
+        QBModel sequential = new DeserializerQB().fromFile(file);
+        QBModel parallel = new DeserializerQB().fromFileParallel(file);
+        assertMatricesEqual(sequential, parallel);
+        assertMatricesEqual(model, parallel);
+    }
+    
+    @Test
+    public void decodesCompressedRuns() throws Exception {
+        // a single 3x2x2 matrix, compressed, z-axis oriented right
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        buffer.putInt(SerializerQB.CURRENT_VERSION)
+            .putInt(SerializerQB.COLOR_FORMAT_RGBA)
+            .putInt(SerializerQB.Z_ORIENT_RIGHT);
+        buffer.order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(SerializerQB.COMPRESSED)
+            .putInt(SerializerQB.VIS_MASK_UNENCODED)
+            .putInt(1);
+        buffer.put((byte) 1).put((byte) 'm')
+            .putInt(3).putInt(2).putInt(2)
+            .putInt(0).putInt(0).putInt(0);
+        
+        // first slice: a run of 4 red voxels followed by two single blue voxels
+        buffer.putInt(SerializerQB.CODEFLAG).putInt(4).putInt(Integer.reverseBytes(0xFF0000FF))
+            .putInt(Integer.reverseBytes(0x0000FFFF))
+            .putInt(Integer.reverseBytes(0x0000FFFF))
+            .putInt(SerializerQB.NEXTSLICEFLAG);
+        // second slice: a single run of 6 green voxels
+        buffer.putInt(SerializerQB.CODEFLAG).putInt(6).putInt(Integer.reverseBytes(0x00FF00FF))
+            .putInt(SerializerQB.NEXTSLICEFLAG);
+        
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+        
+        VoxelArray expected = new VoxelArray(3, 2, 2);
+        expected.forEachPosition((x, y, z) -> {
+            int index = y * 3 + x;
+            expected.setRGB(x, y, z, z == 0? 0xFF_00FF00 : index < 4? 0xFF_FF0000 : 0xFF_0000FF);
+        });
+        
+        assertEquals(expected, new DeserializerQB().fromStream(new ByteArrayInputStream(bytes)).getMatrices()[0].getVoxels());
+        assertEquals(expected, new DeserializerQB().fromBytes(bytes).getMatrices()[0].getVoxels());
+        assertEquals(expected, new DeserializerQB().fromBufferParallel(ByteBuffer.wrap(bytes)).getMatrices()[0].getVoxels());
+    }
+    
+    private static void assertMatricesEqual(QBModel expected, QBModel actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            QBMatrix a = expected.getMatrices()[i], b = actual.getMatrices()[i];
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getPosition(), b.getPosition());
+            assertEquals(a.getVoxels(), b.getVoxels());
+        }
+    }
+    
+}
@@ -0,0 +1,75 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.img.Texture;
+import eisenwave.torrens.object.Vertex2f;
+import eisenwave.torrens.object.Vertex3f;
+import eisenwave.torrens.stl.STLModel;
+import eisenwave.torrens.util.ColorMath;
+import eisenwave.torrens.wavefront.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MeshVoxelizerTest {
+    
+    @Test
+    public void voxelizeSTL() throws Exception {
+        VoxelArray cube = new VoxelArray(20, 20, 20);
+        cube.fill(ColorMath.SOLID_RED);
+        STLModel model = new VoxelMesher().toSTL(cube);
+        
+        VoxelArray array = new MeshVoxelizer(20).toVoxelArray(model);
+        assertEquals(20, array.getSizeX());
+        assertEquals(20, array.getSizeY());
+        assertEquals(20, array.getSizeZ());
+        
+        // the surface of the cube is hit, the interior is not
+        assertTrue(array.contains(0, 10, 10));
+        assertTrue(array.contains(19, 19, 19));
+        assertFalse(array.contains(10, 10, 10));
+        assertEquals(ColorMath.SOLID_RED, array.getRGB(0, 0, 0));
+        
+        SparseVoxelArray sparse = new MeshVoxelizer(20).toSparseArray(model);
+        assertEquals(array.size(), sparse.size());
+        assertEquals(array, sparse.toVoxelArray());
+    }
+    
+    @Test
+    public void voxelizeOBJ() throws Exception {
+        OBJModel model = new OBJModel();
+        model.addVertex(new Vertex3f(0, 0, 0));
+        model.addVertex(new Vertex3f(8, 0, 0));
+        model.addVertex(new Vertex3f(8, 8, 0));
+        model.addVertex(new Vertex3f(0, 8, 0));
+        model.addTexture(new Vertex2f(0, 0));
+        model.addTexture(new Vertex2f(1, 0));
+        model.addTexture(new Vertex2f(1, 1));
+        model.addTexture(new Vertex2f(0, 1));
+        
+        // left half red, right half blue
+        Texture texture = Texture.alloc(2, 1);
+        texture.set(0, 0, ColorMath.SOLID_RED);
+        texture.set(1, 0, ColorMath.SOLID_BLUE);
+        
+        MTLLibrary library = new MTLLibrary("test.mtl");
+        MTLMaterial material = new MTLMaterial(library, "mat");
+        material.setDiffuseMap("test.png");
+        library.addMaterial(material);
+        library.addMap("test.png", texture);
+        model.setMaterials(library);
+        
+        OBJGroup group = model.getDefaultGroup();
+        group.setMaterial("mat");
+        group.addFace(new OBJFace(
+            new OBJTriplet(1, 1, 0), new OBJTriplet(2, 2, 0), new OBJTriplet(3, 3, 0), new OBJTriplet(4, 4, 0)));
+        
+        VoxelArray array = new MeshVoxelizer(8).toVoxelArray(model);
+        assertEquals(8, array.getSizeX());
+        assertEquals(8, array.getSizeY());
+        assertEquals(1, array.getSizeZ());
+        assertEquals(64, array.size());
+        assertEquals(ColorMath.SOLID_RED, array.getRGB(1, 4, 0));
+        assertEquals(ColorMath.SOLID_BLUE, array.getRGB(6, 4, 0));
+    }
+    
+}
@@ -0,0 +1,84 @@
+package eisenwave.torrens.voxel;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SerializerQBTest {
+    
+    private static QBModel randomModel(long seed) {
+        Random random = new Random(seed);
+        QBModel model = new QBModel();
+        for (int i = 0; i < 5; i++) {
+            VoxelArray voxels = new VoxelArray(1 + random.nextInt(10), 1 + random.nextInt(10), 1 + random.nextInt(10));
+            // mostly air with a few runs of equal colors
+            int color = random.nextInt() | 0xFF_000000;
+            voxels.forEachPosition((x, y, z) -> {
+                if (random.nextInt(4) == 0)
+                    voxels.setRGB(x, y, z, random.nextBoolean()? color : random.nextInt() | 0xFF_000000);
+            });
+            model.add(new QBMatrix("matrix" + i, i, 2 * i, -i, voxels));
+        }
+        return model;
+    }
+    
+    private static void assertModelsEqual(QBModel expected, QBModel actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            QBMatrix a = expected.getMatrices()[i], b = actual.getMatrices()[i];
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getPosition(), b.getPosition());
+            assertEquals(a.getVoxels(), b.getVoxels());
+        }
+    }
+    
+    @Test
+    public void compressedRoundTrip() throws Exception {
+        QBModel model = randomModel(1);
+        byte[] bytes = new SerializerQB(true).toBytes(model);
+        
+        assertModelsEqual(model, new DeserializerQB().fromBytes(bytes));
+        assertModelsEqual(model, new DeserializerQB().fromStream(new ByteArrayInputStream(bytes)));
+        assertModelsEqual(model, new DeserializerQB().fromBufferParallel(ByteBuffer.wrap(bytes)));
+    }
+    
+    @Test
+    public void parallelEqualsSequential() throws Exception {
+        QBModel model = randomModel(2);
+        byte[] sequential = new SerializerQB(true).toBytes(model);
+        byte[] parallel = new SerializerQB(null, true, true).toBytes(model);
+        
+        assertArrayEquals(sequential, parallel);
+    }
+    
+    @Test
+    public void compressionShrinksAir() throws Exception {
+        VoxelArray voxels = new VoxelArray(32, 32, 32);
+        voxels.setRGB(1, 2, 3, 0xFF_123456);
+        QBModel model = new QBModel("air", voxels);
+        
+        byte[] uncompressed = new SerializerQB(false).toBytes(model);
+        byte[] compressed = new SerializerQB(true).toBytes(model);
+        
+        assertTrue(compressed.length * 10 < uncompressed.length);
+        assertEquals(voxels, new DeserializerQB().fromBytes(compressed).getMatrices()[0].getVoxels());
+    }
+    
+    @Test
+    public void colorsResemblingFlags() throws Exception {
+        // these colors are encoded as words which equal the CODEFLAG and NEXTSLICEFLAG
+        VoxelArray voxels = new VoxelArray(3, 1, 1);
+        voxels.setRGB(0, 0, 0, 0x00_020000);
+        voxels.setRGB(1, 0, 0, 0x00_060000);
+        voxels.setRGB(2, 0, 0, 0xFF_FFFFFF);
+        QBModel model = new QBModel("flags", voxels);
+        
+        byte[] bytes = new SerializerQB(true).toBytes(model);
+        assertEquals(voxels, new DeserializerQB().fromBytes(bytes).getMatrices()[0].getVoxels());
+    }
+    
+}
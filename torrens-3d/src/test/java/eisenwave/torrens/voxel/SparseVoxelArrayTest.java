@@ -0,0 +1,89 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.util.ColorMath;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SparseVoxelArrayTest {
+    
+    @Test
+    public void setRGB() throws Exception {
+        SparseVoxelArray array = new SparseVoxelArray(40, 20, 33);
+        assertEquals(0, array.size());
+        
+        array.setRGB(39, 19, 32, ColorMath.SOLID_RED);
+        array.setRGB(0, 0, 0, ColorMath.SOLID_RED);
+        
+        assertEquals(ColorMath.SOLID_RED, array.getRGB(39, 19, 32));
+        assertEquals(ColorMath.INVISIBLE_BLACK, array.getRGB(38, 19, 32));
+        assertEquals(2, array.size());
+        
+        array.remove(0, 0, 0);
+        assertFalse(array.contains(0, 0, 0));
+        assertEquals(1, array.size());
+    }
+    
+    @Test
+    public void fill() throws Exception {
+        SparseVoxelArray array = new SparseVoxelArray(17, 5, 31);
+        array.fill(ColorMath.SOLID_RED);
+        assertEquals(array.getVolume(), array.size());
+        
+        array.setRGB(16, 4, 30, ColorMath.INVISIBLE_WHITE);
+        assertEquals(array.getVolume() - 1, array.size());
+    }
+    
+    @Test
+    public void convertVoxelArray() throws Exception {
+        VoxelArray expected = new VoxelArray(37, 19, 21);
+        Random random = new Random(3);
+        expected.forEachPosition((x, y, z) -> {
+            if (z < 16)
+                expected.setRGB(x, y, z, random.nextInt(4) == 0? ColorMath.SOLID_RED : ColorMath.INVISIBLE_BLACK);
+            else
+                expected.setRGB(x, y, z, ColorMath.random(true));
+        });
+        
+        SparseVoxelArray sparse = new SparseVoxelArray(expected);
+        assertEquals(expected.size(), sparse.size());
+        assertEquals(expected, sparse.toVoxelArray());
+        
+        sparse.compact();
+        assertEquals(expected, sparse.toVoxelArray());
+    }
+    
+    @Test
+    public void convertVoxelMesh() throws Exception {
+        VoxelArray array = new VoxelArray(20, 20, 20);
+        array.setRGB(3, 4, 5, ColorMath.SOLID_RED);
+        array.setRGB(19, 19, 19, ColorMath.SOLID_RED);
+        
+        VoxelMesh mesh = new SparseVoxelArray(array).toVoxelMesh();
+        assertEquals(2, mesh.size());
+        assertEquals(2, mesh.voxelCount());
+        
+        SparseVoxelArray actual = new SparseVoxelArray(mesh);
+        assertEquals(ColorMath.SOLID_RED, actual.getRGB(3, 4, 5));
+        assertEquals(ColorMath.SOLID_RED, actual.getRGB(19, 19, 19));
+        assertEquals(2, actual.size());
+    }
+    
+    @Test
+    public void copyPaste() throws Exception {
+        SparseVoxelArray array = new SparseVoxelArray(50, 50, 50);
+        array.setRGB(20, 30, 40, ColorMath.SOLID_RED);
+        
+        SparseVoxelArray copy = array.copy(10, 10, 10, 49, 49, 49);
+        assertEquals(ColorMath.SOLID_RED, copy.getRGB(10, 20, 30));
+        assertEquals(1, copy.size());
+        
+        SparseVoxelArray target = new SparseVoxelArray(64, 64, 64);
+        target.paste(copy, 1, 2, 3);
+        assertEquals(ColorMath.SOLID_RED, target.getRGB(11, 22, 33));
+        assertEquals(1, target.size());
+    }
+    
+}
@@ -4,6 +4,7 @@ import eisenwave.torrens.object.BoundingBox6i;
 import eisenwave.torrens.util.ColorMath;
 import org.junit.Test;
 
+import java.util.Iterator;
 import java.util.Random;
 
 import static org.junit.Assert.*;
@@ -62,4 +63,67 @@ public class VoxelArrayTest {
         });
     }
 
+    @Test
+    public void forEachVisibleVoxel() throws Exception {
+        VoxelArray array = new VoxelArray(7, 5, 3);
+        Random random = new Random(1);
+        array.forEachPosition((x, y, z) -> {
+            if (random.nextBoolean())
+                array.setRGB(x, y, z, ColorMath.random(true));
+        });
+        
+        Iterator<VoxelArray.Voxel> iterator = array.iterator();
+        int[] count = {0};
+        array.forEachVisibleVoxel((x, y, z, argb) -> {
+            VoxelArray.Voxel expected = iterator.next();
+            assertEquals(expected.getX(), x);
+            assertEquals(expected.getY(), y);
+            assertEquals(expected.getZ(), z);
+            assertEquals(expected.getRGB(), argb);
+            count[0]++;
+        });
+        
+        assertFalse(iterator.hasNext());
+        assertEquals(array.size(), count[0]);
+    }
+    
+    @Test
+    public void forEachVoxelIndexed() throws Exception {
+        VoxelArray array = new VoxelArray(7, 5, 3);
+        array.forEachPosition((x, y, z) -> array.setRGB(x, y, z, ColorMath.random(true)));
+        
+        int[] next = {0};
+        array.forEachVoxel((index, argb) -> {
+            assertEquals(next[0]++, index);
+            int x = index % 7, y = index / 7 % 5, z = index / 35;
+            assertEquals(array.getRGB(x, y, z), argb);
+        });
+        
+        assertEquals(array.getVolume(), next[0]);
+    }
+    
+    @Test
+    public void parallelStream() throws Exception {
+        VoxelArray array = new VoxelArray(64, 32, 48);
+        Random random = new Random(2);
+        array.forEachPosition((x, y, z) -> {
+            if (random.nextBoolean())
+                array.setRGB(x, y, z, ColorMath.random(true));
+        });
+        
+        int expected = 0;
+        for (VoxelArray.Voxel ignored : array)
+            expected++;
+        
+        assertEquals(expected, array.size());
+        assertEquals(expected, array.parallelStream().count());
+        assertEquals(
+            array.stream().mapToInt(VoxelArray.Voxel::getRGB).sum(),
+            array.parallelStream().mapToInt(VoxelArray.Voxel::getRGB).sum());
+        
+        VoxelMesh mesh = new VoxelMesh(array);
+        mesh.add(64, 0, 0, array.copy(0, 0, 0, 15, 15, 15));
+        assertEquals(mesh.voxelCount(), mesh.parallelVoxels().count());
+    }
+    
 }
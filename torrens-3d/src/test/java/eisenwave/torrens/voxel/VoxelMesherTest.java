@@ -0,0 +1,58 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.stl.STLModel;
+import eisenwave.torrens.util.ColorMath;
+import eisenwave.torrens.wavefront.OBJModel;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VoxelMesherTest {
+    
+    @Test
+    public void meshCuboid() throws Exception {
+        VoxelArray array = new VoxelArray(4, 5, 6);
+        array.fill(ColorMath.SOLID_RED);
+        
+        int[] quads = {0}, area = {0};
+        new VoxelMesher().mesh(array, (face, x, y, z, w, h, argb) -> {
+            assertEquals(ColorMath.SOLID_RED, argb);
+            quads[0]++;
+            area[0] += w * h;
+        });
+        
+        assertEquals(6, quads[0]);
+        assertEquals(2 * (4 * 5 + 5 * 6 + 4 * 6), area[0]);
+    }
+    
+    @Test
+    public void meshColors() throws Exception {
+        VoxelArray array = new VoxelArray(2, 1, 1);
+        array.setRGB(0, 0, 0, ColorMath.SOLID_RED);
+        array.setRGB(1, 0, 0, ColorMath.SOLID_WHITE);
+        
+        // the faces of differently colored voxels are not merged and the faces between them are culled
+        STLModel stl = new VoxelMesher().toSTL(array);
+        assertEquals(2 * 10, stl.size());
+        
+        OBJModel obj = new VoxelMesher().toOBJ(array, "test");
+        assertEquals(10 * 4, obj.getVertexCount());
+        assertEquals(2, obj.getTextureVertexCount());
+        assertEquals(10, obj.getDefaultGroup().getFaceCount());
+        assertNotNull(obj.getMaterials());
+        assertNotNull(obj.getMaterials().getMap("test.png"));
+    }
+    
+    @Test
+    public void meshHollow() throws Exception {
+        VoxelArray array = new VoxelArray(3, 3, 3);
+        array.fill(ColorMath.SOLID_RED);
+        array.remove(1, 1, 1);
+        
+        int[] area = {0};
+        new VoxelMesher().mesh(new VoxelMesh(array), (face, x, y, z, w, h, argb) -> area[0] += w * h);
+        
+        assertEquals(6 * 9 + 6, area[0]);
+    }
+    
+}
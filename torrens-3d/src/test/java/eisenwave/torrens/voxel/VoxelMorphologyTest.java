@@ -0,0 +1,90 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.util.ColorMath;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VoxelMorphologyTest {
+    
+    private final static int SX = 11, SY = 7, SZ = 9;
+    
+    private static BitVoxelGrid randomGrid(long seed, int percent) {
+        Random random = new Random(seed);
+        BitVoxelGrid grid = new BitVoxelGrid(SX, SY, SZ);
+        for (int z = 0; z < SZ; z++)
+            for (int y = 0; y < SY; y++)
+                for (int x = 0; x < SX; x++)
+                    grid.set(x, y, z, random.nextInt(100) < percent);
+        return grid;
+    }
+    
+    private static boolean containsSafe(BitArray3 array, int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 &&
+            x < array.getSizeX() && y < array.getSizeY() && z < array.getSizeZ() &&
+            array.contains(x, y, z);
+    }
+    
+    @Test
+    public void dilateMatchesBruteForce() {
+        BitVoxelGrid grid = randomGrid(1, 5);
+        for (int r = 0; r <= 2; r++) {
+            BitVoxelGrid dilated = VoxelMorphology.dilate(grid, r);
+            for (int z = 0; z < SZ; z++) for (int y = 0; y < SY; y++) for (int x = 0; x < SX; x++) {
+                boolean expected = false;
+                for (int k = -r; k <= r; k++) for (int j = -r; j <= r; j++) for (int i = -r; i <= r; i++)
+                    expected |= containsSafe(grid, x + i, y + j, z + k);
+                assertEquals(expected, dilated.contains(x, y, z));
+            }
+        }
+    }
+    
+    @Test
+    public void erodeMatchesBruteForce() {
+        BitVoxelGrid grid = randomGrid(2, 90);
+        for (int r = 0; r <= 2; r++) {
+            BitVoxelGrid eroded = VoxelMorphology.erode(grid, r);
+            for (int z = 0; z < SZ; z++) for (int y = 0; y < SY; y++) for (int x = 0; x < SX; x++) {
+                boolean expected = true;
+                for (int k = -r; k <= r; k++) for (int j = -r; j <= r; j++) for (int i = -r; i <= r; i++)
+                    expected &= containsSafe(grid, x + i, y + j, z + k);
+                assertEquals(expected, eroded.contains(x, y, z));
+            }
+        }
+    }
+    
+    @Test
+    public void distanceTransformMatchesBruteForce() {
+        BitVoxelGrid grid = randomGrid(3, 85);
+        int[] distances = VoxelMorphology.squaredDistanceTransform(grid);
+        
+        for (int z = 0, index = 0; z < SZ; z++) for (int y = 0; y < SY; y++) for (int x = 0; x < SX; x++, index++) {
+            int expected = Integer.MAX_VALUE;
+            // the nearest empty position may lie one step outside the array
+            for (int k = -1; k <= SZ; k++) for (int j = -1; j <= SY; j++) for (int i = -1; i <= SX; i++)
+                if (!containsSafe(grid, i, j, k)) {
+                    int dx = x - i, dy = y - j, dz = z - k;
+                    expected = Math.min(expected, dx * dx + dy * dy + dz * dz);
+                }
+            assertEquals(expected, distances[index]);
+        }
+    }
+    
+    @Test
+    public void hollowSolidCube() {
+        VoxelArray cube = new VoxelArray(8, 8, 8);
+        cube.fill(ColorMath.SOLID_WHITE);
+        
+        VoxelArray hollow = VoxelMorphology.hollow(cube, 2);
+        assertEquals(8 * 8 * 8 - 4 * 4 * 4, hollow.size());
+        assertTrue(hollow.contains(1, 1, 1));
+        assertFalse(hollow.contains(2, 2, 2));
+        assertEquals(ColorMath.SOLID_WHITE, hollow.getRGB(0, 3, 4));
+        
+        BitVoxelGrid shell = VoxelMorphology.shell(cube, 1);
+        assertEquals(8 * 8 * 8 - 6 * 6 * 6, shell.size());
+    }
+    
+}
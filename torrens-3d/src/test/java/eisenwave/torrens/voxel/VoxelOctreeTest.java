@@ -0,0 +1,124 @@
+package eisenwave.torrens.voxel;
+
+import eisenwave.torrens.error.FileSyntaxException;
+import eisenwave.torrens.io.LittleDataOutputStream;
+import eisenwave.torrens.object.BoundingBox6i;
+import eisenwave.torrens.util.ColorMath;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VoxelOctreeTest {
+    
+    private static VoxelArray randomArray(int x, int y, int z) {
+        VoxelArray array = new VoxelArray(x, y, z);
+        Random random = new Random(4);
+        array.forEachPosition((vx, vy, vz) -> {
+            if (random.nextInt(3) == 0)
+                array.setRGB(vx, vy, vz, ColorMath.random(false));
+        });
+        return array;
+    }
+    
+    @Test
+    public void build() throws Exception {
+        VoxelArray expected = randomArray(21, 9, 13);
+        VoxelOctree octree = new VoxelOctree(expected);
+        
+        assertEquals(5, octree.getDepth());
+        assertEquals(1, octree.getNodeCount(0));
+        assertEquals(expected.size(), octree.size());
+        assertEquals(expected, octree.toVoxelArray());
+        
+        expected.forEachVoxel((x, y, z, argb) -> assertEquals(argb, octree.getRGB(x, y, z)));
+    }
+    
+    @Test
+    public void levelOfDetail() throws Exception {
+        VoxelArray array = new VoxelArray(8, 8, 5);
+        array.fill(ColorMath.SOLID_RED);
+        VoxelOctree octree = new VoxelOctree(array);
+        
+        VoxelArray lod = octree.toVoxelArray(2);
+        assertEquals(4, lod.getSizeX());
+        assertEquals(4, lod.getSizeY());
+        assertEquals(3, lod.getSizeZ());
+        assertEquals(lod.getVolume(), lod.size());
+        assertEquals(ColorMath.SOLID_RED, lod.getRGB(3, 3, 2));
+        assertEquals(ColorMath.SOLID_RED, octree.getRGB(0, 0, 0, 0));
+    }
+    
+    @Test
+    public void boxQuery() throws Exception {
+        VoxelArray array = randomArray(30, 20, 10);
+        VoxelOctree octree = new VoxelOctree(array);
+        BoundingBox6i box = new BoundingBox6i(3, 5, 2, 17, 19, 6);
+        
+        int[] expected = {0};
+        array.forEachVisibleVoxel((x, y, z, argb) -> {
+            if (x >= 3 && x <= 17 && y >= 5 && z >= 2 && z <= 6) expected[0]++;
+        });
+        
+        int[] actual = {0};
+        octree.forEachVoxel(box, (x, y, z, argb) -> {
+            assertEquals(array.getRGB(x, y, z), argb);
+            actual[0]++;
+        });
+        
+        assertEquals(expected[0], actual[0]);
+        assertTrue(octree.containsAny(box));
+        assertFalse(new VoxelOctree(new VoxelArray(4, 4, 4)).containsAny(box));
+    }
+    
+    @Test
+    public void serialize() throws Exception {
+        VoxelArray array = randomArray(17, 3, 40);
+        VoxelOctree expected = new VoxelOctree(array);
+        
+        byte[] bytes = new SerializerSVO().toBytes(expected);
+        VoxelOctree actual = new DeserializerSVO().fromBytes(bytes);
+        
+        assertEquals(expected.size(), actual.size());
+        assertEquals(array, actual.toVoxelArray());
+        assertEquals(expected.toVoxelArray(3), actual.toVoxelArray(3));
+    }
+    
+    @Test(expected = FileSyntaxException.class)
+    public void rejectsEmptyChildMask() throws Exception {
+        // the root has two children, but the second one has no children of its own
+        readSVO(4, 1, 0b11, 0b1, 0);
+    }
+    
+    @Test(expected = FileSyntaxException.class)
+    public void rejectsNodeOutsideOfDimensions() throws Exception {
+        // the last octant of the last octant is (3, 3, 3), which lies outside of a 3x3x3 array
+        readSVO(3, 1, 0b10000000, 0b10000000);
+    }
+    
+    @Test(expected = FileSyntaxException.class)
+    public void rejectsMoreNodesThanVoxels() throws Exception {
+        readSVO(4, 1, 0xFF);
+    }
+    
+    /**
+     * Reads an SVO file of a cube with the given size, voxel count and child masks, with opaque black leaves.
+     */
+    private static void readSVO(int size, int voxels, int... masks) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LittleDataOutputStream stream = new LittleDataOutputStream(bytes);
+        stream.write(SerializerSVO.MAGIC);
+        stream.writeByte(SerializerSVO.CURRENT_VERSION);
+        stream.writeLittleInts(new int[] {size, size, size, voxels});
+        for (int mask : masks)
+            stream.writeByte(mask);
+        for (int i = 0; i < voxels; i++)
+            stream.writeLittleInt(0xFF000000);
+        stream.flush();
+        
+        new DeserializerSVO().fromBytes(bytes.toByteArray());
+    }
+    
+}
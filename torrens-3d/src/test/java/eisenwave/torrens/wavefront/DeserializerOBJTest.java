@@ -1,13 +1,18 @@
 package eisenwave.torrens.wavefront;
 
+import eisenwave.torrens.error.FileSyntaxException;
 import eisenwave.torrens.wavefront.DeserializerOBJ;
 import eisenwave.torrens.wavefront.OBJModel;
 import org.junit.Test;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static org.junit.Assert.*;
+
 public class DeserializerOBJTest {
     
     @Test
@@ -22,4 +27,185 @@ public class DeserializerOBJTest {
         System.out.println(model);
     }
     
+    @Test
+    public void tokenizesInPlace() throws Exception {
+        StringBuilder text = new StringBuilder("# comment\r\n");
+        text.append("v 0 0 0\r\nv\t1.5  0 0\nv 1 1 -2.5e1\n\n");
+        text.append("vt 0.25 0.75\nvn 0 0 2\n");
+        text.append("g cube\n   f 1/1/1 2//1 3\n");
+        text.append("f -3 -2/-1 -1//-1");
+        // force the buffer to be refilled in the middle of a line
+        for (int i = 0; i < 5000; i++)
+            text.append("\nv ").append(i).append(".125 0 0");
+        
+        OBJModel model = new DeserializerOBJ(new OBJModel(), null).fromString(text.toString());
+        assertEquals(5003, model.getVertexCount());
+        assertEquals(1.5F, model.getVertex(2).getX(), 0);
+        assertEquals(-25F, model.getVertex(3).getZ(), 0);
+        assertEquals(4999.125F, model.getVertex(5003).getX(), 0);
+        assertEquals(1F, model.getNormal(1).getZ(), 0);
+        
+        OBJGroup group = model.getGroups().stream().filter(g -> g.getName().equals("cube")).findAny().get();
+        assertEquals(2, group.getFaceCount());
+        assertEquals("1/1/1 2//1 3", faceString(group.getFace(0)));
+        assertEquals("1 2/1 3//1", faceString(group.getFace(1)));
+    }
+    
+    @Test
+    public void readsAllLineTerminators() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++)
+            text.append("v ").append(i).append(" 0 0").append(i % 3 == 0? "\r" : i % 3 == 1? "\r\n" : "\n");
+        text.append("v 0 x 0\r");
+        File file = tempFile(text.toString());
+        
+        for (int chunks = 1; chunks <= 7; chunks += 3) {
+            try {
+                new DeserializerOBJ(new OBJModel(), null).fromFileParallel(file, chunks);
+                fail();
+            } catch (FileSyntaxException ex) {
+                assertEquals("line 3001", ex.getMessage());
+            }
+        }
+        try {
+            new DeserializerOBJ(new OBJModel(), null).fromString(text.toString());
+            fail();
+        } catch (FileSyntaxException ex) {
+            assertEquals("line 3001", ex.getMessage());
+        }
+        
+        text.setLength(text.length() - "v 0 x 0\r".length());
+        OBJModel model = new DeserializerOBJ(new OBJModel(), null).fromString(text.toString());
+        assertEquals(3000, model.getVertexCount());
+        assertEquals(2999F, model.getVertex(3000).getX(), 0);
+    }
+    
+    @Test(expected = FileSyntaxException.class)
+    public void rejectsMalformedFloat() throws Exception {
+        new DeserializerOBJ(new OBJModel(), null).fromString("v 1 2 x");
+    }
+    
+    @Test
+    public void parallelMatchesSequential() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            if (i % 700 == 0)
+                text.append("g group").append(i).append('\n');
+            text.append("v ").append(i).append(" 0.5 -").append(i).append(".25\n");
+            text.append("vt 0.").append(i % 10).append(" 1\n");
+            text.append("vn 0 ").append(i).append(" 1\n");
+            if (i >= 2) {
+                // relative indices which frequently refer to vertices of a previous chunk
+                text.append("f -3/-3/-1 -2/-2 ").append(i + 1).append("//").append(i + 1).append('\n');
+            }
+        }
+        File file = File.createTempFile("torrens", ".obj");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        
+        OBJModel sequential = new DeserializerOBJ(new OBJModel(), null).fromString(text.toString());
+        OBJModel parallel = new DeserializerOBJ(new OBJModel(), null).fromFileParallel(file, 7);
+        
+        assertEquals(sequential.toString(), parallel.toString());
+        for (int i = 1; i <= sequential.getVertexCount(); i++)
+            assertEquals(sequential.getVertex(i).getZ(), parallel.getVertex(i).getZ(), 0);
+        
+        for (OBJGroup group : sequential.getGroups()) {
+            OBJGroup other = parallel.getGroups().stream().filter(g -> g.getName().equals(group.getName()))
+                .findAny().get();
+            assertEquals(group.getFaceCount(), other.getFaceCount());
+            for (int i = 0; i < group.getFaceCount(); i++)
+                assertEquals(faceString(group.getFace(i)), faceString(other.getFace(i)));
+        }
+    }
+    
+    @Test
+    public void parallelReportsAbsoluteLine() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            text.append("v 0 0 0\n");
+        text.append("v 0 x 0\n");
+        File file = File.createTempFile("torrens", ".obj");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        
+        try {
+            new DeserializerOBJ(new OBJModel(), null).fromFileParallel(file, 4);
+            fail();
+        } catch (FileSyntaxException ex) {
+            assertEquals("line 1001", ex.getMessage());
+        }
+    }
+    
+    @Test
+    public void parallelRejectsDegenerateNormal() throws Exception {
+        File file = tempFile("v 0 0 0\nvn 0 0 0\n");
+        
+        try {
+            new DeserializerOBJ(new OBJModel(), null).fromFileParallel(file, 1);
+            fail();
+        } catch (FileSyntaxException ex) {
+            assertEquals("line 2", ex.getMessage());
+        }
+    }
+    
+    @Test
+    public void parallelReportsFaceLine() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            text.append("v 0 0 0\n");
+        for (int i = 0; i < 1000; i++)
+            text.append("f 1 2 3\n");
+        text.append("f 1 2 1001\n");
+        File file = tempFile(text.toString());
+        
+        try {
+            new DeserializerOBJ(new OBJModel(), null).fromFileParallel(file, 4);
+            fail();
+        } catch (FileSyntaxException ex) {
+            assertEquals("line 2001", ex.getMessage());
+        }
+    }
+    
+    @Test
+    public void parallelRejectsForwardReferences() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            text.append("v 0 0 0\n");
+        text.append("f 1 2 1001\nv 1 1 1\n");
+        for (int i = 0; i < 1000; i++)
+            text.append("vn 0 1 0\n");
+        File file = tempFile(text.toString());
+        
+        try {
+            new DeserializerOBJ(new OBJModel(), null).fromString(text.toString());
+            fail();
+        } catch (FileSyntaxException ex) {
+            assertEquals("line 1001", ex.getMessage());
+        }
+        for (int chunks = 1; chunks <= 4; chunks += 3) {
+            try {
+                new DeserializerOBJ(new OBJModel(), null).fromFileParallel(file, chunks);
+                fail();
+            } catch (FileSyntaxException ex) {
+                assertEquals("line 1001", ex.getMessage());
+                assertEquals("v2: 1001", ex.getCause().getMessage());
+            }
+        }
+    }
+    
+    private static File tempFile(String text) throws Exception {
+        File file = File.createTempFile("torrens", ".obj");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+    
+    private static String faceString(OBJFace face) {
+        StringBuilder builder = new StringBuilder();
+        for (OBJTriplet triplet : face)
+            builder.append(builder.length() == 0? "" : " ").append(triplet);
+        return builder.toString();
+    }
+    
 }
@@ -0,0 +1,70 @@
+package eisenwave.torrens.wavefront;
+
+import eisenwave.torrens.object.Vertex3f;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OBJModelTest {
+    
+    @Test
+    public void packedStorage() throws Exception {
+        OBJModel model = new OBJModel();
+        for (int i = 0; i < 1000; i++)
+            model.addVertex(i, -i, i * 2);
+        model.addVertex(new Vertex3f(1, 2, 3));
+        model.addTexture(0.25F, 0.75F);
+        model.addNormal(0, 0, 1);
+        
+        assertEquals(1001, model.getVertexCount());
+        assertEquals(2, model.getVertex(1001).getY(), 0);
+        assertEquals(-500, model.getVertex(501).getY(), 0);
+        assertEquals(0.75F, model.getTexture(1).getY(), 0);
+        
+        float[] xyz = new float[3];
+        model.getVertex(11, xyz, 0);
+        assertArrayEquals(new float[] {10, -10, 20}, xyz, 0);
+        
+        int[] sum = {0};
+        model.forEachVertex((index, x, y, z) -> sum[0] += index);
+        assertEquals(1001 * 1002 / 2, sum[0]);
+    }
+    
+    @Test
+    public void packedFaces() throws Exception {
+        OBJModel model = new OBJModel();
+        for (int i = 0; i < 4; i++)
+            model.addVertex(i, 0, 0);
+        model.addNormal(0, 1, 0);
+        
+        OBJGroup group = model.getDefaultGroup();
+        for (int i = 0; i < 100; i++)
+            group.addFace(new int[] {1, 0, 1, 2, 0, 1, 3, 0, 0, 4, 0, 0}, 0, i % 2 == 0? 3 : 4);
+        group.addFace(new OBJFace(new OBJTriplet(4, 0, 1), new OBJTriplet(3, 0, 0), new OBJTriplet(2, 0, 0)));
+        
+        assertEquals(101, group.getFaceCount());
+        assertEquals(4, group.getFaceSize(99));
+        assertEquals("3", group.getFace(98).getTriplet(2).toString());
+        assertEquals("4//1", group.getFace(100).getTriplet(0).toString());
+        
+        int[] corners = {0};
+        model.forEachFace((g, indices, offset, size) -> {
+            assertSame(group, g);
+            corners[0] += size;
+        });
+        assertEquals(50 * 3 + 50 * 4 + 3, corners[0]);
+        
+        int faces = 0;
+        for (OBJFace ignored : group)
+            faces++;
+        assertEquals(101, faces);
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsInvalidIndex() throws Exception {
+        OBJModel model = new OBJModel();
+        model.addVertex(0, 0, 0);
+        model.getDefaultGroup().addFace(new int[] {1, 0, 0, 2, 0, 0, 1, 0, 0}, 0, 3);
+    }
+    
+}
@@ -3,6 +3,8 @@ package eisenwave.torrens.wavefront;
 import eisenwave.torrens.object.Vertex3f;
 import org.junit.Test;
 
+import java.io.StringWriter;
+
 import static org.junit.Assert.*;
 
 public class SerializerOBJTest {
@@ -23,5 +25,39 @@ public class SerializerOBJTest {
 
         assertNotNull(new SerializerOBJ().toString(model));
     }
-
+    
+    @Test
+    public void roundTrip() throws Exception {
+        OBJModel model = new OBJModel();
+        for (int i = 0; i < 100; i++) {
+            model.addVertex(i / 3F, -i * 1.1F, 1e-5F * i);
+            model.addTexture(i / 100F, 1);
+        }
+        model.addNormal(0, 0, -1);
+        for (int i = 3; i <= 100; i++)
+            model.getDefaultGroup().addFace(new int[] {i - 2, i - 2, 1, i - 1, 0, 1, i, i, 0}, 0, 3);
+        
+        String text = new SerializerOBJ().toString(model);
+        assertTrue(text, text.contains("\nf 1/1/1 2//1 3/3\n"));
+        assertTrue(text, text.contains("\nvn 0 0 -1\n"));
+        
+        OBJModel result = new DeserializerOBJ(new OBJModel(), null).fromString(text);
+        assertEquals(model.toString(), result.toString());
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(model.getVertex(i).getX(), result.getVertex(i).getX(), 0);
+            assertEquals(model.getVertex(i).getY(), result.getVertex(i).getY(), 0);
+            assertEquals(model.getVertex(i).getZ(), result.getVertex(i).getZ(), 0);
+        }
+    }
+    
+    @Test
+    public void fixedPrecision() throws Exception {
+        StringWriter writer = new StringWriter();
+        try (OBJWriter out = new OBJWriter(writer, 2)) {
+            out.writeVertex(1 / 3F, 2.5F, -0.001F);
+            out.writeTexture(0.125F, 1);
+        }
+        assertEquals("v 0.33 2.5 0\nvt 0.13 1\n", writer.toString());
+    }
+    
 }
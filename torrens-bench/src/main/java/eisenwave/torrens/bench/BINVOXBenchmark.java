@@ -0,0 +1,37 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.voxel.BitArray3;
+import eisenwave.torrens.voxel.DeserializerBINVOX;
+import eisenwave.torrens.voxel.SerializerBINVOX;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link SerializerBINVOX} and {@link DeserializerBINVOX} with run-length compression.
+ * <p>
+ * The fixture is random noise, resulting in short runs and roughly one byte per voxel.
+ */
+public class BINVOXBenchmark extends CodecBenchmark<BitArray3> {
+    
+    private final static int SAMPLE_SIZE = 32;
+    
+    @Override
+    protected BitArray3 createObject(long size) throws IOException {
+        long sampleBytes = encodedSize(Fixtures.voxels(SAMPLE_SIZE, SAMPLE_SIZE, SAMPLE_SIZE));
+        int side = Fixtures.scale(SAMPLE_SIZE, sampleBytes, size, 3);
+        return Fixtures.voxels(side, side, side);
+    }
+    
+    @Override
+    protected void write(BitArray3 voxels, OutputStream stream) throws IOException {
+        new SerializerBINVOX(true).toStream(voxels, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerBINVOX().fromStream(stream);
+    }
+    
+}
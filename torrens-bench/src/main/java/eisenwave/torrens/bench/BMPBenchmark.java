@@ -0,0 +1,33 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.img.ARGBSerializerBMP;
+import eisenwave.torrens.img.BaseTexture;
+import eisenwave.torrens.img.DeserializerImage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link ARGBSerializerBMP} and {@link DeserializerImage} on 32-bit bitmaps.
+ */
+public class BMPBenchmark extends CodecBenchmark<BaseTexture> {
+    
+    @Override
+    protected BaseTexture createObject(long size) {
+        // four bytes per pixel
+        int side = Fixtures.scale(1, 4, size, 2);
+        return Fixtures.texture(side, side);
+    }
+    
+    @Override
+    protected void write(BaseTexture texture, OutputStream stream) throws IOException {
+        new ARGBSerializerBMP(true).toStream(texture, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerImage().fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,22 @@
+package eisenwave.torrens.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Auxiliary counter which reports the amount of encoded megabytes processed by a benchmark.
+ * <p>
+ * Since JMH normalizes operation counters by time, the secondary result {@code megabytes} of every benchmark is the
+ * throughput in MB/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Bandwidth {
+    
+    public double megabytes;
+    
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+    }
+    
+}
@@ -0,0 +1,92 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.io.VoidOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Level;
+
+import java.io.*;
+
+/**
+ * Base class of benchmarks for a pair of serializer and deserializer. The fixture object is generated and then
+ * encoded once, the encoded data is used for deserialization and the object itself for serialization.
+ *
+ * @param <T> the type of the serialized object
+ */
+public abstract class CodecBenchmark<T> extends DeserializerBenchmark {
+    
+    protected T object;
+    
+    @Override
+    protected final byte[] createFixture(long size) throws IOException {
+        this.object = createObject(size);
+        
+        ByteArrayOutputStream stream = new ByteArrayOutputStream((int) Math.min(size + (size >> 3), Integer.MAX_VALUE - 8));
+        write(object, stream);
+        return stream.toByteArray();
+    }
+    
+    @Override
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        super.tearDown();
+        this.object = null;
+    }
+    
+    @Benchmark
+    public void serialize(Bandwidth bandwidth) throws IOException {
+        // like Serializer.toFile, minus the file system
+        try (OutputStream stream = new BufferedOutputStream(new VoidOutputStream())) {
+            write(object, stream);
+        }
+        bandwidth.megabytes += getDataMegabytes();
+    }
+    
+    /**
+     * Returns the amount of bytes a given object is serialized to.
+     *
+     * @param object the object
+     * @return the encoded size in bytes
+     * @throws IOException if the object can not be serialized
+     */
+    protected long encodedSize(T object) throws IOException {
+        CountingOutputStream stream = new CountingOutputStream();
+        write(object, stream);
+        return stream.count;
+    }
+    
+    /**
+     * Creates the fixture object.
+     *
+     * @param size the approximate size of the object once encoded
+     * @return the fixture object
+     * @throws IOException if a sample of the object used for size estimation can not be serialized
+     */
+    protected abstract T createObject(long size) throws IOException;
+    
+    /**
+     * Serializes an object into a stream.
+     *
+     * @param object the object
+     * @param stream the stream
+     * @throws IOException if an I/O error occurs
+     */
+    protected abstract void write(T object, OutputStream stream) throws IOException;
+    
+    private static class CountingOutputStream extends OutputStream {
+        
+        private long count;
+        
+        @Override
+        public void write(int b) {
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,79 @@
+package eisenwave.torrens.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of all benchmarks. Measures the deserialization of a generated fixture, which is held in memory so that
+ * only parsing is measured and not the file system.
+ * <p>
+ * The fixture sizes are approximations of the {@link #megabytes} parameter, the {@link Bandwidth} counter always uses
+ * the actual size of the encoded data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public abstract class DeserializerBenchmark {
+    
+    public final static int MEGABYTE = 1 << 20;
+    
+    /** The desired size of the encoded fixture in megabytes. */
+    @Param({"1", "64", "512"})
+    public int megabytes;
+    
+    protected byte[] data;
+    private double dataMegabytes;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.data = createFixture((long) megabytes * MEGABYTE);
+        this.dataMegabytes = data.length / (double) MEGABYTE;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.data = null;
+    }
+    
+    @Benchmark
+    public Object deserialize(Bandwidth bandwidth) throws IOException {
+        Object result = read(new ByteArrayInputStream(data));
+        bandwidth.megabytes += dataMegabytes;
+        return result;
+    }
+    
+    /**
+     * Returns the size of the encoded fixture in megabytes.
+     *
+     * @return the size of the fixture in megabytes
+     */
+    protected double getDataMegabytes() {
+        return dataMegabytes;
+    }
+    
+    /**
+     * Creates the encoded fixture.
+     *
+     * @param size the approximate size of the fixture in bytes
+     * @return the encoded fixture
+     * @throws IOException if the fixture can not be encoded
+     */
+    protected abstract byte[] createFixture(long size) throws IOException;
+    
+    /**
+     * Deserializes the fixture from a stream.
+     *
+     * @param stream the stream
+     * @return the deserialized object
+     * @throws IOException if an I/O error occurs
+     */
+    protected abstract Object read(InputStream stream) throws IOException;
+    
+}
@@ -0,0 +1,335 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.img.Texture;
+import eisenwave.torrens.io.LittleDataOutputStream;
+import eisenwave.torrens.object.Vertex2f;
+import eisenwave.torrens.object.Vertex3f;
+import eisenwave.torrens.schematic.BlockKey;
+import eisenwave.torrens.schematic.BlockStructure;
+import eisenwave.torrens.schematic.legacy.ArrayBlockStructure;
+import eisenwave.torrens.stl.STLModel;
+import eisenwave.torrens.stl.STLTriangle;
+import eisenwave.torrens.voxel.VoxelArray;
+import eisenwave.torrens.wavefront.*;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generators for benchmark fixtures.
+ * <p>
+ * All fixtures are pseudo-random with a fixed seed so that repeated runs operate on identical data. Random content
+ * is used so that compressing formats (BINVOX, GIF, gzipped NBT) are not measured in their best case.
+ */
+public final class Fixtures {
+    
+    private final static long SEED = 0x7011E45L;
+    
+    /** a small palette of opaque colors, keeps color tables of formats such as QEF small */
+    private final static int[] PALETTE = {
+        0xFF000000, 0xFFFFFFFF, 0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0xFFFFFF00, 0xFF00FFFF, 0xFFFF00FF,
+        0xFF808080, 0xFF800000, 0xFF008000, 0xFF000080, 0xFF808000, 0xFF008080, 0xFF800080, 0xFFC0C0C0
+    };
+    
+    private Fixtures() {}
+    
+    // UTIL
+    
+    /**
+     * Scales the units of a sample so that the result approximately encodes to a target size.
+     *
+     * @param sampleUnits the units of the sample, such as an edge length or a triangle count
+     * @param sampleBytes the size of the encoded sample
+     * @param targetBytes the target size
+     * @param dimensions the dimensions of the units, e.g. {@code 3} for the edge length of a cube
+     * @return the scaled units
+     */
+    @Contract(pure = true)
+    public static int scale(int sampleUnits, long sampleBytes, long targetBytes, int dimensions) {
+        double factor = Math.pow((double) targetBytes / sampleBytes, 1D / dimensions);
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(sampleUnits * factor)));
+    }
+    
+    // VOXELS
+    
+    /**
+     * Generates voxels of which roughly half are visible and have a color from a small palette.
+     *
+     * @param x the size on the x-axis
+     * @param y the size on the y-axis
+     * @param z the size on the z-axis
+     * @return new voxels
+     */
+    @NotNull
+    public static VoxelArray voxels(int x, int y, int z) {
+        VoxelArray result = new VoxelArray(x, y, z);
+        Random random = new Random(SEED);
+        
+        for (int k = 0; k < z; k++)
+            for (int j = 0; j < y; j++)
+                for (int i = 0; i < x; i++) {
+                    int r = random.nextInt(PALETTE.length * 2);
+                    if (r < PALETTE.length)
+                        result.setRGB(i, j, k, PALETTE[r]);
+                }
+        
+        return result;
+    }
+    
+    /**
+     * Generates a PNX file consisting of a single cubic layer in which every x-slice uses its own PNG image.
+     *
+     * @param size the edge length of the layer
+     * @return the PNX bytes
+     * @throws IOException if the slice images can not be encoded
+     */
+    @NotNull
+    public static byte[] pnx(int size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LittleDataOutputStream stream = new LittleDataOutputStream(bytes);
+        
+        writeLittleInts(stream, size, size, size);
+        stream.writeLittleInt(1); // layers
+        stream.writeLittleInt(size); // images
+        
+        Random random = new Random(SEED);
+        BufferedImage slice = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        for (int i = 0; i < size; i++) {
+            for (int u = 0; u < size; u++)
+                for (int v = 0; v < size; v++)
+                    slice.setRGB(u, v, random.nextBoolean()? PALETTE[random.nextInt(PALETTE.length)] : 0);
+            
+            png.reset();
+            ImageIO.write(slice, "png", png);
+            stream.writeLittleInt(png.size());
+            png.writeTo(stream);
+        }
+        
+        byte[] name = "Layer 0".getBytes(StandardCharsets.UTF_8);
+        stream.writeLittleInt(name.length);
+        stream.write(name);
+        stream.writeBoolean(true); // visible
+        stream.writeBoolean(true); // unlocked
+        writeLittleInts(stream, size, size, size);
+        writeLittleInts(stream, 0, 0, 0);
+        for (int x = 0; x < size; x++)
+            stream.writeLittleInt(x);
+        
+        stream.flush();
+        return bytes.toByteArray();
+    }
+    
+    private static void writeLittleInts(LittleDataOutputStream stream, int... ints) throws IOException {
+        for (int i : ints)
+            stream.writeLittleInt(i);
+    }
+    
+    // MESHES
+    
+    /**
+     * Generates a model of random triangles within a unit cube.
+     *
+     * @param triangles the amount of triangles
+     * @return a new model
+     */
+    @NotNull
+    public static STLModel stl(int triangles) {
+        STLModel result = new STLModel("torrens-bench");
+        Random random = new Random(SEED);
+        
+        for (int i = 0; i < triangles; i++)
+            result.add(new STLTriangle(new Vertex3f(0, 0, 1),
+                randomVertex(random),
+                randomVertex(random),
+                randomVertex(random)));
+        
+        return result;
+    }
+    
+    /**
+     * Generates an ASCII STL file of random triangles within a unit cube.
+     *
+     * @param triangles the amount of triangles
+     * @return the ASCII STL bytes
+     */
+    @NotNull
+    public static byte[] stlAscii(int triangles) {
+        StringBuilder builder = new StringBuilder(triangles * 256);
+        Random random = new Random(SEED);
+        
+        builder.append("solid torrens-bench\n");
+        for (int i = 0; i < triangles; i++) {
+            builder.append("facet normal 0 0 1\n  outer loop\n");
+            for (int j = 0; j < 3; j++)
+                builder.append(String.format(Locale.ROOT, "    vertex %e %e %e\n",
+                    random.nextFloat(), random.nextFloat(), random.nextFloat()));
+            builder.append("  endloop\nendfacet\n");
+        }
+        builder.append("endsolid torrens-bench\n");
+        
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * Generates a model of random triangles within a unit cube, where all vertices have normals and texture
+     * coordinates. The faces are split into groups, each of which uses a material of the model's library.
+     *
+     * @param faces the amount of faces
+     * @return a new model
+     */
+    @NotNull
+    public static OBJModel obj(int faces) {
+        OBJModel result = new OBJModel();
+        Random random = new Random(SEED);
+        
+        result.setMaterials(mtl(PALETTE.length));
+        final int vertices = Math.max(3, faces / 2);
+        for (int i = 0; i < vertices; i++) {
+            result.addVertex(randomVertex(random));
+            result.addNormal(new Vertex3f(0, 0, 1));
+            result.addTexture(new Vertex2f(random.nextFloat(), random.nextFloat()));
+        }
+        
+        OBJGroup[] groups = new OBJGroup[PALETTE.length];
+        for (int i = 0; i < groups.length; i++)
+            result.addGroup(groups[i] = new OBJGroup(result, "group" + i, "material" + i));
+        
+        for (int i = 0; i < faces; i++) {
+            OBJTriplet[] triplets = new OBJTriplet[3];
+            for (int j = 0; j < 3; j++) {
+                int v = random.nextInt(vertices) + 1;
+                triplets[j] = new OBJTriplet(v, v, v);
+            }
+            groups[i % groups.length].addFace(new OBJFace(triplets));
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Generates a material library with colored materials.
+     *
+     * @param materials the amount of materials
+     * @return a new material library
+     */
+    @NotNull
+    public static MTLLibrary mtl(int materials) {
+        MTLLibrary result = new MTLLibrary("torrens-bench.mtl");
+        
+        for (int i = 0; i < materials; i++) {
+            MTLMaterial material = new MTLMaterial(result, "material" + i);
+            material.setAmbientColor(PALETTE[i % PALETTE.length]);
+            material.setDiffuseColor(PALETTE[(i + 1) % PALETTE.length]);
+            material.setSpecularColor(PALETTE[(i + 2) % PALETTE.length]);
+            material.setSpecularExponent(i % 1000);
+            material.setDissolution(1);
+            material.setIlluminationModel(2);
+            result.addMaterial(material);
+        }
+        
+        return result;
+    }
+    
+    private static Vertex3f randomVertex(Random random) {
+        return new Vertex3f(random.nextFloat(), random.nextFloat(), random.nextFloat());
+    }
+    
+    // BLOCKS
+    
+    /**
+     * Generates a legacy block structure of random block ids and data values.
+     *
+     * @param x the size on the x-axis
+     * @param y the size on the y-axis
+     * @param z the size on the z-axis
+     * @return a new block structure
+     */
+    @NotNull
+    public static ArrayBlockStructure schematic(int x, int y, int z) {
+        ArrayBlockStructure result = new ArrayBlockStructure(x, y, z);
+        Random random = new Random(SEED);
+        
+        for (int j = 0; j < y; j++)
+            for (int k = 0; k < z; k++)
+                for (int i = 0; i < x; i++)
+                    result.setBlock(i, j, k, random.nextInt(256), (byte) random.nextInt(16));
+        
+        return result;
+    }
+    
+    /**
+     * Generates a structure with every block set to a random block of a small palette.
+     *
+     * @param x the size on the x-axis
+     * @param y the size on the y-axis
+     * @param z the size on the z-axis
+     * @return a new block structure
+     */
+    @NotNull
+    public static BlockStructure structure(int x, int y, int z) {
+        BlockStructure result = new BlockStructure(x, y, z);
+        Random random = new Random(SEED);
+        
+        int[] palette = new int[PALETTE.length];
+        for (int i = 0; i < palette.length; i++)
+            palette[i] = result.addToPalette(BlockKey.minecraft("block" + i));
+        
+        for (int i = 0; i < x; i++)
+            for (int j = 0; j < y; j++)
+                for (int k = 0; k < z; k++)
+                    result.addBlock(i, j, k, palette[random.nextInt(palette.length)], null);
+        
+        return result;
+    }
+    
+    // IMAGES
+    
+    /**
+     * Generates a texture of random colors.
+     *
+     * @param width the width
+     * @param height the height
+     * @return a new texture
+     */
+    @NotNull
+    public static Texture texture(int width, int height) {
+        Random random = new Random(SEED);
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++)
+            argb[i] = random.nextInt();
+        
+        return Texture.wrap(argb, width, height);
+    }
+    
+    /**
+     * Generates an image of the given type with random colors.
+     *
+     * @param width the width
+     * @param height the height
+     * @param type the image type, such as {@link BufferedImage#TYPE_INT_ARGB}
+     * @return a new image
+     */
+    @NotNull
+    public static BufferedImage image(int width, int height, int type) {
+        BufferedImage result = new BufferedImage(width, height, type);
+        Random random = new Random(SEED);
+        
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                row[x] = random.nextInt();
+            result.setRGB(0, y, width, 1, row, 0, width);
+        }
+        
+        return result;
+    }
+    
+}
@@ -0,0 +1,36 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.img.DeserializerImage;
+import eisenwave.torrens.img.gif.SerializerGIF;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link SerializerGIF} and {@link DeserializerImage} on indexed images of random noise.
+ */
+public class GIFBenchmark extends CodecBenchmark<RenderedImage> {
+    
+    private final static int SAMPLE_SIZE = 256;
+    
+    @Override
+    protected RenderedImage createObject(long size) throws IOException {
+        long sampleBytes = encodedSize(Fixtures.image(SAMPLE_SIZE, SAMPLE_SIZE, BufferedImage.TYPE_BYTE_INDEXED));
+        int side = Fixtures.scale(SAMPLE_SIZE, sampleBytes, size, 2);
+        return Fixtures.image(side, side, BufferedImage.TYPE_BYTE_INDEXED);
+    }
+    
+    @Override
+    protected void write(RenderedImage image, OutputStream stream) throws IOException {
+        new SerializerGIF().toStream(image, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerImage().fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,42 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.img.ico.DeserializerICO;
+import eisenwave.torrens.img.ico.SerializerICO;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Benchmarks {@link SerializerICO} and {@link DeserializerICO} on icons of maximum size in bitmap format.
+ */
+public class ICOBenchmark extends CodecBenchmark<BufferedImage[]> {
+    
+    /** maximum width and height of an icon, maximum amount of icons */
+    private final static int
+        ICON_SIZE = 256,
+        MAX_ICONS = 0xFFFF;
+    
+    @Override
+    protected BufferedImage[] createObject(long size) throws IOException {
+        BufferedImage icon = Fixtures.image(ICON_SIZE, ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
+        long iconBytes = encodedSize(new BufferedImage[] {icon});
+        
+        BufferedImage[] icons = new BufferedImage[(int) Math.max(1, Math.min(MAX_ICONS, size / iconBytes))];
+        Arrays.fill(icons, icon);
+        return icons;
+    }
+    
+    @Override
+    protected void write(BufferedImage[] icons, OutputStream stream) throws IOException {
+        new SerializerICO(SerializerICO.TYPE_BMP).toStream(icons, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerICO().fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,38 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.wavefront.DeserializerMTL;
+import eisenwave.torrens.wavefront.MTLLibrary;
+import eisenwave.torrens.wavefront.SerializerMTL;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+/**
+ * Benchmarks {@link SerializerMTL} and {@link DeserializerMTL}.
+ */
+public class MTLBenchmark extends CodecBenchmark<MTLLibrary> {
+    
+    private final static int SAMPLE_MATERIALS = 256;
+    
+    @Override
+    protected MTLLibrary createObject(long size) throws IOException {
+        long sampleBytes = encodedSize(Fixtures.mtl(SAMPLE_MATERIALS));
+        return Fixtures.mtl(Fixtures.scale(SAMPLE_MATERIALS, sampleBytes, size, 1));
+    }
+    
+    @Override
+    protected void write(MTLLibrary mtllib, OutputStream stream) throws IOException {
+        // toStream() can not be used, the serializer closes the writer before it is flushed
+        new SerializerMTL().toWriter(mtllib, new OutputStreamWriter(stream));
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        File mapDir = new File(System.getProperty("java.io.tmpdir"));
+        return new DeserializerMTL(new MTLLibrary("torrens-bench.mtl"), mapDir).fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,36 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.wavefront.DeserializerOBJ;
+import eisenwave.torrens.wavefront.OBJModel;
+import eisenwave.torrens.wavefront.SerializerOBJ;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+/**
+ * Benchmarks {@link SerializerOBJ} and {@link DeserializerOBJ}. The referenced material library is not loaded.
+ */
+public class OBJBenchmark extends CodecBenchmark<OBJModel> {
+    
+    private final static int SAMPLE_FACES = 1024;
+    
+    @Override
+    protected OBJModel createObject(long size) throws IOException {
+        long sampleBytes = encodedSize(Fixtures.obj(SAMPLE_FACES));
+        return Fixtures.obj(Fixtures.scale(SAMPLE_FACES, sampleBytes, size, 1));
+    }
+    
+    @Override
+    protected void write(OBJModel model, OutputStream stream) throws IOException {
+        // toStream() can not be used, the serializer closes the writer before it is flushed
+        new SerializerOBJ().toWriter(model, new OutputStreamWriter(stream));
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerOBJ(new OBJModel(), null).fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,27 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.voxel.DeserializerPNX;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Benchmarks {@link DeserializerPNX}. There is no PNX serializer, so the fixture is written by
+ * {@link Fixtures#pnx(int)}.
+ */
+public class PNXBenchmark extends DeserializerBenchmark {
+    
+    private final static int SAMPLE_SIZE = 32;
+    
+    @Override
+    protected byte[] createFixture(long size) throws IOException {
+        int sampleBytes = Fixtures.pnx(SAMPLE_SIZE).length;
+        return Fixtures.pnx(Fixtures.scale(SAMPLE_SIZE, sampleBytes, size, 3));
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerPNX().fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,33 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.voxel.DeserializerQB;
+import eisenwave.torrens.voxel.QBModel;
+import eisenwave.torrens.voxel.SerializerQB;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link SerializerQB} and {@link DeserializerQB} using a single cubic matrix.
+ */
+public class QBBenchmark extends CodecBenchmark<QBModel> {
+    
+    @Override
+    protected QBModel createObject(long size) {
+        // uncompressed qubicle stores four bytes per voxel
+        int side = Fixtures.scale(1, 4, size, 3);
+        return new QBModel("matrix", Fixtures.voxels(side, side, side));
+    }
+    
+    @Override
+    protected void write(QBModel model, OutputStream stream) throws IOException {
+        new SerializerQB().toStream(model, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerQB().fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,35 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.voxel.DeserializerQEF;
+import eisenwave.torrens.voxel.SerializerQEF;
+import eisenwave.torrens.voxel.VoxelArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link SerializerQEF} and {@link DeserializerQEF}.
+ */
+public class QEFBenchmark extends CodecBenchmark<VoxelArray> {
+    
+    private final static int SAMPLE_SIZE = 32;
+    
+    @Override
+    protected VoxelArray createObject(long size) throws IOException {
+        long sampleBytes = encodedSize(Fixtures.voxels(SAMPLE_SIZE, SAMPLE_SIZE, SAMPLE_SIZE));
+        int side = Fixtures.scale(SAMPLE_SIZE, sampleBytes, size, 3);
+        return Fixtures.voxels(side, side, side);
+    }
+    
+    @Override
+    protected void write(VoxelArray voxels, OutputStream stream) throws IOException {
+        new SerializerQEF().toStream(voxels, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerQEF().fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,27 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.stl.DeserializerSTL;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Benchmarks {@link DeserializerSTL} on ASCII STL. There is no ASCII STL serializer, so the fixture is written by
+ * {@link Fixtures#stlAscii(int)}.
+ */
+public class STLAsciiBenchmark extends DeserializerBenchmark {
+    
+    private final static int SAMPLE_TRIANGLES = 1024;
+    
+    @Override
+    protected byte[] createFixture(long size) {
+        int sampleBytes = Fixtures.stlAscii(SAMPLE_TRIANGLES).length;
+        return Fixtures.stlAscii(Fixtures.scale(SAMPLE_TRIANGLES, sampleBytes, size, 1));
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerSTL().fromStream(stream);
+    }
+    
+}
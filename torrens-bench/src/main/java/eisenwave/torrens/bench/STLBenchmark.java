@@ -0,0 +1,36 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.stl.DeserializerSTL;
+import eisenwave.torrens.stl.STLModel;
+import eisenwave.torrens.stl.SerializerSTL;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link SerializerSTL} and {@link DeserializerSTL} on binary STL.
+ */
+public class STLBenchmark extends CodecBenchmark<STLModel> {
+    
+    /** 80 byte header followed by the triangle count, 50 bytes per triangle */
+    private final static int
+        HEADER_LENGTH = 84,
+        TRIANGLE_LENGTH = 50;
+    
+    @Override
+    protected STLModel createObject(long size) {
+        return Fixtures.stl((int) Math.max(1, (size - HEADER_LENGTH) / TRIANGLE_LENGTH));
+    }
+    
+    @Override
+    protected void write(STLModel model, OutputStream stream) throws IOException {
+        new SerializerSTL().toStream(model, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerSTL().fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,36 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.schematic.legacy.ArrayBlockStructure;
+import eisenwave.torrens.schematic.legacy.DeserializerSchematicBlocks;
+import eisenwave.torrens.schematic.legacy.LegacyBlockStructure;
+import eisenwave.torrens.schematic.legacy.SerializerSchematicBlocks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link SerializerSchematicBlocks} and {@link DeserializerSchematicBlocks}.
+ */
+public class SchematicBenchmark extends CodecBenchmark<LegacyBlockStructure> {
+    
+    private final static int SAMPLE_SIZE = 32;
+    
+    @Override
+    protected LegacyBlockStructure createObject(long size) throws IOException {
+        long sampleBytes = encodedSize(Fixtures.schematic(SAMPLE_SIZE, SAMPLE_SIZE, SAMPLE_SIZE));
+        int side = Fixtures.scale(SAMPLE_SIZE, sampleBytes, size, 3);
+        return Fixtures.schematic(side, side, side);
+    }
+    
+    @Override
+    protected void write(LegacyBlockStructure blocks, OutputStream stream) throws IOException {
+        new SerializerSchematicBlocks().toStream(blocks, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerSchematicBlocks().fromStream(stream);
+    }
+    
+}
@@ -0,0 +1,38 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.schematic.BlockStructure;
+import eisenwave.torrens.schematic.DeserializerStructureBlocks;
+import eisenwave.torrens.schematic.SerializerStructureBlocks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link SerializerStructureBlocks} and {@link DeserializerStructureBlocks}.
+ * <p>
+ * Every block of a structure is an NBT compound once serialized, so the files are far larger than the structure on the
+ * heap. Both codecs stream blocks without building an NBT tree.
+ */
+public class StructureBenchmark extends CodecBenchmark<BlockStructure> {
+    
+    private final static int SAMPLE_SIZE = 16;
+    
+    @Override
+    protected BlockStructure createObject(long size) throws IOException {
+        long sampleBytes = encodedSize(Fixtures.structure(SAMPLE_SIZE, SAMPLE_SIZE, SAMPLE_SIZE));
+        int side = Fixtures.scale(SAMPLE_SIZE, sampleBytes, size, 3);
+        return Fixtures.structure(side, side, side);
+    }
+    
+    @Override
+    protected void write(BlockStructure structure, OutputStream stream) throws IOException {
+        new SerializerStructureBlocks().toStream(structure, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        return new DeserializerStructureBlocks().fromStream(stream);
+    }
+    
+}
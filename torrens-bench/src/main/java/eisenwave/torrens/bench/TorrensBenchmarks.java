@@ -0,0 +1,36 @@
+package eisenwave.torrens.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar.
+ * <p>
+ * All regular JMH command line options are accepted. Unlike the default JMH main class, the {@link GCProfiler} is
+ * always enabled so that every run reports the allocation rate ({@code gc.alloc.rate.norm} in bytes per operation)
+ * next to the throughput.
+ * <p>
+ * Example: {@code java -jar benchmarks.jar QB -p megabytes=64}
+ */
+public final class TorrensBenchmarks {
+    
+    private TorrensBenchmarks() {}
+    
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+            .parent(cmdOptions)
+            .addProfiler(GCProfiler.class);
+        
+        if (cmdOptions.getIncludes().isEmpty())
+            builder.include(TorrensBenchmarks.class.getPackage().getName() + ".*");
+        
+        new Runner(builder.build()).run();
+    }
+    
+}
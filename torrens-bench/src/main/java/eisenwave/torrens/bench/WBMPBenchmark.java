@@ -0,0 +1,48 @@
+package eisenwave.torrens.bench;
+
+import eisenwave.torrens.img.ARGBSerializerWBMP;
+import eisenwave.torrens.img.BaseTexture;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks {@link ARGBSerializerWBMP} and the ImageIO reader used by {@link eisenwave.torrens.img.DeserializerImage}.
+ * <p>
+ * Wireless bitmaps only store one bit per pixel whereas textures store four bytes per pixel. The edge length is
+ * therefore capped at {@value #MAX_SIZE} pixels (32 MB of WBMP data), the texture of a 512 MB fixture would not even
+ * fit into a single array.
+ */
+public class WBMPBenchmark extends CodecBenchmark<BaseTexture> {
+    
+    private final static int MAX_SIZE = 16384;
+    
+    @Override
+    protected BaseTexture createObject(long size) {
+        // eight pixels per byte
+        int side = (int) Math.min(MAX_SIZE, Math.sqrt(size * 8D));
+        return Fixtures.texture(side, side);
+    }
+    
+    @Override
+    protected void write(BaseTexture texture, OutputStream stream) throws IOException {
+        new ARGBSerializerWBMP().toStream(texture, stream);
+    }
+    
+    @Override
+    protected Object read(InputStream stream) throws IOException {
+        // ImageIO only recognizes wireless bitmaps up to 1024x768 pixels, so the reader has to be chosen explicitly
+        ImageReader reader = ImageIO.getImageReadersByFormatName("wbmp").next();
+        try (ImageInputStream imageStream = ImageIO.createImageInputStream(stream)) {
+            reader.setInput(imageStream, true, true);
+            return reader.read(0);
+        } finally {
+            reader.dispose();
+        }
+    }
+    
+}
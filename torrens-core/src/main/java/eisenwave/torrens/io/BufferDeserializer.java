@@ -0,0 +1,68 @@
+package eisenwave.torrens.io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link Deserializer} of a binary format which can be parsed directly from a {@link ByteBuffer}.
+ * <p>
+ *     Files are memory-mapped and byte arrays are wrapped instead of being read through an {@link InputStream}, which
+ *     avoids both the per-byte method calls of stream reading and copying the data into intermediate buffers.
+ * </p>
+ * <p>
+ *     Both {@link #fromStream(InputStream)} and {@link #fromBuffer(ByteBuffer)} are to be implemented.
+ * </p>
+ *
+ * @param <T> the type of object which is to be deserialized
+ */
+public interface BufferDeserializer<T> extends Deserializer<T> {
+    
+    /**
+     * Deserializes an object from the remaining bytes of a {@link ByteBuffer}.
+     * <p>
+     *     The byte order of the buffer may be changed by the deserializer.
+     * </p>
+     *
+     * @param buffer the buffer
+     * @return the deserialized object
+     * @throws IOException if the deserialization fails
+     */
+    @NotNull
+    @Override
+    abstract T fromBuffer(ByteBuffer buffer) throws IOException;
+    
+    /**
+     * Deserializes an object from a {@link File} by mapping it into memory.
+     *
+     * @param file the file
+     * @return the deserialized object
+     * @throws IOException if the deserialization fails
+     */
+    @NotNull
+    @Override
+    default T fromFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return fromChannel(channel);
+        }
+    }
+    
+    /**
+     * Deserializes an object from a {@code byte[]} by wrapping it in a {@link ByteBuffer}.
+     *
+     * @param bytes the byte array
+     * @return the deserialized object
+     * @throws IOException if the deserialization fails
+     */
+    @NotNull
+    @Override
+    default T fromBytes(byte[] bytes) throws IOException {
+        return fromBuffer(ByteBuffer.wrap(bytes));
+    }
+    
+}
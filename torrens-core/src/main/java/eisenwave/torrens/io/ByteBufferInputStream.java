@@ -0,0 +1,51 @@
+package eisenwave.torrens.io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * An input stream reading the remaining bytes of a {@link ByteBuffer}. Reading from the stream advances the position
+ * of the buffer.
+ */
+public class ByteBufferInputStream extends InputStream {
+    
+    private final ByteBuffer buffer;
+    
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = Objects.requireNonNull(buffer);
+    }
+    
+    @Override
+    public int read() {
+        return buffer.hasRemaining()? buffer.get() & 0xFF : -1;
+    }
+    
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) {
+        if (len == 0)
+            return 0;
+        int remaining = buffer.remaining();
+        if (remaining == 0)
+            return -1;
+        
+        len = Math.min(len, remaining);
+        buffer.get(b, off, len);
+        return len;
+    }
+    
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+    
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+    
+}
@@ -4,6 +4,9 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 
 /**
  * Throwaway object only meant to perform one deserialization of a stream.
@@ -59,6 +62,43 @@ public interface Deserializer<T> {
         return fromStream(stream);
     }
 
+    /**
+     * Deserializes an object from the remaining bytes of a {@link ByteBuffer}, such as a buffer mapped from a file.
+     * <p>
+     *     By default, the buffer is read as an {@link InputStream}. Binary formats may override this method to parse
+     *     the buffer directly, see {@link BufferDeserializer}.
+     * </p>
+     *
+     * @param buffer the buffer
+     * @return the deserialized object
+     * @throws IOException if the deserialization fails
+     */
+    @NotNull
+    public default T fromBuffer(ByteBuffer buffer) throws IOException {
+        return fromStream(new ByteBufferInputStream(buffer));
+    }
+
+    /**
+     * Deserializes an object from a {@link FileChannel}, starting at its current position.
+     * <p>
+     *     The remainder of the channel is mapped into memory and passed to {@link #fromBuffer(ByteBuffer)}. Files
+     *     exceeding the maximum size of a buffer ({@link Integer#MAX_VALUE} bytes) are read as a stream instead.
+     * </p>
+     *
+     * @param channel the channel
+     * @return the deserialized object
+     * @throws IOException if the deserialization fails
+     */
+    @NotNull
+    public default T fromChannel(FileChannel channel) throws IOException {
+        final long position = channel.position(), size = channel.size() - position;
+        
+        if (size > Integer.MAX_VALUE)
+            return fromStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        
+        return fromBuffer(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
     /**
      * Deserializes an object from a {@link Class} and a resource path by opening a stream to the resource via the
      * {@link ClassLoader}.
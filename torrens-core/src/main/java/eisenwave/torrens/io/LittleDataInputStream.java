@@ -4,15 +4,29 @@ import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 
 /**
  * Input stream which extends {@link DataInputStream} to provide methods for reading little endian data.
+ * <p>
+ * Arrays of primitives can be read in bulk, which reads the bytes of many values at once into an internal buffer
+ * instead of reading each byte individually.
  *
  * @author Headaxe
  * @see LittleDataOutputStream
  */
 public class LittleDataInputStream extends DataInputStream {
     
+    /** the size of the internal buffer used for bulk reads, must be a multiple of 8 */
+    private final static int BULK_BUFFER_SIZE = 8192;
+    
+    private byte[] bulkBuffer;
+    private IntBuffer littleInts, bigInts;
+    private FloatBuffer littleFloats;
+    
     public LittleDataInputStream(InputStream in) {
         super(in);
     }
@@ -74,4 +88,126 @@ public class LittleDataInputStream extends DataInputStream {
         return Double.longBitsToDouble(readLittleLong());
     }
     
+    // BULK
+    
+    /**
+     * Reads {@code len} little endian ints into an array.
+     *
+     * @param dst the array to read into
+     * @param off the offset in the array
+     * @param len the amount of ints to read
+     * @throws IOException if an I/O error occurs
+     * @throws EOFException if the stream ends before all ints could be read
+     */
+    public final void readLittleInts(int[] dst, int off, int len) throws IOException {
+        checkRange(dst.length, off, len);
+        allocBulkBuffer();
+        
+        while (len > 0) {
+            final int count = Math.min(len, BULK_BUFFER_SIZE / 4);
+            readFully(bulkBuffer, 0, count * 4);
+            littleInts.clear();
+            littleInts.get(dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    /**
+     * Reads little endian ints until an array is filled.
+     *
+     * @param dst the array to read into
+     * @throws IOException if an I/O error occurs
+     * @throws EOFException if the stream ends before all ints could be read
+     */
+    public final void readLittleInts(int[] dst) throws IOException {
+        readLittleInts(dst, 0, dst.length);
+    }
+    
+    /**
+     * Reads {@code len} little endian floats into an array.
+     *
+     * @param dst the array to read into
+     * @param off the offset in the array
+     * @param len the amount of floats to read
+     * @throws IOException if an I/O error occurs
+     * @throws EOFException if the stream ends before all floats could be read
+     */
+    public final void readLittleFloats(float[] dst, int off, int len) throws IOException {
+        checkRange(dst.length, off, len);
+        allocBulkBuffer();
+        
+        while (len > 0) {
+            final int count = Math.min(len, BULK_BUFFER_SIZE / 4);
+            readFully(bulkBuffer, 0, count * 4);
+            littleFloats.clear();
+            littleFloats.get(dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    /**
+     * Reads little endian floats until an array is filled.
+     *
+     * @param dst the array to read into
+     * @throws IOException if an I/O error occurs
+     * @throws EOFException if the stream ends before all floats could be read
+     */
+    public final void readLittleFloats(float[] dst) throws IOException {
+        readLittleFloats(dst, 0, dst.length);
+    }
+    
+    /**
+     * Reads {@code len} big endian ints into an array.
+     *
+     * @param dst the array to read into
+     * @param off the offset in the array
+     * @param len the amount of ints to read
+     * @throws IOException if an I/O error occurs
+     * @throws EOFException if the stream ends before all ints could be read
+     * @see #readInt()
+     */
+    public final void readInts(int[] dst, int off, int len) throws IOException {
+        checkRange(dst.length, off, len);
+        allocBulkBuffer();
+        
+        while (len > 0) {
+            final int count = Math.min(len, BULK_BUFFER_SIZE / 4);
+            readFully(bulkBuffer, 0, count * 4);
+            bigInts.clear();
+            bigInts.get(dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    /**
+     * Reads big endian ints until an array is filled.
+     *
+     * @param dst the array to read into
+     * @throws IOException if an I/O error occurs
+     * @throws EOFException if the stream ends before all ints could be read
+     * @see #readInt()
+     */
+    public final void readInts(int[] dst) throws IOException {
+        readInts(dst, 0, dst.length);
+    }
+    
+    private void allocBulkBuffer() {
+        if (bulkBuffer != null)
+            return;
+        
+        bulkBuffer = new byte[BULK_BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(bulkBuffer);
+        bigInts = buffer.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        littleInts = buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        littleFloats = buffer.asFloatBuffer();
+    }
+    
+    private static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || len > length - off)
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + length);
+    }
+    
 }
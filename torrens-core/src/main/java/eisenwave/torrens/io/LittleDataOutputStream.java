@@ -3,15 +3,29 @@ package eisenwave.torrens.io;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 
 /**
  * Output stream which extends {@link DataOutputStream} to provide methods for writing little endian data.
+ * <p>
+ * Arrays of primitives can be written in bulk, which encodes many values at once into an internal buffer instead of
+ * writing each byte individually.
  *
  * @author Headaxe
  * @see LittleDataInputStream
  */
 public class LittleDataOutputStream extends DataOutputStream {
     
+    /** the size of the internal buffer used for bulk writes, must be a multiple of 8 */
+    private final static int BULK_BUFFER_SIZE = 8192;
+    
+    private byte[] bulkBuffer;
+    private IntBuffer littleInts, bigInts;
+    private FloatBuffer littleFloats;
+    
     public LittleDataOutputStream(OutputStream out) {
         super(out);
     }
@@ -67,4 +81,123 @@ public class LittleDataOutputStream extends DataOutputStream {
         writeLittleLong(Double.doubleToLongBits(v));
     }
     
+    // BULK
+    
+    /**
+     * Writes {@code len} ints of an array in little endian byte order.
+     *
+     * @param src the array to write
+     * @param off the offset in the array
+     * @param len the amount of ints to write
+     * @throws IOException if an I/O error occurs
+     */
+    public final void writeLittleInts(int[] src, int off, int len) throws IOException {
+        checkRange(src.length, off, len);
+        allocBulkBuffer();
+        
+        while (len > 0) {
+            final int count = Math.min(len, BULK_BUFFER_SIZE / 4);
+            littleInts.clear();
+            littleInts.put(src, off, count);
+            out.write(bulkBuffer, 0, count * 4);
+            incCount(count * 4);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    /**
+     * Writes all ints of an array in little endian byte order.
+     *
+     * @param src the array to write
+     * @throws IOException if an I/O error occurs
+     */
+    public final void writeLittleInts(int[] src) throws IOException {
+        writeLittleInts(src, 0, src.length);
+    }
+    
+    /**
+     * Writes {@code len} floats of an array in little endian byte order.
+     *
+     * @param src the array to write
+     * @param off the offset in the array
+     * @param len the amount of floats to write
+     * @throws IOException if an I/O error occurs
+     */
+    public final void writeLittleFloats(float[] src, int off, int len) throws IOException {
+        checkRange(src.length, off, len);
+        allocBulkBuffer();
+        
+        while (len > 0) {
+            final int count = Math.min(len, BULK_BUFFER_SIZE / 4);
+            littleFloats.clear();
+            littleFloats.put(src, off, count);
+            out.write(bulkBuffer, 0, count * 4);
+            incCount(count * 4);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    /**
+     * Writes all floats of an array in little endian byte order.
+     *
+     * @param src the array to write
+     * @throws IOException if an I/O error occurs
+     */
+    public final void writeLittleFloats(float[] src) throws IOException {
+        writeLittleFloats(src, 0, src.length);
+    }
+    
+    /**
+     * Writes {@code len} ints of an array in big endian byte order.
+     *
+     * @param src the array to write
+     * @param off the offset in the array
+     * @param len the amount of ints to write
+     * @throws IOException if an I/O error occurs
+     * @see #writeInt(int)
+     */
+    public final void writeInts(int[] src, int off, int len) throws IOException {
+        checkRange(src.length, off, len);
+        allocBulkBuffer();
+        
+        while (len > 0) {
+            final int count = Math.min(len, BULK_BUFFER_SIZE / 4);
+            bigInts.clear();
+            bigInts.put(src, off, count);
+            out.write(bulkBuffer, 0, count * 4);
+            incCount(count * 4);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    /**
+     * Writes all ints of an array in big endian byte order.
+     *
+     * @param src the array to write
+     * @throws IOException if an I/O error occurs
+     * @see #writeInt(int)
+     */
+    public final void writeInts(int[] src) throws IOException {
+        writeInts(src, 0, src.length);
+    }
+    
+    private void allocBulkBuffer() {
+        if (bulkBuffer != null)
+            return;
+        
+        bulkBuffer = new byte[BULK_BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(bulkBuffer);
+        bigInts = buffer.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        littleInts = buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        littleFloats = buffer.asFloatBuffer();
+    }
+    
+    private static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || len > length - off)
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + length);
+    }
+    
 }
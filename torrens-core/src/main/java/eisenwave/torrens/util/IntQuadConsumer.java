@@ -0,0 +1,14 @@
+package eisenwave.torrens.util;
+
+import org.jetbrains.annotations.NotNull;
+
+@FunctionalInterface
+public interface IntQuadConsumer {
+    
+    abstract void accept(int x, int y, int z, int w);
+    
+    default IntQuadConsumer andThen(@NotNull IntQuadConsumer action) {
+        return (x, y, z, w) -> {this.accept(x, y, z, w); action.accept(x, y, z, w);};
+    }
+    
+}
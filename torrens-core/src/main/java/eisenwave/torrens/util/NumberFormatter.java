@@ -0,0 +1,174 @@
+package eisenwave.torrens.util;
+
+/**
+ * <p>
+ * Utility class for formatting numbers directly into character buffers, without creating any intermediate
+ * {@link String} objects.
+ * </p>
+ * <p>
+ * Floats are written in plain decimal notation, either with the fewest digits which still parse back to the same
+ * float, or rounded to a fixed amount of fractional digits. Trailing zeros are omitted in both cases. Very large and
+ * very small magnitudes, as well as {@code NaN} and infinities, are written like {@link Float#toString(float)}.
+ * </p>
+ * <p>
+ * All methods return the index following the last written character. Destination arrays must provide room for at
+ * least {@value #MAX_LENGTH} characters.
+ * </p>
+ */
+public final class NumberFormatter {
+    
+    /**
+     * The maximum amount of characters written by any method of this class.
+     */
+    public final static int MAX_LENGTH = 32;
+    
+    /**
+     * Precision which formats floats with the shortest representation that parses back to the same float.
+     */
+    public final static int SHORTEST = -1;
+    
+    private final static double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+    
+    /** The range of magnitudes which are written in plain notation when using the shortest representation. */
+    private final static float MIN_PLAIN = 1e-3F, MAX_PLAIN = 1e7F;
+    
+    private NumberFormatter() {}
+    
+    /**
+     * Writes the shortest decimal representation of a float which parses back to the same float.
+     *
+     * @param value the float
+     * @param dest the destination array
+     * @param offset the offset in the destination array
+     * @return the index following the last written character
+     */
+    public static int formatFloat(float value, char[] dest, int offset) {
+        if (value == 0)
+            return zero(value, dest, offset);
+        
+        final float abs = Math.abs(value);
+        if (!(abs >= MIN_PLAIN && abs < MAX_PLAIN))
+            return fallback(value, dest, offset);
+        
+        // the decimal exponent of the most significant digit
+        int exponent = -3;
+        for (double bound = 1e-2; exponent < 6 && abs >= bound; bound *= 10)
+            exponent++;
+        
+        // the nearest decimal with the given amount of significant digits is tried for increasing amounts of digits
+        for (int digits = 1; digits <= 9; digits++) {
+            final int scale = digits - 1 - exponent;
+            final long mantissa = scale >= 0?
+                Math.round(abs * POWERS_OF_TEN[scale]) :
+                Math.round(abs / POWERS_OF_TEN[-scale]);
+            if (NumberParser.toFloat(mantissa, -scale) == abs)
+                return writeDecimal(value < 0, mantissa, scale, dest, offset);
+        }
+        
+        return fallback(value, dest, offset);
+    }
+    
+    /**
+     * Writes a float rounded to the given amount of fractional digits. Trailing zeros are omitted.
+     *
+     * @param value the float
+     * @param precision the maximum amount of fractional digits, or {@link #SHORTEST}
+     * @param dest the destination array
+     * @param offset the offset in the destination array
+     * @return the index following the last written character
+     */
+    public static int formatFloat(float value, int precision, char[] dest, int offset) {
+        if (precision == SHORTEST)
+            return formatFloat(value, dest, offset);
+        if (precision < 0 || precision > 9)
+            throw new IllegalArgumentException("precision must be in range [0, 9] (is " + precision + ")");
+        
+        final double scaled = Math.abs((double) value) * POWERS_OF_TEN[precision];
+        if (!(scaled < POWERS_OF_TEN[18]))
+            return formatFloat(value, dest, offset);
+        
+        final long mantissa = Math.round(scaled);
+        if (mantissa == 0)
+            return zero(0, dest, offset);
+        return writeDecimal(value < 0, mantissa, precision, dest, offset);
+    }
+    
+    /**
+     * Writes an int in decimal notation.
+     *
+     * @param value the int
+     * @param dest the destination array
+     * @param offset the offset in the destination array
+     * @return the index following the last written character
+     */
+    public static int formatInt(int value, char[] dest, int offset) {
+        if (value < 0) {
+            dest[offset++] = '-';
+            return writeDigits(-(long) value, dest, offset);
+        }
+        return writeDigits(value, dest, offset);
+    }
+    
+    // UTIL
+    
+    /**
+     * Writes {@code mantissa / 10^scale}, omitting trailing zeros in the fraction.
+     */
+    private static int writeDecimal(boolean negative, long mantissa, int scale, char[] dest, int offset) {
+        if (negative)
+            dest[offset++] = '-';
+        
+        if (scale <= 0) {
+            offset = writeDigits(mantissa, dest, offset);
+            for (int i = scale; i < 0; i++)
+                dest[offset++] = '0';
+            return offset;
+        }
+        
+        while (scale > 0 && mantissa % 10 == 0) {
+            mantissa /= 10;
+            scale--;
+        }
+        
+        final long divisor = (long) POWERS_OF_TEN[scale];
+        offset = writeDigits(mantissa / divisor, dest, offset);
+        if (scale == 0)
+            return offset;
+        
+        dest[offset++] = '.';
+        long fraction = mantissa % divisor;
+        for (int i = offset + scale - 1; i >= offset; i--) {
+            dest[i] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        return offset + scale;
+    }
+    
+    private static int writeDigits(long value, char[] dest, int offset) {
+        int length = 1;
+        for (long v = value; v >= 10; v /= 10)
+            length++;
+        
+        for (int i = offset + length - 1; i >= offset; i--) {
+            dest[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + length;
+    }
+    
+    private static int zero(float value, char[] dest, int offset) {
+        if (Float.floatToRawIntBits(value) != 0)
+            dest[offset++] = '-';
+        dest[offset] = '0';
+        return offset + 1;
+    }
+    
+    private static int fallback(float value, char[] dest, int offset) {
+        final String str = Float.toString(value);
+        str.getChars(0, str.length(), dest, offset);
+        return offset + str.length();
+    }
+    
+}
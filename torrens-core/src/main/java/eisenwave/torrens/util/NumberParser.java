@@ -0,0 +1,168 @@
+package eisenwave.torrens.util;
+
+/**
+ * <p>
+ * Utility class for parsing numbers directly from character buffers, without creating any intermediate
+ * {@link String} objects.
+ * </p>
+ * <p>
+ * Floats are parsed on a fast path which is exact for up to 15 significant digits and decimal exponents up to 22 in
+ * magnitude, which covers virtually all numbers found in text-based model formats. All other numbers, including
+ * {@code NaN}, {@code Infinity} and hexadecimal notation, are parsed using {@link Float#parseFloat(String)}, so the
+ * result is always identical to that method.
+ * </p>
+ */
+public final class NumberParser {
+    
+    private final static double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    /** The largest mantissa which can be represented exactly by a double. */
+    private final static long MAX_EXACT_MANTISSA = 1L << 53;
+    
+    private final static int MAX_DIGITS = 15;
+    
+    private NumberParser() {}
+    
+    /**
+     * Parses a float from a range of characters.
+     *
+     * @param chars the characters
+     * @param from the index of the first character, inclusive
+     * @param to the index of the last character, exclusive
+     * @return the parsed float
+     * @throws NumberFormatException if the characters are not a valid float
+     */
+    public static float parseFloat(char[] chars, int from, int to) {
+        int i = from;
+        final boolean negative = i < to && chars[i] == '-';
+        if (negative || i < to && chars[i] == '+') i++;
+        
+        long mantissa = 0;
+        int exponent = 0, digits = 0, significant = 0;
+        // whether non-zero digits beyond the maximum had to be dropped
+        boolean truncated = false;
+        
+        for (; i < to; i++) {
+            final int d = chars[i] - '0';
+            if (d < 0 || d > 9) break;
+            digits++;
+            if (significant < MAX_DIGITS) {
+                mantissa = mantissa * 10 + d;
+                if (mantissa != 0) significant++;
+            }
+            else {
+                exponent++;
+                truncated |= d != 0;
+            }
+        }
+        
+        if (i < to && chars[i] == '.') {
+            for (i++; i < to; i++) {
+                final int d = chars[i] - '0';
+                if (d < 0 || d > 9) break;
+                digits++;
+                if (significant < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + d;
+                    if (mantissa != 0) significant++;
+                    exponent--;
+                }
+                else truncated |= d != 0;
+            }
+        }
+        
+        if (digits != 0 && i < to && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            final boolean negativeExp = i < to && chars[i] == '-';
+            if (negativeExp || i < to && chars[i] == '+') i++;
+            
+            int exp = 0, expDigits = 0;
+            for (; i < to; i++) {
+                final int d = chars[i] - '0';
+                if (d < 0 || d > 9) break;
+                expDigits++;
+                if (exp < 10_000) exp = exp * 10 + d;
+            }
+            if (expDigits == 0) return fallback(chars, from, to);
+            exponent += negativeExp? -exp : exp;
+        }
+        
+        if (digits == 0 || i != to || truncated)
+            return fallback(chars, from, to);
+        
+        final float result = toFloat(mantissa, exponent);
+        if (Float.isNaN(result))
+            return fallback(chars, from, to);
+        return negative? -result : result;
+    }
+    
+    /**
+     * Parses an int from a range of characters.
+     *
+     * @param chars the characters
+     * @param from the index of the first character, inclusive
+     * @param to the index of the last character, exclusive
+     * @return the parsed int
+     * @throws NumberFormatException if the characters are not a valid int
+     */
+    public static int parseInt(char[] chars, int from, int to) {
+        int i = from;
+        final boolean negative = i < to && chars[i] == '-';
+        if (negative || i < to && chars[i] == '+') i++;
+        if (i == to) throw invalid(chars, from, to);
+        
+        // accumulate negatively so that Integer.MIN_VALUE can be parsed
+        int result = 0;
+        for (; i < to; i++) {
+            final int d = chars[i] - '0';
+            if (d < 0 || d > 9) throw invalid(chars, from, to);
+            if (result < Integer.MIN_VALUE / 10) throw invalid(chars, from, to);
+            result *= 10;
+            if (result < Integer.MIN_VALUE + d) throw invalid(chars, from, to);
+            result -= d;
+        }
+        
+        if (negative) return result;
+        if (result == Integer.MIN_VALUE) throw invalid(chars, from, to);
+        return -result;
+    }
+    
+    // UTIL
+    
+    /**
+     * Converts a decimal mantissa and exponent into a float, or returns {@code NaN} if the result can not be
+     * guaranteed to be correctly rounded.
+     */
+    static float toFloat(long mantissa, int exponent) {
+        if (mantissa == 0)
+            return 0;
+        if (mantissa >= MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22)
+            return Float.NaN;
+        
+        // both operands are exact, so the double result is correctly rounded
+        final double value = exponent < 0?
+            mantissa / POWERS_OF_TEN[-exponent] :
+            mantissa * POWERS_OF_TEN[exponent];
+        
+        // rounding the double to a float again is only ambiguous if the double lies exactly halfway between two
+        // floats, or if the float is subnormal or out of range
+        if (value < Float.MIN_NORMAL || value > Float.MAX_VALUE)
+            return Float.NaN;
+        final long bits = Double.doubleToRawLongBits(value);
+        if ((bits & 0x1FFF_FFFFL) == 0x1000_0000L)
+            return Float.NaN;
+        
+        return (float) value;
+    }
+    
+    private static float fallback(char[] chars, int from, int to) {
+        return Float.parseFloat(new String(chars, from, to - from));
+    }
+    
+    private static NumberFormatException invalid(char[] chars, int from, int to) {
+        return new NumberFormatException("For input string: \"" + new String(chars, from, to - from) + "\"");
+    }
+    
+}
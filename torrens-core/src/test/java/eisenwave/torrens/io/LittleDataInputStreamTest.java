@@ -0,0 +1,58 @@
+package eisenwave.torrens.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LittleDataInputStreamTest {
+    
+    @Test
+    public void bulkEqualsSingle() throws Exception {
+        Random random = new Random(1);
+        int[] ints = new int[5000];
+        float[] floats = new float[3000];
+        for (int i = 0; i < ints.length; i++)
+            ints[i] = random.nextInt();
+        for (int i = 0; i < floats.length; i++)
+            floats[i] = random.nextFloat();
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LittleDataOutputStream out = new LittleDataOutputStream(bytes);
+        out.writeLittleInts(ints);
+        out.writeInts(ints, 1, 3);
+        out.writeLittleFloats(floats);
+        assertEquals(ints.length * 4 + 12 + floats.length * 4, out.size());
+        
+        LittleDataInputStream single = new LittleDataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i : ints)
+            assertEquals(i, single.readLittleInt());
+        for (int i = 1; i < 4; i++)
+            assertEquals(ints[i], single.readInt());
+        for (float f : floats)
+            assertEquals(f, single.readLittleFloat(), 0);
+        
+        LittleDataInputStream bulk = new LittleDataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        int[] readInts = new int[ints.length];
+        bulk.readLittleInts(readInts);
+        assertArrayEquals(ints, readInts);
+        
+        int[] readBigInts = new int[5];
+        bulk.readInts(readBigInts, 2, 3);
+        assertArrayEquals(new int[] {0, 0, ints[1], ints[2], ints[3]}, readBigInts);
+        
+        float[] readFloats = new float[floats.length];
+        bulk.readLittleFloats(readFloats);
+        assertArrayEquals(floats, readFloats, 0);
+    }
+    
+    @Test(expected = EOFException.class)
+    public void bulkEndOfStream() throws Exception {
+        new LittleDataInputStream(new ByteArrayInputStream(new byte[6])).readLittleInts(new int[2]);
+    }
+    
+}
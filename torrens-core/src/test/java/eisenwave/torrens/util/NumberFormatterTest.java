@@ -0,0 +1,64 @@
+package eisenwave.torrens.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NumberFormatterTest {
+    
+    private static String format(float value) {
+        char[] chars = new char[NumberFormatter.MAX_LENGTH];
+        return new String(chars, 0, NumberFormatter.formatFloat(value, chars, 0));
+    }
+    
+    private static String format(float value, int precision) {
+        char[] chars = new char[NumberFormatter.MAX_LENGTH];
+        return new String(chars, 0, NumberFormatter.formatFloat(value, precision, chars, 0));
+    }
+    
+    @Test
+    public void formatShortest() throws Exception {
+        assertEquals("0", format(0));
+        assertEquals("-0", format(-0F));
+        assertEquals("1", format(1));
+        assertEquals("-2.5", format(-2.5F));
+        assertEquals("0.1", format(0.1F));
+        assertEquals("0.01", format(0.01F));
+        assertEquals("123456.7", format(123456.7F));
+        assertEquals("100", format(100));
+        assertEquals("1.0E7", format(1e7F));
+        assertEquals("NaN", format(Float.NaN));
+    }
+    
+    @Test
+    public void formatShortestRoundTrips() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            float value = i % 2 == 0?
+                Float.intBitsToFloat(random.nextInt()) :
+                (random.nextFloat() - 0.5F) * (float) Math.pow(10, random.nextInt(10) - 3);
+            String str = format(value);
+            assertEquals(str, Float.floatToIntBits(value), Float.floatToIntBits(Float.parseFloat(str)));
+            assertTrue(str, str.length() <= Float.toString(value).length());
+        }
+    }
+    
+    @Test
+    public void formatFixed() throws Exception {
+        assertEquals("0.333", format(1 / 3F, 3));
+        assertEquals("-0.5", format(-0.5F, 6));
+        assertEquals("2", format(1.9999F, 2));
+        assertEquals("0", format(-0.0001F, 3));
+        assertEquals("12345", format(12345, 0));
+    }
+    
+    @Test
+    public void formatInt() throws Exception {
+        char[] chars = new char[NumberFormatter.MAX_LENGTH];
+        for (int value : new int[] {0, 7, -42, 1000, Integer.MAX_VALUE, Integer.MIN_VALUE})
+            assertEquals(Integer.toString(value), new String(chars, 0, NumberFormatter.formatInt(value, chars, 0)));
+    }
+    
+}
@@ -0,0 +1,67 @@
+package eisenwave.torrens.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NumberParserTest {
+    
+    private static float parseFloat(String str) {
+        return NumberParser.parseFloat(str.toCharArray(), 0, str.length());
+    }
+    
+    private static int parseInt(String str) {
+        return NumberParser.parseInt(str.toCharArray(), 0, str.length());
+    }
+    
+    @Test
+    public void parseFloatMatchesJdk() throws Exception {
+        String[] samples = {
+            "0", "-0", "1", "-1", "+2.5", "0.1", ".5", "5.", "3.14159265358979323846", "1e10", "1E-10", "-2.5e+3",
+            "0.000001", "123456789012345678901234567890", "1e-45", "1e-40", "3.4028235e38", "3.5e38", "NaN",
+            "-Infinity", "0x1.8p1", "1.0f", "0.30000001192092896", "16777217", "1.00000017881393432617187499"
+        };
+        for (String sample : samples)
+            assertEquals(sample, Float.floatToIntBits(Float.parseFloat(sample)), Float.floatToIntBits(parseFloat(sample)));
+        
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            String sample = Float.toString(Float.intBitsToFloat(random.nextInt()));
+            assertEquals(sample, Float.floatToIntBits(Float.parseFloat(sample)), Float.floatToIntBits(parseFloat(sample)));
+            
+            sample = String.valueOf(random.nextDouble() * 2000 - 1000);
+            assertEquals(sample, Float.parseFloat(sample), parseFloat(sample), 0);
+        }
+    }
+    
+    @Test
+    public void parseFloatRange() throws Exception {
+        char[] chars = "v 1.5 -2.25".toCharArray();
+        assertEquals(1.5F, NumberParser.parseFloat(chars, 2, 5), 0);
+        assertEquals(-2.25F, NumberParser.parseFloat(chars, 6, 11), 0);
+    }
+    
+    @Test(expected = NumberFormatException.class)
+    public void parseFloatRejectsGarbage() throws Exception {
+        parseFloat("1.2.3");
+    }
+    
+    @Test
+    public void parseInt() throws Exception {
+        assertEquals(0, parseInt("0"));
+        assertEquals(-17, parseInt("-17"));
+        assertEquals(42, parseInt("+42"));
+        assertEquals(Integer.MAX_VALUE, parseInt("2147483647"));
+        assertEquals(Integer.MIN_VALUE, parseInt("-2147483648"));
+        
+        for (String invalid : new String[] {"", "-", "2147483648", "1a", "--1"}) {
+            try {
+                parseInt(invalid);
+                fail(invalid);
+            } catch (NumberFormatException ignored) {}
+        }
+    }
+    
+}
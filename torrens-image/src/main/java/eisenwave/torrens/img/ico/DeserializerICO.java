@@ -1,6 +1,6 @@
 package eisenwave.torrens.img.ico;
 
-import eisenwave.torrens.io.Deserializer;
+import eisenwave.torrens.io.BufferDeserializer;
 import eisenwave.spatium.util.PrimArrays;
 import eisenwave.torrens.error.FileSyntaxException;
 import eisenwave.torrens.error.FileVersionException;
@@ -11,11 +11,12 @@ import org.jetbrains.annotations.NotNull;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
 
-public class DeserializerICO implements Deserializer<BufferedImage[]> {
+public class DeserializerICO implements BufferDeserializer<BufferedImage[]> {
     
     /**
      * whether the two reserved bytes in ICO files should be tested for having the values given in the file format
@@ -30,14 +31,47 @@ public class DeserializerICO implements Deserializer<BufferedImage[]> {
         return fromStream(dataStream);
     }
     
-    private BufferedImage[] fromStream(LittleDataInputStream stream) throws IOException {
-        final int reserved = stream.readLittleUnsignedShort();
-        if (VERIFY_RESERVED && reserved != 0)
-            throw new FileSyntaxException("reserved bytes must be 0");
+    @NotNull
+    @Override
+    public BufferedImage[] fromBuffer(ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
         
-        int type = stream.readLittleUnsignedShort();
-        if (type != 1)
-            throw new FileVersionException("image type is not .ico (" + type + ")");
+        try {
+            checkHeader(buffer.getShort() & 0xFFFF, buffer.getShort() & 0xFFFF);
+            
+            int images = buffer.getShort() & 0xFFFF;
+            ICODirEntry[] entries = new ICODirEntry[images];
+            
+            for (int i = 0; i < images; i++)
+                entries[i] = readDirEntry(buffer);
+            
+            // the offsets can be used directly, but the images are still returned in the order of their offsets
+            Arrays.sort(entries);
+            
+            BufferedImage[] result = new BufferedImage[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                ICODirEntry entry = entries[i];
+                if (entry.offset < 0 || entry.data < 0 || entry.offset > buffer.limit() - start - entry.data) {
+                    String msg = String.format("image data of %s exceeds the file", entry);
+                    throw new FileSyntaxException(msg);
+                }
+                
+                byte[] bytes = new byte[entry.data];
+                ByteBuffer data = buffer.duplicate();
+                data.position(start + entry.offset);
+                data.get(bytes);
+                result[i] = readImage(bytes, entry);
+            }
+            
+            return result;
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException("unexpected end of ico data");
+        }
+    }
+    
+    private BufferedImage[] fromStream(LittleDataInputStream stream) throws IOException {
+        checkHeader(stream.readLittleUnsignedShort(), stream.readLittleUnsignedShort());
         
         int images = stream.readLittleUnsignedShort();
         ICODirEntry[] entries = new ICODirEntry[images];
@@ -59,6 +93,28 @@ public class DeserializerICO implements Deserializer<BufferedImage[]> {
         return result;
     }
     
+    private static void checkHeader(int reserved, int type) throws IOException {
+        if (VERIFY_RESERVED && reserved != 0)
+            throw new FileSyntaxException("reserved bytes must be 0");
+        
+        if (type != 1)
+            throw new FileVersionException("image type is not .ico (" + type + ")");
+    }
+    
+    private static ICODirEntry readDirEntry(ByteBuffer buffer) throws IOException {
+        final int
+            width = buffer.get() & 0xFF,
+            height = buffer.get() & 0xFF,
+            palette = buffer.get() & 0xFF,
+            reserved = buffer.get() & 0xFF,
+            planes = buffer.getShort() & 0xFFFF,
+            bitsPerPixel = buffer.getShort() & 0xFFFF,
+            data = buffer.getInt(),
+            offset = buffer.getInt();
+        
+        return makeDirEntry(width, height, palette, reserved, planes, bitsPerPixel, data, offset);
+    }
+    
     private static ICODirEntry readDirEntry(LittleDataInputStream stream) throws IOException {
         final int
             width = stream.readUnsignedByte(),
@@ -70,6 +126,11 @@ public class DeserializerICO implements Deserializer<BufferedImage[]> {
             data = stream.readLittleInt(),   //site of image's data in bytes
             offset = stream.readLittleInt(); //offset of bmp or png from beginning of file
         
+        return makeDirEntry(width, height, palette, reserved, planes, bitsPerPixel, data, offset);
+    }
+    
+    private static ICODirEntry makeDirEntry(int width, int height, int palette, int reserved,
+                                            int planes, int bitsPerPixel, int data, int offset) throws IOException {
         if (VERIFY_RESERVED && reserved != 0)
             throw new FileSyntaxException("reserved bytes must be 0 (is " + reserved + ")");
         
@@ -90,6 +151,10 @@ public class DeserializerICO implements Deserializer<BufferedImage[]> {
             }
         }
         
+        return readImage(bytes, entry);
+    }
+    
+    private static BufferedImage readImage(byte[] bytes, ICODirEntry entry) throws IOException {
         // Officially, ICO files can contain both PNG and BMP image data, although PNG is not supported by Windows
         
         if (FileMagic.isPNG(bytes)) {
@@ -2,27 +2,54 @@ package eisenwave.torrens.schematic;
 
 import eisenwave.nbt.NBTCompound;
 import eisenwave.torrens.object.Vertex3i;
+import eisenwave.torrens.util.IntQuadConsumer;
 import org.jetbrains.annotations.*;
 
 import java.util.*;
 
+/**
+ * <p>
+ * A structure of blocks, consisting of a palette of {@link BlockKey block keys} and a palette index for every
+ * position.
+ * </p>
+ * <p>
+ * Palette indices are stored densely in a bit-packed {@code long[]}, with as few bits per position as the size of the
+ * palette allows. Only blocks which carry NBT data require an additional entry in a side map. Blocks are iterated in
+ * index order, with {@code x} changing fastest, then {@code z}, then {@code y}.
+ * </p>
+ */
 public class BlockStructure implements Iterable<StructureBlock> {
     
     public final static int LATEST_VERSION = 1457;
     
+    /** the minimum binary logarithm of the amount of bits per position */
+    private final static int MIN_BITS_LOG = 2;
+    
     private final int x, y, z, dataVersion;
     
     //private final List<BlockKey> paletteByIndex = new ArrayList<>();
     private final Map<BlockKey, Integer> palette = new HashMap<>();
     private final List<BlockKey> paletteByIndex = new ArrayList<>();
     
-    private final Map<Vertex3i, Entry> blocks = new LinkedHashMap<>();
+    /** the palette index of every position plus one, so that {@code 0} marks a position without a block */
+    @Nullable
+    private long[] indices;
+    /** the binary logarithm of the amount of bits per position */
+    private int bitsLog;
+    private long mask;
+    /** the NBT data of all blocks which have any, by the index of their position */
+    private final IntNBTMap nbt = new IntNBTMap();
+    private int size;
     
     public BlockStructure(int x, int y, int z, int dataVersion) {
         if (x < 1 || y < 1 || z < 1) {
             String error = String.format("Structure dimensions (%d,%d,%d) must be >= 1 on each axis", x, y, z);
             throw new IllegalArgumentException(error);
         }
+        if ((long) x * y * z > Integer.MAX_VALUE) {
+            String error = String.format("Structure dimensions (%d,%d,%d) exceed the maximum volume", x, y, z);
+            throw new IllegalArgumentException(error);
+        }
         if (dataVersion < 0)
             throw new IllegalArgumentException("dataVersion must be positive");
         
@@ -50,6 +77,10 @@ public class BlockStructure implements Iterable<StructureBlock> {
         return z;
     }
     
+    public int getVolume() {
+        return x * y * z;
+    }
+    
     public int getPaletteSize() {
         return paletteByIndex.size();
     }
@@ -62,8 +93,13 @@ public class BlockStructure implements Iterable<StructureBlock> {
         return new Vertex3i(x, y, z);
     }
     
+    /**
+     * Returns the amount of blocks in this structure.
+     *
+     * @return the amount of blocks
+     */
     public int size() {
-        return blocks.size();
+        return size;
     }
     
     // GETTERS
@@ -72,12 +108,64 @@ public class BlockStructure implements Iterable<StructureBlock> {
         return Collections.unmodifiableList(paletteByIndex);
     }
     
+    /**
+     * Returns the block at the given position or {@code null} if there is no block or the position lies outside of
+     * the structure.
+     *
+     * @param pos the position
+     * @return the block or {@code null}
+     */
+    @Nullable
     public StructureBlock getBlock(Vertex3i pos) {
-        Entry entry = blocks.get(pos);
-        if (entry == null) return null;
+        return getBlock(pos.getX(), pos.getY(), pos.getZ());
+    }
+    
+    /**
+     * Returns the block at the given position or {@code null} if there is no block or the position lies outside of
+     * the structure.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return the block or {@code null}
+     */
+    @Nullable
+    public StructureBlock getBlock(int x, int y, int z) {
+        if (!contains(x, y, z)) return null;
+        
+        final int index = indexOf(x, y, z);
+        final int value = get(index);
+        if (value == 0) return null;
         
-        BlockKey key = paletteByIndex.get(entry.index);
-        return new StructureBlock(pos.getX(), pos.getY(), pos.getZ(), key, entry.nbt);
+        return new StructureBlock(x, y, z, paletteByIndex.get(value - 1), nbt.get(index));
+    }
+    
+    /**
+     * Returns the palette index of the block at the given position or {@code -1} if there is no block.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return the palette index or {@code -1}
+     * @throws IndexOutOfBoundsException if the position lies outside of the structure
+     */
+    public int getPaletteIndex(int x, int y, int z) {
+        return get(checkedIndexOf(x, y, z)) - 1;
+    }
+    
+    /**
+     * Returns the NBT data of the block at the given position or {@code null} if there is no block or it has no NBT
+     * data.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return the NBT data or {@code null}
+     * @throws IndexOutOfBoundsException if the position lies outside of the structure
+     */
+    @Nullable
+    public NBTCompound getNBT(int x, int y, int z) {
+        return nbt.get(checkedIndexOf(x, y, z));
     }
     
     // MUTATORS
@@ -86,42 +174,85 @@ public class BlockStructure implements Iterable<StructureBlock> {
         int index = palette.size();
         palette.put(key, index);
         paletteByIndex.add(key);
+        ensureBits(paletteByIndex.size());
         return index;
     }
     
     public void addBlock(Vertex3i pos, int paletteIndex, @Nullable NBTCompound nbt) {
-        if (paletteIndex < 0 || paletteIndex > paletteByIndex.size())
-            throw new IndexOutOfBoundsException(Integer.toString(paletteIndex));
-        blocks.put(pos, new Entry(paletteIndex, nbt));
+        addBlock(pos.getX(), pos.getY(), pos.getZ(), paletteIndex, nbt);
     }
     
     public void addBlock(int x, int y, int z, int paletteIndex, @Nullable NBTCompound nbt) {
-        addBlock(new Vertex3i(x, y, z), paletteIndex, nbt);
+        if (paletteIndex < 0 || paletteIndex >= paletteByIndex.size())
+            throw new IndexOutOfBoundsException(Integer.toString(paletteIndex));
+        final int index = checkedIndexOf(x, y, z);
+        if (get(index) == 0)
+            size++;
+        set(index, paletteIndex + 1);
+        
+        if (nbt != null)
+            this.nbt.put(index, nbt);
+        else
+            this.nbt.remove(index);
     }
     
-    public void addBlock(Vertex3i pos, @NotNull BlockKey block, @Nullable NBTCompound nbt) {
-        Integer index = palette.get(block);
-        if (index == null) {
-            index = palette.size();
-            palette.put(block, index);
-            paletteByIndex.add(block);
-        }
+    /**
+     * <p>
+     * Sets the palette index of the block at the given position, keeping its NBT data. An index of {@code -1}
+     * removes the block along with its NBT data.
+     * </p>
+     * <p>
+     * Unlike {@link #addBlock(int, int, int, int, NBTCompound)}, this method does not allocate any objects.
+     * </p>
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @param paletteIndex the palette index or {@code -1}
+     * @throws IndexOutOfBoundsException if the position lies outside of the structure or the palette index is invalid
+     */
+    public void setPaletteIndex(int x, int y, int z, int paletteIndex) {
+        if (paletteIndex < -1 || paletteIndex >= paletteByIndex.size())
+            throw new IndexOutOfBoundsException(Integer.toString(paletteIndex));
         
-        blocks.put(pos, new Entry(index, nbt));
+        final int index = checkedIndexOf(x, y, z);
+        final int old = get(index);
+        if (paletteIndex == -1) {
+            if (old == 0) return;
+            set(index, 0);
+            size--;
+            nbt.remove(index);
+        }
+        else {
+            if (old == 0) size++;
+            set(index, paletteIndex + 1);
+        }
+    }
+    
+    public void addBlock(Vertex3i pos, @NotNull BlockKey block, @Nullable NBTCompound nbt) {
+        addBlock(pos.getX(), pos.getY(), pos.getZ(), block, nbt);
     }
     
     public void addBlock(int x, int y, int z, @NotNull BlockKey block, @Nullable NBTCompound nbt) {
-        addBlock(new Vertex3i(x, y, z), block, nbt);
+        Integer index = palette.get(block);
+        if (index == null)
+            index = addToPalette(block);
+        
+        addBlock(x, y, z, index, nbt);
     }
     
     public void addBlock(StructureBlock block) {
-        addBlock(block.getPosition(), block.getKey(), block.getNBT());
+        addBlock(block.getX(), block.getY(), block.getZ(), block.getKey(), block.getNBT());
     }
     
     public void clear() {
         palette.clear();
         paletteByIndex.clear();
-        blocks.clear();
+        nbt.clear();
+        indices = null;
+        bitsLog = 0;
+        mask = 0;
+        size = 0;
     }
     
     // MISC
@@ -136,9 +267,50 @@ public class BlockStructure implements Iterable<StructureBlock> {
         return new StructureStream();
     }
     
+    /**
+     * Performs the given action for every block of this structure in index order.
+     *
+     * @param consumer the consumer
+     */
     public void forEach(StructureConsumer consumer) {
-        blocks.forEach((pos, entry) ->
-            consumer.accept(new StructureBlock(pos, paletteByIndex.get(entry.index), entry.nbt), entry.index));
+        for (int i = nextBlock(0); i >= 0; i = nextBlock(i + 1)) {
+            final int paletteIndex = get(i) - 1;
+            final int bx = i % x, rest = i / x;
+            consumer.accept(new StructureBlock(bx, rest / z, rest % z, paletteByIndex.get(paletteIndex), nbt.get(i)),
+                paletteIndex);
+        }
+    }
+    
+    /**
+     * Performs the given action for every block of this structure in index order, passing its coordinates and its
+     * palette index. Unlike {@link #forEach(StructureConsumer)}, this method does not allocate any objects.
+     *
+     * @param action the action
+     */
+    public void forEachIndexed(IntQuadConsumer action) {
+        if (indices == null) return;
+        final int perWordLog = 6 - bitsLog, perWord = 1 << perWordLog, bits = 1 << bitsLog, volume = getVolume();
+        
+        for (int w = 0; w < indices.length; w++) {
+            long word = indices[w];
+            if (word == 0) continue;
+            
+            // decode all values of the word at once, tracking the coordinates incrementally
+            int i = w << perWordLog;
+            int bx = i % x, rest = i / x, bz = rest % z, by = rest / z;
+            for (int j = 0; j < perWord && i < volume && word != 0; j++, i++, word >>>= bits) {
+                final int value = (int) (word & mask);
+                if (value != 0)
+                    action.accept(bx, by, bz, value - 1);
+                if (++bx == x) {
+                    bx = 0;
+                    if (++bz == z) {
+                        bz = 0;
+                        by++;
+                    }
+                }
+            }
+        }
     }
     
     @Override
@@ -146,48 +318,121 @@ public class BlockStructure implements Iterable<StructureBlock> {
         return obj instanceof BlockStructure && equals((BlockStructure) obj);
     }
     
+    /**
+     * Returns whether this structure is equal to another structure. This condition is met if both structures are equal
+     * in size and contain the same blocks with the same NBT data, regardless of the order of their palettes.
+     *
+     * @param structure the structure
+     * @return whether the structures are equal
+     */
     public boolean equals(BlockStructure structure) {
-        if (!structure.getSize().equals(this.getSize()))
+        if (!structure.getSize().equals(this.getSize()) || structure.size != this.size)
             return false;
         
-        for (Map.Entry<Vertex3i, Entry> entry : blocks.entrySet()) {
-            Entry thisEntry = this.blocks.get(entry.getKey());
-            if (thisEntry == null)
+        for (int i = nextBlock(0); i >= 0; i = nextBlock(i + 1)) {
+            final int otherValue = structure.get(i);
+            if (otherValue == 0)
                 return false;
             
-            Entry otherEntry = entry.getValue();
-            
-            if (!paletteByIndex.get(thisEntry.index).equals(structure.paletteByIndex.get(otherEntry.index)))
+            if (!paletteByIndex.get(get(i) - 1).equals(structure.paletteByIndex.get(otherValue - 1)))
                 return false;
             
-            if (!Objects.equals(thisEntry.nbt, otherEntry.nbt))
+            if (!Objects.equals(nbt.get(i), structure.nbt.get(i)))
                 return false;
         }
         
         return true;
     }
     
-    // SUBCLASSES
+    // UTIL
     
-    private static class Entry {
-        
-        private final int /*x, y, z,*/ index;
-        @Nullable
-        private final NBTCompound nbt;
+    private boolean contains(int x, int y, int z) {
+        return x >= 0 && x < this.x && y >= 0 && y < this.y && z >= 0 && z < this.z;
+    }
+    
+    private int indexOf(int x, int y, int z) {
+        return (y * this.z + z) * this.x + x;
+    }
+    
+    private int checkedIndexOf(int x, int y, int z) {
+        if (!contains(x, y, z))
+            throw new IndexOutOfBoundsException(x + ", " + y + ", " + z + " is outside " + this.x + "x" + this.y + "x" + this.z);
+        return indexOf(x, y, z);
+    }
+    
+    /**
+     * Returns the packed value at the given index, which is the palette index plus one or {@code 0}.
+     */
+    private int get(int index) {
+        if (indices == null) return 0;
+        final int perWordLog = 6 - bitsLog;
+        final int shift = (index & ((1 << perWordLog) - 1)) << bitsLog;
+        return (int) ((indices[index >>> perWordLog] >>> shift) & mask);
+    }
+    
+    private void set(int index, int value) {
+        assert indices != null;
+        final int perWordLog = 6 - bitsLog;
+        final int shift = (index & ((1 << perWordLog) - 1)) << bitsLog;
+        final int word = index >>> perWordLog;
+        indices[word] = (indices[word] & ~(mask << shift)) | ((long) value << shift);
+    }
+    
+    /**
+     * Returns the index of the first block at or after the given index or {@code -1} if there is none. Words without
+     * any blocks are skipped entirely.
+     */
+    private int nextBlock(int index) {
+        if (indices == null) return -1;
+        final int volume = getVolume(), perWordLog = 6 - bitsLog;
         
-        public Entry(/*int x, int y, int z,*/ int index, @Nullable NBTCompound nbt) {
-            // this.x = x;
-            // this.y = y;
-            // this.z = z;
-            this.index = index;
-            this.nbt = nbt;
+        while (index < volume) {
+            if (indices[index >>> perWordLog] == 0) {
+                index = ((index >>> perWordLog) + 1) << perWordLog;
+                continue;
+            }
+            if (get(index) != 0)
+                return index;
+            index++;
         }
+        return -1;
+    }
+    
+    /**
+     * Ensures that the packed values can represent the given value, repacking them with more bits if necessary.
+     */
+    private void ensureBits(int maxValue) {
+        int log = Math.max(bitsLog, MIN_BITS_LOG);
+        while (log < 5 && maxValue > (1L << (1 << log)) - 1)
+            log++;
+        
+        if (indices != null && log == bitsLog)
+            return;
+        
+        final long[] oldIndices = indices;
+        final int oldBitsLog = bitsLog;
+        final long oldMask = mask;
+        
+        bitsLog = log;
+        mask = (1L << (1 << log)) - 1;
+        indices = new long[(int) (((long) getVolume() << log) + 63 >>> 6)];
         
+        if (oldIndices != null) {
+            final int oldPerWordLog = 6 - oldBitsLog;
+            for (int i = 0, volume = getVolume(); i < volume; i++) {
+                final int shift = (i & ((1 << oldPerWordLog) - 1)) << oldBitsLog;
+                final int value = (int) ((oldIndices[i >>> oldPerWordLog] >>> shift) & oldMask);
+                if (value != 0)
+                    set(i, value);
+            }
+        }
     }
     
-    private class StructureStream implements BlockStructureStream, Iterator<StructureBlock> {
+    // SUBCLASSES
     
-        private final Iterator<Map.Entry<Vertex3i, Entry>> iterator = BlockStructure.this.blocks.entrySet().iterator();
+    private class StructureStream implements BlockStructureStream, Iterator<StructureBlock> {
+        
+        private int index = nextBlock(0);
         
         @Override
         public int getSizeX() {
@@ -203,18 +448,22 @@ public class BlockStructure implements Iterable<StructureBlock> {
         public int getSizeZ() {
             return BlockStructure.this.z;
         }
-    
+        
         @Override
         public boolean hasNext() {
-            return iterator.hasNext();
+            return index >= 0;
         }
-    
+        
         @Override
         public StructureBlock next() {
-            Map.Entry<Vertex3i, Entry> next = iterator.next();
-            Entry value = next.getValue();
-            BlockKey block = BlockStructure.this.paletteByIndex.get(value.index);
-            return new StructureBlock(next.getKey(), block, value.nbt);
+            if (index < 0)
+                throw new NoSuchElementException();
+            
+            final int i = index, bx = i % x, rest = i / x;
+            index = nextBlock(i + 1);
+            
+            BlockKey block = BlockStructure.this.paletteByIndex.get(get(i) - 1);
+            return new StructureBlock(bx, rest / z, rest % z, block, nbt.get(i));
         }
         
     }
@@ -0,0 +1,148 @@
+package eisenwave.torrens.schematic;
+
+import eisenwave.nbt.NBTCompound;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A hash map from non-negative {@code int} keys to NBT compounds, used by {@link BlockStructure} to store the NBT data
+ * of blocks by the index of their position.
+ * </p>
+ * <p>
+ * Keys are stored in an {@code int[]} using open addressing with linear probing, so that neither lookups nor
+ * insertions box their key. Removed entries are closed by shifting the following entries of their cluster back
+ * instead of leaving tombstones behind.
+ * </p>
+ */
+class IntNBTMap {
+    
+    private final static int EMPTY = -1;
+    /** the binary logarithm of the capacity once the first entry is added */
+    private final static int MIN_CAPACITY_LOG = 4;
+    
+    @Nullable
+    private int[] keys;
+    @Nullable
+    private NBTCompound[] values;
+    private int capacityLog, size;
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Returns the value of the given key or {@code null} if there is none.
+     *
+     * @param key the key
+     * @return the value or {@code null}
+     */
+    @Nullable
+    public NBTCompound get(int key) {
+        if (size == 0) return null;
+        for (int slot = slotOf(key); ; slot = next(slot)) {
+            final int k = keys[slot];
+            if (k == key) return values[slot];
+            if (k == EMPTY) return null;
+        }
+    }
+    
+    /**
+     * Maps the given key to a value, replacing any previous value.
+     *
+     * @param key the key, which must not be negative
+     * @param value the value
+     */
+    public void put(int key, NBTCompound value) {
+        if (key < 0) throw new IllegalArgumentException("negative key: " + key);
+        if (keys == null)
+            resize(MIN_CAPACITY_LOG);
+        else if ((size + 1) * 2 > keys.length)
+            resize(capacityLog + 1);
+        
+        int slot = slotOf(key);
+        for (; keys[slot] != EMPTY; slot = next(slot)) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+    
+    /**
+     * Removes the value of the given key, if there is any.
+     *
+     * @param key the key
+     */
+    public void remove(int key) {
+        if (size == 0) return;
+        int gap = slotOf(key);
+        for (; keys[gap] != key; gap = next(gap))
+            if (keys[gap] == EMPTY) return;
+        
+        // move entries of the cluster into the gap unless that would place them before their home slot
+        final int mask = keys.length - 1;
+        for (int slot = next(gap); ; slot = next(slot)) {
+            final int k = keys[slot];
+            if (k == EMPTY) break;
+            if (((slot - slotOf(k)) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = k;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+        size--;
+    }
+    
+    public void clear() {
+        keys = null;
+        values = null;
+        capacityLog = 0;
+        size = 0;
+    }
+    
+    // UTIL
+    
+    private void resize(int capacityLog) {
+        final int[] oldKeys = keys;
+        final NBTCompound[] oldValues = values;
+        
+        this.capacityLog = capacityLog;
+        this.keys = new int[1 << capacityLog];
+        this.values = new NBTCompound[1 << capacityLog];
+        Arrays.fill(keys, EMPTY);
+        if (oldKeys == null) return;
+        
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slotOf(oldKeys[i]);
+            while (keys[slot] != EMPTY)
+                slot = next(slot);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+    
+    /**
+     * Returns the home slot of a key. Keys are spread using Fibonacci hashing, since the indices of neighbouring
+     * blocks are often consecutive or a multiple of the structure's width apart.
+     */
+    private int slotOf(int key) {
+        return (key * 0x9E3779B9) >>> (32 - capacityLog);
+    }
+    
+    private int next(int slot) {
+        return (slot + 1) & (keys.length - 1);
+    }
+    
+}
@@ -2,20 +2,28 @@ package eisenwave.torrens.schematic;
 
 import eisenwave.io.Serializer;
 import eisenwave.nbt.*;
-import eisenwave.nbt.io.NBTSerializer;
 import eisenwave.torrens.object.Vertex3i;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 
+/**
+ * <p>
+ * A serializer for <b>Structure (.nbt)</b> files.
+ * </p>
+ * <p>
+ * Structures are encoded block by block using a {@link StructureWriter}, without building an NBT tree of the file
+ * first. Only {@link #toMSONString(BlockStructure)} builds the tree.
+ * </p>
+ */
 public class SerializerStructureBlocks implements Serializer<BlockStructure> {
     
     private final String author;
-    private final NBTSerializer serializer;
+    private final StructureWriter writer;
     
     public SerializerStructureBlocks(@Nullable String author, boolean compression) {
         this.author = author;
-        this.serializer = new NBTSerializer(compression);
+        this.writer = new StructureWriter(compression);
     }
     
     public SerializerStructureBlocks() {
@@ -24,22 +32,26 @@ public class SerializerStructureBlocks implements Serializer<BlockStructure> {
     
     @Override
     public void toStream(BlockStructure structure, OutputStream stream) throws IOException {
-        serializer.toStream(serialize(structure), stream);
+        writer.write(structure, author(), stream);
     }
     
     @Override
     public void toFile(BlockStructure structure, File file) throws IOException {
-        serializer.toFile(serialize(structure), file);
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            toStream(structure, stream);
+        }
     }
     
     @Override
     public byte[] toBytes(BlockStructure structure, int capacity) throws IOException {
-        return serializer.toBytes(serialize(structure), capacity);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(capacity);
+        toStream(structure, stream);
+        return stream.toByteArray();
     }
     
     @Override
     public byte[] toBytes(BlockStructure structure) throws IOException {
-        return serializer.toBytes(serialize(structure));
+        return toBytes(structure, 8192);
     }
     
     public String toMSONString(BlockStructure structure) {
@@ -50,7 +62,7 @@ public class SerializerStructureBlocks implements Serializer<BlockStructure> {
         NBTCompound root = new NBTCompound();
         
         root.putInt("DataVersion", structure.getDataVersion());
-        root.putString("author", author != null? author : "VoxelVert");
+        root.putString("author", author());
         root.put("size", serializeIntTriple(structure.getSize()));
         root.put("palette", serializePalette(structure));
         root.put("blocks", serializeBlocks(structure));
@@ -58,6 +70,10 @@ public class SerializerStructureBlocks implements Serializer<BlockStructure> {
         return new NBTNamedTag("", root);
     }
     
+    private String author() {
+        return author != null? author : "VoxelVert";
+    }
+    
     private static NBTList serializePalette(BlockStructure structure) {
         NBTList palette = new NBTList(NBTType.COMPOUND);
         for (BlockKey key : structure.getPalette()) {
@@ -0,0 +1,36 @@
+package eisenwave.torrens.schematic;
+
+import eisenwave.nbt.NBTCompound;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Receives the contents of a structure file from a {@link StructureReader}, while the file is being read.
+ */
+public interface StructureHandler {
+    
+    /**
+     * Called exactly once, before any block is passed to the handler.
+     *
+     * @param dataVersion the data version of the structure
+     * @param x the size of the structure on the x-axis
+     * @param y the size of the structure on the y-axis
+     * @param z the size of the structure on the z-axis
+     * @param palette the palette of the structure
+     */
+    abstract void start(int dataVersion, int x, int y, int z, @NotNull List<BlockKey> palette);
+    
+    /**
+     * Called for every block in the structure, in the order in which they are stored in the file.
+     *
+     * @param x the x-coordinate of the block
+     * @param y the y-coordinate of the block
+     * @param z the z-coordinate of the block
+     * @param paletteIndex the index of the block in the palette
+     * @param nbt the NBT data of the block or {@code null}
+     */
+    abstract void block(int x, int y, int z, int paletteIndex, @Nullable NBTCompound nbt);
+    
+}
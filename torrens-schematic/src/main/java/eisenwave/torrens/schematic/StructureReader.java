@@ -0,0 +1,471 @@
+package eisenwave.torrens.schematic;
+
+import eisenwave.nbt.NBTCompound;
+import eisenwave.nbt.io.NBTDeserializer;
+import eisenwave.torrens.error.FileSyntaxException;
+import eisenwave.torrens.error.FileVersionException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>
+ * An event-driven reader for <b>Structure (.nbt)</b> files, which decodes the palette and the blocks of a structure
+ * straight from the inflated stream into a {@link StructureHandler}, without building an NBT tree of the file.
+ * </p>
+ * <p>
+ * Only the optional {@code nbt} compound of a block is decoded into an {@link NBTCompound}. Unknown tags such as
+ * {@code author} or {@code entities} are skipped without being decoded.
+ * </p>
+ * <p>
+ * The tags of the root compound may appear in any order. Blocks which precede the {@code DataVersion}, {@code size}
+ * or {@code palette} tag are buffered as four integers each, until the handler has been started.
+ * </p>
+ * <p>
+ * Instances of this class are not thread-safe.
+ * </p>
+ */
+public class StructureReader {
+    
+    private final static int
+        TAG_END = 0,
+        TAG_BYTE = 1,
+        TAG_SHORT = 2,
+        TAG_INT = 3,
+        TAG_LONG = 4,
+        TAG_FLOAT = 5,
+        TAG_DOUBLE = 6,
+        TAG_BYTE_ARRAY = 7,
+        TAG_STRING = 8,
+        TAG_LIST = 9,
+        TAG_COMPOUND = 10,
+        TAG_INT_ARRAY = 11,
+        TAG_LONG_ARRAY = 12;
+    
+    private final static byte[]
+        KEY_DATA_VERSION = key("DataVersion"),
+        KEY_VERSION = key("version"),
+        KEY_SIZE = key("size"),
+        KEY_PALETTE = key("palette"),
+        KEY_BLOCKS = key("blocks"),
+        KEY_NAME = key("Name"),
+        KEY_PROPERTIES = key("Properties"),
+        KEY_STATE = key("state"),
+        KEY_POS = key("pos"),
+        KEY_NBT = key("nbt");
+    
+    private final static int BUFFER_SIZE = 1 << 16;
+    
+    private final boolean compressed;
+    
+    /** the name of the current tag, which is only stored if it is not longer than any known key */
+    private final byte[] name = new byte[16];
+    private int nameLength;
+    private final byte[] scratch = new byte[8192];
+    private final ByteArrayOutputStream capture = new ByteArrayOutputStream();
+    private final DataOutputStream captureOut = new DataOutputStream(capture);
+    private final int[] triple = new int[3];
+    
+    private DataInputStream in;
+    private StructureHandler handler;
+    
+    private boolean hasDataVersion, hasSize, started;
+    private int dataVersion, sizeX, sizeY, sizeZ;
+    @Nullable
+    private List<BlockKey> palette;
+    
+    /** blocks which have been read before the handler was started, as (x, y, z, state) */
+    private int[] pending;
+    private int pendingCount;
+    private final Map<Integer, NBTCompound> pendingNBT = new HashMap<>();
+    
+    /**
+     * Constructs a new structure reader.
+     *
+     * @param compressed whether the read streams are compressed using GZIP
+     */
+    public StructureReader(boolean compressed) {
+        this.compressed = compressed;
+    }
+    
+    /**
+     * Constructs a new structure reader for GZIP-compressed streams.
+     */
+    public StructureReader() {
+        this(true);
+    }
+    
+    /**
+     * Reads a structure from a stream and passes its contents to a handler.
+     *
+     * @param stream the input stream
+     * @param handler the handler
+     * @throws FileVersionException if the data version of the structure is not supported
+     * @throws FileSyntaxException if the stream does not contain a valid structure
+     * @throws IOException if an I/O error occurs
+     */
+    public void read(InputStream stream, StructureHandler handler) throws IOException {
+        InputStream input = compressed? new GZIPInputStream(stream, BUFFER_SIZE) : stream;
+        this.in = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+        this.handler = handler;
+        this.hasDataVersion = this.hasSize = this.started = false;
+        this.palette = null;
+        this.pending = new int[256];
+        this.pendingCount = 0;
+        
+        try {
+            readRoot();
+        } finally {
+            this.in = null;
+            this.handler = null;
+            this.palette = null;
+            this.pending = null;
+            this.pendingNBT.clear();
+        }
+    }
+    
+    // STRUCTURE
+    
+    private void readRoot() throws IOException {
+        if (in.readUnsignedByte() != TAG_COMPOUND)
+            throw new FileSyntaxException("root must be a TAG_COMPOUND");
+        transfer(TAG_STRING, null);
+        
+        for (int type; (type = in.readUnsignedByte()) != TAG_END; ) {
+            readName();
+            
+            if (type == TAG_INT && nameIs(KEY_DATA_VERSION)) {
+                dataVersion = validateVersion(in.readInt());
+                hasDataVersion = true;
+            }
+            else if (type == TAG_INT && nameIs(KEY_VERSION)) {
+                String version = "version=" + in.readInt();
+                throw new FileVersionException(version + "!!! legacy (1.12.2 minus) structures are not supported");
+            }
+            else if (nameIs(KEY_SIZE))
+                readSize(type);
+            else if (nameIs(KEY_PALETTE))
+                readPalette(type);
+            else if (nameIs(KEY_BLOCKS))
+                readBlocks(type);
+            else
+                transfer(type, null);
+            
+            if (!started && hasDataVersion && hasSize && palette != null)
+                start();
+        }
+        
+        if (!hasDataVersion)
+            validateVersion(0);
+        if (!hasSize)
+            throw new FileSyntaxException("size must be a triple of TAG_INT");
+        if (!started)
+            start();
+    }
+    
+    private void readSize(int type) throws IOException {
+        readIntTriple(type, "size");
+        if (triple[0] < 1 || triple[1] < 1 || triple[2] < 1)
+            throw new FileSyntaxException("size must be >= 1 on each axis: " + Arrays.toString(triple));
+        this.sizeX = triple[0];
+        this.sizeY = triple[1];
+        this.sizeZ = triple[2];
+        this.hasSize = true;
+    }
+    
+    private void readPalette(int type) throws IOException {
+        final int length = readListHeader(type, TAG_COMPOUND, "palette must be a TAG_LIST<TAG_COMPOUND>");
+        final List<BlockKey> palette = new ArrayList<>(Math.min(length, 1024));
+        for (int i = 0; i < length; i++)
+            palette.add(readPaletteEntry());
+        this.palette = palette;
+    }
+    
+    private BlockKey readPaletteEntry() throws IOException {
+        String name = null;
+        Map<String, String> properties = null;
+        
+        for (int type; (type = in.readUnsignedByte()) != TAG_END; ) {
+            readName();
+            if (type == TAG_STRING && nameIs(KEY_NAME))
+                name = in.readUTF();
+            else if (type == TAG_COMPOUND && nameIs(KEY_PROPERTIES))
+                properties = readProperties();
+            else
+                transfer(type, null);
+        }
+        
+        if (name == null)
+            throw new FileSyntaxException("palette entry must have a Name");
+        final int colon = name.indexOf(':');
+        final String nameSpace = colon < 0? BlockKey.DEFAULT_NAMESPACE : name.substring(0, colon);
+        final String id = name.substring(colon + 1);
+        
+        return properties == null? new BlockKey(nameSpace, id) : new BlockKey(nameSpace, id, properties);
+    }
+    
+    private Map<String, String> readProperties() throws IOException {
+        Map<String, String> properties = new HashMap<>();
+        for (int type; (type = in.readUnsignedByte()) != TAG_END; ) {
+            String key = in.readUTF();
+            if (type == TAG_STRING)
+                properties.put(key, in.readUTF());
+            else
+                transfer(type, null);
+        }
+        return properties;
+    }
+    
+    private void readBlocks(int type) throws IOException {
+        final int length = readListHeader(type, TAG_COMPOUND, "blocks must be a TAG_LIST<TAG_COMPOUND>");
+        for (int i = 0; i < length; i++)
+            readBlock();
+    }
+    
+    private void readBlock() throws IOException {
+        int state = -1, x = 0, y = 0, z = 0;
+        boolean hasPos = false;
+        NBTCompound nbt = null;
+        
+        for (int type; (type = in.readUnsignedByte()) != TAG_END; ) {
+            readName();
+            if (type == TAG_INT && nameIs(KEY_STATE))
+                state = in.readInt();
+            else if (nameIs(KEY_POS)) {
+                readIntTriple(type, "pos");
+                x = triple[0];
+                y = triple[1];
+                z = triple[2];
+                hasPos = true;
+            }
+            else if (type == TAG_COMPOUND && nameIs(KEY_NBT))
+                nbt = readCompound();
+            else
+                transfer(type, null);
+        }
+        
+        if (state < 0)
+            throw new FileSyntaxException("block must have a non-negative state");
+        if (!hasPos)
+            throw new FileSyntaxException("block must have a pos");
+        
+        if (started)
+            emit(x, y, z, state, nbt);
+        else
+            buffer(x, y, z, state, nbt);
+    }
+    
+    // EVENTS
+    
+    private void start() throws IOException {
+        if (palette == null)
+            palette = Collections.emptyList();
+        started = true;
+        handler.start(dataVersion, sizeX, sizeY, sizeZ, Collections.unmodifiableList(palette));
+        
+        for (int i = 0, j = 0; i < pendingCount; i++, j += 4)
+            emit(pending[j], pending[j + 1], pending[j + 2], pending[j + 3], pendingNBT.remove(i));
+        pending = null;
+    }
+    
+    private void buffer(int x, int y, int z, int state, @Nullable NBTCompound nbt) {
+        final int offset = pendingCount * 4;
+        if (offset == pending.length)
+            pending = Arrays.copyOf(pending, pending.length * 2);
+        pending[offset] = x;
+        pending[offset + 1] = y;
+        pending[offset + 2] = z;
+        pending[offset + 3] = state;
+        if (nbt != null)
+            pendingNBT.put(pendingCount, nbt);
+        pendingCount++;
+    }
+    
+    private void emit(int x, int y, int z, int state, @Nullable NBTCompound nbt) throws IOException {
+        assert palette != null;
+        if (state >= palette.size())
+            throw new FileSyntaxException("block state " + state + " exceeds palette of size " + palette.size());
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ)
+            throw new FileSyntaxException("block at " + x + ", " + y + ", " + z + " is outside " +
+                sizeX + "x" + sizeY + "x" + sizeZ);
+        handler.block(x, y, z, state, nbt);
+    }
+    
+    // NBT
+    
+    private void readName() throws IOException {
+        nameLength = in.readUnsignedShort();
+        if (nameLength <= name.length)
+            in.readFully(name, 0, nameLength);
+        else
+            transferBytes(nameLength, null);
+    }
+    
+    private boolean nameIs(byte[] key) {
+        if (key.length != nameLength)
+            return false;
+        for (int i = 0; i < nameLength; i++)
+            if (name[i] != key[i])
+                return false;
+        return true;
+    }
+    
+    private int readListHeader(int type, int elementType, String error) throws IOException {
+        if (type != TAG_LIST)
+            throw new FileSyntaxException(error);
+        final int actualType = in.readUnsignedByte();
+        final int length = in.readInt();
+        if (length < 0)
+            throw new FileSyntaxException("negative list length: " + length);
+        // empty lists may have any element type, usually TAG_END
+        if (actualType != elementType && length != 0)
+            throw new FileSyntaxException(error);
+        return length;
+    }
+    
+    private void readIntTriple(int type, String tag) throws IOException {
+        final int length = readListHeader(type, TAG_INT, tag + " must be a TAG_LIST<TAG_INT>");
+        if (length != 3)
+            throw new FileSyntaxException(tag + " must be a triple of TAG_INT");
+        triple[0] = in.readInt();
+        triple[1] = in.readInt();
+        triple[2] = in.readInt();
+    }
+    
+    /**
+     * Reads the payload of a compound by copying it and decoding the copy using a {@link NBTDeserializer}.
+     */
+    private NBTCompound readCompound() throws IOException {
+        capture.reset();
+        captureOut.writeByte(TAG_COMPOUND);
+        captureOut.writeShort(0);
+        transfer(TAG_COMPOUND, captureOut);
+        
+        InputStream copy = new ByteArrayInputStream(capture.toByteArray());
+        return (NBTCompound) new NBTDeserializer(false).fromStream(copy).getTag();
+    }
+    
+    /**
+     * Reads the payload of a tag and either copies it to an output stream or skips it.
+     *
+     * @param type the type of the tag
+     * @param out the output stream or {@code null} if the payload is to be skipped
+     */
+    private void transfer(int type, @Nullable DataOutputStream out) throws IOException {
+        final int width = widthOf(type);
+        if (width != 0) {
+            transferBytes(width, out);
+            return;
+        }
+        
+        switch (type) {
+            case TAG_BYTE_ARRAY: transferBytes(transferLength(out), out); break;
+            case TAG_INT_ARRAY: transferBytes(4L * transferLength(out), out); break;
+            case TAG_LONG_ARRAY: transferBytes(8L * transferLength(out), out); break;
+            case TAG_STRING: {
+                final int length = in.readUnsignedShort();
+                if (out != null) out.writeShort(length);
+                transferBytes(length, out);
+                break;
+            }
+            case TAG_LIST: {
+                final int elementType = in.readUnsignedByte();
+                if (out != null) out.writeByte(elementType);
+                final int length = transferLength(out);
+                final int elementWidth = widthOf(elementType);
+                if (elementWidth != 0)
+                    transferBytes((long) elementWidth * length, out);
+                else
+                    for (int i = 0; i < length; i++)
+                        transfer(elementType, out);
+                break;
+            }
+            case TAG_COMPOUND: {
+                int childType;
+                while ((childType = in.readUnsignedByte()) != TAG_END) {
+                    if (out != null) out.writeByte(childType);
+                    transfer(TAG_STRING, out);
+                    transfer(childType, out);
+                }
+                if (out != null) out.writeByte(TAG_END);
+                break;
+            }
+            default: throw new FileSyntaxException("unknown tag type: " + type);
+        }
+    }
+    
+    private int transferLength(@Nullable DataOutputStream out) throws IOException {
+        final int length = in.readInt();
+        if (length < 0)
+            throw new FileSyntaxException("negative length: " + length);
+        if (out != null)
+            out.writeInt(length);
+        return length;
+    }
+    
+    private void transferBytes(long count, @Nullable DataOutputStream out) throws IOException {
+        if (out == null) {
+            while (count > 0) {
+                long skipped = in.skip(count);
+                if (skipped <= 0) {
+                    in.readByte();
+                    skipped = 1;
+                }
+                count -= skipped;
+            }
+        }
+        else while (count > 0) {
+            final int length = (int) Math.min(count, scratch.length);
+            in.readFully(scratch, 0, length);
+            out.write(scratch, 0, length);
+            count -= length;
+        }
+    }
+    
+    // UTIL
+    
+    /**
+     * Validates the {@code DataVersion} of a structure.
+     *
+     * @param dataVersion the data version
+     * @return the data version
+     * @throws FileVersionException if the data version is not supported
+     */
+    static int validateVersion(int dataVersion) throws FileVersionException {
+        if (dataVersion < BlockStructure.LATEST_VERSION) {
+            String version = "DataVersion=" + dataVersion;
+            throw new FileVersionException(version + "!!! legacy (1.12.2 minus) structures are not supported");
+        }
+        if (dataVersion > BlockStructure.LATEST_VERSION) {
+            String version = "DataVersion=" + dataVersion;
+            throw new FileVersionException(version + "!!! at most " + BlockStructure.LATEST_VERSION +
+                " (1.13.2) is supported");
+        }
+        return dataVersion;
+    }
+    
+    /**
+     * Returns the size of the payload of a tag type, or {@code 0} if the payload has a variable size.
+     */
+    private static int widthOf(int type) {
+        switch (type) {
+            case TAG_BYTE: return 1;
+            case TAG_SHORT: return 2;
+            case TAG_INT:
+            case TAG_FLOAT: return 4;
+            case TAG_LONG:
+            case TAG_DOUBLE: return 8;
+            default: return 0;
+        }
+    }
+    
+    @NotNull
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+    
+}
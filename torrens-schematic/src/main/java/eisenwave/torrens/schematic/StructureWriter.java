@@ -0,0 +1,174 @@
+package eisenwave.torrens.schematic;
+
+import eisenwave.nbt.NBTCompound;
+import eisenwave.nbt.NBTNamedTag;
+import eisenwave.nbt.io.NBTSerializer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>
+ * A writer for <b>Structure (.nbt)</b> files, which encodes a {@link BlockStructure} straight into the NBT binary
+ * format while iterating over its blocks, without building an NBT tree of the file.
+ * </p>
+ * <p>
+ * The names and list headers of the tags of every block are constant and written as precomputed byte sequences.
+ * Only the optional NBT data of a block is written using a {@link NBTSerializer}.
+ * </p>
+ */
+public class StructureWriter {
+    
+    private final static int
+        TAG_END = 0,
+        TAG_INT = 3,
+        TAG_STRING = 8,
+        TAG_LIST = 9,
+        TAG_COMPOUND = 10;
+    
+    private final static byte[]
+        HEADER_STATE = header(TAG_INT, "state"),
+        HEADER_POS = listHeader("pos", TAG_INT, 3);
+    
+    private final static int BUFFER_SIZE = 1 << 16;
+    
+    private final boolean compressed;
+    private final NBTSerializer nbtSerializer = new NBTSerializer(false);
+    
+    /**
+     * Constructs a new structure writer.
+     *
+     * @param compressed whether the written streams are compressed using GZIP
+     */
+    public StructureWriter(boolean compressed) {
+        this.compressed = compressed;
+    }
+    
+    /**
+     * Constructs a new structure writer for GZIP-compressed streams.
+     */
+    public StructureWriter() {
+        this(true);
+    }
+    
+    /**
+     * Writes a structure to a stream. The stream is flushed, but not closed.
+     *
+     * @param structure the structure
+     * @param author the author of the structure
+     * @param stream the output stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(BlockStructure structure, @NotNull String author, OutputStream stream) throws IOException {
+        GZIPOutputStream gzipStream = compressed? new GZIPOutputStream(stream, BUFFER_SIZE) : null;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            gzipStream != null? gzipStream : stream, BUFFER_SIZE));
+        
+        writeName(out, TAG_COMPOUND, "");
+        
+        writeName(out, TAG_INT, "DataVersion");
+        out.writeInt(structure.getDataVersion());
+        
+        writeName(out, TAG_STRING, "author");
+        out.writeUTF(author);
+        
+        out.write(listHeader("size", TAG_INT, 3));
+        out.writeInt(structure.getSizeX());
+        out.writeInt(structure.getSizeY());
+        out.writeInt(structure.getSizeZ());
+        
+        writePalette(out, structure);
+        writeBlocks(out, structure);
+        
+        out.writeByte(TAG_END);
+        out.flush();
+        if (gzipStream != null) {
+            gzipStream.finish();
+            gzipStream.flush();
+        }
+    }
+    
+    private static void writePalette(DataOutputStream out, BlockStructure structure) throws IOException {
+        out.write(listHeader("palette", TAG_COMPOUND, structure.getPaletteSize()));
+        
+        for (BlockKey key : structure.getPalette()) {
+            writeName(out, TAG_STRING, "Name");
+            out.writeUTF(key.getNameSpace() + ':' + key.getId());
+            
+            if (key.hasBlockState()) {
+                writeName(out, TAG_COMPOUND, "Properties");
+                for (Map.Entry<String, String> entry : key.getBlockState().entrySet()) {
+                    writeName(out, TAG_STRING, entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+                out.writeByte(TAG_END);
+            }
+            out.writeByte(TAG_END);
+        }
+    }
+    
+    private void writeBlocks(DataOutputStream out, BlockStructure structure) throws IOException {
+        out.write(listHeader("blocks", TAG_COMPOUND, structure.size()));
+        
+        try {
+            structure.forEachIndexed((x, y, z, paletteIndex) -> {
+                try {
+                    out.write(HEADER_STATE);
+                    out.writeInt(paletteIndex);
+                    out.write(HEADER_POS);
+                    out.writeInt(x);
+                    out.writeInt(y);
+                    out.writeInt(z);
+                    
+                    NBTCompound nbt = structure.getNBT(x, y, z);
+                    if (nbt != null)
+                        nbtSerializer.toStream(new NBTNamedTag("nbt", nbt), (DataOutput) out);
+                    out.writeByte(TAG_END);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+    
+    // UTIL
+    
+    private static void writeName(DataOutputStream out, int type, String name) throws IOException {
+        out.writeByte(type);
+        out.writeUTF(name);
+    }
+    
+    /**
+     * Returns the type and name of a tag as they are written in a compound.
+     */
+    private static byte[] header(int type, String name) {
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        final byte[] result = new byte[bytes.length + 3];
+        result[0] = (byte) type;
+        result[1] = (byte) (bytes.length >> 8);
+        result[2] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, result, 3, bytes.length);
+        return result;
+    }
+    
+    /**
+     * Returns the type, name, element type and length of a list tag as they are written in a compound.
+     */
+    private static byte[] listHeader(String name, int elementType, int length) {
+        final byte[] header = header(TAG_LIST, name);
+        final byte[] result = new byte[header.length + 5];
+        System.arraycopy(header, 0, result, 0, header.length);
+        result[header.length] = (byte) elementType;
+        result[header.length + 1] = (byte) (length >> 24);
+        result[header.length + 2] = (byte) (length >> 16);
+        result[header.length + 3] = (byte) (length >> 8);
+        result[header.length + 4] = (byte) length;
+        return result;
+    }
+    
+}
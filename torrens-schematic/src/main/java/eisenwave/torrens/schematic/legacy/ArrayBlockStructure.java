@@ -9,6 +9,17 @@ import org.jetbrains.annotations.*;
 import java.io.Serializable;
 import java.util.Arrays;
 
+/**
+ * <p>
+ * A legacy block structure which stores block ids, block data and optionally biomes and block light in arrays.
+ * </p>
+ * <p>
+ * Blocks are stored in the native order of <b>Schematic (.schematic)</b> files, with {@code x} changing fastest, then
+ * {@code z}, then {@code y}. Id arrays can therefore be adopted by or copied into a structure as a whole, see
+ * {@link #ArrayBlockStructure(int, int, int, byte[], byte[])}, {@link #importBlocks(byte[], byte[])} and
+ * {@link #exportBlocks(byte[], byte[])}.
+ * </p>
+ */
 public class ArrayBlockStructure extends AbstractArray3 implements LegacyBlockStructure, Serializable, Cloneable {
     
     /** store block biomes */
@@ -42,13 +53,36 @@ public class ArrayBlockStructure extends AbstractArray3 implements LegacyBlockSt
         this(x, y, z, 0);
     }
     
+    /**
+     * Constructs a new structure which takes ownership of the given id array, without copying it. The data array
+     * stores one data value per byte, like the {@code Data} tag of a schematic, and is packed into nibbles. Both arrays
+     * must be in the native order of this structure.
+     *
+     * @param x the size on the x-axis
+     * @param y the size on the y-axis
+     * @param z the size on the z-axis
+     * @param ids the block ids
+     * @param data the block data, one value per byte
+     * @throws IllegalArgumentException if the length of an array does not match the volume
+     */
+    public ArrayBlockStructure(int x, int y, int z, byte[] ids, byte[] data) {
+        super(x, y, z);
+        final int length = getLength();
+        
+        this.flags = 0;
+        this.arrayId = checkLength(ids, length);
+        this.arrayData = packNibbles(checkLength(data, length));
+        this.arrayBiome = null;
+        this.arrayLight = null;
+    }
+    
     public ArrayBlockStructure(ArrayBlockStructure copyOf) {
-        this(copyOf.sizeX, copyOf.sizeY, copyOf.sizeZ, copyOf.flags);
-        forEachPos((pos) -> setBlock(pos, copyOf.getBlock(pos)));
-        if (hasBiomes())
-            forEachPos((x, y, z) -> setBiome(x, z, copyOf.getBiome(x, z)));
-        if (hasLight())
-            forEachPos(pos -> setBlockLight(pos, copyOf.getLight(pos)));
+        super(copyOf.sizeX, copyOf.sizeY, copyOf.sizeZ);
+        this.flags = copyOf.flags;
+        this.arrayId = copyOf.arrayId.clone();
+        this.arrayData = copyNibbles(copyOf.arrayData, getLength());
+        this.arrayBiome = copyOf.arrayBiome != null? copyOf.arrayBiome.clone() : null;
+        this.arrayLight = copyOf.arrayLight != null? copyOf.arrayLight.clone() : null;
     }
     
     /**
@@ -81,6 +115,11 @@ public class ArrayBlockStructure extends AbstractArray3 implements LegacyBlockSt
         return result;
     }
     
+    @Override
+    protected int indexOf(int x, int y, int z) {
+        return (y * sizeZ + z) * sizeX + x;
+    }
+    
     protected int indexOf(int x, int z) {
         return z * sizeX + x;
     }
@@ -237,6 +276,36 @@ public class ArrayBlockStructure extends AbstractArray3 implements LegacyBlockSt
         }
     }
     
+    /**
+     * Copies the ids and data of all blocks into this structure. Both arrays must be in the native order of this
+     * structure and store one value per byte.
+     *
+     * @param ids the block ids
+     * @param data the block data
+     * @throws IllegalArgumentException if the length of an array does not match the volume
+     */
+    public void importBlocks(byte[] ids, byte[] data) {
+        final int length = getLength();
+        System.arraycopy(checkLength(ids, length), 0, arrayId, 0, length);
+        this.arrayData = packNibbles(checkLength(data, length));
+    }
+    
+    /**
+     * Copies the ids and data of all blocks of this structure into the given arrays, in the native order of this
+     * structure and with one value per byte.
+     *
+     * @param ids the array of block ids to be filled
+     * @param data the array of block data to be filled
+     * @throws IllegalArgumentException if the length of an array does not match the volume
+     */
+    public void exportBlocks(byte[] ids, byte[] data) {
+        final int length = getLength();
+        System.arraycopy(arrayId, 0, checkLength(ids, length), 0, length);
+        checkLength(data, length);
+        for (int i = 0; i < length; i++)
+            data[i] = arrayData.get(i);
+    }
+    
     //MISC
     
     @Override
@@ -253,4 +322,38 @@ public class ArrayBlockStructure extends AbstractArray3 implements LegacyBlockSt
         return new ArrayBlockStructure(this);
     }
     
+    // UTIL
+    
+    private static byte[] checkLength(byte[] array, int length) {
+        if (array.length != length)
+            throw new IllegalArgumentException("array length " + array.length + " != volume " + length);
+        return array;
+    }
+    
+    /**
+     * Packs an array with one value per byte into a nibble array, storing values with even indices in the low nibble
+     * and values with odd indices in the high nibble of each byte.
+     *
+     * @param data the data values
+     * @return a new nibble array
+     */
+    private static LowNibbleArray packNibbles(byte[] data) {
+        final byte[] nibbles = new byte[(data.length + 1) >> 1];
+        final int pairs = data.length >> 1;
+        for (int i = 0, j = 0; i < pairs; i++, j += 2)
+            nibbles[i] = (byte) ((data[j] & 0xF) | (data[j + 1] << 4));
+        if ((data.length & 1) != 0)
+            nibbles[pairs] = (byte) (data[data.length - 1] & 0xF);
+        
+        return new LowNibbleArray(data.length, nibbles);
+    }
+    
+    private static LowNibbleArray copyNibbles(LowNibbleArray data, int length) {
+        final byte[] nibbles = new byte[(length + 1) >> 1];
+        for (int i = 0; i < length; i++)
+            nibbles[i >> 1] |= (data.get(i) & 0xF) << ((i & 1) << 2);
+        
+        return new LowNibbleArray(length, nibbles);
+    }
+    
 }
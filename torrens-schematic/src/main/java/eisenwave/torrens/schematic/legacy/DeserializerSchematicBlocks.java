@@ -5,11 +5,9 @@ import eisenwave.nbt.io.NBTDeserializer;
 import eisenwave.torrens.error.FileFormatException;
 import eisenwave.torrens.error.FileSyntaxException;
 import eisenwave.torrens.error.FileVersionException;
-import eisenwave.spatium.array.LowNibbleArray;
 import eisenwave.torrens.io.Deserializer;
 import eisenwave.torrens.schematic.legacy.ArrayBlockStructure;
 import eisenwave.torrens.schematic.legacy.LegacyBlockStructure;
-import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
@@ -34,21 +32,18 @@ public class DeserializerSchematicBlocks implements Deserializer<LegacyBlockStru
         validateSchematic();
         
         final short sizeX = readShort("Width"), sizeY = readShort("Height"), sizeZ = readShort("Length");
-        ArrayBlockStructure result = new ArrayBlockStructure(sizeX, sizeY, sizeZ);
+        final int volume = sizeX * sizeY * sizeZ;
         
-        short[] blocks = readBlocks();
+        // ids beyond 255 from "AddBlocks" can not be stored in an ArrayBlockStructure, so only "Blocks" is read
+        byte[] blocks = readBytes("Blocks");
         byte[] data = readBytes("Data");
         if (blocks.length != data.length)
             throw new FileSyntaxException("block and data array lengths do not match");
+        if (blocks.length != volume)
+            throw new FileSyntaxException("block array length " + blocks.length + " does not match volume " + volume);
         
-        for (int x = 0; x < sizeX; ++x)
-            for (int y = 0; y < sizeY; ++y)
-                for (int z = 0; z < sizeZ; ++z) {
-                    final int index = y * sizeX * sizeZ + z * sizeX + x;
-                    result.setBlock(x, y, z, blocks[index], data[index]);
-                }
-        
-        return result;
+        // both arrays are already in YZX order and the block array is adopted as is
+        return new ArrayBlockStructure(sizeX, sizeY, sizeZ, blocks, data);
     }
     
     private NBTCompound readSchematic(InputStream stream) throws IOException {
@@ -70,14 +65,6 @@ public class DeserializerSchematicBlocks implements Deserializer<LegacyBlockStru
             throw new FileVersionException("schematic is not an Alpha schematic");
     }
     
-    private short[] readBlocks() throws IOException {
-        byte[] baseBlocks = readBytes("Blocks");
-        
-        return schematic.hasKey("AddBlocks")?
-            toBlocks(baseBlocks, readBytes("AddBlocks")) :
-            toBlocks(baseBlocks);
-    }
-    
     private short readShort(String key) throws IOException {
         require(key, NBTType.SHORT);
         
@@ -95,38 +82,4 @@ public class DeserializerSchematicBlocks implements Deserializer<LegacyBlockStru
             throw new FileSyntaxException(String.format("nbt is missing tag \"%s\" of type %s", key, type));
     }
     
-    @Contract(pure = true)
-    private static short[] toBlocks(byte[] baseBlocks) {
-        short[] result = new short[baseBlocks.length];
-        for (int i = 0; i < baseBlocks.length; i++)
-            result[i] = (short) (baseBlocks[i] & 0xFF);
-        
-        return result;
-    }
-    
-    /**
-     * Converts the base block array which can encode up to 256 different block ids and a nibble array of additional ids
-     * which can encode up to 4096 different blocks (in combination with the first) into a single id array.
-     * <p>
-     * "AddBlocks" is a nibble (half-byte) array with even indexes in "Blocks" being in the low nibble and odd
-     * indexes being in the high nibble.
-     *
-     * @param baseBlocks the base array of block id's
-     * @param addBlocks the array of additional block id's
-     * @return a new array containing the full block id
-     */
-    @NotNull
-    @Contract(pure = true)
-    private static short[] toBlocks(byte[] baseBlocks, byte[] addBlocks) {
-        short[] blocks = new short[baseBlocks.length];
-        LowNibbleArray nibbles = new LowNibbleArray(addBlocks.length * 2, addBlocks);
-        
-        final int lim = Math.min(baseBlocks.length, nibbles.getLength());
-        
-        for (int i = 0; i < lim; i++)
-            blocks[i] = (short) ((nibbles.get(i) << 8) | (baseBlocks[i] & 0xFF));
-        
-        return blocks;
-    }
-    
 }
@@ -53,17 +53,22 @@ public class SerializerSchematicBlocks implements Serializer<LegacyBlockStructur
     }
     
     private void writeBlocks(LegacyBlockStructure blocks) {
-        int width = blocks.getSizeX(),
-            length = blocks.getSizeZ();
+        final int width = blocks.getSizeX(), height = blocks.getSizeY(), length = blocks.getSizeZ();
         
         byte[] ids = new byte[blocks.getVolume()];
         byte[] data = new byte[blocks.getVolume()];
         
-        blocks.forEachPos((x, y, z) -> {
-            int index = (y * length + z) * width + x;
-            ids[index] = (byte) blocks.getId(x, y, z);
-            data[index] = blocks.getData(x, y, z);
-        });
+        if (blocks instanceof ArrayBlockStructure)
+            ((ArrayBlockStructure) blocks).exportBlocks(ids, data);
+        else {
+            int index = 0;
+            for (int y = 0; y < height; y++)
+                for (int z = 0; z < length; z++)
+                    for (int x = 0; x < width; x++, index++) {
+                        ids[index] = (byte) blocks.getId(x, y, z);
+                        data[index] = blocks.getData(x, y, z);
+                    }
+        }
         
         schematic.putByteArray("Blocks", ids);
         schematic.putByteArray("Data", data);
@@ -0,0 +1,144 @@
+package eisenwave.torrens.schematic;
+
+import eisenwave.nbt.NBTCompound;
+import eisenwave.torrens.object.Vertex3i;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BlockStructureTest {
+    
+    @Test
+    public void addAndGetBlocks() {
+        BlockStructure structure = new BlockStructure(4, 3, 5);
+        structure.addBlock(1, 2, 3, BlockKey.minecraft("stone"), null);
+        structure.addBlock(0, 0, 0, BlockKey.minecraft("dirt"), null);
+        structure.addBlock(1, 2, 3, BlockKey.minecraft("dirt"), null);
+        
+        assertEquals(2, structure.size());
+        assertEquals(2, structure.getPaletteSize());
+        assertEquals(BlockKey.minecraft("dirt"), structure.getBlock(new Vertex3i(1, 2, 3)).getKey());
+        assertNull(structure.getBlock(2, 2, 2));
+        assertNull(structure.getBlock(4, 0, 0));
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsUnknownPaletteIndex() {
+        BlockStructure structure = new BlockStructure(2, 2, 2);
+        structure.addToPalette(BlockKey.minecraft("stone"));
+        structure.addBlock(0, 0, 0, 1, null);
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsOutsidePosition() {
+        new BlockStructure(2, 2, 2).addBlock(0, 2, 0, BlockKey.minecraft("stone"), null);
+    }
+    
+    @Test
+    public void growsPalette() {
+        BlockStructure structure = new BlockStructure(20, 20, 20);
+        for (int x = 0; x < 20; x++)
+            for (int y = 0; y < 20; y++)
+                for (int z = 0; z < 20; z++)
+                    structure.addBlock(x, y, z, BlockKey.minecraft("block" + (x * 400 + y * 20 + z) % 1000), null);
+        
+        assertEquals(1000, structure.getPaletteSize());
+        assertEquals(8000, structure.size());
+        for (int x = 0; x < 20; x++)
+            for (int y = 0; y < 20; y++)
+                for (int z = 0; z < 20; z++)
+                    assertEquals(BlockKey.minecraft("block" + (x * 400 + y * 20 + z) % 1000),
+                        structure.getBlock(x, y, z).getKey());
+    }
+    
+    @Test
+    public void iteratesInIndexOrder() {
+        BlockStructure structure = new BlockStructure(3, 3, 3);
+        NBTCompound nbt = new NBTCompound();
+        structure.addBlock(2, 1, 0, BlockKey.minecraft("b"), nbt);
+        structure.addBlock(0, 0, 2, BlockKey.minecraft("a"), null);
+        structure.addBlock(1, 2, 1, BlockKey.minecraft("c"), null);
+        
+        List<Vertex3i> positions = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        structure.forEach((block, index) -> {
+            positions.add(block.getPosition());
+            indices.add(index);
+        });
+        
+        assertEquals(3, positions.size());
+        assertEquals(new Vertex3i(0, 0, 2), positions.get(0));
+        assertEquals(new Vertex3i(2, 1, 0), positions.get(1));
+        assertEquals(new Vertex3i(1, 2, 1), positions.get(2));
+        assertEquals(Integer.valueOf(1), indices.get(0));
+        
+        int count = 0;
+        for (StructureBlock block : structure) {
+            assertEquals(positions.get(count++), block.getPosition());
+            assertEquals(block.getX() == 2? nbt : null, block.getNBT());
+        }
+        assertEquals(3, count);
+    }
+    
+    @Test
+    public void equalsIgnoresPaletteOrder() {
+        BlockStructure a = new BlockStructure(2, 2, 2), b = new BlockStructure(2, 2, 2);
+        a.addBlock(0, 0, 0, BlockKey.minecraft("stone"), null);
+        a.addBlock(1, 1, 1, BlockKey.minecraft("dirt"), null);
+        b.addBlock(1, 1, 1, BlockKey.minecraft("dirt"), null);
+        b.addBlock(0, 0, 0, BlockKey.minecraft("stone"), null);
+        assertEquals(a, b);
+        
+        b.addBlock(0, 1, 0, BlockKey.minecraft("stone"), null);
+        assertNotEquals(a, b);
+        assertNotEquals(b, a);
+    }
+    
+    @Test
+    public void primitiveAccess() {
+        BlockStructure structure = new BlockStructure(5, 4, 3);
+        int stone = structure.addToPalette(BlockKey.minecraft("stone"));
+        int dirt = structure.addToPalette(BlockKey.minecraft("dirt"));
+        NBTCompound nbt = new NBTCompound();
+        
+        structure.addBlock(4, 3, 2, stone, nbt);
+        structure.setPaletteIndex(4, 3, 2, dirt);
+        structure.setPaletteIndex(0, 1, 2, stone);
+        
+        assertEquals(2, structure.size());
+        assertEquals(dirt, structure.getPaletteIndex(4, 3, 2));
+        assertEquals(-1, structure.getPaletteIndex(1, 1, 1));
+        assertSame(nbt, structure.getNBT(4, 3, 2));
+        assertNull(structure.getNBT(0, 1, 2));
+        
+        structure.setPaletteIndex(4, 3, 2, -1);
+        structure.setPaletteIndex(4, 3, 2, -1);
+        assertEquals(1, structure.size());
+        assertNull(structure.getNBT(4, 3, 2));
+        assertNull(structure.getBlock(4, 3, 2));
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void primitiveAccessRejectsOutsidePosition() {
+        new BlockStructure(2, 2, 2).getPaletteIndex(0, 0, -1);
+    }
+    
+    @Test
+    public void forEachIndexedMatchesForEach() {
+        BlockStructure structure = new BlockStructure(7, 5, 6);
+        for (int i = 0; i < 40; i++)
+            structure.addBlock((i * 3) % 7, (i * 7) % 5, (i * 11) % 6, BlockKey.minecraft("block" + i % 20), null);
+        
+        List<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+        structure.forEach((block, index) ->
+            expected.add(block.getX() + "," + block.getY() + "," + block.getZ() + ":" + index));
+        structure.forEachIndexed((x, y, z, index) -> actual.add(x + "," + y + "," + z + ":" + index));
+        
+        assertEquals(structure.size(), actual.size());
+        assertEquals(expected, actual);
+    }
+    
+}
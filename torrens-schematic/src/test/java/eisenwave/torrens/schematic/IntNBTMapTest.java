@@ -0,0 +1,59 @@
+package eisenwave.torrens.schematic;
+
+import eisenwave.nbt.NBTCompound;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntNBTMapTest {
+    
+    @Test
+    public void matchesHashMap() {
+        IntNBTMap actual = new IntNBTMap();
+        Map<Integer, NBTCompound> expected = new HashMap<>();
+        Random random = new Random(1);
+        
+        for (int i = 0; i < 20000; i++) {
+            // small key ranges force long clusters, which exercise removal by shifting
+            final int key = random.nextInt(i < 10000? 500 : 1 << 20);
+            switch (random.nextInt(3)) {
+                case 0:
+                    actual.remove(key);
+                    expected.remove(key);
+                    break;
+                default:
+                    NBTCompound nbt = new NBTCompound();
+                    actual.put(key, nbt);
+                    expected.put(key, nbt);
+            }
+            assertSame(expected.get(key), actual.get(key));
+            assertEquals(expected.size(), actual.size());
+        }
+        
+        for (int key = 0; key < 500; key++)
+            assertSame(expected.get(key), actual.get(key));
+        for (Map.Entry<Integer, NBTCompound> entry : expected.entrySet())
+            assertSame(entry.getValue(), actual.get(entry.getKey()));
+    }
+    
+    @Test
+    public void clear() {
+        IntNBTMap map = new IntNBTMap();
+        assertNull(map.get(0));
+        map.remove(0);
+        
+        map.put(7, new NBTCompound());
+        assertFalse(map.isEmpty());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(7));
+        
+        map.put(7, new NBTCompound());
+        assertNotNull(map.get(7));
+    }
+    
+}
@@ -0,0 +1,238 @@
+package eisenwave.torrens.schematic;
+
+import eisenwave.nbt.NBTCompound;
+import eisenwave.torrens.error.FileSyntaxException;
+import eisenwave.torrens.error.FileVersionException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class StructureReaderTest {
+    
+    private final static BlockKey
+        STONE = BlockKey.minecraft("stone"),
+        LOG = new BlockKey("minecraft", "oak_log", Collections.singletonMap("axis", "y"));
+    
+    @Test
+    public void testHeaderFirst() throws IOException {
+        Recorder recorder = read(structure(true));
+        
+        assertEquals(BlockStructure.LATEST_VERSION, recorder.dataVersion);
+        assertArrayEquals(new int[] {2, 3, 4}, recorder.size);
+        assertEquals(Arrays.asList(STONE, LOG), recorder.palette);
+        assertEquals(Arrays.asList("0,0,0:0", "1,2,3:1", "1,0,0:0"), recorder.blocks);
+    }
+    
+    @Test
+    public void testBlocksFirst() throws IOException {
+        Recorder recorder = read(structure(false));
+        
+        assertEquals(BlockStructure.LATEST_VERSION, recorder.dataVersion);
+        assertArrayEquals(new int[] {2, 3, 4}, recorder.size);
+        assertEquals(Arrays.asList(STONE, LOG), recorder.palette);
+        assertEquals(Arrays.asList("0,0,0:0", "1,2,3:1", "1,0,0:0"), recorder.blocks);
+    }
+    
+    @Test
+    public void testDeserializer() throws IOException {
+        BlockStructure expected = new BlockStructure(2, 3, 4);
+        expected.addBlock(0, 0, 0, STONE, null);
+        expected.addBlock(1, 2, 3, LOG, null);
+        expected.addBlock(1, 0, 0, STONE, null);
+        
+        assertEquals(expected, new DeserializerStructureBlocks().fromBytes(structure(false)));
+    }
+    
+    @Test
+    public void testConsumer() throws IOException {
+        List<String> blocks = new ArrayList<>();
+        new DeserializerStructureBlocks().fromStream(new ByteArrayInputStream(structure(true)), (block, index) ->
+            blocks.add(block.getX() + "," + block.getY() + "," + block.getZ() + ":" + block.getKey().getId()));
+        
+        assertEquals(Arrays.asList("0,0,0:stone", "1,2,3:oak_log", "1,0,0:stone"), blocks);
+    }
+    
+    @Test(expected = FileVersionException.class)
+    public void testLegacyVersion() throws IOException {
+        NBTWriter out = new NBTWriter();
+        out.named(10, "");
+        out.named(3, "version").writeInt(1);
+        out.writeByte(0);
+        read(out.toBytes());
+    }
+    
+    @Test(expected = FileVersionException.class)
+    public void testMissingDataVersion() throws IOException {
+        NBTWriter out = new NBTWriter();
+        out.named(10, "");
+        out.intTriple("size", 1, 1, 1);
+        out.writeByte(0);
+        read(out.toBytes());
+    }
+    
+    @Test(expected = FileSyntaxException.class)
+    public void testInvalidSize() throws IOException {
+        NBTWriter out = new NBTWriter();
+        out.named(10, "");
+        out.named(3, "DataVersion").writeInt(BlockStructure.LATEST_VERSION);
+        out.named(9, "size").writeByte(3);
+        out.writeInt(2);
+        out.writeInt(1);
+        out.writeInt(1);
+        out.writeByte(0);
+        read(out.toBytes());
+    }
+    
+    @Test(expected = FileSyntaxException.class)
+    public void testStateOutsidePalette() throws IOException {
+        NBTWriter out = new NBTWriter();
+        out.named(10, "");
+        out.named(3, "DataVersion").writeInt(BlockStructure.LATEST_VERSION);
+        out.intTriple("size", 1, 1, 1);
+        out.named(9, "palette").writeByte(0);
+        out.writeInt(0);
+        out.named(9, "blocks").writeByte(10);
+        out.writeInt(1);
+        out.block(0, 0, 0, 0);
+        out.writeByte(0);
+        read(out.toBytes());
+    }
+    
+    // UTIL
+    
+    private static Recorder read(byte[] bytes) throws IOException {
+        Recorder recorder = new Recorder();
+        new StructureReader().read(new ByteArrayInputStream(bytes), recorder);
+        return recorder;
+    }
+    
+    /**
+     * Writes a structure with three blocks and a palette of two keys, along with tags which are to be skipped.
+     *
+     * @param headerFirst whether to write the header before or after the blocks
+     * @return the compressed structure
+     */
+    private static byte[] structure(boolean headerFirst) throws IOException {
+        NBTWriter out = new NBTWriter();
+        out.named(10, "");
+        out.named(8, "author").writeUTF("Someone");
+        
+        if (headerFirst) {
+            out.named(3, "DataVersion").writeInt(BlockStructure.LATEST_VERSION);
+            out.intTriple("size", 2, 3, 4);
+            out.palette();
+        }
+        
+        out.named(9, "entities").writeByte(10);
+        out.writeInt(1);
+        out.named(9, "pos").writeByte(6);
+        out.writeInt(3);
+        for (int i = 0; i < 3; i++)
+            out.writeDouble(0.5);
+        out.named(11, "data").writeInt(2);
+        out.writeInt(1);
+        out.writeInt(2);
+        out.writeByte(0);
+        
+        out.named(9, "blocks").writeByte(10);
+        out.writeInt(3);
+        out.block(0, 0, 0, 0);
+        out.block(1, 2, 3, 1);
+        out.block(1, 0, 0, 0);
+        
+        if (!headerFirst) {
+            out.palette();
+            out.intTriple("size", 2, 3, 4);
+            out.named(3, "DataVersion").writeInt(BlockStructure.LATEST_VERSION);
+        }
+        
+        out.writeByte(0);
+        return out.toBytes();
+    }
+    
+    // CLASSES
+    
+    private static class NBTWriter extends DataOutputStream {
+        
+        private final ByteArrayOutputStream bytes;
+        
+        NBTWriter() throws IOException {
+            this(new ByteArrayOutputStream());
+        }
+        
+        private NBTWriter(ByteArrayOutputStream bytes) throws IOException {
+            super(new GZIPOutputStream(bytes));
+            this.bytes = bytes;
+        }
+        
+        NBTWriter named(int type, String name) throws IOException {
+            writeByte(type);
+            writeUTF(name);
+            return this;
+        }
+        
+        void intTriple(String name, int x, int y, int z) throws IOException {
+            named(9, name).writeByte(3);
+            writeInt(3);
+            writeInt(x);
+            writeInt(y);
+            writeInt(z);
+        }
+        
+        void block(int x, int y, int z, int state) throws IOException {
+            named(3, "state").writeInt(state);
+            intTriple("pos", x, y, z);
+            named(1, "unknown").writeByte(1);
+            writeByte(0);
+        }
+        
+        void palette() throws IOException {
+            named(9, "palette").writeByte(10);
+            writeInt(2);
+            named(8, "Name").writeUTF("minecraft:stone");
+            writeByte(0);
+            named(8, "Name").writeUTF("minecraft:oak_log");
+            named(10, "Properties");
+            named(8, "axis").writeUTF("y");
+            writeByte(0);
+            writeByte(0);
+        }
+        
+        byte[] toBytes() throws IOException {
+            close();
+            return bytes.toByteArray();
+        }
+        
+    }
+    
+    private static class Recorder implements StructureHandler {
+        
+        private int dataVersion;
+        private int[] size;
+        private List<BlockKey> palette;
+        private final List<String> blocks = new ArrayList<>();
+        
+        @Override
+        public void start(int dataVersion, int x, int y, int z, @NotNull List<BlockKey> palette) {
+            assertNull(size);
+            this.dataVersion = dataVersion;
+            this.size = new int[] {x, y, z};
+            this.palette = palette;
+        }
+        
+        @Override
+        public void block(int x, int y, int z, int paletteIndex, @Nullable NBTCompound nbt) {
+            assertNotNull(size);
+            assertNull(nbt);
+            blocks.add(x + "," + y + "," + z + ":" + paletteIndex);
+        }
+        
+    }
+    
+}
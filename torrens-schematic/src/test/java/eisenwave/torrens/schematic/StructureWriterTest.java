@@ -0,0 +1,84 @@
+package eisenwave.torrens.schematic;
+
+import eisenwave.nbt.NBTCompound;
+import eisenwave.torrens.object.Vertex3i;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class StructureWriterTest {
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        BlockStructure expected = randomStructure(5, 6, 7);
+        
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new StructureWriter().write(expected, "author", stream);
+        BlockStructure actual = new DeserializerStructureBlocks().fromBytes(stream.toByteArray());
+        
+        assertEquals(expected, actual);
+        assertEquals(expected.getPalette(), actual.getPalette());
+    }
+    
+    @Test
+    public void testUncompressed() throws IOException {
+        BlockStructure expected = randomStructure(3, 2, 1);
+        
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new StructureWriter(false).write(expected, "author", stream);
+        
+        List<String> blocks = new ArrayList<>();
+        new StructureReader(false).read(new ByteArrayInputStream(stream.toByteArray()), new StructureHandler() {
+            @Override
+            public void start(int dataVersion, int x, int y, int z, List<BlockKey> palette) {
+                assertEquals(expected.getDataVersion(), dataVersion);
+                assertEquals(expected.getSize(), new Vertex3i(x, y, z));
+                assertEquals(expected.getPalette(), palette);
+            }
+            
+            @Override
+            public void block(int x, int y, int z, int paletteIndex, NBTCompound nbt) {
+                assertEquals(expected.getPaletteIndex(x, y, z), paletteIndex);
+                blocks.add(x + "," + y + "," + z);
+            }
+        });
+        
+        assertEquals(expected.size(), blocks.size());
+    }
+    
+    @Test
+    public void testEmpty() throws IOException {
+        BlockStructure expected = new BlockStructure(4, 4, 4);
+        
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new SerializerStructureBlocks().toStream(expected, stream);
+        BlockStructure actual = new DeserializerStructureBlocks().fromBytes(stream.toByteArray());
+        
+        assertEquals(expected, actual);
+        assertEquals(0, actual.size());
+    }
+    
+    private static BlockStructure randomStructure(int sizeX, int sizeY, int sizeZ) {
+        Random random = new Random(1);
+        BlockKey[] keys = {
+            BlockKey.minecraft("stone"),
+            BlockKey.minecraft("glass"),
+            new BlockKey("minecraft", "oak_log", Collections.singletonMap("axis", "z")),
+            new BlockKey("custom", "block")
+        };
+        
+        BlockStructure structure = new BlockStructure(sizeX, sizeY, sizeZ);
+        for (int x = 0; x < sizeX; x++)
+            for (int y = 0; y < sizeY; y++)
+                for (int z = 0; z < sizeZ; z++)
+                    if (random.nextInt(4) != 0)
+                        structure.addBlock(x, y, z, keys[random.nextInt(keys.length)], null);
+        return structure;
+    }
+    
+}
@@ -0,0 +1,75 @@
+package eisenwave.torrens.schematic.legacy;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ArrayBlockStructureTest {
+    
+    @Test
+    public void adoptArrays() {
+        final int sizeX = 3, sizeY = 4, sizeZ = 5, volume = sizeX * sizeY * sizeZ;
+        byte[] ids = new byte[volume];
+        byte[] data = new byte[volume];
+        randomize(ids, data, new Random(1));
+        
+        ArrayBlockStructure struct = new ArrayBlockStructure(sizeX, sizeY, sizeZ, ids.clone(), data.clone());
+        
+        // schematic order: x changes fastest, then z, then y
+        for (int y = 0, i = 0; y < sizeY; y++)
+            for (int z = 0; z < sizeZ; z++)
+                for (int x = 0; x < sizeX; x++, i++) {
+                    assertEquals(ids[i] & 0xFF, struct.getId(x, y, z));
+                    assertEquals(data[i], struct.getData(x, y, z));
+                }
+    }
+    
+    @Test
+    public void importExport() {
+        final int sizeX = 7, sizeY = 3, sizeZ = 5, volume = sizeX * sizeY * sizeZ;
+        byte[] ids = new byte[volume];
+        byte[] data = new byte[volume];
+        randomize(ids, data, new Random(2));
+        
+        ArrayBlockStructure struct = new ArrayBlockStructure(sizeX, sizeY, sizeZ);
+        struct.importBlocks(ids, data);
+        assertEquals(new ArrayBlockStructure(sizeX, sizeY, sizeZ, ids.clone(), data.clone()), struct);
+        
+        byte[] actualIds = new byte[volume];
+        byte[] actualData = new byte[volume];
+        struct.exportBlocks(actualIds, actualData);
+        
+        assertArrayEquals(ids, actualIds);
+        assertArrayEquals(data, actualData);
+    }
+    
+    @Test
+    public void copy() {
+        ArrayBlockStructure struct = new ArrayBlockStructure(5, 2, 3, ArrayBlockStructure.FLAG_LIGHT);
+        Random random = new Random(3);
+        struct.forEachPos((x, y, z) -> {
+            struct.setBlock(x, y, z, random.nextInt(256), (byte) random.nextInt(16));
+            struct.setBlockLight(x, y, z, (byte) random.nextInt(16));
+        });
+        
+        ArrayBlockStructure copy = struct.clone();
+        assertEquals(struct, copy);
+        
+        copy.setBlock(0, 0, 0, struct.getId(0, 0, 0) + 1, (byte) 0);
+        assertNotEquals(struct, copy);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void lengthMismatch() {
+        new ArrayBlockStructure(2, 2, 2, new byte[8], new byte[7]);
+    }
+    
+    private static void randomize(byte[] ids, byte[] data, Random random) {
+        random.nextBytes(ids);
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) random.nextInt(16);
+    }
+    
+}